@@ -0,0 +1,249 @@
+package arc;
+
+import arc.func.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A thread-safe event bus. Listeners are registered for a key, which is either an event class or a trigger object such as an enum.
+ * <p>
+ * Every key has a {@link Handle} with its own copy-on-write listener array. Keep a handle to fire events of a type without any lookup:
+ * {@link Handle#fire(Object)} only reads one array. Listeners can be added and removed from any thread, even while events are being fired;
+ * registration only locks the handle it modifies. Firing never locks.
+ * <p>
+ * Events can also be {@link #post(Object) posted} from other threads, to be fired in order by the next {@link #drain()} call,
+ * usually on the main thread. With {@link #autoDrain}, posting schedules a drain with {@link Application#post(Runnable)}.
+ * @see Events
+ */
+@SuppressWarnings("unchecked")
+public class EventBus{
+    private static final Cons[] noListeners = {};
+
+    /** If true, {@link #post(Object)} schedules {@link #drain()} to run on the application thread. */
+    public boolean autoDrain;
+
+    /** Copy-on-write map of handles. Only replaced while holding the lock. */
+    private volatile ObjectMap<Object, Handle<?>> handles = new ObjectMap<>();
+    /** All handles, indexed by {@link Handle#id}. */
+    private volatile Handle<?>[] table = {};
+    private final Object lock = new Object();
+
+    /** Pairs of handles and events waiting to be drained. */
+    private Object[] queue = new Object[32], draining = new Object[32];
+    private int queued;
+    private boolean drainScheduled;
+    private final Object queueLock = new Object();
+    private final Runnable drainer = this::drain;
+
+    /** @return the handle for an event class. */
+    public <T> Handle<T> handle(Class<T> type){
+        return handle((Object)type);
+    }
+
+    /** @return the handle for an event class or trigger, which is created if needed. Handles are never removed. */
+    public <T> Handle<T> handle(Object key){
+        Handle<?> handle = handles.get(key);
+        if(handle == null){
+            synchronized(lock){
+                handle = handles.get(key);
+                if(handle == null){
+                    Handle<?>[] table = this.table;
+                    handle = new Handle<>(this, key, table.length);
+
+                    ObjectMap<Object, Handle<?>> copy = new ObjectMap<>(handles);
+                    copy.put(key, handle);
+                    Handle<?>[] newTable = Arrays.copyOf(table, table.length + 1);
+                    newTable[table.length] = handle;
+
+                    this.table = newTable;
+                    handles = copy;
+                }
+            }
+        }
+        return (Handle<T>)handle;
+    }
+
+    /** @return the handle with the specified {@link Handle#id}. */
+    public Handle<?> handle(int id){
+        return table[id];
+    }
+
+    /** @return the number of handles created so far. */
+    public int handles(){
+        return table.length;
+    }
+
+    /** Handle an event by class. */
+    public <T> void on(Class<T> type, Cons<T> listener){
+        handle(type).on(listener);
+    }
+
+    /** Handle an event by trigger. */
+    public void run(Object trigger, Runnable listener){
+        handle(trigger).on(e -> listener.run());
+    }
+
+    /** Only use this method if you have the reference to the exact listener object that was used. */
+    public <T> boolean remove(Class<T> type, Cons<T> listener){
+        Handle<T> handle = (Handle<T>)handles.get(type);
+        return handle != null && handle.remove(listener);
+    }
+
+    /** Fires an event by its class. Prefer {@link Handle#fire(Object)} on hot paths, as this needs a map lookup. */
+    public <T> void fire(T event){
+        fire(event.getClass(), event);
+    }
+
+    /** Fires an event to the listeners of a key. */
+    public <T> void fire(Object key, T event){
+        Handle<T> handle = (Handle<T>)handles.get(key);
+        if(handle != null){
+            handle.fire(event);
+        }
+    }
+
+    /** Queues an event by its class, to be fired by the next {@link #drain()}. Can be called from any thread. */
+    public <T> void post(T event){
+        post(event.getClass(), event);
+    }
+
+    /** Queues an event for the listeners of a key, to be fired by the next {@link #drain()}. Can be called from any thread. */
+    public <T> void post(Object key, T event){
+        enqueue(handle(key), event);
+    }
+
+    /**
+     * Fires all queued events in the order they were posted. Events posted while draining are fired by the next call.
+     * This should only be called from one thread at a time.
+     * @return the number of events fired.
+     */
+    public int drain(){
+        Object[] items;
+        int count;
+
+        synchronized(queueLock){
+            drainScheduled = false;
+            if(queued == 0) return 0;
+
+            items = queue;
+            count = queued;
+            queue = draining;
+            draining = items;
+            queued = 0;
+        }
+
+        for(int i = 0; i < count; i += 2){
+            Handle<Object> handle = (Handle<Object>)items[i];
+            Object event = items[i + 1];
+            items[i] = items[i + 1] = null;
+            handle.fire(event);
+        }
+        return count / 2;
+    }
+
+    /** @return the number of events waiting to be drained. */
+    public int queued(){
+        synchronized(queueLock){
+            return queued / 2;
+        }
+    }
+
+    /** Removes all listeners and queued events. Existing handles stay valid. */
+    public void clear(){
+        synchronized(lock){
+            for(Handle<?> handle : table){
+                synchronized(handle){
+                    handle.listeners = noListeners;
+                }
+            }
+        }
+        synchronized(queueLock){
+            Arrays.fill(queue, 0, queued, null);
+            queued = 0;
+        }
+    }
+
+    void enqueue(Handle<?> handle, Object event){
+        boolean schedule;
+
+        synchronized(queueLock){
+            if(queued + 2 > queue.length){
+                queue = Arrays.copyOf(queue, queue.length * 2);
+                draining = new Object[queue.length];
+            }
+            queue[queued++] = handle;
+            queue[queued++] = event;
+
+            schedule = autoDrain && !drainScheduled && Core.app != null;
+            if(schedule) drainScheduled = true;
+        }
+
+        if(schedule){
+            Core.app.post(drainer);
+        }
+    }
+
+    /** The listeners for one event class or trigger. Firing through a handle does not need any lookup. */
+    public static final class Handle<T>{
+        /** The event class or trigger of this handle. */
+        public final Object key;
+        /** Index of this handle in its bus. */
+        public final int id;
+
+        private final EventBus bus;
+        private volatile Cons<T>[] listeners = noListeners;
+
+        Handle(EventBus bus, Object key, int id){
+            this.bus = bus;
+            this.key = key;
+            this.id = id;
+        }
+
+        /** Adds a listener. */
+        public synchronized void on(Cons<T> listener){
+            Cons<T>[] current = listeners;
+            Cons<T>[] copy = Arrays.copyOf(current, current.length + 1);
+            copy[current.length] = listener;
+            listeners = copy;
+        }
+
+        /** Removes a listener by identity. */
+        public synchronized boolean remove(Cons<T> listener){
+            Cons<T>[] current = listeners;
+            for(int i = 0; i < current.length; i++){
+                if(current[i] == listener){
+                    Cons<T>[] copy = new Cons[current.length - 1];
+                    System.arraycopy(current, 0, copy, 0, i);
+                    System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                    listeners = copy;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Fires an event to every listener registered when this is called. */
+        public void fire(T event){
+            Cons<T>[] listeners = this.listeners;
+            for(int i = 0; i < listeners.length; i++){
+                listeners[i].get(event);
+            }
+        }
+
+        /** Queues an event to be fired by the next {@link EventBus#drain()}. Can be called from any thread. */
+        public void post(T event){
+            bus.enqueue(this, event);
+        }
+
+        /** @return the number of listeners. */
+        public int size(){
+            return listeners.length;
+        }
+
+        @Override
+        public String toString(){
+            return "Handle{" + key + "}";
+        }
+    }
+}
@@ -9,19 +9,33 @@ import arc.util.io.*;
 import arc.util.serialization.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.zip.*;
 
+/**
+ * Stores key-value settings and persists them in the data directory.
+ * <p>
+ * Reads never lock: values are kept in a concurrent map, so getters do not block behind a save or a change on another thread.
+ * <p>
+ * By default, every save rewrites the whole settings file. In {@link #setJournaled(boolean) journaled} mode, a save only appends the keys that
+ * changed since the last save to a journal file, as one checksummed batch. Once the journal grows larger than the settings file, the current values
+ * are compacted into a new settings file on a background thread. Loading replays the journal on top of the settings file, and stops at the first
+ * incomplete or corrupt batch.
+ * <p>
+ * For values that are read often, e.g. every frame, use a typed handle such as {@link #intKey(String)}. A handle keeps its value in a primitive field,
+ * so reading it does not need a map lookup, cast or unboxing. Handles stay in sync with the string API in both directions.
+ */
 public class Settings{
-    protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5;
+    protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5, typeRemove = 6, typeClear = 7;
     protected final static int maxBackups = 10, minBackupIntervalMs = 1000 * 60 * 2;
 
     //general state data
     protected Fi dataDirectory;
     protected String appName = "app";
     protected ObjectMap<String, Object> defaults = new ObjectMap<>();
-    protected HashMap<String, Object> values = new HashMap<>();
+    protected Map<String, Object> values = new ConcurrentHashMap<>();
     protected boolean modified;
     protected Cons<Throwable> errorHandler;
     protected boolean hasErrored;
@@ -31,9 +45,31 @@ public class Settings{
     private long lastBackupTime;
     protected ExecutorService executor = Threads.executor("Settings Backup", 1);
 
+    //journal state
+    protected boolean journaled;
+    /** Minimum journal size in bytes before it is compacted. */
+    protected int minCompactSize = 64 * 1024;
+    /** Keys that changed since the last save. */
+    protected ObjectSet<String> dirty = new ObjectSet<>();
+    /** Whether all values were cleared since the last save. */
+    protected boolean cleared;
+    /** Whether the next journaled save needs to compact, e.g. because the journal has a corrupt tail. */
+    protected boolean compactPending;
+    protected volatile boolean compacting;
+    private long journalSize = -1;
+    private volatile long baseSize;
+    /** Incremented by every full save, so that an older background compaction does not overwrite it. */
+    private int generation;
+
+    /** Typed handles, by key. */
+    protected ObjectMap<String, Key> handles = new ObjectMap<>();
+
     //IO utility objects
     protected ByteArrayOutputStream byteStream = new ByteArrayOutputStream(32);
     protected ReusableByteInStream byteInputStream = new ReusableByteInStream();
+    protected ReusableByteOutStream journalStream = new ReusableByteOutStream(256);
+    protected DataOutputStream journalOutput = new DataOutputStream(journalStream);
+    protected CRC32 crc = new CRC32();
     protected UBJsonReader ureader = new UBJsonReader();
     protected Json json = new Json();
 
@@ -45,6 +81,23 @@ public class Settings{
         this.writeCompressed = compressed;
     }
 
+    /**
+     * Sets whether saves append changed keys to a journal instead of rewriting the settings file.
+     * Journals are always replayed when loading, so this can be changed at any time.
+     */
+    public void setJournaled(boolean journaled){
+        this.journaled = journaled;
+    }
+
+    public boolean isJournaled(){
+        return journaled;
+    }
+
+    /** @return whether a background compaction of the journal is running. */
+    public boolean isCompacting(){
+        return compacting;
+    }
+
     public String getAppName(){
         return appName;
     }
@@ -122,11 +175,36 @@ public class Settings{
 
     /** Loads a settings file into {@link #values} using the specified appName. */
     public synchronized void loadValues(){
-        //don't load settings files if neither of them exist
-        if(!getSettingsFile().exists() && !getBackupSettingsFile().exists()){
+        boolean journal = getJournalFile().exists() || getOldJournalFile().exists();
+
+        //don't load settings files if none of them exist
+        if(!getSettingsFile().exists() && !getBackupSettingsFile().exists() && !journal){
             return;
         }
 
+        if(getSettingsFile().exists() || getBackupSettingsFile().exists()){
+            loadBaseValues();
+            baseSize = getSettingsFile().length();
+        }
+
+        if(journal){
+            boolean intact = true;
+            //an old journal is only left over if a compaction did not finish, and is older than the current journal
+            if(getOldJournalFile().exists()){
+                replayJournal(getOldJournalFile());
+                intact = false;
+            }
+            if(getJournalFile().exists() && !replayJournal(getJournalFile())){
+                intact = false;
+            }
+            //compact on the next save, as batches appended after a corrupt one could not be read
+            if(!intact) compactPending = true;
+        }
+
+        refreshHandles();
+    }
+
+    private void loadBaseValues(){
         try{
             loadValues(getSettingsFile());
 
@@ -169,34 +247,8 @@ public class Settings{
             if(amount <= 0) throw new IOException("0 values are not allowed.");
             for(int i = 0; i < amount; i++){
                 String key = stream.readUTF();
-
                 byte type = stream.readByte();
-
-                switch(type){
-                    case typeBool:
-                        values.put(key, stream.readBoolean());
-                        break;
-                    case typeInt:
-                        values.put(key, stream.readInt());
-                        break;
-                    case typeLong:
-                        values.put(key, stream.readLong());
-                        break;
-                    case typeFloat:
-                        values.put(key, stream.readFloat());
-                        break;
-                    case typeString:
-                        values.put(key, stream.readUTF());
-                        break;
-                    case typeBinary:
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        stream.readFully(bytes);
-                        values.put(key, bytes);
-                        break;
-                    default:
-                        throw new IOException("Unknown key type: " + type);
-                }
+                values.put(key, readValue(stream, type));
             }
             //make sure all data was read - this helps with potential corruption
             int end = stream.read();
@@ -204,48 +256,291 @@ public class Settings{
                 throw new IOException("Trailing settings data; expected EOF, but got: " + end);
             }
         }
+
+        refreshHandles();
     }
 
-    /** Saves all entries from {@link #values} into the correct location. */
-    public synchronized void saveValues(){
-        Fi file = getSettingsFile();
+    /**
+     * Applies all intact batches of a journal file to {@link #values}.
+     * @return false if the journal ends with an incomplete or corrupt batch, which is ignored along with everything after it.
+     */
+    protected boolean replayJournal(Fi file){
+        try(DataInputStream stream = new DataInputStream(file.read(8192))){
+            long fileLength = file.length();
+            byte[] batch = {};
+
+            while(true){
+                int first = stream.read();
+                //clean end of the journal
+                if(first == -1) return true;
+
+                int length = first << 24 | stream.readUnsignedByte() << 16 | stream.readUnsignedShort();
+                int checksum = stream.readInt();
+                if(length < 0 || length > fileLength){
+                    Log.warn("Invalid settings journal batch length: @", length);
+                    return false;
+                }
 
+                if(batch.length < length) batch = new byte[length];
+                stream.readFully(batch, 0, length);
+
+                crc.reset();
+                crc.update(batch, 0, length);
+                if((int)crc.getValue() != checksum){
+                    Log.warn("Settings journal batch has an invalid checksum, ignoring the rest of the journal.");
+                    return false;
+                }
+
+                DataInputStream records = new DataInputStream(new ByteArrayInputStream(batch, 0, length));
+                while(records.available() > 0){
+                    String key = records.readUTF();
+                    byte type = records.readByte();
+                    if(type == typeRemove){
+                        values.remove(key);
+                    }else if(type == typeClear){
+                        values.clear();
+                    }else{
+                        values.put(key, readValue(records, type));
+                    }
+                }
+            }
+        }catch(EOFException e){
+            Log.warn("Settings journal ends with an incomplete batch, ignoring it.");
+            return false;
+        }catch(Throwable e){
+            Log.err("Failed to read settings journal " + file, e);
+            return false;
+        }
+    }
+
+    protected Object readValue(DataInput stream, byte type) throws IOException{
+        switch(type){
+            case typeBool: return stream.readBoolean();
+            case typeInt: return stream.readInt();
+            case typeLong: return stream.readLong();
+            case typeFloat: return stream.readFloat();
+            case typeString: return stream.readUTF();
+            case typeBinary:
+                int length = stream.readInt();
+                byte[] bytes = new byte[length];
+                stream.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown key type: " + type);
+        }
+    }
+
+    protected void writeValue(DataOutput stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeByte(typeBool);
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeByte(typeInt);
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeByte(typeLong);
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeByte(typeFloat);
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeByte(typeString);
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeByte(typeBinary);
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }
+    }
+
+    /** Writes all the specified values to a file in the settings format. */
+    protected void writeValues(Fi file, Map<String, Object> values) throws IOException{
         try(DataOutputStream stream = new DataOutputStream(writeCompressed ? new FastDeflaterOutputStream(file.write(false, 8192)) : file.write(false, 8192))){
             stream.writeInt(values.size());
 
             for(Map.Entry<String, Object> entry : values.entrySet()){
                 stream.writeUTF(entry.getKey());
-
-                Object value = entry.getValue();
-
-                if(value instanceof Boolean){
-                    stream.writeByte(typeBool);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(typeInt);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(typeLong);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(typeFloat);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(typeString);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(typeBinary);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
-                }
+                writeValue(stream, entry.getValue());
             }
+        }
+    }
+
+    /** Saves all entries from {@link #values} into the correct location. In journaled mode, only changed entries are appended to the journal. */
+    public synchronized void saveValues(){
+        if(journaled){
+            saveJournal();
+            return;
+        }
+
+        Fi file = getSettingsFile();
 
+        try{
+            //all modifications lock, so the values cannot change while they are written
+            writeValues(file, values);
         }catch(Throwable e){
             //file is now corrupt, delete it
             file.delete();
             throw new RuntimeException("Error writing preferences: " + file, e);
         }
 
+        generation++;
+        dirty.clear();
+        cleared = false;
+        compactPending = false;
+        baseSize = file.length();
+        //journals are older than this file now
+        deleteJournals();
+
+        backup(file);
+    }
+
+    /** Appends all values that changed since the last save to the journal, or starts a compaction if the journal is too large. */
+    protected void saveJournal(){
+        if(!compacting && (compactPending || journalSize() > Math.max(minCompactSize, baseSize))){
+            compact();
+            return;
+        }
+
+        if(dirty.isEmpty() && !cleared) return;
+
+        Fi file = getJournalFile();
+        try{
+            journalStream.reset();
+            DataOutputStream out = journalOutput;
+
+            if(cleared){
+                out.writeUTF("");
+                out.writeByte(typeClear);
+            }
+
+            for(String key : dirty){
+                Object value = values.get(key);
+                out.writeUTF(key);
+                if(value == null){
+                    out.writeByte(typeRemove);
+                }else{
+                    writeValue(out, value);
+                }
+            }
+            out.flush();
+
+            int length = journalStream.size();
+            crc.reset();
+            crc.update(journalStream.getBytes(), 0, length);
+
+            try(DataOutputStream stream = new DataOutputStream(file.write(true, length + 8))){
+                stream.writeInt(length);
+                stream.writeInt((int)crc.getValue());
+                stream.write(journalStream.getBytes(), 0, length);
+            }
+
+            journalSize += length + 8;
+            dirty.clear();
+            cleared = false;
+        }catch(Throwable e){
+            //the journal may now end with a partial batch
+            compactPending = true;
+            throw new RuntimeException("Error writing preferences journal: " + file, e);
+        }
+    }
+
+    /**
+     * Moves the current journal aside and writes a copy of all values into a new settings file on the background thread.
+     * Changes made while this runs are appended to a new journal.
+     */
+    protected void compact(){
+        Fi journal = getJournalFile(), old = getOldJournalFile(), file = getSettingsFile(), temp = getDataDirectory().child("settings.bin.tmp");
+
+        //the old journal is only deleted once the new settings file is in place, so any data in it is still needed until then
+        if(journal.exists()){
+            if(old.exists()){
+                old.writeBytes(journal.readBytes(), true);
+                journal.delete();
+            }else{
+                journal.moveTo(old);
+            }
+        }
+
+        HashMap<String, Object> snapshot = new HashMap<>(values);
+        int generation = this.generation;
+
+        compacting = true;
+        journalSize = 0;
+        dirty.clear();
+        cleared = false;
+        compactPending = false;
+
+        executor.submit(() -> {
+            try{
+                writeValues(temp, snapshot);
+                long length = temp.length();
+                sync(temp);
+
+                synchronized(this){
+                    //a full save happened in the meantime, and this snapshot is older than it
+                    if(generation != this.generation){
+                        temp.delete();
+                        return;
+                    }
+
+                    replace(temp, file);
+                    if(file.length() != length) throw new IOException("Settings file has the wrong size after replacing it: " + file);
+                    old.delete();
+                    baseSize = length;
+                }
+
+                backup(file);
+            }catch(Throwable e){
+                Log.err("Error compacting settings", e);
+                temp.delete();
+                //the old journal is still there, so retry on the next save
+                synchronized(this){
+                    compactPending = true;
+                }
+            }finally{
+                compacting = false;
+            }
+        });
+    }
+
+    /** Flushes the contents of a file to the storage device, so that it survives a crash once it is renamed. */
+    private static void sync(Fi file) throws IOException{
+        try(RandomAccessFile access = new RandomAccessFile(file.file(), "rw")){
+            access.getFD().sync();
+        }
+    }
+
+    /** Replaces the target with the source file in one step, so that a crash leaves either the old or the new file. */
+    private static void replace(Fi source, Fi target) throws IOException{
+        //java.nio.file is missing on older Android versions, where renaming already replaces files atomically
+        if(OS.isAndroid){
+            if(!source.file().renameTo(target.file())) throw new IOException("Failed to rename " + source + " to " + target);
+            return;
+        }
+
+        Path from = source.file().toPath(), to = target.file().toPath();
+        try{
+            java.nio.file.Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }catch(AtomicMoveNotSupportedException e){
+            java.nio.file.Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private long journalSize(){
+        if(journalSize < 0){
+            journalSize = getJournalFile().length();
+        }
+        return journalSize;
+    }
+
+    private void deleteJournals(){
+        if(getJournalFile().exists()) getJournalFile().delete();
+        if(getOldJournalFile().exists()) getOldJournalFile().delete();
+        journalSize = 0;
+    }
+
+    /** Copies the settings file into the backup folder, if the last backup is old enough. */
+    protected void backup(Fi file){
         if(Time.timeSinceMillis(lastBackupTime) > minBackupIntervalMs){
             lastBackupTime = Time.millis();
 
@@ -275,6 +570,16 @@ public class Settings{
         return getDataDirectory().child("settings.bin");
     }
 
+    /** Returns the journal that changed values are appended to in journaled mode. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings.journal");
+    }
+
+    /** Returns the journal that is being compacted into the settings file. */
+    public Fi getOldJournalFile(){
+        return getDataDirectory().child("settings.journal.old");
+    }
+
     public Fi getBackupFolder(){
         return getDataDirectory().child("settings_backups");
     }
@@ -306,18 +611,23 @@ public class Settings{
     /** Clears all preference values. */
     public synchronized void clear(){
         values.clear();
+        dirty.clear();
+        cleared = true;
+        modified = true;
+        refreshHandles();
     }
 
     public synchronized Object getDefault(String name){
         return defaults.get(name);
     }
 
-    public synchronized boolean has(String name){
+    public boolean has(String name){
         return values.containsKey(name);
     }
 
-    public synchronized Object get(String name, Object def){
-        return values.containsKey(name) ? values.get(name) : def;
+    public Object get(String name, Object def){
+        Object value = values.get(name);
+        return value == null ? def : value;
     }
 
     public boolean isModified(){
@@ -444,7 +754,11 @@ public class Settings{
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
             values.put(name, object);
+            dirty.add(name);
             modified = true;
+
+            Key handle = handles.get(name);
+            if(handle != null) handle.load(object);
         }else{
             throw new IllegalArgumentException("Invalid object stored: " + (object == null ? null : object.getClass()) + ".");
         }
@@ -452,14 +766,225 @@ public class Settings{
 
     public synchronized void remove(String name){
         values.remove(name);
+        dirty.add(name);
         modified = true;
+
+        Key handle = handles.get(name);
+        if(handle != null) handle.load(null);
     }
 
-    public synchronized Iterable<String> keys(){
+    public Iterable<String> keys(){
         return values.keySet();
     }
 
-    public synchronized int keySize(){
+    public int keySize(){
         return values.size();
     }
+
+    /** @return a handle for an int value, with the default set by {@link #defaults(Object...)} or 0. */
+    public IntKey intKey(String name){
+        return intKey(name, (int)defaults.get(name, 0));
+    }
+
+    /** @return a handle for an int value. If a handle for this key already exists, it is returned with its original default. */
+    public synchronized IntKey intKey(String name, int def){
+        return handle(name, IntKey.class, () -> new IntKey(name, def));
+    }
+
+    /** @return a handle for a float value, with the default set by {@link #defaults(Object...)} or 0. */
+    public FloatKey floatKey(String name){
+        return floatKey(name, (float)defaults.get(name, 0f));
+    }
+
+    /** @return a handle for a float value. If a handle for this key already exists, it is returned with its original default. */
+    public synchronized FloatKey floatKey(String name, float def){
+        return handle(name, FloatKey.class, () -> new FloatKey(name, def));
+    }
+
+    /** @return a handle for a boolean value, with the default set by {@link #defaults(Object...)} or false. */
+    public BoolKey boolKey(String name){
+        return boolKey(name, (boolean)defaults.get(name, false));
+    }
+
+    /** @return a handle for a boolean value. If a handle for this key already exists, it is returned with its original default. */
+    public synchronized BoolKey boolKey(String name, boolean def){
+        return handle(name, BoolKey.class, () -> new BoolKey(name, def));
+    }
+
+    /** @return a handle for a long value, with the default set by {@link #defaults(Object...)} or 0. */
+    public LongKey longKey(String name){
+        return longKey(name, (long)defaults.get(name, 0L));
+    }
+
+    /** @return a handle for a long value. If a handle for this key already exists, it is returned with its original default. */
+    public synchronized LongKey longKey(String name, long def){
+        return handle(name, LongKey.class, () -> new LongKey(name, def));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Key> T handle(String name, Class<T> type, Prov<T> create){
+        Key handle = handles.get(name);
+        if(handle == null){
+            handle = create.get();
+            handle.load(values.get(name));
+            handles.put(name, handle);
+        }else if(handle.getClass() != type){
+            throw new IllegalArgumentException("Key '" + name + "' already has a handle of type " + handle.getClass().getSimpleName() + ".");
+        }
+        return (T)handle;
+    }
+
+    private void refreshHandles(){
+        for(Key handle : handles.values()){
+            handle.load(values.get(handle.name));
+        }
+    }
+
+    /** A typed handle for one settings key. Values are read from a field without any locking or lookup. */
+    public abstract class Key{
+        public final String name;
+
+        Key(String name){
+            this.name = name;
+        }
+
+        /** @return whether a value is stored for this key. */
+        public boolean has(){
+            return values.containsKey(name);
+        }
+
+        /** Removes the stored value, so the handle returns its default. */
+        public void remove(){
+            Settings.this.remove(name);
+        }
+
+        /** Writes the value through to the settings map, so that it is saved. Called with the settings monitor held. */
+        void store(Object value){
+            values.put(name, value);
+            dirty.add(name);
+            modified = true;
+        }
+
+        /** Updates the field from a stored value, or resets it to the default if the value is null or of a different type. */
+        abstract void load(@Nullable Object value);
+
+        @Override
+        public String toString(){
+            return name;
+        }
+    }
+
+    public class IntKey extends Key{
+        public final int def;
+        private volatile int value;
+
+        IntKey(String name, int def){
+            super(name);
+            this.def = def;
+        }
+
+        public int get(){
+            return value;
+        }
+
+        public void set(int value){
+            synchronized(Settings.this){
+                if(this.value == value && has()) return;
+                this.value = value;
+                store(value);
+            }
+        }
+
+        @Override
+        void load(@Nullable Object value){
+            this.value = value instanceof Integer ? (Integer)value : def;
+        }
+    }
+
+    public class FloatKey extends Key{
+        public final float def;
+        private volatile float value;
+
+        FloatKey(String name, float def){
+            super(name);
+            this.def = def;
+        }
+
+        public float get(){
+            return value;
+        }
+
+        public void set(float value){
+            synchronized(Settings.this){
+                if(Float.floatToIntBits(this.value) == Float.floatToIntBits(value) && has()) return;
+                this.value = value;
+                store(value);
+            }
+        }
+
+        @Override
+        void load(@Nullable Object value){
+            this.value = value instanceof Float ? (Float)value : def;
+        }
+    }
+
+    public class BoolKey extends Key{
+        public final boolean def;
+        private volatile boolean value;
+
+        BoolKey(String name, boolean def){
+            super(name);
+            this.def = def;
+        }
+
+        public boolean get(){
+            return value;
+        }
+
+        public void set(boolean value){
+            synchronized(Settings.this){
+                if(this.value == value && has()) return;
+                this.value = value;
+                store(value);
+            }
+        }
+
+        public void toggle(){
+            synchronized(Settings.this){
+                set(!value);
+            }
+        }
+
+        @Override
+        void load(@Nullable Object value){
+            this.value = value instanceof Boolean ? (Boolean)value : def;
+        }
+    }
+
+    public class LongKey extends Key{
+        public final long def;
+        private volatile long value;
+
+        LongKey(String name, long def){
+            super(name);
+            this.def = def;
+        }
+
+        public long get(){
+            return value;
+        }
+
+        public void set(long value){
+            synchronized(Settings.this){
+                if(this.value == value && has()) return;
+                this.value = value;
+                store(value);
+            }
+        }
+
+        @Override
+        void load(@Nullable Object value){
+            this.value = value instanceof Long ? (Long)value : def;
+        }
+    }
 }
@@ -19,6 +19,11 @@ public class AssetDescriptor<T>{
     public Cons<T> loaded = t -> {};
     /** Callback for when this asset has an error.*/
     public @Nullable Cons<Throwable> errored = null;
+    /**
+     * Queued assets with a higher priority are loaded first. Assets with the same priority are loaded in the order they were queued.
+     * Can be changed until the asset starts loading.
+     */
+    public int priority;
 
     public AssetDescriptor(Class<T> assetType){
         this(assetType.getSimpleName(), assetType, null);
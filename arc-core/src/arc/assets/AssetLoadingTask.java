@@ -16,8 +16,13 @@ import java.util.concurrent.*;
 @SuppressWarnings("unchecked")
 class AssetLoadingTask implements Callable<Void>{
     final AssetDescriptor assetDesc;
+    /**
+     * The descriptor that the loaded asset is added for. This is only different from {@link #assetDesc} if the task was started ahead
+     * of time for a queued asset, and then taken over by another asset that depends on the same file.
+     */
+    AssetDescriptor target;
     final AssetLoader loader;
-    final ExecutorService executor;
+    final AssetManager.LoaderStats stats;
     final long startTime;
     AssetManager manager;
     volatile boolean asyncDone = false;
@@ -26,28 +31,62 @@ class AssetLoadingTask implements Callable<Void>{
     volatile Future<Void> depsFuture = null;
     volatile Future<Void> loadFuture = null;
     volatile Object asset = null;
+    /** If true, dependencies are injected on the rendering thread once this task is on top of the stack, instead of by the worker thread. */
+    volatile boolean deferInjection = false;
 
     int ticks = 0;
     volatile boolean cancel = false;
+    /** Whether a worker thread is running {@link #call()}. Guarded by this task. */
+    private boolean running;
 
-    public AssetLoadingTask(AssetManager manager, AssetDescriptor assetDesc, AssetLoader loader, ExecutorService threadPool){
+    public AssetLoadingTask(AssetManager manager, AssetDescriptor assetDesc, AssetLoader loader, AssetManager.LoaderStats stats){
         this.manager = manager;
         this.assetDesc = assetDesc;
+        this.target = assetDesc;
         this.loader = loader;
-        this.executor = threadPool;
+        this.stats = stats;
         startTime = Time.nanos();
     }
 
+    /**
+     * Starts resolving dependencies and, if there are none, the asynchronous part of loading on a worker thread, before this task is on top of the stack.
+     * Only used for {@link AsynchronousAssetLoader#isConcurrent() concurrent} loaders.
+     */
+    void start(){
+        deferInjection = true;
+        depsFuture = manager.executor.submit(this);
+    }
+
     /** Loads parts of the asset asynchronously if the loader is an {@link AsynchronousAssetLoader}. */
     @Override
     public Void call(){
+        synchronized(this){
+            if(cancel) return null;
+            running = true;
+        }
+        try{
+            load();
+        }finally{
+            synchronized(this){
+                running = false;
+            }
+        }
+        return null;
+    }
+
+    private void load(){
+        long start = Time.nanos();
         AsynchronousAssetLoader asyncLoader = (AsynchronousAssetLoader)loader;
         if(!dependenciesLoaded){
             dependencies = asyncLoader.getDependencies(assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
             if(dependencies != null){
                 removeDuplicates(dependencies);
-                manager.injectDependencies(assetDesc.fileName, dependencies);
+                if(!deferInjection){
+                    manager.injectDependencies(assetDesc.fileName, dependencies);
+                }
             }else{
+                // a task that was discarded before this point does not need to load anything
+                if(cancel) return;
                 // if we have no dependencies, we load the async part of the task immediately.
                 asyncLoader.loadAsync(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
                 asyncDone = true;
@@ -55,7 +94,7 @@ class AssetLoadingTask implements Callable<Void>{
         }else{
             asyncLoader.loadAsync(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
         }
-        return null;
+        stats.async(Time.timeSinceNanos(start));
     }
 
     /**
@@ -67,14 +106,35 @@ class AssetLoadingTask implements Callable<Void>{
      */
     public boolean update(){
         ticks++;
+        long start = Time.nanos();
         if(loader instanceof SynchronousAssetLoader){
             handleSyncLoader();
         }else{
             handleAsyncLoader();
         }
+        if(asset != null){
+            stats.sync(Time.timeSinceNanos(start), Time.timeSinceNanos(startTime));
+        }
         return asset != null;
     }
 
+    /**
+     * Stops a task that was started ahead of time, but is not needed anymore. Does not block.
+     * @return false if a worker thread is still running the task, in which case this must be called again later.
+     */
+    boolean discard(){
+        synchronized(this){
+            cancel = true;
+            if(running) return false;
+        }
+        if(depsFuture != null) depsFuture.cancel(false);
+        if(asyncDone){
+            asyncDone = false;
+            ((AsynchronousAssetLoader)loader).discard(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
+        }
+        return true;
+    }
+
     private void handleSyncLoader(){
         SynchronousAssetLoader syncLoader = (SynchronousAssetLoader)loader;
         if(!dependenciesLoaded){
@@ -95,7 +155,7 @@ class AssetLoadingTask implements Callable<Void>{
         AsynchronousAssetLoader asyncLoader = (AsynchronousAssetLoader)loader;
         if(!dependenciesLoaded){
             if(depsFuture == null){
-                depsFuture = executor.submit(this);
+                depsFuture = manager.executor.submit(this);
             }else{
                 if(depsFuture.isDone()){
                     try{
@@ -104,14 +164,17 @@ class AssetLoadingTask implements Callable<Void>{
                         throw new ArcRuntimeException("Couldn't load dependencies of asset: " + assetDesc.fileName, e);
                     }
                     dependenciesLoaded = true;
-                    if(asyncDone){
+                    if(deferInjection && dependencies != null){
+                        // the dependencies are pushed on top of this task, which continues once they are loaded
+                        manager.injectDependencies(assetDesc.fileName, dependencies);
+                    }else if(asyncDone){
                         asset = asyncLoader.loadSync(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
                     }
                 }
             }
         }else{
             if(loadFuture == null && !asyncDone){
-                loadFuture = executor.submit(this);
+                loadFuture = manager.executor.submit(this);
             }else{
                 if(asyncDone){
                     asset = asyncLoader.loadSync(manager, assetDesc.fileName, resolve(loader, assetDesc), assetDesc.params);
@@ -4,6 +4,7 @@ import arc.*;
 import arc.assets.loaders.*;
 import arc.audio.*;
 import arc.files.*;
+import arc.func.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.graphics.gl.*;
@@ -26,7 +27,24 @@ public class AssetManager implements Disposable{
 
     final ObjectMap<Class, ObjectMap<String, AssetLoader>> loaders = new ObjectMap<>();
     final Seq<AssetDescriptor> loadQueue = new Seq<>();
-    final ExecutorService executor;
+    volatile ExecutorService executor;
+    int workers = 1;
+    /** Tasks for queued assets that were started ahead of time, by descriptor. */
+    final ObjectMap<AssetDescriptor, AssetLoadingTask> prefetched = new ObjectMap<>();
+    /** Tasks that are not needed anymore, but still run on a worker thread. */
+    final Seq<AssetLoadingTask> discarded = new Seq<>();
+    /** Timing of every loader that was used. */
+    final ObjectMap<AssetLoader, LoaderStats> loaderStats = new ObjectMap<>();
+    /** Memory budgets by asset type. */
+    final ObjectMap<Class, Budget> budgets = new ObjectMap<>();
+    /** Names of assets that were evicted, to count reloads. */
+    final ObjectSet<String> evicted = new ObjectSet<>();
+    final CacheStats cacheStats = new CacheStats();
+    @Nullable Cons2<String, Object> evictionListener;
+    long accessCounter;
+    boolean clearing;
+    /** Whether tasks were started since loaders were last told that loading finished. */
+    boolean loading;
 
     final Seq<AssetLoadingTask> tasks = new Seq<>();
     final FileHandleResolver resolver;
@@ -63,7 +81,29 @@ public class AssetManager implements Disposable{
             setLoader(Shader.class, new ShaderProgramLoader(resolver));
             setLoader(Cubemap.class, new CubemapLoader(resolver));
         }
-        executor = Threads.executor("Assets", 1);
+        executor = Threads.executor("Assets", workers);
+    }
+
+    /**
+     * Sets the number of worker threads for the asynchronous part of loading. Defaults to 1.
+     * <p>
+     * With more than one worker, queued assets whose loader is {@link AsynchronousAssetLoader#isConcurrent() concurrent} start loading
+     * ahead of time, in order of {@link AssetDescriptor#priority}, up to twice the number of workers at once. So do dependencies that are
+     * added to the task stack. The synchronous part still runs in {@link #update()} in the usual order, and an asset is never loaded
+     * before the dependencies it declares.
+     */
+    public synchronized void setWorkers(int workers){
+        if(workers < 1) throw new IllegalArgumentException("workers must be at least 1: " + workers);
+        if(workers == this.workers) return;
+
+        this.workers = workers;
+        //tasks that are already running finish on the old executor
+        executor.shutdown();
+        executor = Threads.executor("Assets", workers);
+    }
+
+    public synchronized int getWorkers(){
+        return workers;
     }
 
     /**
@@ -87,6 +127,7 @@ public class AssetManager implements Disposable{
         if(assetContainer == null) throw new ArcRuntimeException("Asset not loaded: " + fileName);
         T asset = (T)assetContainer.object;
         if(asset == null) throw new ArcRuntimeException("Asset not loaded: " + fileName);
+        assetContainer.access = ++accessCounter;
         return asset;
     }
 
@@ -102,6 +143,7 @@ public class AssetManager implements Disposable{
         if(assetContainer == null) throw new ArcRuntimeException("Asset not loaded: " + fileName);
         T asset = (T)assetContainer.object;
         if(asset == null) throw new ArcRuntimeException("Asset not loaded: " + fileName);
+        assetContainer.access = ++accessCounter;
         return asset;
     }
 
@@ -206,7 +248,7 @@ public class AssetManager implements Disposable{
         }
         if(foundIndex != -1){
             toLoad--;
-            loadQueue.remove(foundIndex);
+            discardPrefetched(loadQueue.remove(foundIndex));
             return;
         }
 
@@ -218,17 +260,31 @@ public class AssetManager implements Disposable{
 
         if(assetRef == null) return;
 
+        // unloading an asset that is only kept by the memory budget removes it for good
+        if(assetRef.retained){
+            evict(fileName, type, assetRef);
+            return;
+        }
+
         // if it is reference counted, decrement ref count and check if we can really get rid of it.
         assetRef.count--;
         if(assetRef.count <= 0){
+            // keep the asset and its dependencies while it fits into the budget of its type
+            Budget budget = budgets.get(type);
+            if(budget != null && !clearing){
+                assetRef.count = 0;
+                assetRef.retained = true;
+                assetRef.access = ++accessCounter;
+                trim(type, budget);
+                return;
+            }
 
             // if it is disposable dispose it
             if(assetRef.object instanceof Disposable)
                 ((Disposable)assetRef.object).dispose();
 
             // remove the asset from the manager.
-            assetTypes.remove(fileName);
-            assets.get(type).remove(fileName);
+            removeAsset(fileName, type, assetRef);
         }
 
         // remove any dependencies (or just decrement their ref count).
@@ -451,7 +507,19 @@ public class AssetManager implements Disposable{
      * @param desc the {@link AssetDescriptor}
      */
     public synchronized <T> AssetDescriptor<T> load(AssetDescriptor<T> desc){
-        return load(desc.fileName, desc.type, desc.params);
+        AssetDescriptor<T> result = load(desc.fileName, desc.type, desc.params);
+        result.priority = desc.priority;
+        return result;
+    }
+
+    /**
+     * Adds the given asset to the loading queue of the AssetManager.
+     * @param priority see {@link AssetDescriptor#priority}
+     */
+    public synchronized <T> AssetDescriptor<T> load(String fileName, Class<T> type, AssetLoaderParameters<T> parameter, int priority){
+        AssetDescriptor<T> result = load(fileName, type, parameter);
+        result.priority = priority;
+        return result;
     }
 
     /**
@@ -459,16 +527,32 @@ public class AssetManager implements Disposable{
      * @return true if all loading is finished.
      */
     public synchronized boolean update(){
+        boolean done = updateLoading();
+        if(done && loading){
+            loading = false;
+            for(ObjectMap<String, AssetLoader> byType : loaders.values()){
+                for(AssetLoader loader : byType.values()){
+                    loader.loadingFinished(this);
+                }
+            }
+        }
+        return done;
+    }
+
+    private boolean updateLoading(){
         try{
+            finishDiscards();
+            prefetch();
+
             if(tasks.size == 0){
                 // loop until we have a new task ready to be processed
                 while(loadQueue.size != 0 && tasks.size == 0){
                     nextTask();
                 }
                 // have we not found a task? We are done!
-                if(tasks.size == 0) return true;
+                if(tasks.size == 0) return discarded.isEmpty();
             }
-            return updateTask() && loadQueue.size == 0 && tasks.size == 0;
+            return updateTask() && loadQueue.size == 0 && tasks.size == 0 && discarded.isEmpty();
         }catch(Throwable t){
             handleTaskError(t);
             return loadQueue.size == 0;
@@ -491,17 +575,28 @@ public class AssetManager implements Disposable{
      * @return true if all loading is finished.
      */
     public boolean update(int millis){
-        long endTime = Time.millis() + millis;
+        long endTime = Time.nanos() + millis * 1000000L;
         while(true){
             boolean done = update();
-            if(done || Time.millis() > endTime) return done;
+            long now = Time.nanos();
+            //stop early if the synchronous part of the next asset is not expected to fit into the remaining time
+            if(done || now > endTime || now + expectedSyncNanos() > endTime) return done;
             Thread.yield();
         }
     }
 
+    /** @return the average time the synchronous part of the current task's loader took so far, or 0 if unknown. */
+    synchronized long expectedSyncNanos(){
+        if(tasks.isEmpty()) return 0;
+        LoaderStats stats = tasks.peek().stats;
+        synchronized(stats){
+            return stats.loaded == 0 ? 0 : stats.syncNanos / stats.loaded;
+        }
+    }
+
     /** Returns true when all assets are loaded. Can be called from any thread. */
     public synchronized boolean isFinished(){
-        return loadQueue.size == 0 && tasks.size == 0;
+        return loadQueue.size == 0 && tasks.size == 0 && prefetched.size == 0 && discarded.isEmpty();
     }
 
     /** Blocks until all assets are loaded. */
@@ -550,10 +645,7 @@ public class AssetManager implements Disposable{
 
         // if the asset is already loaded, increase its reference count.
         if(isLoaded(dependendAssetDesc.fileName)){
-            Class type = assetTypes.get(dependendAssetDesc.fileName);
-            RefCountedContainer assetRef = assets.get(type).get(dependendAssetDesc.fileName);
-            assetRef.count++;
-            incrementRefCountedDependencies(dependendAssetDesc.fileName);
+            reference(dependendAssetDesc.fileName);
         }
         // else add a new task for the asset.
         else{
@@ -566,34 +658,171 @@ public class AssetManager implements Disposable{
      * a dependency of a previously loaded asset) its reference count will be increased.
      */
     private void nextTask(){
-        AssetDescriptor assetDesc = loadQueue.remove(0);
+        AssetDescriptor assetDesc = loadQueue.remove(nextIndex());
+        AssetLoadingTask prefetch = prefetched.remove(assetDesc);
         //Log.info("Loading asset task: {0}", assetDesc.fileName);
 
         // if the asset not meant to be reloaded and is already loaded, increase its reference count
         if(isLoaded(assetDesc.fileName)){
-            Class type = assetTypes.get(assetDesc.fileName);
-            RefCountedContainer assetRef = assets.get(type).get(assetDesc.fileName);
-            assetRef.count++;
-            incrementRefCountedDependencies(assetDesc.fileName);
+            if(prefetch != null) discard(prefetch);
+            reference(assetDesc.fileName);
             if(assetDesc.params != null && assetDesc.params.loadedCallback != null){
                 assetDesc.params.loadedCallback.finishedLoading(this, assetDesc.fileName, assetDesc.type);
             }
             loaded++;
+        }else if(prefetch != null){
+            pushTask(prefetch);
         }else{
             // else add a new task for the asset.
             addTask(assetDesc);
         }
     }
 
+    /** @return the index of the queued asset with the highest priority, the first one if several have the same priority. */
+    private int nextIndex(){
+        int index = 0;
+        for(int i = 1; i < loadQueue.size; i++){
+            if(loadQueue.get(i).priority > loadQueue.get(index).priority){
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /** Starts loading queued assets ahead of time, if there are multiple workers. */
+    private void prefetch(){
+        int limit = workers * 2;
+        if(workers <= 1 || prefetched.size >= limit || loadQueue.isEmpty()) return;
+
+        while(prefetched.size < limit){
+            AssetDescriptor best = null;
+            AssetLoader bestLoader = null;
+
+            for(int i = 0; i < loadQueue.size; i++){
+                AssetDescriptor desc = loadQueue.get(i);
+                if((best != null && desc.priority <= best.priority) || prefetched.containsKey(desc) || isLoaded(desc.fileName) || isLoading(desc.fileName)) continue;
+
+                AssetLoader loader = getLoader(desc.type, desc.fileName);
+                if(loader instanceof AsynchronousAssetLoader && ((AsynchronousAssetLoader)loader).isConcurrent()){
+                    best = desc;
+                    bestLoader = loader;
+                }
+            }
+
+            if(best == null) return;
+
+            AssetLoadingTask task = new AssetLoadingTask(this, best, bestLoader, stats(bestLoader));
+            task.start();
+            prefetched.put(best, task);
+        }
+    }
+
+    /** @return whether a task for this file name is on the stack or was started ahead of time. */
+    private boolean isLoading(String fileName){
+        for(int i = 0; i < tasks.size; i++){
+            if(tasks.get(i).assetDesc.fileName.equals(fileName)) return true;
+        }
+        for(AssetLoadingTask task : prefetched.values()){
+            if(task.assetDesc.fileName.equals(fileName)) return true;
+        }
+        return false;
+    }
+
+    private void discardPrefetched(AssetDescriptor desc){
+        AssetLoadingTask task = prefetched.remove(desc);
+        if(task != null) discard(task);
+    }
+
+    /** Frees whatever a task that was started ahead of time loaded, once no worker thread runs it anymore. */
+    private void discard(AssetLoadingTask task){
+        try{
+            if(!task.discard()) discarded.add(task);
+        }catch(Throwable t){
+            Log.err("Error discarding asset " + task.assetDesc.fileName, t);
+        }
+    }
+
+    /** Frees the discarded tasks that are done on their worker threads. */
+    private void finishDiscards(){
+        for(int i = discarded.size - 1; i >= 0; i--){
+            AssetLoadingTask task = discarded.get(i);
+            try{
+                if(!task.discard()) continue;
+            }catch(Throwable t){
+                Log.err("Error discarding asset " + task.assetDesc.fileName, t);
+            }
+            discarded.remove(i);
+        }
+    }
+
+    /** @return a task that was started ahead of time for the same file and type, which is removed from the prefetched tasks, or null. */
+    private @Nullable AssetLoadingTask takePrefetched(AssetDescriptor assetDesc){
+        for(ObjectMap.Entry<AssetDescriptor, AssetLoadingTask> entry : prefetched){
+            AssetLoadingTask task = entry.value;
+            if(task.assetDesc.type == assetDesc.type && task.assetDesc.fileName.equals(assetDesc.fileName)){
+                prefetched.remove(entry.key);
+                return task;
+            }
+        }
+        return null;
+    }
+
     /**
      * Adds a {@link AssetLoadingTask} to the task stack for the given asset.
      */
     private void addTask(AssetDescriptor assetDesc){
+        //a dependency that is also queued may already be loading ahead of time, and loading the same file twice would make loaders mix up their state
+        AssetLoadingTask prefetch = takePrefetched(assetDesc);
+        if(prefetch != null){
+            prefetch.target = assetDesc;
+            pushTask(prefetch);
+            return;
+        }
+
         AssetLoader loader = getLoader(assetDesc.type, assetDesc.fileName);
         if(loader == null)
             throw new ArcRuntimeException("No loader for type: " + assetDesc.type.getSimpleName());
-        tasks.add(new AssetLoadingTask(this, assetDesc, loader, executor));
+        AssetLoadingTask task = new AssetLoadingTask(this, assetDesc, loader, stats(loader));
+        //with multiple workers, tasks below the top of the stack can already start
+        if(workers > 1 && loader instanceof AsynchronousAssetLoader && ((AsynchronousAssetLoader)loader).isConcurrent()){
+            task.start();
+        }
+        pushTask(task);
+    }
+
+    private void pushTask(AssetLoadingTask task){
+        loading = true;
+        tasks.add(task);
         peakTasks++;
+
+        synchronized(cacheStats){
+            cacheStats.misses++;
+            if(evicted.remove(task.assetDesc.fileName)) cacheStats.reloads++;
+        }
+    }
+
+    /** Adds a reference to a loaded asset. */
+    private void reference(String fileName){
+        Class type = assetTypes.get(fileName);
+        RefCountedContainer assetRef = assets.get(type).get(fileName);
+        assetRef.count++;
+        assetRef.access = ++accessCounter;
+        synchronized(cacheStats){
+            cacheStats.hits++;
+        }
+
+        if(assetRef.retained){
+            // a retained asset still holds its dependencies
+            assetRef.retained = false;
+        }else{
+            incrementRefCountedDependencies(fileName);
+        }
+    }
+
+    private LoaderStats stats(AssetLoader loader){
+        LoaderStats stats = loaderStats.get(loader);
+        if(stats == null) loaderStats.put(loader, stats = new LoaderStats(loader));
+        return stats;
     }
 
     /** Adds an asset to this AssetManager */
@@ -607,7 +836,150 @@ public class AssetManager implements Disposable{
             typeToAssets = new ObjectMap<>();
             assets.put(type, typeToAssets);
         }
-        typeToAssets.put(fileName, new RefCountedContainer(asset));
+        RefCountedContainer container = new RefCountedContainer(asset);
+        container.access = ++accessCounter;
+        typeToAssets.put(fileName, container);
+
+        Budget budget = budgets.get(type);
+        if(budget != null){
+            container.bytes = budget.estimate(asset);
+            budget.bytes += container.bytes;
+            trim(type, budget);
+        }
+    }
+
+    private void removeAsset(String fileName, Class type, RefCountedContainer assetRef){
+        assetTypes.remove(fileName);
+        assets.get(type).remove(fileName);
+
+        Budget budget = budgets.get(type);
+        if(budget != null) budget.bytes -= assetRef.bytes;
+    }
+
+    /** Evicts retained assets of a type in least recently used order, until the type fits into its budget. */
+    private void trim(Class type, Budget budget){
+        ObjectMap<String, RefCountedContainer> assetsByType = assets.get(type);
+
+        while(budget.bytes > budget.limit && assetsByType != null){
+            String oldest = null;
+            RefCountedContainer oldestRef = null;
+            for(Entry<String, RefCountedContainer> entry : assetsByType.entries()){
+                RefCountedContainer ref = entry.value;
+                if(ref.retained && !ref.pinned && (oldestRef == null || ref.access < oldestRef.access)){
+                    oldest = entry.key;
+                    oldestRef = ref;
+                }
+            }
+
+            // everything else is still referenced
+            if(oldest == null) return;
+
+            evict(oldest, type, oldestRef);
+        }
+    }
+
+    /** Disposes a retained asset and releases its dependencies. */
+    private void evict(String fileName, Class type, RefCountedContainer assetRef){
+        if(evictionListener != null){
+            evictionListener.get(fileName, assetRef.object);
+        }
+
+        if(assetRef.object instanceof Disposable){
+            ((Disposable)assetRef.object).dispose();
+        }
+        removeAsset(fileName, type, assetRef);
+
+        synchronized(cacheStats){
+            cacheStats.evictions++;
+        }
+        if(!clearing) evicted.add(fileName);
+
+        Seq<String> dependencies = assetDependencies.remove(fileName);
+        if(dependencies != null){
+            for(String dependency : dependencies){
+                if(isLoaded(dependency)) unload(dependency);
+            }
+        }
+    }
+
+    /**
+     * Sets a memory budget for all assets of a type, estimating the size of built-in types:
+     * textures and pixmaps by their format and size, and sounds by the size of their file.
+     * @see #setBudget(Class, long, Longf)
+     */
+    public synchronized <T> void setBudget(Class<T> type, long bytes){
+        setBudget(type, bytes, null);
+    }
+
+    /**
+     * Sets a memory budget for all assets of a type.
+     * <p>
+     * With a budget, assets of the type whose last reference is unloaded are not disposed, but retained. If they are loaded again,
+     * they are reused without reloading them. Once the estimated size of all loaded assets of the type exceeds the budget, retained assets are disposed
+     * in least recently used order; assets are used by {@link #get(String)} and when they are loaded. Referenced and {@link #setPinned(String, boolean) pinned}
+     * assets are never evicted, so the budget may still be exceeded.
+     * @param estimator returns the size of an asset in bytes, or null to use the estimate for built-in types.
+     */
+    public synchronized <T> void setBudget(Class<T> type, long bytes, @Nullable Longf<T> estimator){
+        Budget budget = budgets.get(type);
+        if(budget == null){
+            budgets.put(type, budget = new Budget());
+            budget.estimator = (Longf<Object>)estimator;
+
+            ObjectMap<String, RefCountedContainer> assetsByType = assets.get(type);
+            if(assetsByType != null){
+                for(RefCountedContainer ref : assetsByType.values()){
+                    ref.bytes = budget.estimate(ref.object);
+                    budget.bytes += ref.bytes;
+                }
+            }
+        }
+        budget.limit = bytes;
+        trim(type, budget);
+    }
+
+    /** Removes the budget of a type, and disposes all of its retained assets, including pinned ones. */
+    public synchronized void removeBudget(Class type){
+        Budget budget = budgets.get(type);
+        if(budget == null) return;
+
+        ObjectMap<String, RefCountedContainer> assetsByType = assets.get(type);
+        if(assetsByType != null){
+            for(String fileName : assetsByType.keys().toSeq()){
+                RefCountedContainer ref = assetsByType.get(fileName);
+                if(ref != null && ref.retained) evict(fileName, type, ref);
+            }
+        }
+        budgets.remove(type);
+    }
+
+    /** @return the estimated size of all loaded assets of a type with a budget, including retained ones, or 0 if the type has no budget. */
+    public synchronized long getBudgetUsage(Class type){
+        Budget budget = budgets.get(type);
+        return budget == null ? 0 : budget.bytes;
+    }
+
+    /** Sets whether a loaded asset is pinned. Pinned assets are never evicted by a memory budget. */
+    public synchronized void setPinned(String fileName, boolean pinned){
+        Class type = assetTypes.get(fileName);
+        if(type == null) throw new ArcRuntimeException("Asset not loaded: " + fileName);
+        assets.get(type).get(fileName).pinned = pinned;
+    }
+
+    /** @return whether an asset has no references left, but is kept by the memory budget of its type. */
+    public synchronized boolean isRetained(String fileName){
+        Class type = assetTypes.get(fileName);
+        return type != null && assets.get(type).get(fileName).retained;
+    }
+
+    /** Sets a listener that is called with the file name and asset before an asset is evicted by a memory budget. */
+    public synchronized void setEvictionListener(@Nullable Cons2<String, Object> listener){
+        this.evictionListener = listener;
+    }
+
+    /** @return hit, miss, eviction and reload counts. Can be called from any thread. */
+    public CacheStats getCacheStats(){
+        return cacheStats;
     }
 
     /**
@@ -636,14 +1008,15 @@ public class AssetManager implements Disposable{
 
             if(task.cancel) return true;
 
-            addAsset(task.assetDesc.fileName, task.assetDesc.type, task.getAsset());
+            AssetDescriptor assetDesc = task.target;
+            addAsset(assetDesc.fileName, assetDesc.type, task.getAsset());
 
             // otherwise, if a listener was found in the parameter invoke it
-            if(task.assetDesc.params != null && task.assetDesc.params.loadedCallback != null){
-                task.assetDesc.params.loadedCallback.finishedLoading(this, task.assetDesc.fileName, task.assetDesc.type);
+            if(assetDesc.params != null && assetDesc.params.loadedCallback != null){
+                assetDesc.params.loadedCallback.finishedLoading(this, assetDesc.fileName, assetDesc.type);
             }
 
-            task.assetDesc.loaded.get(task.getAsset());
+            assetDesc.loaded.get(task.getAsset());
 
             return true;
         }
@@ -678,7 +1051,7 @@ public class AssetManager implements Disposable{
 
         // pop the faulty task from the stack
         AssetLoadingTask task = tasks.pop();
-        AssetDescriptor assetDesc = task.assetDesc;
+        AssetDescriptor assetDesc = task.target;
 
         // remove all dependencies
         if(task.dependenciesLoaded && task.dependencies != null){
@@ -736,6 +1109,18 @@ public class AssetManager implements Disposable{
         return loadQueue.size + tasks.size;
     }
 
+    /** @return the number of currently queued assets of a type, including the ones that are being loaded. */
+    public synchronized int getQueuedAssets(Class<?> type){
+        int count = 0;
+        for(int i = 0; i < loadQueue.size; i++){
+            if(loadQueue.get(i).type == type) count++;
+        }
+        for(int i = 0; i < tasks.size; i++){
+            if(tasks.get(i).assetDesc.type == type) count++;
+        }
+        return count;
+    }
+
     /** @return the progress in percent of completion. */
     public synchronized float getProgress(){
         if(toLoad == 0) return 1;
@@ -763,6 +1148,11 @@ public class AssetManager implements Disposable{
 
     /** Clears and disposes all assets and the preloading queue. */
     public synchronized void clear(){
+        clearing = true;
+        for(AssetLoadingTask task : prefetched.values()){
+            discard(task);
+        }
+        prefetched.clear();
         loadQueue.clear();
         while(!update());
 
@@ -796,6 +1186,10 @@ public class AssetManager implements Disposable{
         this.assets.clear();
         this.assetTypes.clear();
         this.assetDependencies.clear();
+        for(Budget budget : budgets.values()){
+            budget.bytes = 0;
+        }
+        this.clearing = false;
         this.loaded = 0;
         this.toLoad = 0;
         this.peakTasks = 0;
@@ -821,7 +1215,12 @@ public class AssetManager implements Disposable{
         assets.get(type).get(fileName).count = refCount;
     }
 
-    /** @return a string containing ref count and dependency information for all assets. */
+    /** @return timing information for every loader that was used so far. */
+    public synchronized Seq<LoaderStats> getLoaderStats(){
+        return loaderStats.values().toSeq();
+    }
+
+    /** @return a string containing ref count and dependency information for all assets, and timing information for every loader. */
     public synchronized String getDiagnostics(){
         StringBuilder sb = new StringBuilder();
         for(String fileName : assetTypes.keys()){
@@ -847,6 +1246,9 @@ public class AssetManager implements Disposable{
             }
             sb.append("\n");
         }
+        for(LoaderStats stats : loaderStats.values()){
+            sb.append(stats).append("\n");
+        }
         return sb.toString();
     }
 
@@ -865,9 +1267,98 @@ public class AssetManager implements Disposable{
         return assetTypes.get(fileName);
     }
 
+    /** Timing of one loader. All times are in nanoseconds. Fields are only written while holding the lock of this object. */
+    public static class LoaderStats{
+        public final AssetLoader loader;
+        /** Number of assets loaded. */
+        public int loaded;
+        /** Total time spent in the asynchronous part on worker threads, including dependency resolution. */
+        public long asyncNanos;
+        /** Total time spent in the synchronous part in {@link #update()}. */
+        public long syncNanos;
+        /** Longest synchronous part of a single asset. */
+        public long maxSyncNanos;
+        /** Total time from the creation of a loading task to its completion, including waiting for dependencies and workers. */
+        public long totalNanos;
+
+        LoaderStats(AssetLoader loader){
+            this.loader = loader;
+        }
+
+        synchronized void async(long nanos){
+            asyncNanos += nanos;
+        }
+
+        synchronized void sync(long nanos, long total){
+            loaded++;
+            syncNanos += nanos;
+            maxSyncNanos = Math.max(maxSyncNanos, nanos);
+            totalNanos += total;
+        }
+
+        @Override
+        public synchronized String toString(){
+            return loader.getClass().getName() + ": loaded " + loaded + ", async " + Strings.fixed(asyncNanos / 1000000f, 2) + "ms, sync " +
+                Strings.fixed(syncNanos / 1000000f, 2) + "ms (max " + Strings.fixed(maxSyncNanos / 1000000f, 2) + "ms), total " + Strings.fixed(totalNanos / 1000000f, 2) + "ms";
+        }
+    }
+
+    /** Counts how loading requests were satisfied. Fields are only written while holding the lock of this object. */
+    public static class CacheStats{
+        /** Requests for assets that were already loaded or retained. */
+        public long hits;
+        /** Requests that needed to load an asset. */
+        public long misses;
+        /** Retained assets disposed by a memory budget. */
+        public long evictions;
+        /** Misses for assets that had been evicted before. */
+        public long reloads;
+
+        public synchronized void reset(){
+            hits = misses = evictions = reloads = 0;
+        }
+
+        @Override
+        public synchronized String toString(){
+            return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", reloads=" + reloads + "}";
+        }
+    }
+
+    static class Budget{
+        long limit, bytes;
+        @Nullable Longf<Object> estimator;
+
+        long estimate(Object asset){
+            if(estimator != null) return estimator.get(asset);
+
+            if(asset instanceof Texture){
+                Texture texture = (Texture)asset;
+                TextureData data = texture.getTextureData();
+                int bytes = data == null ? 4 : data.getFormat().bytes;
+                long size = (long)texture.width * texture.height * bytes;
+                //a full mipmap chain adds a third
+                return data != null && data.useMipMaps() ? size * 4 / 3 : size;
+            }else if(asset instanceof Pixmap){
+                Pixmap pixmap = (Pixmap)asset;
+                return (long)pixmap.width * pixmap.height * 4;
+            }else if(asset instanceof Sound){
+                Sound sound = (Sound)asset;
+                return sound.file == null ? 0 : sound.file.length();
+            }
+            return 0;
+        }
+    }
+
     static class RefCountedContainer{
         Object object;
         int count = 1;
+        /** Whether this asset has no references, but is kept by a memory budget. */
+        boolean retained;
+        boolean pinned;
+        /** Estimated size, if the type has a budget. */
+        long bytes;
+        /** Value of the access counter when this asset was last used. */
+        long access;
 
         public RefCountedContainer(Object object){
             if(object == null) throw new IllegalArgumentException("Object must not be null");
@@ -2,6 +2,7 @@ package arc.assets.loaders;
 
 import arc.assets.AssetDescriptor;
 import arc.assets.AssetLoaderParameters;
+import arc.assets.AssetManager;
 import arc.struct.Seq;
 import arc.files.Fi;
 
@@ -38,4 +39,11 @@ public abstract class AssetLoader<T, P extends AssetLoaderParameters<T>>{
      * @return other assets that the asset depends on and need to be loaded first or null if there are no dependencies.
      */
     public abstract Seq<AssetDescriptor> getDependencies(String fileName, Fi file, P parameter);
+
+    /**
+     * Called on the rendering thread when the manager has finished loading everything that was queued, including assets that failed.
+     * Loaders can free state that they kept for upcoming assets here.
+     */
+    public void loadingFinished(AssetManager manager){
+    }
 }
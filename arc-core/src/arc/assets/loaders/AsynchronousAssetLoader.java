@@ -3,6 +3,7 @@ package arc.assets.loaders;
 import arc.assets.AssetLoaderParameters;
 import arc.assets.AssetManager;
 import arc.files.Fi;
+import arc.util.Disposable;
 
 /**
  * Base class for asynchronous {@link AssetLoader} instances. Such loaders try to load parts of an OpenGL resource, like the
@@ -28,4 +29,24 @@ public abstract class AsynchronousAssetLoader<T, P extends AssetLoaderParameters
      * @param file the resolved file to load
      */
     public abstract T loadSync(AssetManager manager, String fileName, Fi file, P parameter);
+
+    /**
+     * Frees what {@link #loadAsync(AssetManager, String, Fi, AssetLoaderParameters)} kept for an asset that is not needed anymore,
+     * instead of calling {@link #loadSync(AssetManager, String, Fi, AssetLoaderParameters)}. Called on the rendering thread.
+     * The default implementation creates the asset and disposes it, so concurrent loaders should override this.
+     */
+    public void discard(AssetManager manager, String fileName, Fi file, P parameter){
+        T asset = loadSync(manager, fileName, file, parameter);
+        if(asset instanceof Disposable) ((Disposable)asset).dispose();
+    }
+
+    /**
+     * @return whether {@link #loadAsync(AssetManager, String, Fi, AssetLoaderParameters)} can run for several assets at the same time,
+     * and before {@link #loadSync(AssetManager, String, Fi, AssetLoaderParameters)} was called for previous assets.
+     * Loaders that keep the state of an asset in fields must return false.
+     * @see AssetManager#setWorkers(int)
+     */
+    public boolean isConcurrent(){
+        return false;
+    }
 }
@@ -7,12 +7,14 @@ import arc.struct.Seq;
 import arc.files.Fi;
 import arc.graphics.Pixmap;
 
+import java.util.concurrent.*;
+
 /**
  * {@link AssetLoader} for {@link Pixmap} instances. The Pixmap is loaded asynchronously.
  * @author mzechner
  */
 public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.PixmapParameter>{
-    Pixmap pixmap;
+    final ConcurrentHashMap<String, Pixmap> pixmaps = new ConcurrentHashMap<>();
 
     public PixmapLoader(FileHandleResolver resolver){
         super(resolver);
@@ -20,15 +22,18 @@ public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.P
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
-        pixmap = null;
-        pixmap = new Pixmap(file);
+        pixmaps.put(fileName, new Pixmap(file));
     }
 
     @Override
     public Pixmap loadSync(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
-        Pixmap pixmap = this.pixmap;
-        this.pixmap = null;
-        return pixmap;
+        return pixmaps.remove(fileName);
+    }
+
+    @Override
+    public void discard(AssetManager manager, String fileName, Fi file, PixmapParameter parameter){
+        Pixmap pixmap = pixmaps.remove(fileName);
+        if(pixmap != null) pixmap.dispose();
     }
 
     @Override
@@ -36,6 +41,11 @@ public class PixmapLoader extends AsynchronousAssetLoader<Pixmap, PixmapLoader.P
         return null;
     }
 
+    @Override
+    public boolean isConcurrent(){
+        return true;
+    }
+
     public static class PixmapParameter extends AssetLoaderParameters<Pixmap>{
     }
 }
@@ -7,41 +7,53 @@ import arc.files.*;
 import arc.struct.*;
 import arc.util.*;
 
+import java.util.concurrent.*;
+
 /**
  * {@link AssetLoader} to load {@link Sound} instances.
  * @author mzechner
  */
 public class SoundLoader extends AsynchronousAssetLoader<Sound, SoundLoader.SoundParameter>{
-    private Sound sound;
+    private final ConcurrentHashMap<String, Sound> sounds = new ConcurrentHashMap<>();
 
     public SoundLoader(FileHandleResolver resolver){
         super(resolver);
     }
 
     /**
-     * Returns the {@link Sound} instance currently loaded by this
-     * {@link SoundLoader}.
-     * @return the currently loaded {@link Sound}, otherwise {@code null} if
-     * no {@link Sound} has been loaded yet.
+     * Returns a {@link Sound} that was loaded asynchronously, but not handed to the {@link AssetManager} yet.
+     * @return a pending {@link Sound}, otherwise {@code null}.
+     * @deprecated Several sounds can load at once, so there is no single current sound. Use the result of {@link #loadSync} instead.
      */
+    @Deprecated
     protected Sound getLoadedSound(){
-        return sound;
+        for(Sound sound : sounds.values()){
+            return sound;
+        }
+        return null;
     }
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, Fi file, SoundParameter parameter){
+        Sound sound;
         if(parameter != null && parameter.sound != null){
             (sound = parameter.sound).load(file);
         }else{
             sound = Core.audio.newSound(file);
         }
+        sounds.put(fileName, sound);
     }
 
     @Override
     public Sound loadSync(AssetManager manager, String fileName, Fi file, SoundParameter parameter){
-        Sound sound = this.sound;
-        this.sound = null;
-        return sound;
+        return sounds.remove(fileName);
+    }
+
+    @Override
+    public void discard(AssetManager manager, String fileName, Fi file, SoundParameter parameter){
+        Sound sound = sounds.remove(fileName);
+        //sounds passed in the parameters belong to the caller
+        if(sound != null && (parameter == null || parameter.sound != sound)) sound.dispose();
     }
 
     @Override
@@ -49,6 +61,11 @@ public class SoundLoader extends AsynchronousAssetLoader<Sound, SoundLoader.Soun
         return null;
     }
 
+    @Override
+    public boolean isConcurrent(){
+        return true;
+    }
+
     public static class SoundParameter extends AssetLoaderParameters<Sound>{
         public @Nullable Sound sound;
 
@@ -24,11 +24,16 @@ public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, Tex
 
     @Override
     public TextureAtlas load(AssetManager assetManager, String fileName, Fi file, TextureAtlasParameter parameter){
-        for(AtlasPage page : data.getPages()){
-            page.texture = assetManager.get(page.textureFile.path(), Texture.class);
+        boolean textureArray = parameter != null && parameter.textureArray && TextureAtlas.canUseTextureArray(data);
+
+        //with a texture array, the pages are loaded by the atlas itself
+        if(!textureArray){
+            for(AtlasPage page : data.getPages()){
+                page.texture = assetManager.get(page.textureFile.path(), Texture.class);
+            }
         }
 
-        TextureAtlas atlas = new TextureAtlas(data);
+        TextureAtlas atlas = new TextureAtlas(data, textureArray);
         data = null;
         return atlas;
     }
@@ -44,6 +49,10 @@ public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, Tex
         }
 
         Seq<AssetDescriptor> dependencies = new Seq<>();
+        if(parameter != null && parameter.textureArray && TextureAtlas.canUseTextureArray(data)){
+            return dependencies;
+        }
+
         for(AtlasPage page : data.getPages()){
             TextureParameter params = new TextureParameter();
             params.genMipMaps = page.useMipMaps;
@@ -57,6 +66,8 @@ public class TextureAtlasLoader extends SynchronousAssetLoader<TextureAtlas, Tex
     public static class TextureAtlasParameter extends AssetLoaderParameters<TextureAtlas>{
         /** whether to flip the texture atlas vertically **/
         public boolean flip = false;
+        /** whether to load all pages into a single texture array, see {@link TextureAtlas#TextureAtlas(TextureAtlasData, boolean)} **/
+        public boolean textureArray = false;
 
         public TextureAtlasParameter(){
         }
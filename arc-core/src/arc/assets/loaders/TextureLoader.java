@@ -3,18 +3,33 @@ package arc.assets.loaders;
 import arc.assets.*;
 import arc.files.*;
 import arc.graphics.*;
+import arc.graphics.PixmapIO.*;
 import arc.graphics.Texture.*;
+import arc.graphics.gl.*;
 import arc.struct.*;
+import arc.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
 
 /**
  * {@link AssetLoader} for {@link Texture} instances. The pixel data is loaded asynchronously. The texture is then created on the
  * rendering thread, synchronously. Passing a {@link TextureParameter} to
  * {@link AssetManager#load(String, Class, AssetLoaderParameters)} allows one to specify parameters as can be passed to the
  * various Texture constructors, e.g. filtering, whether to generate mipmaps and so on.
+ * <p>
+ * While more textures are queued, the pixmaps of uploaded PNG textures are kept, and the next PNG of the same size is decoded straight
+ * into one of them. Atlas pages usually all have the same size, so this avoids allocating a large buffer for every page. The kept pixmaps
+ * are disposed once the manager has finished loading.
  * @author mzechner
  */
 public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoader.TextureParameter>{
-    TextureLoaderInfo info = new TextureLoaderInfo();
+    final ConcurrentHashMap<String, TextureLoaderInfo> infos = new ConcurrentHashMap<>();
+    final Seq<Pixmap> recycled = new Seq<>();
+
+    /** Maximum number of uploaded pixmaps to keep for decoding other PNGs into. 0 to disable reuse. */
+    public int maxRecycled = 2;
 
     public TextureLoader(FileHandleResolver resolver){
         super(resolver);
@@ -22,6 +37,7 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info = new TextureLoaderInfo();
         info.filename = fileName;
         if(parameter == null || parameter.textureData == null){
             boolean genMipMaps = false;
@@ -32,16 +48,18 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
                 info.texture = parameter.texture;
             }
 
-            info.data = TextureData.load(file, genMipMaps);
+            info.data = load(file, genMipMaps);
         }else{
             info.data = parameter.textureData;
             info.texture = parameter.texture;
         }
         if(!info.data.isPrepared()) info.data.prepare();
+        infos.put(fileName, info);
     }
 
     @Override
     public Texture loadSync(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info = infos.remove(fileName);
         if(info == null) return null;
         Texture texture = info.texture;
         if(texture != null){
@@ -53,14 +71,149 @@ public class TextureLoader extends AsynchronousAssetLoader<Texture, TextureLoade
             texture.setFilter(parameter.minFilter, parameter.magFilter);
             texture.setWrap(parameter.wrapU, parameter.wrapV);
         }
+        if(info.data instanceof RecyclingTextureData){
+            Pixmap pixmap = ((RecyclingTextureData)info.data).release();
+            if(pixmap != null) recycle(pixmap, manager.getQueuedAssets(Texture.class) > 1);
+        }
         return texture;
     }
 
+    @Override
+    public void discard(AssetManager manager, String fileName, Fi file, TextureParameter parameter){
+        TextureLoaderInfo info = infos.remove(fileName);
+        //texture data passed in the parameters belongs to the caller
+        if(info == null || (parameter != null && parameter.textureData != null) || info.data.isCustom() || !info.data.isPrepared()) return;
+
+        Pixmap pixmap = info.data.consumePixmap();
+        if(info.data instanceof RecyclingTextureData){
+            recycle(pixmap, manager.getQueuedAssets(Texture.class) > 0);
+        }else if(info.data.disposePixmap()){
+            pixmap.dispose();
+        }
+    }
+
+    TextureData load(Fi file, boolean genMipMaps){
+        if(maxRecycled <= 0 || !file.extEquals("png")) return TextureData.load(file, genMipMaps);
+
+        byte[] bytes = file.readBytes();
+        Pixmap pixmap = null;
+
+        //the size is in the IHDR chunk right after the signature, so the image data is only parsed when a pixmap will be filled
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        if(bytes.length >= 24 && header.getInt(12) == 0x49484452){ //IHDR
+            int width = header.getInt(16), height = header.getInt(20);
+            if(width > 0 && height > 0){
+                pixmap = obtain(width, height);
+                //without natives, the pixmap would be decoded by the same reader anyway
+                if(pixmap == null && !ArcNativesLoader.loaded) pixmap = new Pixmap(width, height);
+            }
+        }
+
+        if(pixmap != null){
+            boolean decoded = false;
+            try{
+                new PngReader().read(new ByteArrayInputStream(bytes), pixmap);
+                decoded = true;
+            }catch(IOException e){
+                //formats that the Java decoder does not support are left to the pixmap constructor
+            }finally{
+                if(!decoded){
+                    recycle(pixmap, true);
+                    pixmap = null;
+                }
+            }
+        }
+
+        return new RecyclingTextureData(file, pixmap == null ? new Pixmap(bytes) : pixmap, genMipMaps);
+    }
+
+    @Nullable Pixmap obtain(int width, int height){
+        synchronized(recycled){
+            for(int i = 0; i < recycled.size; i++){
+                Pixmap pixmap = recycled.get(i);
+                if(pixmap.width == width && pixmap.height == height){
+                    return recycled.remove(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    void recycle(Pixmap pixmap, boolean keep){
+        synchronized(recycled){
+            if(keep && recycled.size < maxRecycled){
+                recycled.add(pixmap);
+                return;
+            }
+
+            pixmap.dispose();
+            //nothing else is queued, so nothing will be decoded into the other pixmaps
+            if(!keep) clearRecycled();
+        }
+    }
+
+    /** @return the number of uploaded pixmaps that are kept for decoding other PNGs into. */
+    public int getRecycled(){
+        synchronized(recycled){
+            return recycled.size;
+        }
+    }
+
+    /** Disposes the pixmaps that were kept for decoding other PNGs into. */
+    public void clearRecycled(){
+        synchronized(recycled){
+            recycled.each(Pixmap::dispose);
+            recycled.clear();
+        }
+    }
+
+    @Override
+    public void loadingFinished(AssetManager manager){
+        //the last textures may not have been PNGs, or failed to load, so nothing else frees these
+        clearRecycled();
+    }
+
     @Override
     public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, TextureParameter parameter){
         return null;
     }
 
+    @Override
+    public boolean isConcurrent(){
+        return true;
+    }
+
+    /** File data whose initial pixmap is not disposed after upload, so that it can be reused. Pixmaps reloaded from the file are disposed as usual. */
+    static class RecyclingTextureData extends FileTextureData{
+        @Nullable Pixmap decoded;
+        boolean uploaded;
+
+        RecyclingTextureData(Fi file, Pixmap pixmap, boolean useMipMaps){
+            super(file, pixmap, useMipMaps);
+            decoded = pixmap;
+        }
+
+        @Override
+        public Pixmap consumePixmap(){
+            Pixmap pixmap = super.consumePixmap();
+            uploaded = pixmap == decoded;
+            return pixmap;
+        }
+
+        @Override
+        public boolean disposePixmap(){
+            return !uploaded;
+        }
+
+        /** @return the initial pixmap once it has been uploaded, or null. Afterwards, this behaves like normal file data. */
+        @Nullable Pixmap release(){
+            Pixmap pixmap = uploaded ? decoded : null;
+            decoded = null;
+            uploaded = false;
+            return pixmap;
+        }
+    }
+
     public static class TextureLoaderInfo{
         String filename;
         TextureData data;
@@ -5,102 +5,154 @@ import arc.struct.*;
 import arc.util.*;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.zip.*;
 
-/** A FileHandle meant for easily representing and reading the contents of a zip/jar file.*/
+/**
+ * A FileHandle meant for easily representing and reading the contents of a zip/jar file.
+ * <p>
+ * All entry paths are indexed in a tree when the archive is opened, so {@link #child(String)}, {@link #list()} and {@link #parent()}
+ * take constant time. The handles for entries are only created when they are first accessed.
+ */
 public class ZipFi extends Fi{
     private @Nullable ZipFi[] children;
-    private @Nullable ZipFi parent;
-    private String path;
 
-    private Seq<ZipFi> allFiles, allDirectories;
-
-    private final @Nullable ZipEntry entry;
-    private final ZipFile zip;
+    private final Node node;
+    private final Archive archive;
 
     public ZipFi(Fi zipFileLoc){
+        this(zipFileLoc, false);
+    }
+
+    /**
+     * @param mapped whether to read the list of entries straight from the central directory at the end of the file, instead of creating
+     * a {@link ZipEntry} for every entry. The archive itself is only opened once an entry is read. This is faster for archives with many
+     * entries. Archives that use Zip64 are always read normally.
+     */
+    public ZipFi(Fi zipFileLoc, boolean mapped){
         super(new File(""), FileType.absolute);
-        entry = null;
 
         try{
-            zip = new ZipFile(zipFileLoc.file());
-            path = "";
-
-            Seq<ZipEntry> entries = (Seq<ZipEntry>)Seq.with(Collections.list(zip.entries()));
-            ObjectMap<String, ZipEntry> byName = new ObjectMap<>();
-            entries.each(e -> byName.put(e.getName(), e));
-
-            Seq<String> names = entries.map(z -> z.getName().replace('\\', '/'));
-            ObjectSet<String> paths = new ObjectSet<>();
-
-            for(String path : names){
-                paths.add(path);
-                while(path.contains("/") && !path.equals("/") && path.substring(0, path.length() - 1).contains("/")){
-                    int index = path.endsWith("/") ? path.substring(0, path.length() - 1).lastIndexOf('/') : path.lastIndexOf('/');
-                    path = path.substring(0, index);
-                    paths.add(path.endsWith("/") ? path : path + "/");
+            archive = new Archive(zipFileLoc.file());
+            node = new Node("", null);
+            node.fi = this;
+
+            if(!mapped || !readDirectory(zipFileLoc.file(), node)){
+                Enumeration<? extends ZipEntry> entries = archive.zip().entries();
+                while(entries.hasMoreElements()){
+                    ZipEntry entry = entries.nextElement();
+                    Node added = node.add(entry.getName(), entry.getSize());
+                    if(added != null) added.entry = entry;
                 }
             }
 
-            if(paths.contains("/")){
+            if(node.rooted){
                 file = new File("/");
-                paths.remove("/");
             }
+        }catch(IOException e){
+            throw new ArcRuntimeException(e);
+        }
+    }
 
-            allFiles = new Seq<>();
-            allDirectories = new Seq<>();
-
-            for(String s : paths){
-                ZipEntry entry = byName.get(s);
-
-                ZipFi file =  entry != null ? new ZipFi(entry, zip, allFiles, allDirectories) : new ZipFi(s, zip, allFiles, allDirectories);
-                allFiles.add(file);
+    private ZipFi(Node node, Archive archive){
+        super(new File(node.entryName != null ? node.entryName : node.path), FileType.absolute);
+        this.node = node;
+        this.archive = archive;
+    }
 
-                if(file.isDirectory()){
-                    allDirectories.add(file);
+    /**
+     * Reads the names and sizes of all entries from the central directory at the end of the archive.
+     * @return false if the archive could not be read this way, in which case nothing is added.
+     */
+    private static boolean readDirectory(File file, Node root) throws IOException{
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            long length = channel.size();
+            //the end of central directory record is 22 bytes, followed by a comment of up to 65535 bytes
+            int tail = (int)Math.min(length, 22 + 0xffff);
+            if(tail < 22) return false;
+
+            ByteBuffer end = read(channel, length - tail, tail);
+            int eocd = -1;
+            for(int i = tail - 22; i >= 0; i--){
+                if(end.getInt(i) == 0x06054b50){
+                    eocd = i;
+                    break;
                 }
             }
+            if(eocd == -1) return false;
+
+            int count = end.getShort(eocd + 10) & 0xffff;
+            long size = end.getInt(eocd + 12) & 0xffffffffL, offset = end.getInt(eocd + 16) & 0xffffffffL;
+            //Zip64 archives store the real values elsewhere
+            if(count == 0xffff || size == 0xffffffffL || offset == 0xffffffffL) return false;
+
+            //the directory is right before its end record; the stored offset is wrong when data was prepended to the archive
+            long start = length - tail + eocd - size;
+            if(start < 0 || size > Integer.MAX_VALUE) return false;
+
+            ByteBuffer cen = read(channel, start, (int)size);
+            Seq<String> names = new Seq<>(count);
+            LongSeq sizes = new LongSeq(count);
+            byte[] name = new byte[256];
+            int pos = 0;
+
+            for(int i = 0; i < count; i++){
+                if(pos + 46 > size || cen.getInt(pos) != 0x02014b50) return false;
+
+                long entrySize = cen.getInt(pos + 24) & 0xffffffffL;
+                int nameLength = cen.getShort(pos + 28) & 0xffff, extraLength = cen.getShort(pos + 30) & 0xffff, commentLength = cen.getShort(pos + 32) & 0xffff;
+                if(pos + 46 + nameLength > size) return false;
+                if(name.length < nameLength) name = new byte[nameLength];
+
+                cen.position(pos + 46);
+                cen.get(name, 0, nameLength);
+                //ZipFile decodes all names as UTF-8 as well
+                names.add(new String(name, 0, nameLength, StandardCharsets.UTF_8));
+                sizes.add(entrySize == 0xffffffffL ? -1 : entrySize);
+
+                pos += 46 + nameLength + extraLength + commentLength;
+            }
 
-            allFiles.add(this);
-            allDirectories.add(this);
-
-            parent = null;
-        }catch(IOException e){
-            throw new ArcRuntimeException(e);
+            for(int i = 0; i < names.size; i++){
+                root.add(names.get(i), sizes.get(i));
+            }
+            return true;
         }
     }
 
-    private static int countSlashes(String str){
-        int sum = 0;
-        for(int i = 0; i < str.length(); i++){
-            if(str.charAt(i) == '/') sum ++;
+    /** Reads a part of a file into a heap buffer. Mapping it instead would keep the file locked on Windows until the mapping is collected. */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException{
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
         }
-        return sum;
+        buffer.clear();
+        return buffer;
     }
 
-    private ZipFi(ZipEntry entry, ZipFile file, Seq<ZipFi> allFiles, Seq<ZipFi> allDirectories){
-        super(new File(entry.getName()), FileType.absolute);
-        this.allDirectories = allDirectories;
-        this.allFiles = allFiles;
-        this.path = entry.getName().replace('\\', '/');
-        this.entry = entry;
-        this.zip = file;
+    private ZipFi handle(Node node){
+        if(node.fi == null){
+            node.fi = new ZipFi(node, archive);
+        }
+        return node.fi;
     }
 
-    private ZipFi(String path, ZipFile file, Seq<ZipFi> allFiles, Seq<ZipFi> allDirectories){
-        super(new File(path), FileType.absolute);
-        this.allDirectories = allDirectories;
-        this.allFiles = allFiles;
-        this.path = path.replace('\\', '/');
-        this.entry = null;
-        this.zip = file;
+    private @Nullable ZipEntry entry() throws IOException{
+        if(node.entryName == null) return null;
+        if(node.entry == null){
+            node.entry = archive.zip().getEntry(node.entryName);
+        }
+        return node.entry;
     }
 
     @Override
     public boolean delete(){
         try{
-            zip.close();
+            archive.close();
             return true;
         }catch(IOException e){
             Log.err(e);
@@ -115,13 +167,20 @@ public class ZipFi extends Fi{
 
     @Override
     public Fi child(String name){
-        //trigger cache
-        list();
-
-        for(ZipFi child : children){
-            if(child.name().equals(name)){
-                return child;
+        Node current = node;
+        int start = 0;
+        //names may contain several path segments
+        while(current != null && start < name.length()){
+            int slash = name.indexOf('/', start);
+            if(slash == -1) slash = name.length();
+            if(slash > start){
+                current = current.child(name.substring(start, slash));
             }
+            start = slash + 1;
+        }
+
+        if(current != null && current != node){
+            return handle(current);
         }
 
         return new Fi(new File(file, name)){
@@ -139,32 +198,24 @@ public class ZipFi extends Fi{
 
     @Override
     public String path(){
-        return path;
-    }
-
-    private static boolean isChild(ZipFi file, ZipFi dir){
-        return dir != file
-            && file.path().startsWith(dir.path())
-            && (file.path().substring(1 + dir.path().length()).indexOf('/') == -1 || //do not allow extra slashes in the path
-            (file.path().endsWith("/") && countSlashes(file.path().substring(1 + dir.path().length())) == 1));
+        return node.path;
     }
 
     @Override
     public Fi parent(){
         //root
-        if(path.length() == 0) return null;
-
-        if(parent == null){
-            parent = allDirectories.find(other -> isChild(this, other));
-        }
+        if(node.parent == null) return null;
 
-        return parent;
+        return handle(node.parent);
     }
 
     @Override
     public Fi[] list(){
         if(children == null){
-            children = allFiles.select(f -> f.parent == this || isChild(f, this)).toArray(ZipFi.class);
+            children = new ZipFi[node.list == null ? 0 : node.list.size];
+            for(int i = 0; i < children.length; i++){
+                children[i] = handle(node.list.get(i));
+            }
         }
 
         return children;
@@ -172,14 +223,14 @@ public class ZipFi extends Fi{
 
     @Override
     public boolean isDirectory(){
-        return entry == null || entry.isDirectory();
+        return node.entryName == null || node.entryName.endsWith("/");
     }
 
     @Override
     public InputStream read(){
-        if(entry == null) throw new RuntimeException("Not permitted.");
+        if(node.entryName == null) throw new RuntimeException("Not permitted.");
         try{
-            return zip.getInputStream(entry);
+            return archive.zip().getInputStream(entry());
         }catch(IOException e){
             throw new RuntimeException(e);
         }
@@ -187,11 +238,121 @@ public class ZipFi extends Fi{
 
     @Override
     public long length(){
-        return isDirectory() ? 0 : entry.getSize();
+        if(isDirectory()) return 0;
+        if(node.size < 0){
+            //sizes that did not fit in the central directory record
+            try{
+                return entry().getSize();
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+        }
+        return node.size;
     }
 
     @Override
     public String toString(){
         return path();
     }
-}
\ No newline at end of file
+
+    /** The archive that all handles share. It is only opened when needed. */
+    private static class Archive{
+        final File file;
+        @Nullable ZipFile zip;
+
+        Archive(File file){
+            this.file = file;
+        }
+
+        synchronized ZipFile zip() throws IOException{
+            if(zip == null){
+                zip = new ZipFile(file);
+            }
+            return zip;
+        }
+
+        synchronized void close() throws IOException{
+            if(zip != null){
+                zip.close();
+                zip = null;
+            }
+        }
+    }
+
+    /** A file or directory in the index of an archive. Directories that have no entry of their own are created from the paths of their children. */
+    private static class Node{
+        /** Path with forward slashes. Directories end with a slash. */
+        final String path;
+        final @Nullable Node parent;
+        /** Name of the entry in the archive, or null if there is no entry for this directory. */
+        @Nullable String entryName;
+
+        /** Children by name. Directories are stored with a trailing slash, so that a file and a directory can share a name. */
+        @Nullable ObjectMap<String, Node> children;
+        /** Children in the order of the archive. */
+        @Nullable Seq<Node> list;
+        @Nullable ZipEntry entry;
+        @Nullable ZipFi fi;
+        long size;
+        /** Whether any entry path starts with a slash. Only set on the root. */
+        boolean rooted;
+
+        Node(String path, @Nullable Node parent){
+            this.path = path;
+            this.parent = parent;
+        }
+
+        @Nullable Node child(String name){
+            if(children == null) return null;
+            Node file = children.get(name);
+            return file != null ? file : children.get(name + "/");
+        }
+
+        /**
+         * Adds an entry and any of its parent directories that do not exist yet.
+         * @return the node of the entry, or null if it is the root.
+         */
+        @Nullable Node add(String entryName, long size){
+            String path = entryName.replace('\\', '/');
+            if(path.startsWith("/")) rooted = true;
+
+            Node current = this;
+            int start = 0, length = path.length();
+            while(start < length){
+                int slash = path.indexOf('/', start);
+                if(slash == start){
+                    //skip empty segments
+                    start ++;
+                    continue;
+                }
+
+                boolean last = slash == -1 || slash == length - 1;
+                String key = slash == -1 ? path.substring(start) : path.substring(start, slash + 1);
+
+                if(current.children == null){
+                    current.children = new ObjectMap<>();
+                    current.list = new Seq<>();
+                }
+
+                Node next = current.children.get(key);
+                if(next == null){
+                    next = new Node(slash == -1 ? path : path.substring(0, slash + 1), current);
+                    current.children.put(key, next);
+                    current.list.add(next);
+                }
+
+                current = next;
+                if(last){
+                    //directories may have been created from the paths of their children before their own entry
+                    if(current.entryName == null){
+                        current.entryName = entryName;
+                        current.size = size;
+                    }
+                    return current;
+                }
+                start = slash + 1;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package arc.func;
+
+public interface IntBoolf{
+    boolean get(int value);
+}
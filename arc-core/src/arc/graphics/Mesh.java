@@ -53,6 +53,19 @@ public class Mesh implements Disposable{
      * @param maxIndices the maximum number of indices this mesh can hold
      */
     public Mesh(boolean useVertexArray, boolean isStatic, int maxVertices, int maxIndices, VertexAttribute... attributes){
+        this(useVertexArray, isStatic, 0, maxVertices, maxIndices, attributes);
+    }
+
+    /**
+     * Creates a new Mesh with the given attributes. This is an expert method with no error checking. Use at your own risk.
+     * @param useVertexArray whether to use VBOs or VAOs. Note that the latter is not supported with OpenGL 3.0.
+     * @param isStatic whether this mesh is static or not. Allows for internal optimizations.
+     * @param streamSegments if greater than 1 and the mesh is not static, vertices are streamed through this many buffers on OpenGL 3.0.
+     * See {@link VertexBufferObjectStreaming}. Ignored on OpenGL 2.0.
+     * @param maxVertices the maximum number of vertices this mesh can hold
+     * @param maxIndices the maximum number of indices this mesh can hold
+     */
+    public Mesh(boolean useVertexArray, boolean isStatic, int streamSegments, int maxVertices, int maxIndices, VertexAttribute... attributes){
         int count = 0;
         for(VertexAttribute attribute : attributes){
             count += attribute.size;
@@ -65,7 +78,9 @@ public class Mesh implements Disposable{
             vertices = new VertexArray(maxVertices, this);
             indices = new IndexArray(maxIndices);
         }else if(Core.gl30 != null){
-            vertices = new VertexBufferObjectWithVAO(isStatic, maxVertices, this);
+            vertices = streamSegments > 1 && !isStatic ?
+                new VertexBufferObjectStreaming(streamSegments, maxVertices, this) :
+                new VertexBufferObjectWithVAO(isStatic, maxVertices, this);
             indices = new IndexBufferObject(isStatic, maxIndices);
         }else{
             vertices = new VertexBufferObject(isStatic, maxVertices, this);
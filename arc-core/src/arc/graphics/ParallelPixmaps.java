@@ -0,0 +1,115 @@
+package arc.graphics;
+
+import arc.func.*;
+import arc.util.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Multi-threaded versions of the per-pixel kernels in {@link Pixmap} and {@link Pixmaps}. Images are split into bands of rows that are
+ * processed on a fork/join pool, and the results are exactly the same as those of the single-threaded methods.
+ * <p>
+ * Small images are processed on the calling thread. When many images are processed at once, it is usually better to process each image
+ * on its own thread with the single-threaded methods.
+ */
+public class ParallelPixmaps{
+    /** The pool to process bands on. If null, everything runs on the calling thread. */
+    public static @Nullable ForkJoinPool pool = ForkJoinPool.commonPool();
+    /** Minimum number of pixels in a band of rows. Images with fewer pixels than this are not split. */
+    public static int minBandPixels = 128 * 128;
+
+    /** Iterates through every position in the pixmap. The consumer is called from several threads at once. */
+    public static void each(Pixmap pixmap, Intc2 cons){
+        int width = pixmap.width;
+        rows(width, pixmap.height, true, (from, to) -> {
+            for(int y = from; y < to; y++){
+                for(int x = 0; x < width; x++){
+                    cons.get(x, y);
+                }
+            }
+        });
+    }
+
+    /** @see Pixmap#replace(IntIntf) The function is called from several threads at once, and not necessarily in row-major order. */
+    public static void replace(Pixmap pixmap, IntIntf func){
+        pixmap.replace(func, true);
+    }
+
+    /** @see Pixmap#outline(int, int) */
+    public static Pixmap outline(Pixmap pixmap, int color, int radius){
+        return pixmap.outline(color, radius, true);
+    }
+
+    /** @see Pixmaps#bleed(Pixmap) */
+    public static Pixmap bleed(Pixmap image){
+        return Pixmaps.bleed(image, true);
+    }
+
+    /** @see Pixmaps#bleed(Pixmap, int) */
+    public static Pixmap bleed(Pixmap image, int maxIterations){
+        return Pixmaps.bleed(image, maxIterations, true);
+    }
+
+    /** @see Pixmaps#median(Pixmap, int, double) */
+    public static Pixmap median(Pixmap input, int radius, double percentile){
+        return Pixmaps.median(input, radius, percentile, null, true);
+    }
+
+    /** @see Pixmaps#antialias(Pixmap) */
+    public static void antialias(Pixmap pixmap){
+        Pixmaps.antialias(pixmap, true);
+    }
+
+    /** @see Pixmaps#scale(Pixmap, float, float) */
+    public static Pixmap scale(Pixmap input, float scalex, float scaley){
+        return Pixmaps.scale(input, scalex, scaley, true);
+    }
+
+    /** @return the number of rows in each band of an image. */
+    static int bandRows(int width, int height){
+        return Math.max(minBandPixels / Math.max(width, 1), 1);
+    }
+
+    /** Runs a task over bands of rows, in parallel if requested. The task receives the first row and the row after the last one. */
+    static void rows(int width, int height, boolean parallel, Intc2 band){
+        int grain = bandRows(width, height);
+        if(!parallel || pool == null || height <= grain){
+            band.get(0, height);
+        }else{
+            pool.invoke(new Band(band, 0, height, grain));
+        }
+    }
+
+    /** Runs a task over each index in [0, count), in parallel if requested. */
+    static void range(int count, boolean parallel, Intc2 task){
+        if(!parallel || pool == null || count <= 1){
+            task.get(0, count);
+        }else{
+            pool.invoke(new Band(task, 0, count, 1));
+        }
+    }
+
+    static class Band extends RecursiveAction{
+        private static final long serialVersionUID = 5382684752684361272L;
+
+        final Intc2 task;
+        final int from, to, grain;
+
+        Band(Intc2 task, int from, int to, int grain){
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= grain){
+                task.get(from, to);
+            }else{
+                int mid = (from + to) >>> 1;
+                invokeAll(new Band(task, from, mid, grain), new Band(task, mid, to, grain));
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import arc.func.*;
 import arc.graphics.PixmapIO.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
+import arc.struct.*;
 import arc.util.*;
 
 import java.io.*;
@@ -109,12 +110,67 @@ public class Pixmap implements Disposable{
         }
     }
 
+    /** Replaces every pixel with the result of the function, in row-major order. */
     public void replace(IntIntf func){
-        for(int y = 0; y < height; y++){
-            for(int x = 0; x < width; x++){
-                setRaw(x, y, func.get(getRaw(x, y)));
+        replace(func, false);
+    }
+
+    void replace(IntIntf func, boolean parallel){
+        ParallelPixmaps.rows(width, height, parallel, (from, to) -> {
+            IntBuffer ints = asIntBuffer();
+            int[] row = new int[width];
+            for(int y = from; y < to; y++){
+                ints.position(y * width);
+                ints.get(row);
+                for(int x = 0; x < width; x++){
+                    row[x] = func.get(row[x]);
+                }
+                ints.position(y * width);
+                ints.put(row);
             }
-        }
+        });
+    }
+
+    /**
+     * @return a new view of the pixels, with one RGBA8888 value per pixel in row-major order. Changes to the view are visible in this pixmap.
+     * Views have their own position, so each thread should use its own view.
+     */
+    public IntBuffer asIntBuffer(){
+        ByteBuffer bytes = pixels.duplicate();
+        bytes.order(pixels.order());
+        bytes.clear();
+        return bytes.asIntBuffer();
+    }
+
+    /** Copies a row of pixels in RGBA8888 format into an array, starting at an offset. */
+    public void getRow(int y, int[] out, int offset){
+        IntBuffer ints = asIntBuffer();
+        ints.position(y * width);
+        ints.get(out, offset, width);
+    }
+
+    /** Copies a row of pixels in RGBA8888 format from an array, starting at an offset. */
+    public void setRow(int y, int[] in, int offset){
+        IntBuffer ints = asIntBuffer();
+        ints.position(y * width);
+        ints.put(in, offset, width);
+    }
+
+    /** Copies all pixels in RGBA8888 format into an array with at least width * height elements, in row-major order. */
+    public void getPixels(int[] out){
+        asIntBuffer().get(out, 0, width * height);
+    }
+
+    /** @return a new array with all pixels in RGBA8888 format, in row-major order. */
+    public int[] toIntArray(){
+        int[] out = new int[width * height];
+        getPixels(out);
+        return out;
+    }
+
+    /** Copies all pixels in RGBA8888 format from an array in row-major order. */
+    public void setPixels(int[] in){
+        asIntBuffer().put(in, 0, width * height);
     }
 
     /** Fills the complete bitmap with the specified color. */
@@ -176,28 +232,43 @@ public class Pixmap implements Disposable{
 
     /** @return a newly allocated pixmap with the specified outline. */
     public Pixmap outline(int color, int radius){
-        Pixmap pixmap = copy();
+        return outline(color, radius, false);
+    }
+
+    Pixmap outline(int color, int radius, boolean parallel){
+        Pixmap pixmap = new Pixmap(width, height);
+        int[] src = toIntArray();
+
+        //offsets of every position within the radius
+        IntSeq disk = new IntSeq();
+        for(int dx = -radius; dx <= radius; dx++){
+            for(int dy = -radius; dy <= radius; dy++){
+                if(dx*dx + dy*dy <= radius*radius) disk.add(dx, dy);
+            }
+        }
+        int[] offsets = disk.toArray();
 
         //TODO this messes with antialiasing?
-        for(int y = 0; y < height; y++){
-            for(int x = 0; x < width; x++){
-                if(getA(x, y) == 0){
-                    boolean found = false;
-                    outer:
-                    for(int dx = -radius; dx <= radius; dx++){
-                        for(int dy = -radius; dy <= radius; dy++){
-                            if((dx*dx + dy*dy <= radius*radius) && !empty(get(x + dx, y + dy))){
-                                found = true;
-                                break outer;
+        ParallelPixmaps.rows(width, height, parallel, (from, to) -> {
+            IntBuffer ints = pixmap.asIntBuffer();
+            int[] row = new int[width];
+            for(int y = from; y < to; y++){
+                System.arraycopy(src, y * width, row, 0, width);
+                for(int x = 0; x < width; x++){
+                    if((row[x] & 0xff) == 0){
+                        for(int i = 0; i < offsets.length; i += 2){
+                            int nx = x + offsets[i], ny = y + offsets[i + 1];
+                            if(nx >= 0 && ny >= 0 && nx < width && ny < height && (src[nx + ny * width] & 0xff) != 0){
+                                row[x] = color;
+                                break;
                             }
                         }
                     }
-                    if(found){
-                        pixmap.setRaw(x, y, color);
-                    }
                 }
+                ints.position(y * width);
+                ints.put(row);
             }
-        }
+        });
         return pixmap;
     }
 
@@ -802,20 +873,23 @@ public class Pixmap implements Disposable{
      * @author mzechner
      */
     public enum Format{
-        alpha(Gl.unsignedByte, Gl.alpha),
-        intensity(Gl.unsignedByte, Gl.alpha),
-        luminanceAlpha(Gl.unsignedByte, Gl.luminanceAlpha),
-        rgb565(Gl.unsignedShort565, Gl.rgb),
-        rgba4444(Gl.unsignedShort4444, Gl.rgba),
-        rgb888(Gl.unsignedByte, Gl.rgb),
-        rgba8888(Gl.unsignedByte, Gl.rgba);
+        alpha(Gl.unsignedByte, Gl.alpha, 1),
+        intensity(Gl.unsignedByte, Gl.alpha, 1),
+        luminanceAlpha(Gl.unsignedByte, Gl.luminanceAlpha, 2),
+        rgb565(Gl.unsignedShort565, Gl.rgb, 2),
+        rgba4444(Gl.unsignedShort4444, Gl.rgba, 2),
+        rgb888(Gl.unsignedByte, Gl.rgb, 3),
+        rgba8888(Gl.unsignedByte, Gl.rgba, 4);
 
         public static final Format[] all = values();
         public final int glFormat, glType;
+        /** Size of one pixel in bytes. */
+        public final int bytes;
 
-        Format(int glType, int glFormat){
+        Format(int glType, int glFormat, int bytes){
             this.glFormat = glFormat;
             this.glType = glType;
+            this.bytes = bytes;
         }
     }
 
@@ -66,12 +66,28 @@ public class Pixmaps{
     }
 
     public static Pixmap median(Pixmap input, int radius, double percentile, IntSeq tmp){
-        Pixmap pixmap = new Pixmap(input.width, input.height);
-        input.each((x, y) -> {
-            tmp.clear();
-            Geometry.circle(x, y, pixmap.width, pixmap.height, radius, (cx, cy) -> tmp.add(input.get(cx, cy)));
-            tmp.sort();
-            pixmap.setRaw(x, y, tmp.get(Mathf.clamp((int)(tmp.size * percentile), 0, tmp.size - 1)));
+        return median(input, radius, percentile, tmp, false);
+    }
+
+    static Pixmap median(Pixmap input, int radius, double percentile, @Nullable IntSeq tmp, boolean parallel){
+        int w = input.width, h = input.height;
+        Pixmap pixmap = new Pixmap(w, h);
+        int[] src = input.toIntArray();
+
+        ParallelPixmaps.rows(w, h, parallel, (from, to) -> {
+            IntSeq values = tmp == null ? new IntSeq() : tmp;
+            IntBuffer ints = pixmap.asIntBuffer();
+            int[] row = new int[w];
+            for(int y = from; y < to; y++){
+                for(int x = 0; x < w; x++){
+                    values.clear();
+                    Geometry.circle(x, y, w, h, radius, (cx, cy) -> values.add(src[cx + cy * w]));
+                    values.sort();
+                    row[x] = values.get(Mathf.clamp((int)(values.size * percentile), 0, values.size - 1));
+                }
+                ints.position(y * w);
+                ints.put(row);
+            }
         });
         return pixmap;
     }
@@ -87,12 +103,32 @@ public class Pixmaps{
     }
 
     public static Pixmap scale(Pixmap input, float scalex, float scaley){
+        return scale(input, scalex, scaley, false);
+    }
+
+    static Pixmap scale(Pixmap input, float scalex, float scaley, boolean parallel){
         Pixmap pixmap = new Pixmap((int)(input.width * scalex), (int)(input.height * scaley));
-        for(int y = 0; y < pixmap.height; y++){
-            for(int x = 0; x < pixmap.width; x++){
-                pixmap.setRaw(x, y, input.getRaw((int)(x / scalex), (int)(y / scaley)));
+        int w = pixmap.width;
+
+        ParallelPixmaps.rows(w, pixmap.height, parallel, (from, to) -> {
+            IntBuffer src = input.asIntBuffer(), dst = pixmap.asIntBuffer();
+            int[] in = new int[input.width], out = new int[w];
+            int lastRow = -1;
+            for(int y = from; y < to; y++){
+                int sy = (int)(y / scaley);
+                //rows that are scaled up repeat the same source row
+                if(sy != lastRow){
+                    src.position(sy * input.width);
+                    src.get(in);
+                    lastRow = sy;
+                }
+                for(int x = 0; x < w; x++){
+                    out[x] = in[(int)(x / scalex)];
+                }
+                dst.position(y * w);
+                dst.put(out);
             }
-        }
+        });
         return pixmap;
     }
 
@@ -245,115 +281,146 @@ public class Pixmaps{
      * @return the input pixmap with its pixels modified.
      * */
     public static Pixmap bleed(Pixmap image){
+        return bleed(image, false);
+    }
+
+    static Pixmap bleed(Pixmap image, boolean parallel){
         int w = image.width, h = image.height;
-        ByteBuffer pixels = image.pixels;
+        //only opaque pixels are read, and those never change, so every band can read from the same copy
+        int[] src = image.toIntArray();
+
+        ParallelPixmaps.rows(w, h, parallel, (from, to) -> {
+            IntBuffer ints = image.asIntBuffer();
+            int[] row = new int[w];
+            for(int y = from; y < to; y++){
+                System.arraycopy(src, y * w, row, 0, w);
+                boolean changed = false;
+
+                for(int x = 0; x < w; x++){
+                    if((row[x] & 0xff) == 0){
+                        int r = 0, g = 0, b = 0, count = 0;
+
+                        //grab for each direction
+                        for(int i = 0; i < 16; i += 2){
+                            int nx = x + offsets[i];
+                            int ny = y + offsets[i + 1];
+                            if(nx >= 0 && ny >= 0 && nx < w && ny < h){
+                                int color = src[ny*w + nx];
+                                if((color & 0xff) != 0){
+                                    r += color >>> 24;
+                                    g += (color >>> 16) & 0xff;
+                                    b += (color >>> 8) & 0xff;
+                                    count ++;
+                                }
+                            }
+                        }
 
-        for(int y = 0; y < h; y++){
-            for(int x = 0; x < w; x++){
-                if(image.empty(x, y)){
-                    int r = 0, g = 0, b = 0, count = 0;
-                    int pi = (x + y*w)*4;
-
-                    //grab for each direction
-                    for(int i = 0; i < 16; i += 2){
-                        int nx = x + offsets[i];
-                        int ny = y + offsets[i + 1];
-                        int index = (ny*w + nx)*4;
-                        if(nx >= 0 && ny >= 0 && nx < w && ny < h && pixels.get(index + 3) != 0){
-                            r += pixels.get(index) & 0xff;
-                            g += pixels.get(index + 1) & 0xff;
-                            b += pixels.get(index + 2) & 0xff;
-                            count ++;
+                        if(count > 0){
+                            row[x] = (r / count) << 24 | (g / count) << 16 | (b / count) << 8 | (row[x] & 0xff);
+                            changed = true;
                         }
                     }
+                }
 
-                    if(count > 0){
-                        pixels.put(pi, (byte)(r / count));
-                        pixels.put(pi + 1, (byte)(g / count));
-                        pixels.put(pi + 2, (byte)(b / count));
-                    }
+                if(changed){
+                    ints.position(y * w);
+                    ints.put(row);
                 }
             }
-        }
+        });
         return image;
     }
 
     public static void antialias(Pixmap pixmap){
-        Pixmap prev = pixmap.copy();
-
-        int[] p = new int[9];
-
-        for(int y = 0; y < prev.height; y++){
-            for(int x = 0; x < prev.width; x++){
-                int
-                A = prev.getClamp(x - 1, y + 1),
-                B = prev.getClamp(x, y + 1),
-                C = prev.getClamp(x + 1, y + 1),
-                D = prev.getClamp(x - 1, y),
-                E = prev.getClamp(x, y),
-                F = prev.getClamp(x + 1, y),
-                G = prev.getClamp(x - 1, y - 1),
-                H = prev.getClamp(x, y - 1),
-                I = prev.getClamp(x + 1, y - 1);
-
-                Arrays.fill(p, E);
-
-                if(D == B && D != H && B != F) p[0] = D;
-                if((D == B && D != H && B != F && E != C) || (B == F && B != D && F != H && E != A)) p[1] = B;
-                if(B == F && B != D && F != H) p[2] = F;
-                if((H == D && H != F && D != B && E != A) || (D == B && D != H && B != F && E != G)) p[3] = D;
-                if((B == F && B != D && F != H && E != I) || (F == H && F != B && H != D && E != C)) p[5] = F;
-                if(H == D && H != F && D != B) p[6] = D;
-                if((F == H && F != B && H != D && E != G) || (H == D && H != F && D != B && E != I)) p[7] = H;
-                if(F == H && F != B && H != D) p[8] = F;
-
-                float sumr = 0f, sumg = 0f, sumb = 0f, suma = 0f;
-
-                for(int val : p){
-                    float r = ((val & 0xff000000) >>> 24) / 255f;
-                    float g = ((val & 0x00ff0000) >>> 16) / 255f;
-                    float b = ((val & 0x0000ff00) >>> 8) / 255f;
-                    float a = ((val & 0x000000ff)) / 255f;
-
-                    sumr += r * a;
-                    sumg += g * a;
-                    sumb += b * a;
-                    suma += a;
-                }
+        antialias(pixmap, false);
+    }
 
-                float fm = suma <= 0.001f ? 0f : (1f / suma);
-                sumr *= fm;
-                sumg *= fm;
-                sumb *= fm;
+    static void antialias(Pixmap pixmap, boolean parallel){
+        int w = pixmap.width, h = pixmap.height;
+        int[] prev = pixmap.toIntArray();
+
+        ParallelPixmaps.rows(w, h, parallel, (from, to) -> {
+            IntBuffer ints = pixmap.asIntBuffer();
+            int[] row = new int[w];
+            int[] p = new int[9];
+
+            for(int y = from; y < to; y++){
+                //rows above and below, clamped to the image bounds
+                int up = Math.min(y + 1, h - 1) * w, mid = y * w, down = Math.max(y - 1, 0) * w;
+
+                for(int x = 0; x < w; x++){
+                    int left = Math.max(x - 1, 0), right = Math.min(x + 1, w - 1);
+                    int
+                    A = prev[up + left],
+                    B = prev[up + x],
+                    C = prev[up + right],
+                    D = prev[mid + left],
+                    E = prev[mid + x],
+                    F = prev[mid + right],
+                    G = prev[down + left],
+                    H = prev[down + x],
+                    I = prev[down + right];
+
+                    Arrays.fill(p, E);
+
+                    if(D == B && D != H && B != F) p[0] = D;
+                    if((D == B && D != H && B != F && E != C) || (B == F && B != D && F != H && E != A)) p[1] = B;
+                    if(B == F && B != D && F != H) p[2] = F;
+                    if((H == D && H != F && D != B && E != A) || (D == B && D != H && B != F && E != G)) p[3] = D;
+                    if((B == F && B != D && F != H && E != I) || (F == H && F != B && H != D && E != C)) p[5] = F;
+                    if(H == D && H != F && D != B) p[6] = D;
+                    if((F == H && F != B && H != D && E != G) || (H == D && H != F && D != B && E != I)) p[7] = H;
+                    if(F == H && F != B && H != D) p[8] = F;
+
+                    float sumr = 0f, sumg = 0f, sumb = 0f, suma = 0f;
+
+                    for(int val : p){
+                        float r = ((val & 0xff000000) >>> 24) / 255f;
+                        float g = ((val & 0x00ff0000) >>> 16) / 255f;
+                        float b = ((val & 0x0000ff00) >>> 8) / 255f;
+                        float a = ((val & 0x000000ff)) / 255f;
+
+                        sumr += r * a;
+                        sumg += g * a;
+                        sumb += b * a;
+                        suma += a;
+                    }
+
+                    float fm = suma <= 0.001f ? 0f : (1f / suma);
+                    sumr *= fm;
+                    sumg *= fm;
+                    sumb *= fm;
 
-                float total = 0;
-                float tr = 0f, tg = 0f, tb = 0f, ta = 0f;
+                    float total = 0;
+                    float tr = 0f, tg = 0f, tb = 0f, ta = 0f;
 
-                for(int val : p){
-                    float r = ((val & 0xff000000) >>> 24) / 255f;
-                    float g = ((val & 0x00ff0000) >>> 16) / 255f;
-                    float b = ((val & 0x0000ff00) >>> 8) / 255f;
-                    float a = ((val & 0x000000ff)) / 255f;
+                    for(int val : p){
+                        float r = ((val & 0xff000000) >>> 24) / 255f;
+                        float g = ((val & 0x00ff0000) >>> 16) / 255f;
+                        float b = ((val & 0x0000ff00) >>> 8) / 255f;
+                        float a = ((val & 0x000000ff)) / 255f;
 
-                    float t = (1f - a);
+                        float t = (1f - a);
 
-                    r += t * (sumr - r);
-                    g += t * (sumg - g);
-                    b += t * (sumb - b);
+                        r += t * (sumr - r);
+                        g += t * (sumg - g);
+                        b += t * (sumb - b);
 
-                    tr += r;
-                    tg += g;
-                    tb += b;
-                    ta += a;
-                    total += 1f;
+                        tr += r;
+                        tg += g;
+                        tb += b;
+                        ta += a;
+                        total += 1f;
+                    }
+
+                    fm = (1f / total);
+                    row[x] = Color.rgba8888(tr * fm, tg * fm, tb * fm, ta * fm);
                 }
 
-                fm = (1f / total);
-                pixmap.setRaw(x, y, Color.rgba8888(tr * fm, tg * fm, tb * fm, ta * fm));
+                ints.position(y * w);
+                ints.put(row);
             }
-        }
-
-        prev.dispose();
+        });
     }
 
     /**
@@ -361,73 +428,98 @@ public class Pixmaps{
      * @return the input pixmap with its pixels modified.
      * */
     public static Pixmap bleed(Pixmap image, int maxIterations){
-        int total = image.width * image.height;
-        ByteBuffer pixels = image.pixels;
+        return bleed(image, maxIterations, false);
+    }
 
+    static Pixmap bleed(Pixmap image, int maxIterations, boolean parallel){
+        int w = image.width, h = image.height, total = w * h;
+        int[] pixels = image.toIntArray();
+
+        //every band of rows keeps its own list of pending pixels
+        int bandRows = parallel ? ParallelPixmaps.bandRows(w, h) : Math.max(h, 1), bands = (h + bandRows - 1) / bandRows;
         boolean[] data = new boolean[total];
-        int[] pending = new int[total];
-        int[] changing = new int[total];
-        int pendingSize = 0, changingSize = 0;
-
-        for(int i = 0; i < total; i++){
-            if(pixels.get(i * 4 + 3) == 0){
-                pending[pendingSize++] = i;
-            }else{
-                data[i] = true;
+        int[][] pending = new int[bands][], changing = new int[bands][];
+        int[] pendingSizes = new int[bands], changingSizes = new int[bands];
+        int pendingSize = 0;
+
+        for(int band = 0; band < bands; band++){
+            int from = band * bandRows * w, to = Math.min(from + bandRows * w, total);
+            pending[band] = new int[to - from];
+            changing[band] = new int[to - from];
+            for(int i = from; i < to; i++){
+                if((pixels[i] & 0xff) == 0){
+                    pending[band][pendingSizes[band]++] = i;
+                }else{
+                    data[i] = true;
+                }
             }
+            pendingSize += pendingSizes[band];
         }
 
         int iterations = 0;
         int lastPending = -1;
         while(pendingSize > 0 && pendingSize != lastPending && iterations < maxIterations){
             lastPending = pendingSize;
-            int index = 0;
-
-            while(index < pendingSize){
-                int pixelIndex = pending[index++];
-                int x = pixelIndex % image.width;
-                int y = pixelIndex / image.width;
-                int r = 0, g = 0, b = 0;
-                int count = 0;
-
-                for(int i = 0; i < 16; i += 2){
-                    int nx = x + offsets[i];
-                    int ny = y + offsets[i + 1];
-
-                    if(nx < 0 || nx >= image.width || ny < 0 || ny >= image.height) continue;
-
-                    int currentPixelIndex = ny * image.width + nx;
-                    if(data[currentPixelIndex]){
-                        int si = currentPixelIndex * 4;
-                        r += pixels.get(si) & 0xff;
-                        g += pixels.get(si + 1) & 0xff;
-                        b += pixels.get(si + 2) & 0xff;
-                        count++;
+
+            //pixels only read neighbors that were filled in by earlier iterations, so bands do not depend on each other
+            ParallelPixmaps.range(bands, parallel, (fromBand, toBand) -> {
+                for(int band = fromBand; band < toBand; band++){
+                    int[] bandPending = pending[band], bandChanging = changing[band];
+                    int size = pendingSizes[band], changingSize = 0;
+                    int index = 0;
+
+                    while(index < size){
+                        int pixelIndex = bandPending[index++];
+                        int x = pixelIndex % w;
+                        int y = pixelIndex / w;
+                        int r = 0, g = 0, b = 0;
+                        int count = 0;
+
+                        for(int i = 0; i < 16; i += 2){
+                            int nx = x + offsets[i];
+                            int ny = y + offsets[i + 1];
+
+                            if(nx < 0 || nx >= w || ny < 0 || ny >= h) continue;
+
+                            int currentPixelIndex = ny * w + nx;
+                            if(data[currentPixelIndex]){
+                                int color = pixels[currentPixelIndex];
+                                r += color >>> 24;
+                                g += (color >>> 16) & 0xff;
+                                b += (color >>> 8) & 0xff;
+                                count++;
+                            }
+                        }
+
+                        if(count != 0){
+                            pixels[pixelIndex] = (r / count) << 24 | (g / count) << 16 | (b / count) << 8 | (pixels[pixelIndex] & 0xff);
+
+                            index--;
+                            int value = bandPending[index];
+                            size--;
+                            bandPending[index] = bandPending[size];
+                            bandChanging[changingSize] = value;
+                            changingSize++;
+                        }
                     }
-                }
 
-                if(count != 0){
-                    int idx = pixelIndex * 4;
-                    pixels.put(idx, (byte)(r / count));
-                    pixels.put(idx + 1, (byte)(g / count));
-                    pixels.put(idx + 2, (byte)(b / count));
-
-                    index--;
-                    int value = pending[index];
-                    pendingSize--;
-                    pending[index] = pending[pendingSize];
-                    changing[changingSize] = value;
-                    changingSize++;
+                    pendingSizes[band] = size;
+                    changingSizes[band] = changingSize;
                 }
-            }
+            });
 
-            for(int i = 0; i < changingSize; i++){
-                data[changing[i]] = true;
+            pendingSize = 0;
+            for(int band = 0; band < bands; band++){
+                for(int i = 0; i < changingSizes[band]; i++){
+                    data[changing[band][i]] = true;
+                }
+                changingSizes[band] = 0;
+                pendingSize += pendingSizes[band];
             }
-            changingSize = 0;
             iterations++;
         }
 
+        image.setPixels(pixels);
         return image;
     }
 
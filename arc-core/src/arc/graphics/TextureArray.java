@@ -54,6 +54,10 @@ public class TextureArray extends GLTexture{
 
         data.consumeTextureArrayData();
 
+        if(data.useMipMaps()){
+            Gl.generateMipmap(glTarget);
+        }
+
         setFilter(minFilter, magFilter);
         setWrap(uWrap, vWrap);
         Gl.bindTexture(glTarget, 0);
@@ -64,4 +68,76 @@ public class TextureArray extends GLTexture{
         return data.getDepth();
     }
 
+    @Override
+    public boolean isDisposed(){
+        return glHandle == 0;
+    }
+
+    /**
+     * A single layer of a {@link TextureArray} that can be used like a regular texture, e.g. for atlas regions.
+     * Binding a layer binds the whole array, so it can only be drawn by array-aware batches such as {@link arc.graphics.g2d.TextureArrayBatch}.
+     * Layers are owned by their array; disposing a layer does nothing.
+     */
+    public static class Layer extends Texture{
+        public final TextureArray array;
+        public final int index;
+
+        /** @param data used for {@link #getTextureData()}, e.g. to read back pixels. May be null. */
+        public Layer(TextureArray array, int index, @Nullable TextureData data){
+            this.array = array;
+            this.index = index;
+            this.data = data;
+            this.width = array.width;
+            this.height = array.height;
+            this.minFilter = array.minFilter;
+            this.magFilter = array.magFilter;
+            this.uWrap = array.uWrap;
+            this.vWrap = array.vWrap;
+        }
+
+        @Override
+        public void bind(){
+            array.bind();
+        }
+
+        @Override
+        public void bind(int unit){
+            array.bind(unit);
+        }
+
+        @Override
+        public int getTextureObjectHandle(){
+            return array.getTextureObjectHandle();
+        }
+
+        @Override
+        public void setFilter(TextureFilter minFilter, TextureFilter magFilter){
+            array.setFilter(minFilter, magFilter);
+            this.minFilter = minFilter;
+            this.magFilter = magFilter;
+        }
+
+        @Override
+        public void setWrap(TextureWrap u, TextureWrap v){
+            array.setWrap(u, v);
+            this.uWrap = u;
+            this.vWrap = v;
+        }
+
+        @Override
+        public void draw(Pixmap pixmap, int x, int y){
+            array.bind();
+            Core.gl30.glTexSubImage3D(array.glTarget, 0, x, y, index, pixmap.width, pixmap.height, 1, pixmap.getGLFormat(), pixmap.getGLType(), pixmap.pixels);
+        }
+
+        @Override
+        public boolean isDisposed(){
+            return array.isDisposed();
+        }
+
+        @Override
+        public void dispose(){
+        }
+    }
+
 }
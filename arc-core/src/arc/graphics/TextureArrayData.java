@@ -46,4 +46,9 @@ public interface TextureArrayData{
     /** @return the GL type of this TextureArray */
     int getGLType();
 
+    /** @return whether mipmaps should be generated for this TextureArray */
+    default boolean useMipMaps(){
+        return false;
+    }
+
 }
@@ -1,10 +1,115 @@
 package arc.graphics.g2d;
 
 import arc.graphics.g2d.SpriteBatch.*;
+import arc.util.*;
 
 import java.util.concurrent.*;
 
-public class ForkJoinHolder{
-    public final ForkJoinPool pool = ForkJoinPool.commonPool();
+/**
+ * Holds the pool used by {@link SpriteBatch} for threaded request sorting, as well as sorting statistics.
+ * By default, this uses the common fork/join pool. Use {@link #dedicated(int)} to isolate sorting from other work,
+ * or {@link #callerRuns()} to sort on the rendering thread only.
+ * @see SpriteBatch#setSortPool(ForkJoinHolder)
+ */
+public class ForkJoinHolder implements Disposable{
+    /** Minimum number of requests per population task. */
+    static final int minPopulateSize = 512;
+    /** Minimum number of contiguous z-sections per counting sort task. */
+    static final int minCountingSize = 4096;
+
+    /** The pool to use. If null, all work runs on the calling thread. */
+    public final @Nullable ForkJoinPool pool;
     public PopulateTask populateTask = new PopulateTask();
+
+    /** Number of partitions the last sort was split into. */
+    public int lastPartitions;
+    /** Time spent waiting for worker tasks in the last sort, in nanoseconds. */
+    public long lastWaitTime;
+    /** Total number of partitions since the last {@link #resetStats()}. */
+    public long totalPartitions;
+    /** Total wait time since the last {@link #resetStats()}, in nanoseconds. */
+    public long totalWaitTime;
+    /** Number of sorts since the last {@link #resetStats()}. */
+    public int sorts;
+
+    private final boolean owned;
+    private boolean disposed;
+
+    /** Uses the common fork/join pool. */
+    public ForkJoinHolder(){
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    /** Uses a user-supplied pool, which is not shut down when this holder is disposed. */
+    public ForkJoinHolder(@Nullable ForkJoinPool pool){
+        this(pool, false);
+    }
+
+    protected ForkJoinHolder(@Nullable ForkJoinPool pool, boolean owned){
+        this.pool = pool;
+        this.owned = owned;
+    }
+
+    /** @return a holder with its own pool of daemon threads, which is shut down upon disposal. */
+    public static ForkJoinHolder dedicated(int threads){
+        return new ForkJoinHolder(Threads.forkJoinPool("SpriteBatch-Sort", threads), true);
+    }
+
+    /** @return a holder that sorts on the calling thread. */
+    public static ForkJoinHolder callerRuns(){
+        return new ForkJoinHolder(null, false);
+    }
+
+    /** @return whether work is split across the pool. */
+    public boolean threaded(){
+        return pool != null && !disposed;
+    }
+
+    /** @return number of workers available for sorting. */
+    public int parallelism(){
+        return threaded() ? Math.max(pool.getParallelism(), 1) : 1;
+    }
+
+    /** @return the number of requests each population task should process for the specified total. */
+    int populateThreshold(int requests){
+        //aim for a few tasks per worker so that uneven z-sections can still be balanced
+        return Math.max(minPopulateSize, requests / (parallelism() * 4));
+    }
+
+    /** @return the number of counting sort tasks to use for the specified number of z-sections. */
+    int countingTasks(int sections, int max){
+        return Math.max(Math.min(Math.min(max, parallelism()), (sections + minCountingSize - 1) / minCountingSize), 1);
+    }
+
+    void begin(){
+        lastPartitions = 0;
+        lastWaitTime = 0;
+    }
+
+    void end(){
+        totalPartitions += lastPartitions;
+        totalWaitTime += lastWaitTime;
+        sorts++;
+    }
+
+    public void resetStats(){
+        lastPartitions = 0;
+        lastWaitTime = 0;
+        totalPartitions = 0;
+        totalWaitTime = 0;
+        sorts = 0;
+    }
+
+    @Override
+    public void dispose(){
+        if(owned && pool != null){
+            pool.shutdown();
+        }
+        disposed = true;
+    }
+
+    @Override
+    public boolean isDisposed(){
+        return disposed;
+    }
 }
@@ -10,6 +10,7 @@ import arc.util.*;
 import java.nio.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  *
@@ -28,12 +29,17 @@ public class SpriteBatch extends Batch{
 
     /** Counts up for every draw call. Only ever reset by the user. */
     public static long totalDrawCalls = 0;
+    /** Counts up for every GL draw call issued when flushing. Only ever reset by the user. */
+    public static long totalFlushes = 0;
 
-    static ForkJoinHolder commonPool;
+    /** Pool used for threaded request sorting. Shared between all batches. */
+    static ForkJoinHolder sortPool;
     boolean multithreaded = !OS.isIos && !OS.isAndroid;
 
     protected Mesh mesh;
     protected FloatBuffer buffer;
+    /** Number of floats per vertex in the mesh buffer. */
+    protected final int meshVertexSize;
 
     final float[] tmpVertices = new float[SPRITE_SIZE];
 
@@ -47,6 +53,12 @@ public class SpriteBatch extends Batch{
     protected int[] contiguous = new int[2048], contiguousCopy = new int[2048];
     protected int intZ = Float.floatToRawIntBits(z + 16f);
 
+    protected boolean sortTextures;
+    protected long[] radixKeys = {}, radixKeysCopy = {};
+    protected int[] radixOrder = {}, radixOrderCopy = {};
+    protected final ObjectIntMap<Texture> textureIds = new ObjectIntMap<>();
+    protected final ObjectIntMap<Blending> blendingIds = new ObjectIntMap<>();
+
     protected static class DrawRequest{
         int verticesOffset, verticesLength;
         Texture texture;
@@ -81,18 +93,39 @@ public class SpriteBatch extends Batch{
      * @param defaultShader The default shader to use. This is not owned by the SpriteBatch and must be disposed separately.
      */
     public SpriteBatch(int size, Shader defaultShader){
+        this(size, 0, defaultShader);
+    }
+
+    /**
+     * Constructs a new SpriteBatch that streams its vertices through a ring of buffers on OpenGL 3.0, so that uploads do not wait for
+     * the GPU to finish reading the previous flush. On OpenGL 2.0, this behaves like {@link #SpriteBatch(int, Shader)}.
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     * @param streamSegments The number of vertex buffers in the ring. Values of 1 or less disable streaming.
+     * @param defaultShader The default shader to use. This is not owned by the SpriteBatch and must be disposed separately.
+     * @see VertexBufferObjectStreaming
+     */
+    public SpriteBatch(int size, int streamSegments, Shader defaultShader){
+        this(size, streamSegments, defaultShader, VertexAttribute.position, VertexAttribute.color, VertexAttribute.texCoords, VertexAttribute.mixColor);
+    }
+
+    /**
+     * Constructs a new SpriteBatch with a custom vertex format. Subclasses using this must convert the standard sprite vertices to this format
+     * when writing to the buffer.
+     */
+    protected SpriteBatch(int size, int streamSegments, Shader defaultShader, VertexAttribute... attributes){
+        int vertexBytes = 0;
+        for(VertexAttribute attribute : attributes){
+            vertexBytes += attribute.size;
+        }
+        meshVertexSize = vertexBytes / 4;
+
         // 32767 is max vertex index, so 32767 / 4 vertices per sprite = 8191 sprites max.
         if(size > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per batch: " + size);
 
         if(size > 0){
             projectionMatrix.setOrtho(0, 0, Core.graphics.getWidth(), Core.graphics.getHeight());
 
-            mesh = new Mesh(true, false, size * 4, size * 6,
-            VertexAttribute.position,
-            VertexAttribute.color,
-            VertexAttribute.texCoords,
-            VertexAttribute.mixColor
-            );
+            mesh = new Mesh(true, false, streamSegments, size * 4, size * 6, attributes);
 
             int len = size * 6;
             short[] indices = new short[len];
@@ -127,15 +160,29 @@ public class SpriteBatch extends Batch{
             requests[i] = new DrawRequest();
         }
 
-        if(multithreaded){
+        if(multithreaded && sortPool == null){
             try{
-                commonPool = new ForkJoinHolder();
+                sortPool = new ForkJoinHolder();
             }catch(Throwable t){
                 multithreaded = false;
             }
         }
     }
 
+    /**
+     * Sets the pool used for threaded request sorting by all sprite batches. The previous pool is not disposed.
+     * @see ForkJoinHolder#dedicated(int)
+     * @see ForkJoinHolder#callerRuns()
+     */
+    public static void setSortPool(ForkJoinHolder pool){
+        sortPool = pool;
+    }
+
+    /** @return the pool used for threaded request sorting, which also holds sorting statistics. May be null if threading is unsupported. */
+    public static @Nullable ForkJoinHolder getSortPool(){
+        return sortPool;
+    }
+
     @Override
     public void dispose(){
         super.dispose();
@@ -152,6 +199,22 @@ public class SpriteBatch extends Batch{
         this.sort = sort;
     }
 
+    /**
+     * Enables or disables texture sorting. When enabled, requests are radix-sorted by z-layer, then by texture and blending within each layer,
+     * which reduces texture switches in {@link #flush()}. This changes the draw order of overlapping sprites that share a z-layer.
+     * Runnable requests act as barriers: requests are never moved across a runnable on the same layer. Flushes the batch.
+     */
+    public void setSortTextures(boolean sortTextures){
+        if(this.sortTextures != sortTextures){
+            flush();
+        }
+        this.sortTextures = sortTextures;
+    }
+
+    public boolean isSortTextures(){
+        return sortTextures;
+    }
+
     @Override
     protected void setShader(Shader shader, boolean apply){
         if(!flushing && sort){
@@ -279,7 +342,7 @@ public class SpriteBatch extends Batch{
         }
 
         Gl.depthMask(false);
-        int count = idx / SPRITE_SIZE * 6;
+        int count = idx / (meshVertexSize * 4) * 6;
 
         blending.apply();
 
@@ -292,6 +355,7 @@ public class SpriteBatch extends Batch{
         buffer.limit(idx);
 
         mesh.render(getShader(), Gl.triangles, 0, count);
+        totalFlushes++;
 
         buffer.limit(buffer.capacity());
         buffer.position(0);
@@ -500,14 +564,20 @@ public class SpriteBatch extends Batch{
     //region request sorting
 
     protected void sortRequests(){
-        if(multithreaded){
-            sortRequestsThreaded();
+        //read once and passed down, so that a concurrent setSortPool cannot split one sort across pools
+        ForkJoinHolder pool = sortPool;
+        if(sortTextures){
+            sortRequestsRadix();
+        }else if(multithreaded && pool != null && pool.threaded()){
+            pool.begin();
+            sortRequestsThreaded(pool);
+            pool.end();
         }else{
             sortRequestsStandard();
         }
     }
 
-    protected void sortRequestsThreaded(){
+    protected void sortRequestsThreaded(ForkJoinHolder pool){
         final int numRequests = this.numRequests;
         final int[] itemZ = requestZ;
 
@@ -537,7 +607,7 @@ public class SpriteBatch extends Batch{
 
         if(contiguousCopy.length < contiguous.length) this.contiguousCopy = new int[contiguous.length];
 
-        final int[] sorted = CountingSort.countingSortMapMT(contiguous, contiguousCopy, L);
+        final int[] sorted = CountingSort.countingSortMapMT(pool, contiguous, contiguousCopy, L);
 
 
         final int[] locs = contiguous;
@@ -551,7 +621,13 @@ public class SpriteBatch extends Batch{
         PopulateTask.src = requests;
         PopulateTask.dest = copy;
         PopulateTask.locs = locs;
-        commonPool.pool.invoke(new PopulateTask(0, L));
+        PopulateTask.threshold = pool.populateThreshold(numRequests);
+        PopulateTask.partitions.set(0);
+
+        long start = Time.nanos();
+        pool.pool.invoke(new PopulateTask(0, L));
+        pool.lastWaitTime += Time.timeSinceNanos(start);
+        pool.lastPartitions += PopulateTask.partitions.get();
     }
 
     protected void sortRequestsStandard(){ // Non-threaded implementation for weak devices
@@ -600,6 +676,134 @@ public class SpriteBatch extends Batch{
         }
     }
 
+    protected void sortRequestsRadix(){
+        final int numRequests = this.numRequests;
+        final DrawRequest[] items = requests;
+        final int[] itemZ = requestZ;
+
+        if(radixKeys.length < numRequests){
+            int size = numRequests + (numRequests >> 3);
+            radixKeys = new long[size];
+            radixKeysCopy = new long[size];
+            radixOrder = new int[size];
+            radixOrderCopy = new int[size];
+        }
+        final long[] keys = radixKeys;
+        final int[] ids = radixOrderCopy;
+        final ObjectIntMap<Texture> textureIds = this.textureIds;
+        final ObjectIntMap<Blending> blendingIds = this.blendingIds;
+
+        //assign compact per-flush IDs; runnables get texture 0 so they sort before the rest of their segment
+        Texture lastTexture = null;
+        Blending lastBlending = null;
+        int textureId = 0, blendingId = 0, segments = 0;
+        for(int i = 0; i < numRequests; i++){
+            final DrawRequest req = items[i];
+            if(req.run != null){
+                segments++;
+                ids[i] = -1;
+                continue;
+            }
+            if(req.texture != lastTexture){
+                lastTexture = req.texture;
+                textureId = lastTexture == null ? 0 : textureIds.putMissing(lastTexture, textureIds.size + 1, textureIds.size + 1);
+            }
+            if(req.blending != lastBlending){
+                lastBlending = req.blending;
+                blendingId = blendingIds.putMissing(lastBlending, blendingIds.size, blendingIds.size);
+            }
+            ids[i] = textureId << 8 | blendingId;
+        }
+
+        final int blendingBits = RadixSort.bits(Math.max(blendingIds.size - 1, 0)), textureBits = RadixSort.bits(textureIds.size), segmentBits = RadixSort.bits(segments);
+        //if the IDs don't fit into the lower half of the key, fall back to sorting by z alone
+        final boolean grouped = blendingBits <= 8 && blendingBits + textureBits + segmentBits <= 32;
+
+        for(int i = 0, segment = 0; i < numRequests; i++){
+            int low = 0;
+            if(grouped){
+                final int id = ids[i];
+                if(id == -1){
+                    low = ++segment << (textureBits + blendingBits);
+                }else{
+                    low = (segment << (textureBits + blendingBits)) | ((id >>> 8) << blendingBits) | (id & 0xff);
+                }
+            }
+            //flip the sign bit so that unsigned digit order matches signed z order
+            keys[i] = ((long)(itemZ[i] ^ Integer.MIN_VALUE) << 32) | (low & 0xFFFFFFFFL);
+            radixOrder[i] = i;
+        }
+
+        textureIds.clear();
+        blendingIds.clear();
+
+        final boolean swapped = RadixSort.sort(keys, radixOrder, radixKeysCopy, radixOrderCopy, numRequests);
+        final int[] order = swapped ? radixOrderCopy : radixOrder;
+
+        if(copy.length < numRequests) copy = new DrawRequest[numRequests + (numRequests >> 3)];
+        final DrawRequest[] dest = copy;
+        for(int i = 0; i < numRequests; i++){
+            dest[i] = items[order[i]];
+        }
+    }
+
+    /** Stable, allocation-free LSD radix sort over unsigned 64-bit keys with an int payload. */
+    static class RadixSort{
+        private static final int[] counts = new int[8 * 256];
+
+        /** @return the number of bits needed to represent values up to the specified maximum. */
+        static int bits(int max){
+            return 32 - Integer.numberOfLeadingZeros(max);
+        }
+
+        /**
+         * Sorts the first n keys and their payload values. Digits that are identical for every key are skipped.
+         * @return true if the result ended up in the swap arrays, false if it is in the source arrays.
+         */
+        static boolean sort(long[] keys, int[] values, long[] keysSwap, int[] valuesSwap, int n){
+            final int[] counts = RadixSort.counts;
+            Arrays.fill(counts, 0);
+
+            for(int i = 0; i < n; i++){
+                final long key = keys[i];
+                for(int d = 0; d < 8; d++){
+                    counts[(d << 8) | (int)((key >>> (d << 3)) & 0xff)]++;
+                }
+            }
+
+            long[] srcKeys = keys, destKeys = keysSwap;
+            int[] srcValues = values, destValues = valuesSwap;
+            boolean swapped = false;
+
+            for(int d = 0; d < 8; d++){
+                final int base = d << 8, shift = d << 3;
+                if(counts[base | (int)((srcKeys[0] >>> shift) & 0xff)] == n) continue;
+
+                for(int b = 0, sum = 0; b < 256; b++){
+                    final int count = counts[base | b];
+                    counts[base | b] = sum;
+                    sum += count;
+                }
+
+                for(int i = 0; i < n; i++){
+                    final long key = srcKeys[i];
+                    final int pos = counts[base | (int)((key >>> shift) & 0xff)]++;
+                    destKeys[pos] = key;
+                    destValues[pos] = srcValues[i];
+                }
+
+                long[] tk = srcKeys;
+                srcKeys = destKeys;
+                destKeys = tk;
+                int[] tv = srcValues;
+                srcValues = destValues;
+                destValues = tv;
+                swapped = !swapped;
+            }
+            return swapped;
+        }
+    }
+
     static class CountingSort{
         private static final int processors = Runtime.getRuntime().availableProcessors() * 8;
 
@@ -685,10 +889,10 @@ public class SpriteBatch extends Batch{
             }
         }
 
-        static int[] countingSortMapMT(final int[] arr, final int[] swap, final int end){
+        static int[] countingSortMapMT(final ForkJoinHolder pool, final int[] arr, final int[] swap, final int end){
             final IntIntMap[] countses = CountingSort.countses;
             final int[][] locs = CountingSort.locses;
-            final int threads = Math.min(processors, (end + 4095) / 4096); // 4096 Point3s to process per thread
+            final int threads = pool.countingTasks(end, processors);
             final int thread_size = end / threads + 1;
             final CountingSort.CountingSortTask[] tasks = CountingSort.tasks;
             final CountingSort.CountingSortTask2[] task2s = CountingSort.task2s;
@@ -701,18 +905,21 @@ public class SpriteBatch extends Batch{
                 final int stop = Math.min(s + thread_size, end);
                 task.set(s, stop, thread);
                 task2s[thread].set(s, stop, thread);
-                futures[thread] = commonPool.pool.submit(task);
+                futures[thread] = pool.pool.submit(task);
             }
 
+            long start = Time.nanos();
             int unique = 0;
             for(int i = 0; i < threads; i++){
                 try{
                     futures[i].get();
                 }catch(ExecutionException | InterruptedException e){
-                    commonPool.pool.execute(tasks[i]);
+                    pool.pool.execute(tasks[i]);
                 }
                 unique += countses[i].size;
             }
+            pool.lastWaitTime += Time.timeSinceNanos(start);
+            pool.lastPartitions += threads;
 
             final int L = unique;
             if(entries3.length < L * 3){
@@ -761,15 +968,17 @@ public class SpriteBatch extends Batch{
             }
 
             for(int thread = 0; thread < threads; thread++){
-                futures[thread] = commonPool.pool.submit(task2s[thread]);
+                futures[thread] = pool.pool.submit(task2s[thread]);
             }
+            start = Time.nanos();
             for(int i = 0; i < threads; i++){
                 try{
                     futures[i].get();
                 }catch(ExecutionException | InterruptedException e){
-                    commonPool.pool.execute(task2s[i]);
+                    pool.pool.execute(task2s[i]);
                 }
             }
+            pool.lastWaitTime += Time.timeSinceNanos(start);
             return swap;
         }
 
@@ -834,8 +1043,10 @@ public class SpriteBatch extends Batch{
         static DrawRequest[] src;
         static DrawRequest[] dest;
         static int[] locs;
+        /** Minimum number of requests per task; set before each sort based on request count and parallelism. */
+        static int threshold = ForkJoinHolder.minPopulateSize;
+        static final AtomicInteger partitions = new AtomicInteger();
 
-        //private static final int threshold = 256;
         PopulateTask(int from, int to){
             this.from = from;
             this.to = to;
@@ -847,7 +1058,7 @@ public class SpriteBatch extends Batch{
         @Override
         protected void compute(){
             final int[] locs = PopulateTask.locs;
-            if(to - from > 1 && locs[to] - locs[from] > 2048){
+            if(to - from > 1 && locs[to] - locs[from] > threshold){
                 final int half = (locs[to] + locs[from]) >> 1;
                 int mid = Arrays.binarySearch(locs, from, to, half);
                 if(mid < 0) mid = -mid - 1;
@@ -856,6 +1067,7 @@ public class SpriteBatch extends Batch{
                     return;
                 }
             }
+            partitions.incrementAndGet();
             final DrawRequest[] src = PopulateTask.src, dest = PopulateTask.dest;
             final int[] tasks = PopulateTask.tasks;
             for(int i = from; i < to; i++){
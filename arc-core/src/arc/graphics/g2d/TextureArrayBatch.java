@@ -0,0 +1,171 @@
+package arc.graphics.g2d;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.TextureArray.*;
+import arc.graphics.gl.*;
+import arc.util.*;
+
+import java.nio.*;
+
+/**
+ * A {@link SpriteBatch} that stores a texture layer index in every vertex. Sprites from different layers of the same {@link TextureArray}
+ * are drawn in a single call, instead of flushing on every texture switch.
+ * <p>
+ * Layers are drawn when a region's texture is a {@link Layer}, e.g. the pages of a {@link TextureAtlas} loaded with a texture array.
+ * All other textures are drawn normally. Custom shaders that are set while drawing layers must sample a {@code sampler2DArray}
+ * using the {@code a_layer} attribute. Requires OpenGL 3.0 for layers; on OpenGL 2.0, this behaves like a regular SpriteBatch.
+ * <p>
+ * The number of avoided texture switches is reported in {@link #totalMergedSwitches}; compare {@link SpriteBatch#totalDrawCalls} against
+ * {@link SpriteBatch#totalFlushes} to see the overall draw call reduction.
+ */
+public class TextureArrayBatch extends SpriteBatch{
+    public static final VertexAttribute layerAttribute = new VertexAttribute(1, "a_layer");
+    /** Floats per vertex in the mesh: the regular vertex, plus a layer index. */
+    public static final int ARRAY_VERTEX_SIZE = VERTEX_SIZE + 1;
+
+    /** Counts up for every texture switch that did not cause a flush because both textures were layers of the same array. Only ever reset by the user. */
+    public static long totalMergedSwitches = 0;
+
+    protected @Nullable Shader arrayShader;
+    protected boolean ownsArrayShader;
+
+    final float[] layerVertices = new float[4 * ARRAY_VERTEX_SIZE];
+
+    /** Constructs a new TextureArrayBatch with a size of 4096 and the default shaders. */
+    public TextureArrayBatch(){
+        this(4096, null);
+    }
+
+    /** Constructs a new TextureArrayBatch with the default shaders. */
+    public TextureArrayBatch(int size){
+        this(size, null);
+    }
+
+    /**
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     * @param arrayShader The shader to use for texture array layers. This is not owned by the batch and must be disposed separately.
+     * If null, {@link #createArrayShader()} is used.
+     */
+    public TextureArrayBatch(int size, @Nullable Shader arrayShader){
+        this(size, 0, arrayShader);
+    }
+
+    /**
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     * @param streamSegments The number of vertex buffers to stream through. See {@link SpriteBatch#SpriteBatch(int, int, Shader)}.
+     * @param arrayShader The shader to use for texture array layers. This is not owned by the batch and must be disposed separately.
+     * If null, {@link #createArrayShader()} is used.
+     */
+    public TextureArrayBatch(int size, int streamSegments, @Nullable Shader arrayShader){
+        super(size, streamSegments, null, VertexAttribute.position, VertexAttribute.color, VertexAttribute.texCoords, VertexAttribute.mixColor, layerAttribute);
+
+        if(size > 0 && Core.gl30 != null){
+            if(arrayShader == null){
+                this.arrayShader = createArrayShader();
+                ownsArrayShader = true;
+            }else{
+                this.arrayShader = arrayShader;
+            }
+        }
+    }
+
+    @Override
+    public void dispose(){
+        super.dispose();
+        if(ownsArrayShader && arrayShader != null){
+            arrayShader.dispose();
+        }
+    }
+
+    @Override
+    protected Shader getShader(){
+        if(customShader == null && arrayShader != null && lastTexture instanceof Layer){
+            return arrayShader;
+        }
+        return super.getShader();
+    }
+
+    @Override
+    protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+        float layer = 0f;
+
+        if(texture instanceof Layer){
+            Layer l = (Layer)texture;
+            layer = l.index;
+
+            //layers of the array that is already bound can be drawn without switching
+            if(texture != lastTexture && lastTexture instanceof Layer && ((Layer)lastTexture).array == l.array){
+                texture = lastTexture;
+                totalMergedSwitches++;
+            }
+        }
+
+        if(texture != lastTexture){
+            switchTexture(texture);
+        }
+
+        final FloatBuffer buffer = this.buffer;
+        final float[] vertices = layerVertices;
+        final int capacity = buffer.capacity();
+
+        for(int i = offset, end = offset + count; i < end; i += SPRITE_SIZE){
+            if(idx + vertices.length > capacity){
+                flush();
+            }
+
+            int verts = Math.min(end - i, SPRITE_SIZE) / VERTEX_SIZE;
+            for(int v = 0; v < verts; v++){
+                System.arraycopy(spriteVertices, i + v * VERTEX_SIZE, vertices, v * ARRAY_VERTEX_SIZE, VERTEX_SIZE);
+                vertices[v * ARRAY_VERTEX_SIZE + VERTEX_SIZE] = layer;
+            }
+
+            buffer.put(vertices, 0, verts * ARRAY_VERTEX_SIZE);
+            idx += verts * ARRAY_VERTEX_SIZE;
+        }
+    }
+
+    @Override
+    protected void drawSuper(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float rotation){
+        constructVertices(tmpVertices, 0, region, x, y, originX, originY, width, height, rotation);
+        drawSuper(region.texture, tmpVertices, 0, SPRITE_SIZE);
+    }
+
+    /** @return a shader that samples the layer of a texture array specified by the a_layer attribute. Requires OpenGL 3.0. */
+    public static Shader createArrayShader(){
+        return new Shader(
+        "attribute vec4 a_position;\n" +
+        "attribute vec4 a_color;\n" +
+        "attribute vec2 a_texCoord0;\n" +
+        "attribute vec4 a_mix_color;\n" +
+        "attribute float a_layer;\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "varying vec4 v_color;\n" +
+        "varying vec4 v_mix_color;\n" +
+        "varying vec2 v_texCoords;\n" +
+        "varying float v_layer;\n" +
+        "\n" +
+        "void main(){\n" +
+        "   v_color = a_color;\n" +
+        "   v_color.a = v_color.a * (255.0/254.0);\n" +
+        "   v_mix_color = a_mix_color;\n" +
+        "   v_mix_color.a *= (255.0/254.0);\n" +
+        "   v_texCoords = a_texCoord0;\n" +
+        "   v_layer = a_layer;\n" +
+        "   gl_Position = u_projTrans * a_position;\n" +
+        "}",
+
+        "\n" +
+        "varying lowp vec4 v_color;\n" +
+        "varying lowp vec4 v_mix_color;\n" +
+        "varying highp vec2 v_texCoords;\n" +
+        "varying highp float v_layer;\n" +
+        "uniform highp sampler2DArray u_texture;\n" +
+        "\n" +
+        "void main(){\n" +
+        "  vec4 c = texture(u_texture, vec3(v_texCoords, floor(v_layer + 0.5)));\n" +
+        "  gl_FragColor = v_color * mix(c, vec4(v_mix_color.rgb, c.a), v_mix_color.a);\n" +
+        "}"
+        );
+    }
+}
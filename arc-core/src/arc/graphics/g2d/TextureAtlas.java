@@ -27,6 +27,8 @@ public class TextureAtlas implements Disposable{
     private final ObjectMap<Texture, Pixmap> pixmaps = new ObjectMap<>();
     protected AtlasRegion error, white;
     protected float drawableScale = 1f;
+    /** If the pages were loaded into a texture array, this is the array. Its layers are the page textures. */
+    protected @Nullable TextureArray pageArray;
 
     /** Returns a new texture atlas with only a blank texture region.*/
     public static TextureAtlas blankAtlas(){
@@ -71,18 +73,56 @@ public class TextureAtlas implements Disposable{
 
     /** @param data May be null. */
     public TextureAtlas(TextureAtlasData data){
-        if(data != null) load(data);
+        this(data, false);
+    }
+
+    /**
+     * @param data May be null.
+     * @param textureArray If true, all pages are loaded into a single {@link TextureArray} and drawn as its layers,
+     * which lets a {@link TextureArrayBatch} draw regions from different pages without flushing. This requires OpenGL 3.0, and that all
+     * pages have the same size and filtering; otherwise, the pages are loaded as regular textures.
+     */
+    public TextureAtlas(TextureAtlasData data, boolean textureArray){
+        if(data != null) load(data, textureArray);
+    }
+
+    /** @return whether a texture array can be built from the pages of this atlas data. */
+    public static boolean canUseTextureArray(TextureAtlasData data){
+        if(Core.gl30 == null || data.pages.isEmpty()) return false;
+
+        AtlasPage first = data.pages.first();
+        for(AtlasPage page : data.pages){
+            if(page.texture != null || page.width != first.width || page.height != first.height || page.useMipMaps != first.useMipMaps ||
+                page.minFilter != first.minFilter || page.magFilter != first.magFilter || page.uWrap != first.uWrap || page.vWrap != first.vWrap){
+                return false;
+            }
+        }
+        return true;
     }
 
     public void setDrawableScale(float scale){
         this.drawableScale = scale;
     }
 
-    private void load(TextureAtlasData data){
+    private void load(TextureAtlasData data, boolean textureArray){
+        if(textureArray && canUseTextureArray(data)){
+            AtlasPage first = data.pages.first();
+            Fi[] files = new Fi[data.pages.size];
+            for(int i = 0; i < files.length; i++){
+                files[i] = data.pages.get(i).textureFile;
+            }
+            pageArray = new TextureArray(first.useMipMaps, files);
+            pageArray.setFilter(first.minFilter, first.magFilter);
+            pageArray.setWrap(first.uWrap, first.vWrap);
+        }
+
         ObjectMap<AtlasPage, Texture> pageToTexture = new ObjectMap<>();
-        for(AtlasPage page : data.pages){
+        for(int i = 0; i < data.pages.size; i++){
+            AtlasPage page = data.pages.get(i);
             Texture texture;
-            if(page.texture == null){
+            if(pageArray != null){
+                texture = new TextureArray.Layer(pageArray, i, TextureData.load(page.textureFile, false));
+            }else if(page.texture == null){
                 texture = new Texture(page.textureFile, page.useMipMaps);
                 texture.setFilter(page.minFilter, page.magFilter);
                 texture.setWrap(page.uWrap, page.vWrap);
@@ -285,6 +325,11 @@ public class TextureAtlas implements Disposable{
         return textures.first();
     }
 
+    /** @return the texture array holding all pages, or null if the pages were loaded as regular textures. */
+    public @Nullable TextureArray getPageArray(){
+        return pageArray;
+    }
+
     /**
      * Releases all resources associated with this TextureAtlas instance. This releases all the textures backing all TextureRegions
      * and Sprites, which should no longer be used after calling dispose.
@@ -292,6 +337,10 @@ public class TextureAtlas implements Disposable{
     public void dispose(){
         for(Texture texture : textures)
             texture.dispose();
+        if(pageArray != null){
+            pageArray.dispose();
+            pageArray = null;
+        }
         for(Pixmap pixmap : pixmaps.values())
             if(!pixmap.isDisposed())
                 pixmap.dispose();
@@ -77,12 +77,17 @@ public class FileTextureArrayData implements TextureArrayData{
 
     @Override
     public int getInternalFormat(){
-        return Gl.unsignedByte;
+        return Gl.rgba;
     }
 
     @Override
     public int getGLType(){
-        return Gl.rgba;
+        return Gl.unsignedByte;
+    }
+
+    @Override
+    public boolean useMipMaps(){
+        return useMipMaps;
     }
 
 }
@@ -0,0 +1,226 @@
+package arc.graphics.gl;
+
+import arc.*;
+import arc.graphics.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.nio.*;
+
+/**
+ * <p>
+ * A {@link VertexData} implementation for dynamic vertices that are re-uploaded every frame, such as in a batch. Requires OpenGL 3.0.
+ * </p>
+ *
+ * <p>
+ * Vertices are streamed through a ring of buffer segments, each with its own vertex buffer object and vertex array object.
+ * Every upload goes to the next segment in the ring, and orphans that segment's storage before writing to it.
+ * This way, the driver never has to wait for the GPU to finish reading a buffer that is about to be overwritten.
+ * </p>
+ *
+ * <p>
+ * Code adapted from {@link VertexBufferObjectWithVAO}.
+ * </p>
+ */
+public class VertexBufferObjectStreaming implements VertexData{
+    final static IntBuffer tmpHandle = Buffers.newIntBuffer(1);
+
+    final Mesh mesh;
+    final FloatBuffer buffer;
+    final ByteBuffer byteBuffer;
+    final int[] bufferHandles, vaoHandles;
+    final IntSeq[] cachedLocations;
+    int segment;
+    boolean isDirty = false;
+    boolean isBound = false;
+    boolean created;
+
+    /**
+     * Constructs a new interleaved VertexBufferObjectStreaming.
+     * @param segments the number of buffer segments in the ring
+     * @param numVertices the maximum number of vertices
+     */
+    public VertexBufferObjectStreaming(int segments, int numVertices, Mesh mesh){
+        if(segments < 1) throw new IllegalArgumentException("Segment count must be at least 1: " + segments);
+
+        this.mesh = mesh;
+
+        byteBuffer = Buffers.newUnsafeByteBuffer(this.mesh.vertexSize * numVertices);
+        buffer = byteBuffer.asFloatBuffer();
+        buffer.flip();
+        byteBuffer.flip();
+
+        bufferHandles = new int[segments];
+        vaoHandles = new int[segments];
+        cachedLocations = new IntSeq[segments];
+        for(int i = 0; i < segments; i++){
+            cachedLocations[i] = new IntSeq();
+        }
+    }
+
+    /** @return the number of buffer segments in the ring */
+    public int segments(){
+        return bufferHandles.length;
+    }
+
+    @Override
+    public int size(){
+        return buffer.limit() * 4 / mesh.vertexSize;
+    }
+
+    @Override
+    public int max(){
+        return byteBuffer.capacity() / mesh.vertexSize;
+    }
+
+    @Override
+    public FloatBuffer buffer(){
+        isDirty = true;
+        return buffer;
+    }
+
+    /** Orphans the storage of the currently bound segment, then uploads the used part of the buffer to it. */
+    private void upload(){
+        Gl.bufferData(Gl.arrayBuffer, byteBuffer.capacity(), null, GL20.GL_STREAM_DRAW);
+        Gl.bufferSubData(Gl.arrayBuffer, 0, byteBuffer.limit(), byteBuffer);
+    }
+
+    private void bufferChanged(){
+        if(isBound){
+            //the current segment's VAO is bound, so the data has to go to the same segment
+            Gl.bindBuffer(Gl.arrayBuffer, bufferHandles[segment]);
+            upload();
+            isDirty = false;
+        }
+    }
+
+    @Override
+    public void set(float[] vertices, int offset, int count){
+        isDirty = true;
+        Buffers.copy(vertices, byteBuffer, count, offset);
+        buffer.position(0);
+        buffer.limit(count);
+        bufferChanged();
+    }
+
+    @Override
+    public void update(int targetOffset, float[] vertices, int sourceOffset, int count){
+        isDirty = true;
+        final int pos = byteBuffer.position();
+        byteBuffer.position(targetOffset * 4);
+        Buffers.copy(vertices, sourceOffset, count, byteBuffer);
+        byteBuffer.position(pos);
+        buffer.position(0);
+        bufferChanged();
+    }
+
+    @Override
+    public void bind(Shader shader){
+        if(!created){
+            for(int i = 0; i < bufferHandles.length; i++){
+                bufferHandles[i] = Gl.genBuffer();
+                tmpHandle.clear();
+                Core.gl30.glGenVertexArrays(1, tmpHandle);
+                vaoHandles[i] = tmpHandle.get();
+            }
+            created = true;
+        }
+
+        //new data always goes into the next segment, which the GPU is least likely to still be reading from
+        if(isDirty){
+            segment = (segment + 1) % bufferHandles.length;
+        }
+
+        Core.gl30.glBindVertexArray(vaoHandles[segment]);
+
+        bindAttributes(shader);
+
+        bindData();
+
+        isBound = true;
+    }
+
+    private void bindAttributes(Shader shader){
+        IntSeq cachedLocations = this.cachedLocations[segment];
+        boolean stillValid = cachedLocations.size != 0;
+
+        if(stillValid){
+            for(int i = 0; stillValid && i < mesh.attributes.length; i++){
+                VertexAttribute attribute = mesh.attributes[i];
+                int location = shader.getAttributeLocation(attribute.alias);
+                stillValid = location == cachedLocations.get(i);
+            }
+        }
+
+        if(!stillValid){
+            Gl.bindBuffer(Gl.arrayBuffer, bufferHandles[segment]);
+            unbindAttributes(cachedLocations);
+            cachedLocations.clear();
+
+            int offset = 0;
+            for(int i = 0; i < mesh.attributes.length; i++){
+                VertexAttribute attribute = mesh.attributes[i];
+                cachedLocations.add(shader.getAttributeLocation(attribute.alias));
+                int aoffset = offset;
+                offset += attribute.size;
+
+                int location = cachedLocations.get(i);
+                if(location < 0){
+                    continue;
+                }
+
+                Gl.enableVertexAttribArray(location);
+                Gl.vertexAttribPointer(location, attribute.components, attribute.type, attribute.normalized, mesh.vertexSize, aoffset);
+            }
+        }
+    }
+
+    private void unbindAttributes(IntSeq cachedLocations){
+        if(cachedLocations.size == 0){
+            return;
+        }
+
+        for(int i = 0; i < mesh.attributes.length; i++){
+            int location = cachedLocations.get(i);
+            if(location < 0){
+                continue;
+            }
+            Gl.disableVertexAttribArray(location);
+        }
+    }
+
+    private void bindData(){
+        if(isDirty){
+            Gl.bindBuffer(Gl.arrayBuffer, bufferHandles[segment]);
+            byteBuffer.limit(buffer.limit() * 4);
+            upload();
+            isDirty = false;
+        }
+    }
+
+    @Override
+    public void unbind(Shader shader){
+        Core.gl30.glBindVertexArray(0);
+        isBound = false;
+    }
+
+    /** Disposes of all resources this VertexBufferObjectStreaming uses. */
+    @Override
+    public void dispose(){
+        Buffers.disposeUnsafeByteBuffer(byteBuffer);
+
+        if(created){
+            Gl.bindBuffer(Gl.arrayBuffer, 0);
+            for(int i = 0; i < bufferHandles.length; i++){
+                Gl.deleteBuffer(bufferHandles[i]);
+                bufferHandles[i] = 0;
+
+                tmpHandle.clear();
+                tmpHandle.put(vaoHandles[i]);
+                tmpHandle.flip();
+                Core.gl30.glDeleteVertexArrays(1, tmpHandle);
+            }
+            created = false;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.IntQuadTree.*;
+import arc.struct.*;
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * A loose quad tree for integer IDs that is stored entirely in flat arrays, so that rebuilding, updating and querying never allocate.
+ * <p>
+ * Every level of the tree is a grid of cells, with twice as many rows and columns as the level above it. An object is stored in the deepest
+ * cell that is at least as large as the object, based on its center; queries extend their search area by half a cell on every level
+ * to account for this. Cells hold their objects in linked lists, which makes insertion, removal and {@link #update(int, float, float, float, float)} O(1).
+ * <p>
+ * IDs should be small, non-negative integers, such as entity IDs, as storage is allocated up to the largest ID.
+ * Objects that do not fit inside the bounds are kept in a separate list that is checked by every query.
+ */
+public class FlatQuadTree{
+    private static final float margin = 0.5f + 0.001f;
+
+    public final Rect bounds;
+    public final int maxDepth;
+
+    /** Index of the first cell of each level. */
+    private final int[] levelOffsets;
+    /** Number of objects in each level. The last entry is for objects outside the bounds. */
+    private final int[] levelCounts;
+    /** Inverse cell sizes of each level. */
+    private final float[] invWidths, invHeights, widths, heights;
+    /** First object of every cell, or -1. The last cell holds objects outside the bounds. */
+    private final int[] heads;
+    private final int overflowCell;
+
+    /** Bounds of every object as minX, minY, maxX, maxY. */
+    private float[] rects = {};
+    /** Cell of every object, or -1 if the ID is not in the tree. */
+    private int[] cells = {};
+    private int[] next = {}, prev = {};
+    private int size;
+
+    private final Rect tmp = new Rect();
+
+    /** Creates a tree with a depth of 8. */
+    public FlatQuadTree(Rect bounds){
+        this(bounds, 8);
+    }
+
+    /** @param maxDepth the maximum depth of the tree. The deepest level has 4^maxDepth cells. */
+    public FlatQuadTree(Rect bounds, int maxDepth){
+        if(maxDepth < 0 || maxDepth > 12) throw new IllegalArgumentException("Depth must be between 0 and 12: " + maxDepth);
+
+        this.bounds = new Rect(bounds);
+        this.maxDepth = maxDepth;
+
+        levelOffsets = new int[maxDepth + 1];
+        levelCounts = new int[maxDepth + 2];
+        invWidths = new float[maxDepth + 1];
+        invHeights = new float[maxDepth + 1];
+        widths = new float[maxDepth + 1];
+        heights = new float[maxDepth + 1];
+
+        int total = 0;
+        for(int level = 0; level <= maxDepth; level++){
+            int n = 1 << level;
+            levelOffsets[level] = total;
+            widths[level] = bounds.width / n;
+            heights[level] = bounds.height / n;
+            invWidths[level] = n / bounds.width;
+            invHeights[level] = n / bounds.height;
+            total += n * n;
+        }
+
+        overflowCell = total;
+        heads = new int[total + 1];
+        Arrays.fill(heads, -1);
+    }
+
+    /** Removes all objects, then inserts every ID in the list with the bounds given by the provider. */
+    public void fill(IntSeq ids, IntQuadTreeProvider prov){
+        fill(ids.items, ids.size, prov);
+    }
+
+    /** Removes all objects, then inserts the first {@code count} IDs in the array with the bounds given by the provider. */
+    public void fill(int[] ids, int count, IntQuadTreeProvider prov){
+        clear();
+
+        int max = -1;
+        for(int i = 0; i < count; i++){
+            max = Math.max(max, ids[i]);
+        }
+        ensureCapacity(max + 1);
+
+        Rect tmp = this.tmp;
+        for(int i = 0; i < count; i++){
+            int id = ids[i];
+            prov.hitbox(id, tmp);
+            if(cells[id] != -1) unlink(id);
+            set(id, tmp.x, tmp.y, tmp.width, tmp.height);
+            link(id, cellOf(id));
+        }
+    }
+
+    /** Inserts an object, or moves it if it is already in the tree. */
+    public void insert(int id, Rect rect){
+        update(id, rect.x, rect.y, rect.width, rect.height);
+    }
+
+    /** Inserts an object, or moves it if it is already in the tree. */
+    public void insert(int id, float x, float y, float width, float height){
+        update(id, x, y, width, height);
+    }
+
+    /** Updates the bounds of an object that has moved or changed size. If the object is not in the tree, it is inserted. */
+    public void update(int id, Rect rect){
+        update(id, rect.x, rect.y, rect.width, rect.height);
+    }
+
+    /** Updates the bounds of an object that has moved or changed size. If the object is not in the tree, it is inserted. */
+    public void update(int id, float x, float y, float width, float height){
+        if(id < 0) throw new IllegalArgumentException("ID cannot be negative: " + id);
+        ensureCapacity(id + 1);
+
+        set(id, x, y, width, height);
+        int cell = cellOf(id), current = cells[id];
+
+        if(current != cell){
+            if(current != -1) unlink(id);
+            link(id, cell);
+        }
+    }
+
+    /** @return whether the object was in the tree. */
+    public boolean remove(int id){
+        if(!contains(id)) return false;
+        unlink(id);
+        return true;
+    }
+
+    /** @return whether an object with this ID is in the tree. */
+    public boolean contains(int id){
+        return id >= 0 && id < cells.length && cells[id] != -1;
+    }
+
+    /** Copies the stored bounds of an object into the specified rectangle. The object must be in the tree. */
+    public Rect hitbox(int id, Rect out){
+        int i = id * 4;
+        return out.set(rects[i], rects[i + 1], rects[i + 2] - rects[i], rects[i + 3] - rects[i + 1]);
+    }
+
+    /** @return the number of objects in the tree. */
+    public int size(){
+        return size;
+    }
+
+    /** Removes all objects. Storage is kept for the next rebuild. */
+    public void clear(){
+        Arrays.fill(heads, -1);
+        Arrays.fill(cells, -1);
+        Arrays.fill(levelCounts, 0);
+        size = 0;
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(float x, float y, float width, float height, Intc out){
+        query(x, y, width, height, out, null, null);
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(Rect rect, Intc out){
+        query(rect.x, rect.y, rect.width, rect.height, out, null, null);
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle. Returning true will break out of the function.
+     * @return whether the function returned true for any object.
+     */
+    public boolean intersect(float x, float y, float width, float height, IntBoolf out){
+        return query(x, y, width, height, null, out, null) != -1;
+    }
+
+    /** Fills the out parameter with all objects that intersect the given rectangle. */
+    public void intersect(float x, float y, float width, float height, IntSeq out){
+        query(x, y, width, height, null, null, out);
+    }
+
+    /** Fills the out parameter with all objects that intersect the given rectangle. */
+    public void intersect(Rect rect, IntSeq out){
+        query(rect.x, rect.y, rect.width, rect.height, null, null, out);
+    }
+
+    /**
+     * Tries to find any object in the rectangle matching the predicate.
+     * @return the ID of the object, or -1 if none was found.
+     */
+    public int find(float x, float y, float width, float height, IntBoolf pred){
+        return query(x, y, width, height, null, pred, null);
+    }
+
+    /** @return whether an object overlaps this rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        return query(x, y, width, height, null, null, null) != -1;
+    }
+
+    /** Adds all objects in the tree to the specified IntSeq. */
+    public void getObjects(IntSeq out){
+        for(int id = 0; id < cells.length; id++){
+            if(cells[id] != -1) out.add(id);
+        }
+    }
+
+    /**
+     * Runs a query. Every matching object is added to {@code out} if it is non-null, passed to {@code cons} if it is non-null,
+     * or otherwise tested against {@code pred}, which ends the query.
+     * @return the first object accepted by {@code pred}, or -1.
+     */
+    private int query(float x, float y, float width, float height, @Nullable Intc cons, @Nullable IntBoolf pred, @Nullable IntSeq out){
+        float x2 = x + width, y2 = y + height;
+        float bx = bounds.x, by = bounds.y;
+
+        for(int level = 0; level <= maxDepth + 1; level++){
+            if(levelCounts[level] == 0) continue;
+
+            int minX, minY, maxX, maxY, stride, offset;
+
+            if(level > maxDepth){
+                minX = minY = maxX = maxY = stride = 0;
+                offset = overflowCell;
+            }else{
+                int last = (1 << level) - 1;
+                float iw = invWidths[level], ih = invHeights[level];
+                minX = Math.max((int)Math.floor((x - bx) * iw - margin), 0);
+                minY = Math.max((int)Math.floor((y - by) * ih - margin), 0);
+                maxX = Math.min((int)Math.floor((x2 - bx) * iw + margin), last);
+                maxY = Math.min((int)Math.floor((y2 - by) * ih + margin), last);
+                stride = last + 1;
+                offset = levelOffsets[level];
+            }
+
+            for(int cy = minY; cy <= maxY; cy++){
+                for(int cx = minX, cell = offset + cy * stride + minX; cx <= maxX; cx++, cell++){
+                    for(int id = heads[cell]; id != -1; id = next[id]){
+                        int i = id * 4;
+                        if(rects[i] < x2 && rects[i + 2] > x && rects[i + 1] < y2 && rects[i + 3] > y){
+                            if(out != null){
+                                out.add(id);
+                            }else if(cons != null){
+                                cons.get(id);
+                            }else if(pred == null || pred.get(id)){
+                                return id;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private void set(int id, float x, float y, float width, float height){
+        int i = id * 4;
+        rects[i] = x;
+        rects[i + 1] = y;
+        rects[i + 2] = x + width;
+        rects[i + 3] = y + height;
+    }
+
+    /** @return the cell that the object's current bounds belong in. */
+    private int cellOf(int id){
+        int i = id * 4;
+        float w = rects[i + 2] - rects[i], h = rects[i + 3] - rects[i + 1];
+        float cx = (rects[i] + rects[i + 2]) / 2f - bounds.x, cy = (rects[i + 1] + rects[i + 3]) / 2f - bounds.y;
+
+        if(cx < 0 || cy < 0 || cx > bounds.width || cy > bounds.height || w > widths[0] || h > heights[0]){
+            return overflowCell;
+        }
+
+        int level = maxDepth;
+        while(level > 0 && (w > widths[level] || h > heights[level])){
+            level--;
+        }
+
+        int last = (1 << level) - 1;
+        int x = Math.min((int)(cx * invWidths[level]), last), y = Math.min((int)(cy * invHeights[level]), last);
+        return levelOffsets[level] + y * (last + 1) + x;
+    }
+
+    private int levelOf(int cell){
+        if(cell == overflowCell) return maxDepth + 1;
+        int level = maxDepth;
+        while(levelOffsets[level] > cell) level--;
+        return level;
+    }
+
+    private void link(int id, int cell){
+        int head = heads[cell];
+        next[id] = head;
+        prev[id] = -1;
+        if(head != -1) prev[head] = id;
+        heads[cell] = id;
+        cells[id] = cell;
+        levelCounts[levelOf(cell)]++;
+        size++;
+    }
+
+    private void unlink(int id){
+        int cell = cells[id], n = next[id], p = prev[id];
+        if(p != -1){
+            next[p] = n;
+        }else{
+            heads[cell] = n;
+        }
+        if(n != -1) prev[n] = p;
+        cells[id] = -1;
+        levelCounts[levelOf(cell)]--;
+        size--;
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= cells.length) return;
+
+        int old = cells.length;
+        int length = Math.max(capacity, Math.max(16, old + old / 2));
+        rects = Arrays.copyOf(rects, length * 4);
+        cells = Arrays.copyOf(cells, length);
+        next = Arrays.copyOf(next, length);
+        prev = Arrays.copyOf(prev, length);
+        Arrays.fill(cells, old, length, -1);
+    }
+}
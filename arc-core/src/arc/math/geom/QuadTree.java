@@ -3,6 +3,9 @@ package arc.math.geom;
 import arc.func.*;
 import arc.math.geom.QuadTree.*;
 import arc.struct.*;
+import arc.util.*;
+
+import java.util.concurrent.*;
 
 /**
  * A basic quad tree.
@@ -16,6 +19,8 @@ import arc.struct.*;
 public class QuadTree<T extends QuadTreeObject>{
     protected final Rect tmp = new Rect();
     protected static final int maxObjectsPerNode = 5;
+    /** Minimum number of objects in a node before {@link #fill(Seq, ForkJoinPool)} fills it in a separate task. */
+    protected static final int parallelFillSize = 4096;
 
     public Rect bounds;
     public Seq<T> objects = new Seq<>(false);
@@ -106,12 +111,56 @@ public class QuadTree<T extends QuadTreeObject>{
 
     /** Rebuilds this tree from scratch using the given list of objects. */
     public void fill(Seq<T> list){
+        if(partition(list)){
+            botLeft.fill(fillBL);
+            botRight.fill(fillBR);
+            topLeft.fill(fillTL);
+            topRight.fill(fillTR);
+        }
+    }
+
+    /**
+     * Rebuilds this tree from scratch using the given list of objects, filling quadrants with many objects in parallel.
+     * {@link QuadTreeObject#hitbox(Rect)} must be safe to call from several threads at once.
+     * @param pool The pool to build the tree in. If null, this is the same as {@link #fill(Seq)}.
+     */
+    public void fill(Seq<T> list, @Nullable ForkJoinPool pool){
+        if(pool == null || list.size < parallelFillSize){
+            fill(list);
+        }else{
+            pool.invoke(new FillTask<>(this, list));
+        }
+    }
+
+    /**
+     * Creates an immutable copy of this tree that any number of threads can query at the same time without locking.
+     * Object bounds are captured when this is called, so the snapshot does not change when objects move.
+     */
+    public QuadTreeSnapshot<T> freeze(){
+        return freeze(null);
+    }
+
+    /**
+     * Like {@link #freeze()}, but reuses the storage of a previous snapshot if it is not null.
+     * The previous snapshot must not be queried anymore while this runs.
+     */
+    public QuadTreeSnapshot<T> freeze(@Nullable QuadTreeSnapshot<T> reuse){
+        QuadTreeSnapshot<T> snapshot = reuse == null ? new QuadTreeSnapshot<>() : reuse;
+        snapshot.set(this);
+        return snapshot;
+    }
+
+    /**
+     * Clears this node and sorts the objects of the list into this node and the scratch lists of its quadrants.
+     * @return whether the quadrants need to be filled with the scratch lists.
+     */
+    protected boolean partition(Seq<T> list){
         clear();
         totalObjects = list.size;
 
         if(list.size <= maxObjectsPerNode){
             objects.addAll(list);
-            return;
+            return false;
         }
 
         if(botLeft == null){
@@ -151,10 +200,7 @@ public class QuadTree<T extends QuadTreeObject>{
             else objects.add(obj); //doesn't fit any quadrant, stays in this node
         }
 
-        botLeft.fill(fillBL);
-        botRight.fill(fillBR);
-        topLeft.fill(fillTL);
-        topRight.fill(fillTR);
+        return true;
     }
 
     /**
@@ -385,6 +431,41 @@ public class QuadTree<T extends QuadTreeObject>{
         t.hitbox(tmp);
     }
 
+    /** Fills a node, then forks tasks for every quadrant that has enough objects to be worth splitting off. */
+    static class FillTask<T extends QuadTreeObject> extends RecursiveAction{
+        private static final long serialVersionUID = -1939026781372914288L;
+
+        final QuadTree<T> node;
+        final Seq<T> list;
+
+        FillTask(QuadTree<T> node, Seq<T> list){
+            this.node = node;
+            this.list = list;
+        }
+
+        @Override
+        protected void compute(){
+            if(!node.partition(list)) return;
+
+            QuadTree<T> node = this.node;
+            FillTask<T> bl = fork(node.botLeft, node.fillBL), br = fork(node.botRight, node.fillBR), tl = fork(node.topLeft, node.fillTL), tr = fork(node.topRight, node.fillTR);
+            if(bl != null) bl.join();
+            if(br != null) br.join();
+            if(tl != null) tl.join();
+            if(tr != null) tr.join();
+        }
+
+        @Nullable FillTask<T> fork(QuadTree<T> child, Seq<T> list){
+            if(list.size < parallelFillSize){
+                child.fill(list);
+                return null;
+            }
+            FillTask<T> task = new FillTask<>(child, list);
+            task.fork();
+            return task;
+        }
+    }
+
     /**Represents an object in a QuadTree.*/
     public interface QuadTreeObject{
         /**Fills the out parameter with this element's rough bounding box. This should never be smaller than the actual object, but may be larger.*/
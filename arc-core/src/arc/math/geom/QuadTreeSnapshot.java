@@ -0,0 +1,197 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * An immutable copy of a {@link QuadTree}, created with {@link QuadTree#freeze()}.
+ * <p>
+ * Nodes, objects and object bounds are stored in flat arrays, and queries do not modify any state,
+ * so a snapshot can be queried from any number of threads at the same time. Queries use the bounds objects had when the snapshot was taken.
+ */
+@SuppressWarnings("unchecked")
+public class QuadTreeSnapshot<T extends QuadTreeObject>{
+    /** Bounds of every node as x, y, width, height. */
+    private float[] nodeBounds = {};
+    /** Index of the first of the four children of each node, or -1 for leaves. */
+    private int[] children = {};
+    /** Range of the objects of each node. */
+    private int[] starts = {}, counts = {};
+    private Object[] items = {};
+    /** Bounds of every object as x, y, width, height. */
+    private float[] boxes = {};
+    private int nodes, size;
+
+    QuadTreeSnapshot(){
+    }
+
+    void set(QuadTree<T> tree){
+        //first pass: count nodes and objects, so that the arrays can be sized exactly
+        nodes = 0;
+        size = 0;
+        count(tree);
+
+        if(children.length < nodes){
+            nodeBounds = new float[nodes * 4];
+            children = new int[nodes];
+            starts = new int[nodes];
+            counts = new int[nodes];
+        }
+        if(items.length < size){
+            items = new Object[size];
+            boxes = new float[size * 4];
+        }else{
+            Arrays.fill(items, size, items.length, null);
+        }
+
+        //second pass: lay out nodes breadth-first, so that the children of a node are next to each other
+        Seq<QuadTree<T>> queue = new Seq<>(false, nodes);
+        queue.add(tree);
+        int object = 0, next = 1;
+
+        for(int node = 0; node < queue.size; node++){
+            QuadTree<T> current = queue.get(node);
+            Rect bounds = current.bounds;
+            nodeBounds[node * 4] = bounds.x;
+            nodeBounds[node * 4 + 1] = bounds.y;
+            nodeBounds[node * 4 + 2] = bounds.width;
+            nodeBounds[node * 4 + 3] = bounds.height;
+
+            starts[node] = object;
+            counts[node] = current.objects.size;
+            Object[] objects = current.objects.items;
+            for(int i = 0; i < current.objects.size; i++){
+                T item = (T)objects[i];
+                current.hitbox(item);
+                Rect rect = current.tmp;
+                items[object] = item;
+                boxes[object * 4] = rect.x;
+                boxes[object * 4 + 1] = rect.y;
+                boxes[object * 4 + 2] = rect.width;
+                boxes[object * 4 + 3] = rect.height;
+                object++;
+            }
+
+            if(current.leaf){
+                children[node] = -1;
+            }else{
+                children[node] = next;
+                next += 4;
+                queue.add(current.topLeft, current.topRight, current.botLeft, current.botRight);
+            }
+        }
+    }
+
+    private void count(QuadTree<T> tree){
+        nodes++;
+        size += tree.objects.size;
+        if(!tree.leaf){
+            count(tree.topLeft);
+            count(tree.topRight);
+            count(tree.botLeft);
+            count(tree.botRight);
+        }
+    }
+
+    /** @return the total number of objects in this snapshot. */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(float x, float y, float width, float height, Cons<T> out){
+        if(size > 0) intersect(0, x, y, width, height, out);
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(Rect rect, Cons<T> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** Fills the out parameter with all objects that intersect the given rectangle. */
+    public void intersect(float x, float y, float width, float height, Seq<T> out){
+        if(size > 0) intersect(0, x, y, width, height, out);
+    }
+
+    /** Fills the out parameter with all objects that intersect the given rectangle. */
+    public void intersect(Rect rect, Seq<T> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /**
+     * Tries to find any object matching the predicate in this tree.
+     * <p>
+     * This will never result in false positives.
+     */
+    public T find(float x, float y, float width, float height, Boolf<T> pred){
+        return size == 0 ? null : find(0, x, y, width, height, pred);
+    }
+
+    /** @return whether an object overlaps this rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        return size > 0 && find(0, x, y, width, height, null) != null;
+    }
+
+    private void intersect(int node, float x, float y, float width, float height, Cons<T> out){
+        int child = children[node];
+        if(child != -1){
+            for(int c = child; c < child + 4; c++){
+                if(overlaps(nodeBounds, c, x, y, width, height)) intersect(c, x, y, width, height, out);
+            }
+        }
+
+        for(int i = starts[node], end = i + counts[node]; i < end; i++){
+            if(overlaps(boxes, i, x, y, width, height)){
+                out.get((T)items[i]);
+            }
+        }
+    }
+
+    private void intersect(int node, float x, float y, float width, float height, Seq<T> out){
+        int child = children[node];
+        if(child != -1){
+            for(int c = child; c < child + 4; c++){
+                if(overlaps(nodeBounds, c, x, y, width, height)) intersect(c, x, y, width, height, out);
+            }
+        }
+
+        for(int i = starts[node], end = i + counts[node]; i < end; i++){
+            if(overlaps(boxes, i, x, y, width, height)){
+                out.add((T)items[i]);
+            }
+        }
+    }
+
+    private T find(int node, float x, float y, float width, float height, Boolf<T> pred){
+        int child = children[node];
+        if(child != -1){
+            T result;
+            for(int c = child; c < child + 4; c++){
+                if(overlaps(nodeBounds, c, x, y, width, height) && (result = find(c, x, y, width, height, pred)) != null) return result;
+            }
+        }
+
+        for(int i = starts[node], end = i + counts[node]; i < end; i++){
+            if(overlaps(boxes, i, x, y, width, height) && (pred == null || pred.get((T)items[i]))){
+                return (T)items[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean overlaps(float[] rects, int index, float x, float y, float width, float height){
+        int i = index * 4;
+        return rects[i] < x + width && rects[i] + rects[i + 2] > x && rects[i + 1] < y + height && rects[i + 1] + rects[i + 3] > y;
+    }
+}
@@ -5,6 +5,16 @@ import arc.graphics.*;
 import java.nio.*;
 
 public class MockGL20 implements GL20{
+    /** Bytes passed to glBufferData and glBufferSubData since the last {@link #reset()}. */
+    public long uploadedBytes;
+    /** Number of glBufferData and glBufferSubData calls that uploaded data since the last {@link #reset()}. */
+    public int bufferUploads;
+
+    public void reset(){
+        uploadedBytes = 0;
+        bufferUploads = 0;
+    }
+
     @Override
     public void glActiveTexture(int texture){
 
@@ -257,12 +267,16 @@ public class MockGL20 implements GL20{
 
     @Override
     public void glBufferData(int target, int size, Buffer data, int usage){
-
+        if(data != null){
+            uploadedBytes += size;
+            bufferUploads++;
+        }
     }
 
     @Override
     public void glBufferSubData(int target, int offset, int size, Buffer data){
-
+        uploadedBytes += size;
+        bufferUploads++;
     }
 
     @Override
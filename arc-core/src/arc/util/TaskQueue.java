@@ -1,36 +1,159 @@
 package arc.util;
 
-import arc.struct.*;
+import java.util.concurrent.atomic.*;
 
+/**
+ * A queue of runnables that are posted from any thread and run on a single thread, usually once per frame.
+ * <p>
+ * Posting never locks and does not allocate, except for a new chunk of slots every {@value #chunkSize} runnables. Runnables are run in the order
+ * they were posted by each thread. Runnables posted while the queue is running are run the next time.
+ */
 public class TaskQueue{
-    private final Seq<Runnable> runnables = new Seq<>();
-    private final Seq<Runnable> executedRunnables = new Seq<>();
+    /** Number of runnables per chunk of slots. */
+    public static final int chunkSize = 1024;
 
+    private static final AtomicReferenceFieldUpdater<TaskQueue, Chunk> tailUpdater = AtomicReferenceFieldUpdater.newUpdater(TaskQueue.class, Chunk.class, "tail");
+
+    /** The chunk that runnables are posted to. */
+    private volatile Chunk tail;
+    /** The chunk and slot of the next runnable to run. Only used by the thread that runs the queue. */
+    private Chunk head;
+    private int headIndex;
+    /** Total number of runnables that were run or cleared. */
+    private volatile long taken;
+
+    private volatile long lastRunNanos, lastLatencyNanos;
+    private volatile int lastRunCount;
+
+    public TaskQueue(){
+        head = tail = new Chunk(0);
+    }
+
+    /** Runs all runnables that were posted before this call. */
     public void run(){
-        synchronized(runnables){
-            executedRunnables.clear();
-            executedRunnables.addAll(runnables);
-            runnables.clear();
-        }
+        run(-1);
+    }
+
+    /**
+     * Runs the runnables that were posted before this call, until the time budget is used up. Runnables that did not get to run stay in the
+     * queue. At least one runnable is always run, so that the queue keeps moving.
+     * @param budgetNanos the time budget in nanoseconds, or a negative number to run everything.
+     */
+    public synchronized void run(long budgetNanos){
+        long start = Time.nanos(), latency = 0;
+        long end = position();
+        int count = 0;
+
+        while(head.base + headIndex < end){
+            Runnable runnable = take();
+            latency = Math.max(latency, start - head.times[headIndex - 1]);
+            count ++;
+            //count it before running, so that an exception leaves the rest of the queue intact
+            taken ++;
 
-        for(Runnable runnable : executedRunnables){
             runnable.run();
+
+            if(budgetNanos >= 0 && Time.timeSinceNanos(start) >= budgetNanos) break;
         }
+
+        lastRunCount = count;
+        lastLatencyNanos = latency;
+        lastRunNanos = Time.timeSinceNanos(start);
     }
 
+    /** @return the approximate number of runnables in the queue. This can be called from any thread. */
     public int size(){
-        return runnables.size;
+        return (int)Math.max(position() - taken, 0);
+    }
+
+    /** @return the number of runnables that ran during the last {@link #run()}. */
+    public int lastRunCount(){
+        return lastRunCount;
+    }
+
+    /** @return how long the last {@link #run()} took, in nanoseconds. */
+    public long lastRunNanos(){
+        return lastRunNanos;
     }
 
-    public void clear(){
-        synchronized(runnables){
-            runnables.clear();
+    /**
+     * @return the longest time that a runnable which ran during the last {@link #run()} had been waiting in the queue before that run started,
+     * in nanoseconds.
+     */
+    public long lastLatencyNanos(){
+        return lastLatencyNanos;
+    }
+
+    /** Removes all runnables that were posted before this call. */
+    public synchronized void clear(){
+        long end = position();
+        while(head.base + headIndex < end){
+            take();
+            taken ++;
         }
     }
 
+    /** Adds a runnable to the queue. This can be called from any thread, and never locks. */
     public void post(Runnable runnable){
-        synchronized(runnables){
-            runnables.add(runnable);
+        long time = Time.nanos();
+        Chunk chunk = tail;
+        while(true){
+            int index = chunk.claimed.getAndIncrement();
+            if(index < chunkSize){
+                chunk.times[index] = time;
+                //publishes the time as well
+                chunk.items.lazySet(index, runnable);
+                return;
+            }
+
+            //the chunk is full, so move on to the next one, creating it if no other thread did
+            Chunk next = chunk.next;
+            if(next == null){
+                Chunk created = new Chunk(chunk.base + chunkSize);
+                next = Chunk.nextUpdater.compareAndSet(chunk, null, created) ? created : chunk.next;
+            }
+            tailUpdater.compareAndSet(this, chunk, next);
+            chunk = next;
+        }
+    }
+
+    /** @return the number of slots that were claimed so far. */
+    private long position(){
+        Chunk chunk = tail;
+        return chunk.base + Math.min(chunk.claimed.get(), chunkSize);
+    }
+
+    /** Removes the runnable at the head. There must be one, though it may not be visible yet. */
+    private Runnable take(){
+        if(headIndex == chunkSize){
+            //the tail is only moved after the next chunk is linked, so it exists
+            head = head.next;
+            headIndex = 0;
+        }
+
+        Runnable runnable;
+        //the slot was claimed, but the thread that claimed it may not have written to it yet
+        while((runnable = head.items.get(headIndex)) == null){
+            Thread.yield();
+        }
+        head.items.lazySet(headIndex, null);
+        headIndex ++;
+        return runnable;
+    }
+
+    static class Chunk{
+        static final AtomicReferenceFieldUpdater<Chunk, Chunk> nextUpdater = AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        /** Index of the first slot of this chunk in the queue. */
+        final long base;
+        final AtomicReferenceArray<Runnable> items = new AtomicReferenceArray<>(chunkSize);
+        /** The time at which each runnable was posted. */
+        final long[] times = new long[chunkSize];
+        final AtomicInteger claimed = new AtomicInteger();
+        volatile Chunk next;
+
+        Chunk(long base){
+            this.base = base;
         }
     }
 }
@@ -82,6 +82,16 @@ public class Threads{
         return exec;
     }
 
+    /** @return a fork/join pool with a fixed parallelism, backed by daemon threads. */
+    public static ForkJoinPool forkJoinPool(@Nullable String name, int threads){
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            if(name != null) thread.setName(name + "-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, (t, e) -> Log.err(e), false);
+    }
+
     /** Shuts down the executor and waits for its termination indefinitely. */
     public static void await(ExecutorService exec){
         try{
@@ -20,25 +20,55 @@ public class Time{
 
     private static double timeRaw, globalTimeRaw;
 
-    private static Seq<DelayRun> runs = new Seq<>();
-    private static Seq<DelayRun> removal = new Seq<>();
+    /** Delayed runs by the tick they finish at. Unlike {@link #time}, the time of this wheel is never reset. */
+    private static final TimingWheel<DelayRun> runs = new TimingWheel<>();
+    /** Runs that finish during the current tick of the wheel, but after the current time. */
+    private static final Seq<DelayRun> finishing = new Seq<>();
+    private static final Cons<DelayRun> scheduler = Time::schedule, expirer = Time::expire;
+    private static double runTime, runStart;
+    private static int firedRuns;
+
     private static LongSeq marks = new LongSeq();
     private static Floatp deltaimpl = () -> Math.min(Core.graphics.getDeltaTime() * 60f, 3f);
 
+    /** @return a copy of all pending runs, with their delay set to the time that remains. */
     public static Seq<DelayRun> getRuns(){
-        return runs;
+        Seq<DelayRun> out = new Seq<>(finishing);
+        runs.each(out::add);
+        for(DelayRun run : out){
+            run.delay = (float)(run.finishTime - runTime);
+        }
+        return out;
     }
 
+    /** Cancels all pending runs and schedules the specified ones instead, with their remaining delay. */
     public static void setRuns(Seq<DelayRun> runs){
-        Time.runs = runs;
+        Seq<DelayRun> copy = new Seq<>(runs);
+        clear();
+        for(DelayRun run : copy){
+            Time.runs.submit(run);
+        }
     }
 
-    /** Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled. */
+    /**
+     * Runs a task with a delay of several ticks. If Time.clear() is called, this task will be cancelled.
+     * This can be called from any thread; the task always runs on the thread that calls {@link #update()}.
+     */
     public static void run(float delay, Runnable r){
         DelayRun run = Pools.obtain(DelayRun.class, DelayRun::new);
         run.finish = r;
         run.delay = delay;
-        runs.add(run);
+        runs.submit(run);
+    }
+
+    /** @return the number of runs that are waiting for their delay to pass. Runs submitted from other threads since the last update are not counted. */
+    public static int pendingRuns(){
+        return runs.size() + finishing.size;
+    }
+
+    /** @return the number of runs that finished during the last update. */
+    public static int firedRuns(){
+        return firedRuns;
     }
 
     /** Runs a task with a delay of several ticks. Unless the application is closed, this task will always complete. */
@@ -73,7 +103,6 @@ public class Time{
 
     public static void update(){
         timeRaw += delta;
-        removal.clear();
 
         if(Double.isInfinite(timeRaw) || Double.isNaN(timeRaw)){
             timeRaw = 0;
@@ -82,17 +111,55 @@ public class Time{
         time = (float)timeRaw;
         globalTime = (float)globalTimeRaw;
 
-        for(DelayRun run : runs){
-            run.delay -= delta;
+        //delays count from the start of this update, so a run scheduled during it with a delay below delta finishes right away
+        runStart = runTime;
+        if(!Float.isNaN(delta) && !Float.isInfinite(delta)) runTime += delta;
+        firedRuns = 0;
+
+        runs.drain(scheduler);
+        finish();
+        runs.advance((long)Math.floor(runTime), expirer);
+
+        //runs scheduled by other runs
+        while(runs.hasSubmitted()){
+            runs.drain(scheduler);
+            finish();
+        }
+    }
+
+    private static void schedule(DelayRun run){
+        run.finishTime = runStart + run.delay;
+        long tick = (long)Math.floor(run.finishTime);
+        if(tick > runs.time()){
+            runs.add(run, tick);
+        }else{
+            finishing.add(run);
+        }
+    }
 
-            if(run.delay <= 0){
-                run.finish.run();
-                removal.add(run);
-                Pools.free(run);
+    private static void expire(DelayRun run){
+        if(run.finishTime <= runTime){
+            fire(run);
+        }else{
+            finishing.add(run);
+        }
+    }
+
+    /** Fires every run in {@link #finishing} that is done. */
+    private static void finish(){
+        for(int i = 0; i < finishing.size; i++){
+            DelayRun run = finishing.get(i);
+            if(run.finishTime <= runTime){
+                finishing.remove(i--);
+                fire(run);
             }
         }
+    }
 
-        runs.removeAll(removal);
+    private static void fire(DelayRun run){
+        firedRuns ++;
+        run.finish.run();
+        Pools.free(run);
     }
 
     public static double getInternalTime(){
@@ -105,7 +172,9 @@ public class Time{
     }
 
     public static void clear(){
-        runs.clear();
+        runs.drain(run -> {});
+        runs.clear(null);
+        finishing.clear();
     }
 
     public static void setDeltaProvider(Floatp impl){
@@ -159,13 +228,15 @@ public class Time{
         return millis() - prevTime;
     }
 
-    public static class DelayRun implements Poolable{
+    public static class DelayRun extends TimingWheel.Entry implements Poolable{
         float delay;
+        double finishTime;
         Runnable finish;
 
         @Override
         public void reset(){
             delay = 0;
+            finishTime = 0;
             finish = null;
         }
     }
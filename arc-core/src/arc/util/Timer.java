@@ -4,20 +4,28 @@ import arc.Application;
 import arc.ApplicationListener;
 import arc.Core;
 import arc.Files;
+import arc.func.Cons;
 import arc.struct.Seq;
 
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Executes tasks in the future on the main loop thread.
+ * <p>
+ * Pending tasks are kept in a {@link TimingWheel}, so scheduling, cancelling and running a task takes constant time. Tasks are scheduled
+ * and cancelled by submitting them to a lock-free queue, which the timer thread drains before it updates the wheel.
  * @author Nathan Sweet
  */
-// TimerThread access is synchronized using threadLock.
-// Timer access is synchronized using the Timer instance.
+// TimerThread access and the wheels of all timers are synchronized using threadLock.
 // Task access is synchronized using the Task instance.
 public class Timer{
     static final Object threadLock = new Object();
-    static TimerThread thread;
+    static volatile TimerThread thread;
 
-    final Seq<Task> tasks = new Seq<>(false, 8);
+    final TimingWheel<Task> tasks = new TimingWheel<>(System.nanoTime() / 1000000);
+    final Cons<Task> updater = this::updateTask;
+    private long updateMillis;
+    private int fired;
 
     public Timer(){
         start();
@@ -136,19 +144,17 @@ public class Timer{
      * @param repeatCount If negative, the task will repeat forever.
      */
     public Task scheduleTask(Task task, float delaySeconds, float intervalSeconds, int repeatCount){
-        synchronized(this){
-            synchronized(task){
-                if(task.timer != null) throw new IllegalArgumentException("The same task may not be scheduled twice.");
-                task.timer = this;
-                task.executeTimeMillis = System.nanoTime() / 1000000 + (long)(delaySeconds * 1000);
-                task.intervalMillis = (long)(intervalSeconds * 1000);
-                task.repeatCount = repeatCount;
-                tasks.add(task);
-            }
-        }
-        synchronized(threadLock){
-            threadLock.notifyAll();
+        synchronized(task){
+            if(task.timer != null) throw new IllegalArgumentException("The same task may not be scheduled twice.");
+            task.timer = this;
+            task.executeTimeMillis = System.nanoTime() / 1000000 + (long)(delaySeconds * 1000);
+            task.intervalMillis = (long)(intervalSeconds * 1000);
+            task.repeatCount = repeatCount;
         }
+        tasks.submit(task);
+
+        TimerThread thread = Timer.thread;
+        if(thread != null) thread.wake(task.executeTimeMillis);
         return task;
     }
 
@@ -166,60 +172,98 @@ public class Timer{
             Seq<Timer> instances = thread.instances;
             if(instances.contains(this, true)) return;
             instances.add(this);
-            threadLock.notifyAll();
+            thread.wake();
         }
     }
 
     /** Cancels all tasks. */
-    public synchronized void clear(){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
-            synchronized(task){
-                task.executeTimeMillis = 0;
-                task.timer = null;
-            }
+    public void clear(){
+        synchronized(threadLock){
+            tasks.drain(Timer::reconcile);
+            tasks.clear(task -> {
+                synchronized(task){
+                    task.executeTimeMillis = 0;
+                    task.timer = null;
+                }
+            });
         }
-        tasks.clear();
     }
 
     /**
-     * Returns true if the timer has no tasks in the queue. Note that this can change at any time. Synchronize on the timer
-     * instance to prevent tasks being added, removed, or updated.
+     * Returns true if the timer has no tasks in the queue. Note that this can change at any time. Synchronize on the task
+     * instance to prevent it from being added, removed, or updated.
      */
-    public synchronized boolean isEmpty(){
-        return tasks.size == 0;
+    public boolean isEmpty(){
+        return size() == 0;
     }
 
-    synchronized long update(long timeMillis, long waitMillis){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
-            synchronized(task){
-                if(task.executeTimeMillis > timeMillis){
-                    waitMillis = Math.min(waitMillis, task.executeTimeMillis - timeMillis);
-                    continue;
-                }
-                if(task.repeatCount == 0){
-                    task.timer = null;
-                    tasks.remove(i);
-                    i--;
-                    n--;
-                }else{
-                    task.executeTimeMillis = timeMillis + task.intervalMillis;
-                    waitMillis = Math.min(waitMillis, task.intervalMillis);
-                    if(task.repeatCount > 0) task.repeatCount--;
-                }
-                task.app.post(task);
-            }
+    /** @return the number of scheduled tasks. Note that this can change at any time. */
+    public int size(){
+        synchronized(threadLock){
+            tasks.drain(Timer::reconcile);
+            return tasks.size();
+        }
+    }
+
+    /** @return the number of tasks that were posted to the application during the last update of this timer. */
+    public int firedLastUpdate(){
+        return fired;
+    }
+
+    /** Adds submitted tasks to the wheel of their timer, or removes them if they were cancelled. Must hold the thread lock. */
+    @SuppressWarnings("unchecked")
+    static void reconcile(Task task){
+        synchronized(task){
+            //the task may have been cancelled on one timer and scheduled on another since it was submitted
+            if(task.wheel != null) ((TimingWheel<Task>)task.wheel).remove(task);
+            Timer timer = task.timer;
+            if(timer != null) timer.tasks.add(task, task.executeTimeMillis);
+        }
+    }
+
+    /** Must hold the thread lock. */
+    long update(long timeMillis, long waitMillis){
+        tasks.drain(Timer::reconcile);
+
+        fired = 0;
+        updateMillis = timeMillis;
+        tasks.advance(timeMillis, updater);
+
+        long next = tasks.nextTick();
+        if(next != Long.MAX_VALUE){
+            waitMillis = Math.min(waitMillis, next - timeMillis);
         }
         return waitMillis;
     }
 
+    private void updateTask(Task task){
+        synchronized(task){
+            //cancelled, but not drained yet
+            if(task.timer != this) return;
+
+            if(task.repeatCount == 0){
+                task.timer = null;
+            }else{
+                task.executeTimeMillis = updateMillis + task.intervalMillis;
+                if(task.repeatCount > 0) task.repeatCount--;
+                tasks.add(task, task.executeTimeMillis);
+            }
+            fired ++;
+            task.app.post(task);
+        }
+    }
+
     /** Adds the specified delay to all tasks. */
-    public synchronized void delay(long delayMillis){
-        for(int i = 0, n = tasks.size; i < n; i++){
-            Task task = tasks.get(i);
-            synchronized(task){
-                task.executeTimeMillis += delayMillis;
+    public void delay(long delayMillis){
+        synchronized(threadLock){
+            tasks.drain(Timer::reconcile);
+            Seq<Task> all = new Seq<>(tasks.size());
+            tasks.clear(all::add);
+            for(Task task : all){
+                synchronized(task){
+                    task.executeTimeMillis += delayMillis;
+                    tasks.add(task, task.executeTimeMillis);
+                }
             }
         }
     }
@@ -228,9 +272,10 @@ public class Timer{
      * Runnable that can be scheduled on a {@link Timer}.
      * @author Nathan Sweet
      */
-    static abstract public class Task implements Runnable{
+    static abstract public class Task extends TimingWheel.Entry implements Runnable{
         final Application app;
-        long executeTimeMillis, intervalMillis;
+        volatile long executeTimeMillis;
+        long intervalMillis;
         int repeatCount;
         volatile Timer timer;
 
@@ -247,21 +292,14 @@ public class Timer{
 
         /** Cancels the task. It will not be executed until it is scheduled again. This method can be called at any time. */
         public void cancel(){
-            Timer timer = this.timer;
-            if(timer != null){
-                synchronized(timer){
-                    synchronized(this){
-                        executeTimeMillis = 0;
-                        this.timer = null;
-                        timer.tasks.remove(this, true);
-                    }
-                }
-            }else{
-                synchronized(this){
-                    executeTimeMillis = 0;
-                    this.timer = null;
-                }
+            Timer timer;
+            synchronized(this){
+                timer = this.timer;
+                executeTimeMillis = 0;
+                this.timer = null;
             }
+            //the timer thread removes the task from the wheel
+            if(timer != null) timer.tasks.submit(this);
         }
 
         /**
@@ -280,7 +318,7 @@ public class Timer{
         }
 
         /** Returns the time in milliseconds when this task will be executed next. */
-        public synchronized long getExecuteTimeMillis(){
+        public long getExecuteTimeMillis(){
             return executeTimeMillis;
         }
     }
@@ -294,26 +332,39 @@ public class Timer{
         final Seq<Timer> instances = new Seq<>(1);
         Timer instance;
         private long pauseMillis;
+        private final Thread worker;
+        /** The time at which the thread wakes up on its own, or the minimum value while it is updating. */
+        private volatile long wakeMillis = Long.MIN_VALUE;
 
         public TimerThread(){
             files = Core.files;
             Core.app.addListener(this);
             resume();
 
-            Thread thread = new Thread(this, "Timer");
-            thread.setDaemon(true);
-            thread.start();
+            worker = new Thread(this, "Timer");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        /** Wakes up the thread if it would sleep past the specified time. */
+        void wake(long timeMillis){
+            if(timeMillis < wakeMillis) LockSupport.unpark(worker);
+        }
+
+        void wake(){
+            LockSupport.unpark(worker);
         }
 
         @Override
         public void run(){
             while(true){
+                long waitMillis = 5000;
                 synchronized(threadLock){
                     if(thread != this || files != Core.files) break;
 
-                    long waitMillis = 5000;
+                    wakeMillis = Long.MIN_VALUE;
+                    long timeMillis = System.nanoTime() / 1000000;
                     if(pauseMillis == 0){
-                        long timeMillis = System.nanoTime() / 1000000;
                         for(int i = 0, n = instances.size; i < n; i++){
                             try{
                                 waitMillis = instances.get(i).update(timeMillis, waitMillis);
@@ -325,11 +376,14 @@ public class Timer{
 
                     if(thread != this || files != Core.files) break;
 
-                    try{
-                        if(waitMillis > 0) threadLock.wait(waitMillis);
-                    }catch(InterruptedException ignored){
+                    //tasks submitted after this point see the new wake time, and wake the thread if they are due earlier
+                    wakeMillis = timeMillis + waitMillis;
+                    for(int i = 0, n = instances.size; i < n && pauseMillis == 0; i++){
+                        if(instances.get(i).tasks.hasSubmitted()) waitMillis = 0;
                     }
                 }
+
+                if(waitMillis > 0) LockSupport.parkNanos(this, waitMillis * 1000000);
             }
             dispose();
         }
@@ -342,7 +396,7 @@ public class Timer{
                 for(int i = 0, n = instances.size; i < n; i++)
                     instances.get(i).delay(delayMillis);
                 pauseMillis = 0;
-                threadLock.notifyAll();
+                wake();
             }
         }
 
@@ -352,7 +406,7 @@ public class Timer{
             if(Core.app.isDesktop()) return;
             synchronized(threadLock){
                 pauseMillis = System.nanoTime() / 1000000;
-                threadLock.notifyAll();
+                wake();
             }
         }
 
@@ -361,7 +415,7 @@ public class Timer{
             synchronized(threadLock){
                 if(thread == this) thread = null;
                 instances.clear();
-                threadLock.notifyAll();
+                wake();
             }
             Core.app.removeListener(this);
         }
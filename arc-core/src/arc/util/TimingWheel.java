@@ -0,0 +1,325 @@
+package arc.util;
+
+import arc.func.*;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A hierarchical timing wheel, which keeps entries that expire at a certain tick. Adding, removing and expiring an entry takes
+ * constant time, no matter how many entries are pending.
+ * <p>
+ * Entries are stored in {@value #levels} levels of 64 slots. The first level holds entries that expire in the next 64 ticks, one slot
+ * per tick; every further level covers 64 times the range of the previous one. When the time reaches a slot of a higher level, its
+ * entries are moved down to the levels below.
+ * <p>
+ * The wheel itself is not thread-safe. Other threads can {@link #submit(Entry)} entries to a lock-free queue, which the thread that owns
+ * the wheel {@link #drain(Cons) drains} before advancing it.
+ * @see Time#run(float, Runnable)
+ * @see Timer
+ */
+@SuppressWarnings("unchecked")
+public class TimingWheel<T extends TimingWheel.Entry>{
+    /** Number of levels of slots, which covers the full range of a long. */
+    public static final int levels = 11;
+
+    private static final int bits = 6, slots = 1 << bits, mask = slots - 1;
+    /**
+     * Indices of the list of entries that have expired, of the list that is being passed to a listener, and of the entries that expired
+     * while the listener was being called.
+     */
+    private static final int due = levels * slots, expiring = due + 1, deferred = due + 2;
+
+    private final Entry[] heads = new Entry[deferred + 1], tails = new Entry[deferred + 1];
+    /** Bit masks of the slots that are not empty, per level. */
+    private final long[] occupied = new long[levels];
+    private final AtomicReference<Entry> submitted = new AtomicReference<>();
+
+    private long time;
+    private int size;
+    private boolean expiringNow;
+
+    public TimingWheel(){
+    }
+
+    /** @param time the tick to start at. */
+    public TimingWheel(long time){
+        this.time = time;
+    }
+
+    /** @return the current tick. */
+    public long time(){
+        return time;
+    }
+
+    /** @return the number of entries in the wheel, not counting submitted entries that were not drained yet. */
+    public int size(){
+        return size;
+    }
+
+    /** @return whether the entry is in this wheel. */
+    public boolean contains(T entry){
+        return entry.wheel == this;
+    }
+
+    /**
+     * Adds an entry that expires at the specified tick. Entries that expire at or before the current tick are passed to the listener on the
+     * next call to {@link #advance(long, Cons)}.
+     * @throws IllegalArgumentException if the entry is already in a wheel.
+     */
+    public void add(T entry, long deadline){
+        if(entry.wheel != null) throw new IllegalArgumentException("Entry is already in a wheel.");
+        entry.deadline = deadline;
+        entry.wheel = this;
+        link(entry);
+        size ++;
+    }
+
+    /** Removes an entry from this wheel. @return whether the entry was in this wheel. */
+    public boolean remove(T entry){
+        if(entry.wheel != this) return false;
+        unlink(entry);
+        entry.wheel = null;
+        size --;
+        return true;
+    }
+
+    /** Removes all entries. The listener is called for each of them, and may be null. */
+    public void clear(@Nullable Cons<T> removed){
+        for(int i = 0; i < heads.length; i++){
+            Entry entry = heads[i];
+            heads[i] = tails[i] = null;
+            while(entry != null){
+                Entry next = entry.next;
+                entry.next = entry.prev = null;
+                entry.wheel = null;
+                if(removed != null) removed.get((T)entry);
+                entry = next;
+            }
+        }
+        for(int i = 0; i < levels; i++){
+            occupied[i] = 0;
+        }
+        size = 0;
+    }
+
+    /** Calls the consumer for every entry, in no particular order. The wheel must not be modified while iterating. */
+    public void each(Cons<T> cons){
+        for(Entry head : heads){
+            for(Entry entry = head; entry != null; entry = entry.next){
+                cons.get((T)entry);
+            }
+        }
+    }
+
+    /**
+     * Moves the time forward and removes every entry that expires at or before it. Expired entries are passed to the listener in order of their
+     * deadline, and may be added again from it. Entries that are added during this call and that have already expired are only passed to the
+     * listener on the next call. The time never moves backwards.
+     */
+    public void advance(long now, Cons<T> expired){
+        expire(expired);
+
+        while(size > 0){
+            long next = nextSlot();
+            if(next > now) break;
+
+            //skipping to the tick before a slot starts does not change which slot any entry belongs to
+            time = next - 1;
+            tick();
+            expire(expired);
+        }
+
+        if(now > time) time = now;
+
+        for(Entry entry = heads[deferred]; entry != null; entry = heads[deferred]){
+            unlink(entry);
+            link(entry);
+        }
+    }
+
+    /**
+     * @return a tick at or before which the next entry expires, or {@link Long#MAX_VALUE} if the wheel is empty. When entries are waiting in higher
+     * levels, this is the tick at which they are moved down, which may be earlier than their deadline.
+     */
+    public long nextTick(){
+        if(heads[due] != null || heads[expiring] != null || heads[deferred] != null) return time;
+        return nextSlot();
+    }
+
+    /** @return the tick at which the first slot that is not empty starts, which is always after the current one. */
+    private long nextSlot(){
+        for(int level = 0; level < levels; level++){
+            long set = occupied[level];
+            if(set != 0){
+                int shift = level * bits;
+                long high = shift + bits >= 64 ? 0 : time & (-1L << (shift + bits));
+                return high | ((long)Long.numberOfTrailingZeros(set) << shift);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Queues an entry to be passed to the listener of the next {@link #drain(Cons)}. This can be called from any thread, and never locks.
+     * Entries that are already queued are not queued twice.
+     * @return whether the entry was queued.
+     */
+    public boolean submit(T entry){
+        if(!Entry.queued.compareAndSet(entry, 0, 1)) return false;
+
+        Entry head;
+        do{
+            head = submitted.get();
+            entry.submitNext = head;
+        }while(!submitted.compareAndSet(head, entry));
+        return true;
+    }
+
+    /** @return whether there are submitted entries that were not drained yet. This can be called from any thread. */
+    public boolean hasSubmitted(){
+        return submitted.get() != null;
+    }
+
+    /**
+     * Passes all submitted entries to the listener, in the order they were submitted. This must be called from the thread that owns the wheel,
+     * which usually adds or removes the entries in the listener. An entry can be submitted again as soon as it is passed to the listener.
+     */
+    public void drain(Cons<T> cons){
+        Entry entry = submitted.getAndSet(null), reversed = null;
+        //entries are pushed onto a stack, so reverse them to get the submission order
+        while(entry != null){
+            Entry next = entry.submitNext;
+            entry.submitNext = reversed;
+            reversed = entry;
+            entry = next;
+        }
+
+        while(reversed != null){
+            Entry next = reversed.submitNext;
+            reversed.submitNext = null;
+            Entry.queued.set(reversed, 0);
+            cons.get((T)reversed);
+            reversed = next;
+        }
+    }
+
+    /** Moves to the next tick, and moves the entries of every slot that starts at it one level down. */
+    private void tick(){
+        time ++;
+
+        for(int level = 1; level < levels; level++){
+            int shift = level * bits;
+            if((time & ((1L << shift) - 1)) != 0) break;
+
+            int index = level * slots + (int)((time >>> shift) & mask);
+            Entry entry = heads[index];
+            if(entry == null) continue;
+
+            heads[index] = tails[index] = null;
+            occupied[level] &= ~(1L << (index & mask));
+            while(entry != null){
+                Entry next = entry.next;
+                link(entry);
+                entry = next;
+            }
+        }
+
+        int index = (int)(time & mask);
+        Entry entry = heads[index];
+        if(entry != null){
+            heads[index] = tails[index] = null;
+            occupied[0] &= ~(1L << index);
+            while(entry != null){
+                Entry next = entry.next;
+                link(entry);
+                entry = next;
+            }
+        }
+    }
+
+    /** Passes every entry in the due list to the listener, oldest first. */
+    private void expire(Cons<T> expired){
+        Entry entry = heads[due];
+        if(entry == null) return;
+
+        //entries that the listener adds go to a new due list; entries that it removes are unlinked from this one
+        heads[expiring] = entry;
+        tails[expiring] = tails[due];
+        heads[due] = tails[due] = null;
+        for(; entry != null; entry = entry.next){
+            entry.slot = expiring;
+        }
+
+        expiringNow = true;
+        try{
+            while((entry = heads[expiring]) != null){
+                unlink(entry);
+                entry.wheel = null;
+                size --;
+                expired.get((T)entry);
+            }
+        }finally{
+            expiringNow = false;
+        }
+    }
+
+    private void link(Entry entry){
+        int index;
+        if(entry.deadline <= time){
+            index = expiringNow ? deferred : due;
+        }else{
+            int level = (63 - Long.numberOfLeadingZeros(entry.deadline ^ time)) / bits, slot = (int)((entry.deadline >>> (level * bits)) & mask);
+            index = level * slots + slot;
+            occupied[level] |= 1L << slot;
+        }
+
+        //append, so that entries with the same deadline expire in the order they were added
+        Entry tail = tails[index];
+        entry.slot = index;
+        entry.next = null;
+        entry.prev = tail;
+        if(tail != null){
+            tail.next = entry;
+        }else{
+            heads[index] = entry;
+        }
+        tails[index] = entry;
+    }
+
+    private void unlink(Entry entry){
+        int index = entry.slot;
+        if(entry.prev != null){
+            entry.prev.next = entry.next;
+        }else{
+            heads[index] = entry.next;
+        }
+        if(entry.next != null){
+            entry.next.prev = entry.prev;
+        }else{
+            tails[index] = entry.prev;
+        }
+        if(heads[index] == null && index < due){
+            occupied[index / slots] &= ~(1L << (index & mask));
+        }
+        entry.next = entry.prev = null;
+    }
+
+    /**
+     * An entry in a wheel. An entry can only be in one wheel at a time. It is also only queued once at a time, even if it is submitted to
+     * several wheels, so the wheel that drains it must handle it.
+     */
+    public static class Entry{
+        static final AtomicIntegerFieldUpdater<Entry> queued = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "submitState");
+
+        @Nullable Entry prev, next, submitNext;
+        @Nullable TimingWheel<?> wheel;
+        long deadline;
+        int slot;
+        volatile int submitState;
+
+        /** @return the tick that this entry expires at, if it is in a wheel. */
+        public long deadline(){
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package arc.util.pooling;
+
+import arc.struct.*;
+
+import java.lang.ref.*;
+import java.util.*;
+
+/**
+ * A thread-safe {@link Pool} for objects that are obtained and freed on several threads.
+ * <p>
+ * Each thread keeps a small cache of free objects, so most calls to {@link #obtain()} and {@link #free(Object)} do not synchronize at all.
+ * When a thread's cache runs empty or full, half a cache worth of objects is moved from or to a shared overflow stack in one locked operation.
+ * <p>
+ * {@link #max} limits all free objects, including cached ones: each thread's cache reserves up to {@link #cacheSize} of it, and the
+ * shared stack holds the rest. {@link #peak} tracks the highest size of the shared stack. When a thread has terminated, its cache is
+ * released and its objects are moved to the shared stack the next time a new thread starts using the pool.
+ * @see Pools#concurrent
+ */
+@SuppressWarnings("unchecked")
+public abstract class ConcurrentPool<T> extends Pool<T>{
+    /** The maximum number of free objects cached per thread. */
+    public final int cacheSize;
+
+    private final Seq<T> shared;
+    private final Seq<Cache> caches = new Seq<>(false, 8, Cache.class);
+    private final ThreadLocal<Cache> local = new ThreadLocal<>();
+    private volatile int epoch;
+    /** The total capacity of all caches, which the shared stack cannot use. */
+    private int reserved;
+    /** Counters of caches that were released. */
+    private long releasedHits, releasedMisses, releasedDiscards;
+
+    /** Creates a pool with a per-thread cache of 32 objects and no maximum. */
+    public ConcurrentPool(){
+        this(16, Integer.MAX_VALUE);
+    }
+
+    /** @param max The maximum number of free objects to store in this pool, including the caches of all threads. */
+    public ConcurrentPool(int initialCapacity, int max){
+        this(initialCapacity, max, 32);
+    }
+
+    /**
+     * @param max The maximum number of free objects to store in this pool, including the caches of all threads.
+     * @param cacheSize The maximum number of free objects to cache per thread. Threads get smaller caches when max is nearly used up.
+     */
+    public ConcurrentPool(int initialCapacity, int max, int cacheSize){
+        super(0, max);
+        this.cacheSize = Math.max(Math.min(cacheSize, max), 0);
+        this.shared = new Seq<>(false, Math.max(initialCapacity, 1));
+    }
+
+    @Override
+    public T obtain(){
+        Cache cache = cache();
+        if(cache.size == 0){
+            T object = refill(cache);
+            if(object == null){
+                cache.misses++;
+                return newObject();
+            }
+            cache.hits++;
+            return object;
+        }
+        cache.hits++;
+        Object[] items = cache.items;
+        T object = (T)items[--cache.size];
+        items[cache.size] = null;
+        return object;
+    }
+
+    /**
+     * Puts the specified object in the pool, making it eligible to be returned by {@link #obtain()}. The object is reset before
+     * being made available to other threads. If the pool is full, the object is reset but not added to the pool.
+     * <p>
+     * The pool does not check if an object is already freed, so the same object must not be freed multiple times.
+     */
+    @Override
+    public void free(T object){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        reset(object);
+
+        Cache cache = cache();
+        if(cache.size < cache.items.length){
+            cache.items[cache.size++] = object;
+        }else if(!spill(cache, object)){
+            cache.discards++;
+        }
+    }
+
+    @Override
+    public void freeAll(Seq<T> objects){
+        if(objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        for(int i = 0; i < objects.size; i++){
+            T object = objects.get(i);
+            if(object != null) free(object);
+        }
+    }
+
+    /** Removes all free objects from this pool. Objects cached by other threads are dropped the next time those threads use the pool. */
+    @Override
+    public void clear(){
+        synchronized(shared){
+            shared.clear();
+            epoch++;
+        }
+        cache();
+    }
+
+    /** @return an estimate of the number of objects available to be obtained, as caches of other threads may change concurrently. */
+    @Override
+    public int getFree(){
+        synchronized(shared){
+            releaseTerminated();
+            int total = shared.size;
+            for(int i = 0; i < caches.size; i++){
+                total += caches.items[i].size;
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public long getHits(){
+        synchronized(shared){
+            releaseTerminated();
+            long total = releasedHits;
+            for(int i = 0; i < caches.size; i++) total += caches.items[i].hits;
+            return total;
+        }
+    }
+
+    @Override
+    public long getMisses(){
+        synchronized(shared){
+            releaseTerminated();
+            long total = releasedMisses;
+            for(int i = 0; i < caches.size; i++) total += caches.items[i].misses;
+            return total;
+        }
+    }
+
+    @Override
+    public long getDiscards(){
+        synchronized(shared){
+            releaseTerminated();
+            long total = releasedDiscards;
+            for(int i = 0; i < caches.size; i++) total += caches.items[i].discards;
+            return total;
+        }
+    }
+
+    /** Resets the counters. Counts made concurrently by other threads may be lost. */
+    @Override
+    public void resetCounters(){
+        synchronized(shared){
+            releasedHits = releasedMisses = releasedDiscards = 0;
+            for(int i = 0; i < caches.size; i++){
+                Cache cache = caches.items[i];
+                cache.hits = cache.misses = cache.discards = 0;
+            }
+        }
+    }
+
+    private Cache cache(){
+        Cache cache = local.get();
+        if(cache == null){
+            synchronized(shared){
+                releaseTerminated();
+                int capacity = Math.max(Math.min(cacheSize, max - reserved - shared.size), 0);
+                cache = new Cache(capacity, Thread.currentThread());
+                reserved += capacity;
+                caches.add(cache);
+                cache.epoch = epoch;
+            }
+            local.set(cache);
+        }else if(cache.epoch != epoch){
+            Arrays.fill(cache.items, 0, cache.size, null);
+            cache.size = 0;
+            cache.epoch = epoch;
+        }
+        return cache;
+    }
+
+    /**
+     * Moves up to half a cache of objects from the shared stack to the specified empty cache.
+     * @return an additional object from the shared stack, or null if it is empty.
+     */
+    private T refill(Cache cache){
+        Object[] items = cache.items;
+        synchronized(shared){
+            if(shared.size == 0) return null;
+            T object = shared.pop();
+            int count = Math.min(shared.size, items.length / 2);
+            for(int i = 0; i < count; i++){
+                items[cache.size++] = shared.pop();
+            }
+            return object;
+        }
+    }
+
+    /**
+     * Moves up to half of the specified full cache to the shared stack, then stores the object in the cache or the shared stack.
+     * @return false if the pool is full.
+     */
+    private boolean spill(Cache cache, T object){
+        Object[] items = cache.items;
+        synchronized(shared){
+            int limit = max - reserved;
+            int count = Math.min(limit - shared.size, items.length / 2);
+            for(int i = 0; i < count; i++){
+                shared.add((T)items[--cache.size]);
+                items[cache.size] = null;
+            }
+
+            boolean stored = true;
+            if(cache.size < items.length){
+                items[cache.size++] = object;
+            }else if(shared.size < limit){
+                shared.add(object);
+            }else{
+                stored = false;
+            }
+            peak = Math.max(peak, shared.size);
+            return stored;
+        }
+    }
+
+    /** Releases the caches of terminated threads, moving their objects to the shared stack. Must be called while holding the lock. */
+    private void releaseTerminated(){
+        for(int i = caches.size - 1; i >= 0; i--){
+            Cache cache = caches.items[i];
+            Thread owner = cache.owner.get();
+            if(owner != null && owner.isAlive()) continue;
+
+            caches.remove(i);
+            reserved -= cache.items.length;
+            releasedHits += cache.hits;
+            releasedMisses += cache.misses;
+            releasedDiscards += cache.discards;
+            //isAlive() returning false makes the writes of the thread visible here; a collected thread cannot be checked, so its objects are dropped
+            if(owner != null && cache.epoch == epoch){
+                for(int j = 0; j < cache.size && shared.size < max - reserved; j++){
+                    shared.add((T)cache.items[j]);
+                }
+                peak = Math.max(peak, shared.size);
+            }
+        }
+    }
+
+    static final class Cache{
+        final Object[] items;
+        /** Weak, so that the pool does not keep threads alive. */
+        final WeakReference<Thread> owner;
+        int size, epoch;
+        long hits, misses, discards;
+
+        Cache(int size, Thread owner){
+            items = new Object[size];
+            this.owner = new WeakReference<>(owner);
+        }
+    }
+}
@@ -13,6 +13,8 @@ abstract public class Pool<T>{
     private final Seq<T> freeObjects;
     /** The highest number of free objects. Can be reset any time. */
     public int peak;
+    /** Number of obtained objects that were reused, newly created, and freed objects that did not fit in the pool. */
+    private long hits, misses, discards;
 
     /** Creates a pool with an initial capacity of 16 and no maximum. */
     public Pool(){
@@ -37,7 +39,12 @@ abstract public class Pool<T>{
      * {@link #free(Object) freed}).
      */
     public T obtain(){
-        return freeObjects.size == 0 ? newObject() : freeObjects.pop();
+        if(freeObjects.size == 0){
+            misses++;
+            return newObject();
+        }
+        hits++;
+        return freeObjects.pop();
     }
 
     /**
@@ -51,6 +58,8 @@ abstract public class Pool<T>{
         if(freeObjects.size < max){
             freeObjects.add(object);
             peak = Math.max(peak, freeObjects.size);
+        }else{
+            discards++;
         }
         reset(object);
     }
@@ -77,6 +86,7 @@ abstract public class Pool<T>{
             T object = objects.get(i);
             if(object == null) continue;
             if(freeObjects.size < max) freeObjects.add(object);
+            else discards++;
             reset(object);
         }
         peak = Math.max(peak, freeObjects.size);
@@ -92,6 +102,26 @@ abstract public class Pool<T>{
         return freeObjects.size;
     }
 
+    /** @return the number of times {@link #obtain()} reused a free object. */
+    public long getHits(){
+        return hits;
+    }
+
+    /** @return the number of times {@link #obtain()} had to create a new object. */
+    public long getMisses(){
+        return misses;
+    }
+
+    /** @return the number of freed objects that were not pooled because the pool was full. */
+    public long getDiscards(){
+        return discards;
+    }
+
+    /** Resets the hit, miss and discard counters. */
+    public void resetCounters(){
+        hits = misses = discards = 0;
+    }
+
     /** Objects implementing this interface will have {@link #reset()} called when passed to {@link Pool#free(Object)}. */
     public interface Poolable{
         /** Resets the object for reuse. Object references should be nulled and fields may be set to default values. */
@@ -5,12 +5,20 @@ import arc.struct.ObjectMap;
 import arc.func.Prov;
 
 /**
- * Stores a map of {@link Pool}s by type for convenient static access.
+ * Stores a map of {@link Pool}s by type for convenient static access. Pool lookups never lock;
+ * {@link #obtain(Class, Prov)} and {@link #free(Object)} only lock the pool they use, unless it is a {@link ConcurrentPool}.
  * @author Nathan Sweet
  */
 @SuppressWarnings("unchecked")
 public class Pools{
-    private static final ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    /** Copy-on-write map of pools. Only replaced while holding the Pools class lock. */
+    private static volatile ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+
+    /**
+     * If true, pools created by {@link #get(Class, Prov, int)} are {@link ConcurrentPool}s, which can be used from several threads without locking.
+     * Only affects pools created after this is set.
+     */
+    public static boolean concurrent = false;
 
     private Pools(){
     }
@@ -22,13 +30,23 @@ public class Pools{
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier, int max){
         Pool<T> pool = typePools.get(type);
         if(pool == null){
-            pool = new Pool<T>(4, max){
-                @Override
-                protected T newObject(){
-                    return supplier.get();
+            synchronized(Pools.class){
+                pool = typePools.get(type);
+                if(pool == null){
+                    pool = concurrent ? new ConcurrentPool<T>(4, max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    } : new Pool<T>(4, max){
+                        @Override
+                        protected T newObject(){
+                            return supplier.get();
+                        }
+                    };
+                    put(type, pool);
                 }
-            };
-            typePools.put(type, pool);
+            }
         }
         return pool;
     }
@@ -43,20 +61,38 @@ public class Pools{
 
     /** Sets an existing pool for the specified type, stored in a Class to {@link Pool} map. */
     public static <T> void set(Class<T> type, Pool<T> pool){
-        typePools.put(type, pool);
+        synchronized(Pools.class){
+            put(type, pool);
+        }
+    }
+
+    private static void put(Class type, Pool pool){
+        ObjectMap<Class, Pool> copy = new ObjectMap<>(typePools);
+        copy.put(type, pool);
+        typePools = copy;
     }
 
     /** Obtains an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized <T> T obtain(Class<T> type, Prov<T> supplier){
-        return get(type, supplier).obtain();
+    public static <T> T obtain(Class<T> type, Prov<T> supplier){
+        Pool<T> pool = get(type, supplier);
+        if(pool instanceof ConcurrentPool) return pool.obtain();
+        synchronized(pool){
+            return pool.obtain();
+        }
     }
 
     /** Frees an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized void free(Object object){
+    public static void free(Object object){
         if(object == null) throw new IllegalArgumentException("Object cannot be null.");
         Pool pool = typePools.get(object.getClass());
         if(pool == null) return; // Ignore freeing an object that was never retained.
-        pool.free(object);
+        if(pool instanceof ConcurrentPool){
+            pool.free(object);
+        }else{
+            synchronized(pool){
+                pool.free(object);
+            }
+        }
     }
 
     /**
@@ -81,7 +117,13 @@ public class Pools{
                 pool = typePools.get(object.getClass());
                 if(pool == null) continue; // Ignore freeing an object that was never retained.
             }
-            pool.free(object);
+            if(pool instanceof ConcurrentPool){
+                pool.free(object);
+            }else{
+                synchronized(pool){
+                    pool.free(object);
+                }
+            }
             if(!samePool) pool = null;
         }
     }
@@ -0,0 +1,314 @@
+package arc.util.serialization;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+
+/**
+ * Reads and writes a single field of an object. {@link Json} creates one accessor per serialized field with its
+ * {@link Json#setFieldAccessors(Factory) factory}, and keeps it for as long as it caches the fields of the class.
+ * <p>
+ * The typed methods access primitive fields without boxing their values. They may only be used on fields of exactly that type.
+ */
+public abstract class FieldAccessor{
+    /** Accesses fields through {@link Field}. This works on every platform. */
+    public static final Factory reflect = ReflectAccessor::new;
+    /**
+     * Accesses fields through {@link MethodHandle}s that are created once per field. This requires method handle support, which is
+     * not available on every platform. Fields that cannot be accessed this way fall back to {@link #reflect}.
+     */
+    public static final Factory methodHandles = field -> {
+        try{
+            return new HandleAccessor(field);
+        }catch(Throwable e){
+            return new ReflectAccessor(field);
+        }
+    };
+
+    public final Field field;
+
+    protected FieldAccessor(Field field){
+        this.field = field;
+    }
+
+    public abstract Object get(Object object);
+
+    public abstract void set(Object object, Object value);
+
+    public abstract int getInt(Object object);
+
+    public abstract void setInt(Object object, int value);
+
+    public abstract long getLong(Object object);
+
+    public abstract void setLong(Object object, long value);
+
+    public abstract float getFloat(Object object);
+
+    public abstract void setFloat(Object object, float value);
+
+    public abstract double getDouble(Object object);
+
+    public abstract void setDouble(Object object, double value);
+
+    public abstract boolean getBoolean(Object object);
+
+    public abstract void setBoolean(Object object, boolean value);
+
+    SerializationException error(Throwable cause){
+        return new SerializationException("Error accessing field: " + field.getName() + " (" + field.getDeclaringClass().getName() + ")", cause);
+    }
+
+    /** Creates the accessor of a field. The field has already been made accessible. */
+    public interface Factory{
+        FieldAccessor create(Field field);
+    }
+
+    static class ReflectAccessor extends FieldAccessor{
+
+        ReflectAccessor(Field field){
+            super(field);
+        }
+
+        @Override
+        public Object get(Object object){
+            try{
+                return field.get(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void set(Object object, Object value){
+            try{
+                field.set(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public int getInt(Object object){
+            try{
+                return field.getInt(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setInt(Object object, int value){
+            try{
+                field.setInt(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public long getLong(Object object){
+            try{
+                return field.getLong(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setLong(Object object, long value){
+            try{
+                field.setLong(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public float getFloat(Object object){
+            try{
+                return field.getFloat(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setFloat(Object object, float value){
+            try{
+                field.setFloat(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public double getDouble(Object object){
+            try{
+                return field.getDouble(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setDouble(Object object, double value){
+            try{
+                field.setDouble(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object object){
+            try{
+                return field.getBoolean(object);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object object, boolean value){
+            try{
+                field.setBoolean(object, value);
+            }catch(IllegalAccessException e){
+                throw error(e);
+            }
+        }
+    }
+
+    static class HandleAccessor extends FieldAccessor{
+        /** Handles that take and return objects, boxing primitive values. */
+        final MethodHandle getter, setter;
+        /** Handles of the field's own type; the same as the other ones for fields of object types. */
+        final MethodHandle typedGetter, typedSetter;
+
+        HandleAccessor(Field field) throws IllegalAccessException{
+            super(field);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class type = field.getType();
+            MethodHandle get = lookup.unreflectGetter(field);
+            MethodHandle set = lookup.unreflectSetter(field);
+
+            getter = get.asType(MethodType.methodType(Object.class, Object.class));
+            typedGetter = get.asType(MethodType.methodType(type.isPrimitive() ? type : Object.class, Object.class));
+            setter = set.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            typedSetter = set.asType(MethodType.methodType(void.class, Object.class, type.isPrimitive() ? type : Object.class));
+        }
+
+        private RuntimeException rethrow(Throwable t){
+            if(t instanceof RuntimeException) return (RuntimeException)t;
+            if(t instanceof Error) throw (Error)t;
+            return error(t);
+        }
+
+        @Override
+        public Object get(Object object){
+            try{
+                return (Object)getter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void set(Object object, Object value){
+            try{
+                setter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public int getInt(Object object){
+            try{
+                return (int)typedGetter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setInt(Object object, int value){
+            try{
+                typedSetter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public long getLong(Object object){
+            try{
+                return (long)typedGetter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setLong(Object object, long value){
+            try{
+                typedSetter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public float getFloat(Object object){
+            try{
+                return (float)typedGetter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setFloat(Object object, float value){
+            try{
+                typedSetter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public double getDouble(Object object){
+            try{
+                return (double)typedGetter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setDouble(Object object, double value){
+            try{
+                typedSetter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public boolean getBoolean(Object object){
+            try{
+                return (boolean)typedGetter.invokeExact(object);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object object, boolean value){
+            try{
+                typedSetter.invokeExact(object, value);
+            }catch(Throwable t){
+                throw rethrow(t);
+            }
+        }
+    }
+}
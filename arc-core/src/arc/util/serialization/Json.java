@@ -8,6 +8,7 @@ import arc.struct.Queue;
 import arc.struct.OrderedMap.*;
 import arc.util.*;
 import arc.util.io.*;
+import arc.util.serialization.JsonParser.*;
 import arc.util.serialization.JsonValue.*;
 import arc.util.serialization.JsonWriter.*;
 
@@ -39,6 +40,7 @@ public class Json{
     private boolean readDeprecated;
     private boolean enumNames = true;
     private Serializer defaultSerializer;
+    private FieldAccessor.Factory fieldAccessors = FieldAccessor.reflect;
 
     public Json(){
         outputType = OutputType.minimal;
@@ -135,6 +137,16 @@ public class Json{
         return classToSerializer.get(type);
     }
 
+    /**
+     * Sets how the fields of objects are read and written. Default is {@link FieldAccessor#reflect}, which works everywhere; which one is
+     * faster depends on the JVM. Changing this clears the cached fields of all classes.
+     */
+    public void setFieldAccessors(FieldAccessor.Factory fieldAccessors){
+        this.fieldAccessors = fieldAccessors;
+        typeToFields.clear();
+        classToDefaultValues.clear();
+    }
+
     /** When true, field values that are identical to a newly constructed instance are not written. Default is true. */
     public void setUsePrototypes(boolean usePrototypes){
         this.usePrototypes = usePrototypes;
@@ -184,7 +196,7 @@ public class Json{
             }
 
             if(ignoreDeprecated && !readDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
-            FieldMetadata data = new FieldMetadata(field);
+            FieldMetadata data = new FieldMetadata(field, fieldAccessors.create(field));
 
             nameToField.put(field.getName(), data);
         }
@@ -202,8 +214,13 @@ public class Json{
     }
 
     public void toUBJson(Object object, Class knownType, OutputStream stream){
-        this.writer = new UBJsonWriter(stream);
-        toJson(object, knownType, (Class)null);
+        setWriter(new UBJsonWriter(stream));
+        try{
+            writeValue(object, knownType, null);
+        }finally{
+            Streams.close(this.writer);
+            this.writer = null;
+        }
     }
 
     /**
@@ -286,9 +303,14 @@ public class Json{
         int i = 0;
         for(FieldMetadata metadata : new OrderedMapValues<>(fields)){
             Field field = metadata.field;
-            if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
+            if(readDeprecated && ignoreDeprecated && metadata.deprecated) continue;
             try{
-                Object value = field.get(object);
+                if(metadata.primitive != null){
+                    writePrimitive(object, metadata, defaultValues == null ? null : defaultValues[i++]);
+                    continue;
+                }
+
+                Object value = metadata.accessor.get(object);
                 if(defaultValues != null){
                     Object defaultValue = defaultValues[i++];
                     if(value == null && defaultValue == null) continue;
@@ -305,8 +327,6 @@ public class Json{
                 if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
                 writer.name(field.getName());
                 writeValue(value, field.getType(), metadata.elementType);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -318,6 +338,38 @@ public class Json{
         }
     }
 
+    /** Writes a primitive field without boxing its value, unless it differs from the default value. */
+    private void writePrimitive(Object object, FieldMetadata metadata, @Nullable Object defaultValue) throws IOException{
+        FieldAccessor accessor = metadata.accessor;
+        Class type = metadata.primitive;
+        Object value;
+        if(type == int.class){
+            int v = accessor.getInt(object);
+            if(defaultValue != null && v == (Integer)defaultValue) return;
+            value = v;
+        }else if(type == float.class){
+            float v = accessor.getFloat(object);
+            if(defaultValue != null && Float.floatToIntBits(v) == Float.floatToIntBits((Float)defaultValue)) return;
+            value = v;
+        }else if(type == boolean.class){
+            boolean v = accessor.getBoolean(object);
+            if(defaultValue != null && v == (Boolean)defaultValue) return;
+            value = v;
+        }else if(type == long.class){
+            long v = accessor.getLong(object);
+            if(defaultValue != null && v == (Long)defaultValue) return;
+            value = v;
+        }else{
+            double v = accessor.getDouble(object);
+            if(defaultValue != null && Double.doubleToLongBits(v) == Double.doubleToLongBits((Double)defaultValue)) return;
+            value = v;
+        }
+
+        if(debug) System.out.println("Writing field: " + metadata.field.getName() + " (" + object.getClass().getName() + ")");
+        writer.name(metadata.field.getName());
+        writer.value(value);
+    }
+
     private Object[] getDefaultValues(Class type){
         if(!usePrototypes) return null;
         if(type.isAnonymousClass()) type = type.getSuperclass();
@@ -337,11 +389,9 @@ public class Json{
         int i = 0;
         for(FieldMetadata metadata : fields.values()){
             Field field = metadata.field;
-            if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
+            if(readDeprecated && ignoreDeprecated && metadata.deprecated) continue;
             try{
-                values[i++] = field.get(object);
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+                values[i++] = metadata.accessor.get(object);
             }catch(SerializationException ex){
                 ex.addTrace(field + " (" + type.getName() + ")");
                 throw ex;
@@ -387,9 +437,7 @@ public class Json{
         try{
             if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
             writer.name(jsonName);
-            writeValue(field.get(object), field.getType(), elementType);
-        }catch(IllegalAccessException ex){
-            throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+            writeValue(metadata.accessor.get(object), field.getType(), elementType);
         }catch(SerializationException ex){
             ex.addTrace(field + " (" + type.getName() + ")");
             throw ex;
@@ -857,6 +905,30 @@ public class Json{
         return readValue(type, elementType, new JsonReader().parse(json));
     }
 
+    /**
+     * Reads an object directly from the parser, without building a tree of {@link JsonValue}s first. The parser is closed afterwards.
+     * @param type May be null if the type is unknown.
+     * @return May be null.
+     * @see #readValue(Class, Class, JsonParser)
+     */
+    public <T> T fromJson(Class<T> type, JsonParser parser){
+        return fromJson(type, null, parser);
+    }
+
+    /**
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #fromJson(Class, JsonParser)
+     */
+    public <T> T fromJson(Class<T> type, Class elementType, JsonParser parser){
+        try{
+            return readValue(type, elementType, parser);
+        }finally{
+            Streams.close(parser);
+        }
+    }
+
     public void readField(Object object, String name, JsonValue jsonData){
         readField(object, name, name, null, jsonData);
     }
@@ -908,7 +980,9 @@ public class Json{
         Class type = object.getClass();
         ObjectMap<String, FieldMetadata> fields = getFields(type);
         for(JsonValue child = jsonMap.child; child != null; child = child.next){
-            FieldMetadata metadata = fields.get(child.name().replace(" ", "_"));
+            String name = child.name;
+            if(name.indexOf(' ') != -1) name = name.replace(' ', '_');
+            FieldMetadata metadata = fields.get(name);
             if(metadata == null){
                 if(child.name.equals(typeName)) continue;
                 if(ignoreUnknownFields || ignoreUnknownField(type, child.name)){
@@ -922,9 +996,24 @@ public class Json{
             }
             Field field = metadata.field;
             try{
-                field.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+                Class primitive = metadata.primitive;
+                if(primitive != null && (primitive == boolean.class ? child.isBoolean() : child.isNumber()) && !classToSerializer.containsKey(primitive)){
+                    //numbers and booleans are set without boxing them
+                    FieldAccessor accessor = metadata.accessor;
+                    if(primitive == int.class){
+                        accessor.setInt(object, child.asInt());
+                    }else if(primitive == float.class){
+                        accessor.setFloat(object, child.asFloat());
+                    }else if(primitive == boolean.class){
+                        accessor.setBoolean(object, child.asBoolean());
+                    }else if(primitive == long.class){
+                        accessor.setLong(object, child.asLong());
+                    }else{
+                        accessor.setDouble(object, child.asDouble());
+                    }
+                }else{
+                    metadata.accessor.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
+                }
             }catch(SerializationException ex){
                 ex.addTrace(field.getName() + " (" + type.getName() + ")");
                 throw ex;
@@ -937,6 +1026,63 @@ public class Json{
         }
     }
 
+    /**
+     * Reads the fields of the current object of the parser into the object. The parser must be at the start of the object, or at one of
+     * its names. Afterwards, the current token is the end of the object.
+     */
+    public void readFields(Object object, JsonParser parser){
+        Class type = object.getClass();
+        ObjectMap<String, FieldMetadata> fields = getFields(type);
+        Token token = parser.token();
+        if(token == null) token = parser.nextToken();
+        if(token == Token.objectStart) token = parser.nextToken();
+
+        for(; token == Token.name; token = parser.nextToken()){
+            String jsonName = parser.name(), name = jsonName;
+            if(name.indexOf(' ') != -1) name = name.replace(' ', '_');
+            FieldMetadata metadata = fields.get(name);
+            if(metadata == null){
+                if(jsonName.equals(typeName) || ignoreUnknownFields || ignoreUnknownField(type, jsonName)){
+                    if(debug && !jsonName.equals(typeName)) Log.warn("Ignoring unknown field: " + jsonName + " (" + type.getName() + ")");
+                    parser.skipValue();
+                    continue;
+                }
+                throw new SerializationException("Field not found: " + jsonName + " (" + type.getName() + ")");
+            }
+
+            Field field = metadata.field;
+            token = parser.nextToken();
+            try{
+                Class primitive = metadata.primitive;
+                if(primitive != null && (primitive == boolean.class ? token == Token.bool : token == Token.number) && !classToSerializer.containsKey(primitive)){
+                    FieldAccessor accessor = metadata.accessor;
+                    if(primitive == int.class){
+                        accessor.setInt(object, parser.intValue());
+                    }else if(primitive == float.class){
+                        accessor.setFloat(object, parser.floatValue());
+                    }else if(primitive == boolean.class){
+                        accessor.setBoolean(object, parser.booleanValue());
+                    }else if(primitive == long.class){
+                        accessor.setLong(object, parser.longValue());
+                    }else{
+                        accessor.setDouble(object, parser.doubleValue());
+                    }
+                }else{
+                    metadata.accessor.set(object, readValue(field.getType(), metadata.elementType, parser, metadata.keyType));
+                }
+            }catch(SerializationException ex){
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }catch(RuntimeException runtimeEx){
+                SerializationException ex = new SerializationException(runtimeEx);
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }
+        }
+
+        if(token != Token.objectEnd) throw new SerializationException("Expected the end of an object, but got: " + token);
+    }
+
     /**
      * Called for each unknown field name encountered by {@link #readFields(Object, JsonValue)} when {@link #ignoreUnknownFields}
      * is false to determine whether the unknown field name should be ignored.
@@ -1229,6 +1375,170 @@ public class Json{
         return null;
     }
 
+    /**
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #readValue(Class, Class, JsonParser, Class)
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonParser parser){
+        return readValue(type, elementType, parser, null);
+    }
+
+    /**
+     * Reads the value at the current token of the parser, or at the next token if the parser has not started yet, without building a tree
+     * of {@link JsonValue}s. Afterwards, the current token is the last one of the value.
+     * <p>
+     * Values that are read by a {@link Serializer} or a {@link JsonSerializable}, and some of the less common collections, are still read
+     * into a tree first. The class name of an object must be its first field, which is where {@link #writeType(Class)} puts it.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonParser parser, Class keytype){
+        Token token = parser.token();
+        if(token == null) token = parser.nextToken();
+        if(token == Token.name) token = parser.nextToken();
+
+        switch(token){
+            case objectStart:
+                return readObject(type, elementType, parser, keytype);
+            case arrayStart:
+                return readArray(type, elementType, parser, keytype);
+            case string:
+                if(type == null || type == String.class && !classToSerializer.containsKey(String.class)) return (T)parser.string();
+                break;
+            case number:
+                if(type == null) return (T)(Float)parser.floatValue();
+                if(!classToSerializer.containsKey(type)){
+                    if(type == float.class || type == Float.class) return (T)(Float)parser.floatValue();
+                    if(type == int.class || type == Integer.class) return (T)(Integer)parser.intValue();
+                    if(type == long.class || type == Long.class) return (T)(Long)parser.longValue();
+                    if(type == double.class || type == Double.class) return (T)(Double)parser.doubleValue();
+                }
+                break;
+            case bool:
+                if(type == null || (type == boolean.class || type == Boolean.class) && !classToSerializer.containsKey(type)){
+                    return (T)(Boolean)parser.booleanValue();
+                }
+                break;
+            case nullValue:
+                if(type == null || !classToSerializer.containsKey(type) && !JsonSerializable.class.isAssignableFrom(type)) return null;
+                break;
+            case end:
+                return null;
+        }
+        return readValue(type, elementType, parser.readValue(), keytype);
+    }
+
+    private <T> T readObject(Class<T> type, Class elementType, JsonParser parser, Class keytype){
+        Token token = parser.nextToken();
+        String className = null;
+        if(typeName != null && token == Token.name && parser.name().equals(typeName)){
+            parser.nextToken();
+            className = parser.string();
+            if(className != null) type = resolveClass(className);
+            token = parser.nextToken();
+        }
+
+        if(type == null || (className != null && ObjectMap.class.isAssignableFrom(type)) || readsTree(type)){
+            //the rest of the object is read into a tree, including the class name that was already read
+            JsonValue object = new JsonValue(ValueType.object);
+            if(className != null) object.addChild(typeName, new JsonValue(className));
+            parser.readChildren(object);
+            return readValue(type, elementType, object, keytype);
+        }
+
+        Object object = newInstance(type);
+        if(object instanceof ObjectMap){
+            ObjectMap result = (ObjectMap)object;
+            for(; token == Token.name; token = parser.nextToken()){
+                String name = parser.name();
+                parser.nextToken();
+                result.put(keytype != null ? readValue(keytype, null, new JsonValue(name)) : name, readValue(elementType, null, parser));
+            }
+            return (T)result;
+        }
+
+        readFields(object, parser);
+        return (T)object;
+    }
+
+    /** @return whether objects of this type are read from a tree by {@link #readValue(Class, Class, JsonValue, Class)}. */
+    private boolean readsTree(Class type){
+        return classToSerializer.containsKey(type) || JsonSerializable.class.isAssignableFrom(type)
+            || type == String.class || Reflect.isWrapper(type) || Enum.class.isAssignableFrom(type)
+            || (typeName != null && Collection.class.isAssignableFrom(type))
+            || ObjectIntMap.class.isAssignableFrom(type) || ObjectFloatMap.class.isAssignableFrom(type) || IntMap.class.isAssignableFrom(type)
+            || ObjectSet.class.isAssignableFrom(type) || IntSet.class.isAssignableFrom(type) || IntSeq.class.isAssignableFrom(type)
+            || ArrayMap.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+
+    private <T> T readArray(Class<T> type, Class elementType, JsonParser parser, Class keytype){
+        if(type != null && (classToSerializer.containsKey(type) || JsonSerializable.class.isAssignableFrom(type))){
+            return readValue(type, elementType, parser.readValue(), keytype);
+        }
+
+        if(type == null || type == Object.class) type = (Class<T>)Seq.class;
+        if(Seq.class.isAssignableFrom(type)){
+            Seq result = type == Seq.class ? new Seq() : (Seq)newInstance(type);
+            while(parser.nextToken() != Token.arrayEnd)
+                result.add(readValue(elementType, null, parser));
+            return (T)result;
+        }
+        if(IntSeq.class.isAssignableFrom(type)){
+            IntSeq result = type == IntSeq.class ? new IntSeq() : (IntSeq)newInstance(type);
+            while(parser.nextToken() != Token.arrayEnd)
+                result.add(parser.token() == Token.number ? parser.intValue() : parser.readValue().asInt());
+            return (T)result;
+        }
+        if(ObjectSet.class.isAssignableFrom(type)){
+            ObjectSet result = type == ObjectSet.class ? new ObjectSet() : (ObjectSet)newInstance(type);
+            while(parser.nextToken() != Token.arrayEnd)
+                result.add(readValue(elementType, null, parser));
+            return (T)result;
+        }
+        if(arc.struct.Queue.class.isAssignableFrom(type)){
+            arc.struct.Queue result = type == arc.struct.Queue.class ? new arc.struct.Queue() : (Queue)newInstance(type);
+            while(parser.nextToken() != Token.arrayEnd)
+                result.addLast(readValue(elementType, null, parser));
+            return (T)result;
+        }
+        if(Collection.class.isAssignableFrom(type)){
+            Collection result = type.isInterface() ? new ArrayList() : (Collection)newInstance(type);
+            while(parser.nextToken() != Token.arrayEnd)
+                result.add(readValue(elementType, null, parser));
+            return (T)result;
+        }
+        if(type.isArray()){
+            Class componentType = type.getComponentType();
+            if(elementType == null) elementType = componentType;
+
+            //the size is not known up front, so primitive values are collected without boxing them
+            if(componentType == int.class && elementType == int.class){
+                IntSeq values = new IntSeq();
+                while(parser.nextToken() != Token.arrayEnd)
+                    values.add(parser.token() == Token.number ? parser.intValue() : readValue(int.class, null, parser));
+                return (T)values.toArray();
+            }
+            if(componentType == float.class && elementType == float.class){
+                FloatSeq values = new FloatSeq();
+                while(parser.nextToken() != Token.arrayEnd)
+                    values.add(parser.token() == Token.number ? parser.floatValue() : readValue(float.class, null, parser));
+                return (T)values.toArray();
+            }
+
+            Seq values = new Seq();
+            while(parser.nextToken() != Token.arrayEnd)
+                values.add(readValue(elementType, null, parser));
+            Object result = java.lang.reflect.Array.newInstance(componentType, values.size);
+            for(int i = 0; i < values.size; i++)
+                java.lang.reflect.Array.set(result, i, values.get(i));
+            return (T)result;
+        }
+        return readValue(type, elementType, parser.readValue(), keytype);
+    }
+
     /**
      * Each field on the <code>to</code> object is set to the value for the field with the same name on the <code>from</code>
      * object. The <code>to</code> object must have at least all the fields of the <code>from</code> object with the same name and
@@ -1239,18 +1549,14 @@ public class Json{
     }
 
     public void copyFields(Object from, Object to, boolean setFinals){
-        ObjectMap<String, FieldMetadata> toFields = getFields(from.getClass());
+        ObjectMap<String, FieldMetadata> toFields = getFields(to.getClass());
         for(ObjectMap.Entry<String, FieldMetadata> entry : getFields(from.getClass())){
             FieldMetadata toField = toFields.get(entry.key);
             Field fromField = entry.value.field;
             if(Modifier.isFinal(fromField.getModifiers()) && !setFinals) continue;
 
             if(toField == null) throw new SerializationException("To object is missing field" + entry.key);
-            try{
-                toField.field.set(to, fromField.get(from));
-            }catch(IllegalAccessException ex){
-                throw new SerializationException("Error copying field: " + fromField.getName(), ex);
-            }
+            toField.accessor.set(to, entry.value.accessor.get(from));
         }
     }
 
@@ -1345,15 +1651,27 @@ public class Json{
 
     public static class FieldMetadata{
         public final Field field;
+        public final FieldAccessor accessor;
         public @Nullable Class elementType;
         public @Nullable Class keyType;
+        /** The type of the field, if it is read and written without boxing. */
+        final @Nullable Class primitive;
+        final boolean deprecated;
 
         public FieldMetadata(Field field){
-            boolean isMap = ObjectMap.class.isAssignableFrom(field.getType()) || Map.class.isAssignableFrom(field.getType());
+            this(field, FieldAccessor.reflect.create(field));
+        }
+
+        public FieldMetadata(Field field, FieldAccessor accessor){
+            Class type = field.getType();
+            boolean isMap = ObjectMap.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
 
             this.field = field;
+            this.accessor = accessor;
             this.elementType = getElementType(field, isMap ? 1 : 0);
             keyType = isMap ? getElementType(field, 0) : null;
+            primitive = type == int.class || type == float.class || type == boolean.class || type == long.class || type == double.class ? type : null;
+            deprecated = field.isAnnotationPresent(Deprecated.class);
         }
     }
 
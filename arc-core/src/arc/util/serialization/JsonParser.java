@@ -0,0 +1,214 @@
+package arc.util.serialization;
+
+import arc.util.*;
+import arc.util.serialization.JsonValue.*;
+
+import java.io.*;
+
+/**
+ * Pull parser that reads JSON one token at a time, without building a tree of {@link JsonValue}s. Created by
+ * {@link JsonReader#parser(Reader)} and {@link UBJsonReader#parser(InputStream)}, and read into objects by
+ * {@link Json#fromJson(Class, JsonParser)}.
+ * <pre>
+ * for(Token token = parser.nextToken(); token != Token.objectEnd; token = parser.nextToken()){
+ *     String name = parser.name();
+ *     parser.nextToken();
+ *     if(name.equals("health")) health = parser.floatValue();
+ *     else parser.skipValue();
+ * }
+ * </pre>
+ * Every value in an object is preceded by a {@link Token#name} token. The text of the current token is only valid until the next
+ * call to {@link #nextToken()}.
+ */
+public abstract class JsonParser implements Closeable{
+    private static final int symbolCount = 512;
+
+    /** Recently read names, so that reading the same name again does not allocate a string. */
+    private final String[] symbols = new String[symbolCount];
+
+    protected @Nullable Token token;
+    protected int depth;
+    /** The value of the current number or boolean token. */
+    protected long longValue;
+    protected double doubleValue;
+    protected boolean isDouble;
+
+    /** @return the next token, or {@link Token#end} after the last value. */
+    public abstract Token nextToken();
+
+    /** @return the text of the current name, string or number token, which is only valid until the next call to {@link #nextToken()}. */
+    public abstract CharSequence text();
+
+    /** Closes the input. */
+    @Override
+    public abstract void close();
+
+    /** @return the current token, or null if {@link #nextToken()} was not called yet. */
+    public @Nullable Token token(){
+        return token;
+    }
+
+    /** @return the number of objects and arrays that contain the current token. Start tokens count as inside, end tokens as outside. */
+    public int depth(){
+        return depth;
+    }
+
+    /** @return the current name token. The same string is returned for names that were read before, so this usually does not allocate. */
+    public String name(){
+        if(token != Token.name) throw new SerializationException("Expected a name, but got: " + token);
+        return symbol(text());
+    }
+
+    /** @return the current string token, or the text of the current number or boolean token. Null for null tokens. */
+    public @Nullable String string(){
+        switch(token){
+            case string:
+            case number:
+                return text().toString();
+            case bool:
+                return longValue != 0 ? "true" : "false";
+            case nullValue:
+                return null;
+        }
+        throw new SerializationException("Expected a value, but got: " + token);
+    }
+
+    /** @return whether the current number token has a fractional part or an exponent. */
+    public boolean isDouble(){
+        return isDouble;
+    }
+
+    public long longValue(){
+        checkNumber();
+        return isDouble ? (long)doubleValue : longValue;
+    }
+
+    public int intValue(){
+        checkNumber();
+        return isDouble ? (int)doubleValue : (int)longValue;
+    }
+
+    public double doubleValue(){
+        checkNumber();
+        return isDouble ? doubleValue : (double)longValue;
+    }
+
+    public float floatValue(){
+        checkNumber();
+        return isDouble ? (float)doubleValue : (float)longValue;
+    }
+
+    public boolean booleanValue(){
+        if(token != Token.bool) throw new SerializationException("Expected a boolean, but got: " + token);
+        return longValue != 0;
+    }
+
+    /**
+     * Skips the current value. If the current token starts an object or array, everything up to its end is skipped. If it is a name, its
+     * value is skipped. Afterwards, the current token is the last one of the value.
+     */
+    public void skipValue(){
+        if(token == Token.name) nextToken();
+        if(token != Token.objectStart && token != Token.arrayStart) return;
+
+        for(int start = depth - 1; depth > start; ){
+            if(nextToken() == Token.end) throw new SerializationException("Unexpected end of JSON.");
+        }
+    }
+
+    /**
+     * Reads the current value into a tree of {@link JsonValue}s. If the current token is a name, its value is read and named. Afterwards,
+     * the current token is the last one of the value.
+     */
+    public JsonValue readValue(){
+        String name = null;
+        if(token == null) nextToken();
+        if(token == Token.name){
+            name = name();
+            nextToken();
+        }
+
+        JsonValue value;
+        switch(token){
+            case objectStart:
+                value = new JsonValue(ValueType.object);
+                nextToken();
+                readChildren(value);
+                break;
+            case arrayStart:
+                value = new JsonValue(ValueType.array);
+                nextToken();
+                readChildren(value);
+                break;
+            case string:
+                value = new JsonValue(text().toString());
+                break;
+            case number:
+                String text = numberText();
+                value = isDouble ? new JsonValue(doubleValue, text) : new JsonValue(longValue, text);
+                break;
+            case bool:
+                value = new JsonValue(longValue != 0);
+                break;
+            case nullValue:
+                value = new JsonValue(ValueType.nullValue);
+                break;
+            default:
+                throw new SerializationException("Expected a value, but got: " + token);
+        }
+        value.name = name;
+        return value;
+    }
+
+    /** Adds the values from the current token to the end of the current object or array to the parent. */
+    void readChildren(JsonValue parent){
+        JsonValue last = parent.child;
+        while(last != null && last.next != null) last = last.next;
+
+        for(; token != Token.objectEnd && token != Token.arrayEnd; nextToken()){
+            if(token == Token.end) throw new SerializationException("Unexpected end of JSON.");
+            JsonValue child = readValue();
+            child.parent = parent;
+            child.prev = last;
+            if(last == null){
+                parent.child = child;
+            }else{
+                last.next = child;
+            }
+            last = child;
+            parent.size++;
+        }
+    }
+
+    /** @return the original text of the current number token, or null if there is none. */
+    protected @Nullable String numberText(){
+        return null;
+    }
+
+    /** @return a string with the same characters, which is the same instance for names that were read recently. */
+    protected String symbol(CharSequence chars){
+        int length = chars.length(), hash = 0;
+        for(int i = 0; i < length; i++){
+            hash = 31 * hash + chars.charAt(i);
+        }
+        //the hash of a string is the same, so this is also cheap to compare
+        int index = (hash ^ (hash >>> 16)) & (symbolCount - 1);
+        String symbol = symbols[index];
+        if(symbol != null && symbol.length() == length && symbol.hashCode() == hash){
+            int i = 0;
+            while(i < length && symbol.charAt(i) == chars.charAt(i)) i++;
+            if(i == length) return symbol;
+        }
+        return symbols[index] = chars.toString();
+    }
+
+    private void checkNumber(){
+        if(token != Token.number) throw new SerializationException("Expected a number, but got: " + token);
+    }
+
+    public enum Token{
+        objectStart, objectEnd, arrayStart, arrayEnd, name, string, number, bool, nullValue,
+        /** There are no more tokens. */
+        end
+    }
+}
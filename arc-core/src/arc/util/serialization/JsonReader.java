@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 
 /**
  * Lightweight JSON parser.<br>
@@ -149,6 +150,34 @@ public class JsonReader implements BaseJsonReader{
         }
     }
 
+    /** Creates a pull parser for the JSON, which reads it without building a tree of {@link JsonValue}s. */
+    public JsonParser parser(String json){
+        return new JsonTextParser(new StringReader(json));
+    }
+
+    /**
+     * Creates a pull parser for the JSON. Text is read from the reader in chunks as it is parsed, and the reader is closed when the
+     * parser is closed.
+     */
+    public JsonParser parser(Reader reader){
+        return new JsonTextParser(reader);
+    }
+
+    /** @see #parser(Reader) */
+    public JsonParser parser(InputStream input){
+        return parser(new InputStreamReader(input, Strings.utf8));
+    }
+
+    /** @see #parser(Reader) */
+    public JsonParser parser(Fi file){
+        return parser(file.reader("UTF-8"));
+    }
+
+    /** Creates a pull parser for the JSON. The text views of its tokens point into the array, which must not be modified while parsing. */
+    public JsonParser parser(char[] data, int offset, int length){
+        return new JsonTextParser(data, offset, length);
+    }
+
     public JsonValue parse(char[] data, int offset, int length){
         int cs, p = offset, top;
         int[] stack = new int[4];
@@ -0,0 +1,460 @@
+package arc.util.serialization;
+
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Pull parser for JSON text, which accepts the same relaxed syntax as {@link JsonReader}: comments, unquoted names and values, and
+ * optional commas. Input from a {@link Reader} is read in chunks, so the whole text is never in memory at once.
+ */
+class JsonTextParser extends JsonParser{
+    /** Powers of ten that are exactly representable as doubles. */
+    private static final double[] powers = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final @Nullable Reader reader;
+    private final int start;
+    private final View view = new View();
+    private char[] buffer;
+    private int pos, limit;
+    /** Start of the text that must be kept when the buffer is refilled, or -1. */
+    private int mark = -1;
+    /** Number of lines in text that was discarded from the buffer. */
+    private int lines;
+
+    /** Whether each open container is an object. */
+    private boolean[] objects = new boolean[16];
+
+    private int textStart, textEnd;
+    private boolean escaped;
+    private @Nullable StringBuilder unescaped;
+
+    JsonTextParser(char[] data, int offset, int length){
+        reader = null;
+        buffer = data;
+        start = pos = offset;
+        limit = offset + length;
+    }
+
+    JsonTextParser(Reader reader){
+        this.reader = reader;
+        buffer = new char[8192];
+        start = 0;
+    }
+
+    @Override
+    public Token nextToken(){
+        if(token == Token.end) return Token.end;
+        escaped = false;
+
+        if(token == Token.name){
+            skipWhitespace();
+            if(peek(0) != ':') throw error("Expected ':'");
+            pos++;
+            skipWhitespace();
+            return token = value();
+        }
+
+        if(depth == 0){
+            skipWhitespace();
+            if(peek(0) == -1) return token = Token.end;
+            if(token != null) throw error("Expected the end of the JSON");
+            return token = value();
+        }
+
+        boolean object = objects[depth - 1];
+        skipWhitespace();
+        //a single comma separates values, and may also come before the first or after the last one
+        if(peek(0) == ','){
+            pos++;
+            skipWhitespace();
+        }
+
+        int c = peek(0);
+        if(c == -1) throw error(object ? "Unmatched brace" : "Unmatched bracket");
+        if(c == '}' || c == ']'){
+            if((c == '}') != object) throw error(object ? "Expected '}'" : "Expected ']'");
+            pos++;
+            depth--;
+            return token = object ? Token.objectEnd : Token.arrayEnd;
+        }
+
+        if(object){
+            if(c == '"'){
+                quoted();
+            }else{
+                unquoted(true);
+                if(textStart == textEnd) throw error("Expected a name");
+            }
+            return token = Token.name;
+        }
+        return token = value();
+    }
+
+    @Override
+    public CharSequence text(){
+        if(token != Token.name && token != Token.string && token != Token.number){
+            throw new SerializationException("Expected a name, string or number, but got: " + token);
+        }
+        if(escaped) return unescaped();
+        view.set(buffer, textStart, textEnd - textStart);
+        return view;
+    }
+
+    @Override
+    protected @Nullable String numberText(){
+        return text().toString();
+    }
+
+    @Override
+    public void close(){
+        Streams.close(reader);
+    }
+
+    private Token value(){
+        switch(peek(0)){
+            case '{':
+                pos++;
+                push(true);
+                return Token.objectStart;
+            case '[':
+                pos++;
+                push(false);
+                return Token.arrayStart;
+            case '"':
+                quoted();
+                return Token.string;
+            case -1:
+            case '}':
+            case ']':
+            case ',':
+            case ':':
+                throw error("Expected a value");
+        }
+
+        unquoted(false);
+        if(matches("true")){
+            longValue = 1;
+            return Token.bool;
+        }else if(matches("false")){
+            longValue = 0;
+            return Token.bool;
+        }else if(matches("null")){
+            return Token.nullValue;
+        }else if(!escaped && number(textStart, textEnd - textStart)){
+            return Token.number;
+        }
+        return Token.string;
+    }
+
+    private void push(boolean object){
+        if(depth == objects.length) objects = Arrays.copyOf(objects, depth * 2);
+        objects[depth++] = object;
+    }
+
+    private void quoted(){
+        pos++;
+        mark = pos;
+        while(true){
+            int c = peek(0);
+            if(c == -1) throw error("Unterminated string");
+            if(c == '"') break;
+            if(c == '\\'){
+                escaped = true;
+                pos++;
+                if(peek(0) == -1) throw error("Unterminated string");
+            }
+            pos++;
+        }
+        setText(mark, pos);
+        pos++;
+    }
+
+    /** Reads an unquoted name or value, up to the end of the line or the next character that ends it. */
+    private void unquoted(boolean name){
+        mark = pos;
+        outer:
+        while(true){
+            int c = peek(0);
+            switch(c){
+                case -1:
+                case '\r':
+                case '\n':
+                    break outer;
+                case '\\':
+                    escaped = true;
+                    break;
+                case '/':
+                    int next = peek(1);
+                    if(next == '/' || next == '*') break outer;
+                    break;
+                case ':':
+                    if(name) break outer;
+                    break;
+                case '}':
+                case ']':
+                case ',':
+                    if(!name) break outer;
+                    break;
+            }
+            pos++;
+        }
+
+        int end = pos;
+        while(end > mark && Character.isWhitespace(buffer[end - 1])) end--;
+        setText(mark, end);
+    }
+
+    private void setText(int start, int end){
+        textStart = start;
+        textEnd = end;
+        mark = -1;
+        if(unescaped != null) unescaped.setLength(0);
+    }
+
+    private void skipWhitespace(){
+        while(true){
+            int c = peek(0);
+            if(c == ' ' || c == '\t' || c == '\r' || c == '\n'){
+                pos++;
+            }else if(c == '/' && peek(1) == '/'){
+                pos += 2;
+                while((c = peek(0)) != -1 && c != '\n') pos++;
+            }else if(c == '/' && peek(1) == '*'){
+                pos += 2;
+                while(!(peek(0) == '*' && peek(1) == '/')){
+                    if(peek(0) == -1) throw error("Unterminated comment");
+                    pos++;
+                }
+                pos += 2;
+            }else{
+                return;
+            }
+        }
+    }
+
+    /** @return the character at the offset from the current position, or -1 at the end of the input. */
+    private int peek(int offset){
+        while(pos + offset >= limit){
+            if(!fill()) return -1;
+        }
+        return buffer[pos + offset];
+    }
+
+    /** Reads more input into the buffer, discarding text before the mark or the current position. @return whether there was more input. */
+    private boolean fill(){
+        if(reader == null) return false;
+
+        int keep = mark >= 0 ? Math.min(mark, pos) : pos;
+        for(int i = 0; i < keep; i++){
+            if(buffer[i] == '\n') lines++;
+        }
+        int remaining = limit - keep;
+        if(keep == 0 && remaining == buffer.length){
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }else if(keep > 0){
+            System.arraycopy(buffer, keep, buffer, 0, remaining);
+        }
+        pos -= keep;
+        if(mark >= 0) mark -= keep;
+        limit = remaining;
+
+        try{
+            int read;
+            while((read = reader.read(buffer, limit, buffer.length - limit)) == 0){
+                Thread.yield();
+            }
+            if(read < 0) return false;
+            limit += read;
+            return true;
+        }catch(IOException e){
+            throw new SerializationException(e);
+        }
+    }
+
+    /** @return whether the current text is the value. Escapes are resolved first, the same as {@link JsonReader} does. */
+    private boolean matches(String value){
+        int length = value.length();
+        if(escaped) return unescaped().toString().equals(value);
+        if(textEnd - textStart != length) return false;
+        for(int i = 0; i < length; i++){
+            if(buffer[textStart + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** Parses the current text as a number, the same way as {@link JsonReader}. @return whether it is a number. */
+    private boolean number(int start, int length){
+        boolean couldBeDouble = false;
+        for(int i = start; i < start + length; i++){
+            switch(buffer[i]){
+                case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': case '-': case '+':
+                    break;
+                case '.':
+                case 'e':
+                case 'E':
+                    couldBeDouble = true;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return couldBeDouble ? parseDouble(start, length) : parseLong(start, length);
+    }
+
+    /** Same as {@link Long#parseLong(String)}, without creating a string. */
+    private boolean parseLong(int start, int length){
+        int i = start, end = start + length;
+        boolean negative = false;
+        char first = buffer[i];
+        if(first == '-' || first == '+'){
+            negative = first == '-';
+            if(++i == end) return false;
+        }
+
+        long min = negative ? Long.MIN_VALUE : -Long.MAX_VALUE, multiplyMin = min / 10, result = 0;
+        //accumulates negatively, since the negative range is larger
+        for(; i < end; i++){
+            int digit = buffer[i] - '0';
+            if(digit < 0 || digit > 9 || result < multiplyMin) return false;
+            result *= 10;
+            if(result < min + digit) return false;
+            result -= digit;
+        }
+        longValue = negative ? result : -result;
+        isDouble = false;
+        return true;
+    }
+
+    private boolean parseDouble(int start, int length){
+        int i = start, end = start + length, digits = 0, fraction = 0;
+        boolean negative = false, dot = false;
+        long mantissa = 0;
+        if(buffer[i] == '-' || buffer[i] == '+'){
+            negative = buffer[i] == '-';
+            i++;
+        }
+        for(; i < end; i++){
+            char c = buffer[i];
+            if(c >= '0' && c <= '9'){
+                mantissa = mantissa * 10 + (c - '0');
+                if(++digits > 15) break;
+                if(dot) fraction++;
+            }else if(c == '.' && !dot){
+                dot = true;
+            }else{
+                break;
+            }
+        }
+
+        //a mantissa below 2^53 and a power of ten that are both exact give a correctly rounded quotient
+        if(i == end && digits > 0){
+            double value = mantissa / powers[fraction];
+            doubleValue = negative ? -value : value;
+            isDouble = true;
+            return true;
+        }
+
+        try{
+            doubleValue = Double.parseDouble(new String(buffer, start, length));
+            isDouble = true;
+            return true;
+        }catch(NumberFormatException ignored){
+            return false;
+        }
+    }
+
+    private StringBuilder unescaped(){
+        if(unescaped == null) unescaped = new StringBuilder();
+        if(unescaped.length() == 0) unescape(unescaped);
+        return unescaped;
+    }
+
+    private void unescape(StringBuilder out){
+        for(int i = textStart; i < textEnd; ){
+            char c = buffer[i++];
+            if(c != '\\'){
+                out.append(c);
+                continue;
+            }
+            if(i == textEnd) break;
+            c = buffer[i++];
+            if(c == 'u'){
+                if(i + 4 > textEnd) throw new SerializationException("Illegal escaped character: \\u" + new String(buffer, i, textEnd - i));
+                out.append(Character.toChars(Integer.parseInt(new String(buffer, i, 4), 16)));
+                i += 4;
+                continue;
+            }
+            switch(c){
+                case '"':
+                case '\\':
+                case '/':
+                    break;
+                case 'b':
+                    c = '\b';
+                    break;
+                case 'f':
+                    c = '\f';
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                default:
+                    throw new SerializationException("Illegal escaped character: \\" + c);
+            }
+            out.append(c);
+        }
+    }
+
+    private SerializationException error(String message){
+        int line = lines + 1;
+        for(int i = start; i < pos && i < limit; i++){
+            if(buffer[i] == '\n') line++;
+        }
+        int from = Math.max(start, pos - 32), at = Math.min(pos, limit);
+        return new SerializationException(message + " on line " + line + " near: " + new String(buffer, from, at - from) + "*ERROR*"
+        + new String(buffer, at, Math.min(64, limit - at)));
+    }
+
+    /** A view of a range of the buffer. */
+    static class View implements CharSequence{
+        char[] chars;
+        int offset, length;
+
+        void set(char[] chars, int offset, int length){
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length(){
+            return length;
+        }
+
+        @Override
+        public char charAt(int index){
+            if(index < 0 || index >= length) throw new IndexOutOfBoundsException(String.valueOf(index));
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end){
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString(){
+            return new String(chars, offset, length);
+        }
+    }
+}
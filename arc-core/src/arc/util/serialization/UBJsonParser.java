@@ -0,0 +1,240 @@
+package arc.util.serialization;
+
+import arc.util.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/** Pull parser for UBJSON, which reads the same format as {@link UBJsonReader}. */
+class UBJsonParser extends JsonParser{
+    private final DataInputStream input;
+    private final CharsetDecoder decoder = Strings.utf8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /** The type of each open container: '{', '[', or 'a' for data blocks. */
+    private byte[] kinds = new byte[16];
+    /** The type of all values of each open container, or 0 if every value has its own type. */
+    private byte[] valueTypes = new byte[16];
+    /** The number of values left in each open container, or -1 if it ends with a marker. */
+    private long[] remaining = new long[16];
+
+    /** A type byte that was read ahead, or -1. */
+    private int peeked = -1;
+
+    private byte[] bytes = new byte[64];
+    private ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    private CharBuffer chars = CharBuffer.allocate(64);
+
+    UBJsonParser(DataInputStream input){
+        this.input = input;
+    }
+
+    @Override
+    public Token nextToken(){
+        if(token == Token.end) return Token.end;
+
+        try{
+            if(token == Token.name){
+                byte fixed = valueTypes[depth - 1];
+                return token = value(fixed != 0 ? fixed : read());
+            }
+
+            if(depth == 0){
+                return token = token == null ? value(read()) : Token.end;
+            }
+
+            int index = depth - 1;
+            byte kind = kinds[index];
+            if(remaining[index] == 0) return end(kind);
+
+            if(kind == 'a'){
+                remaining[index]--;
+                return token = value(valueTypes[index]);
+            }
+
+            if(kind == '['){
+                byte fixed = valueTypes[index];
+                byte type = fixed != 0 ? fixed : read();
+                if(remaining[index] < 0 && type == ']') return end(kind);
+                if(remaining[index] > 0) remaining[index]--;
+                return token = value(type);
+            }
+
+            byte type = read();
+            if(remaining[index] < 0 && type == '}') return end(kind);
+            if(remaining[index] > 0) remaining[index]--;
+            string(type, true);
+            return token = Token.name;
+        }catch(IOException e){
+            throw new SerializationException(e);
+        }
+    }
+
+    @Override
+    public CharSequence text(){
+        switch(token){
+            case name:
+            case string:
+                return chars;
+            case number:
+                return isDouble ? Double.toString(doubleValue) : Long.toString(longValue);
+        }
+        throw new SerializationException("Expected a name, string or number, but got: " + token);
+    }
+
+    @Override
+    public void close(){
+        Streams.close(input);
+    }
+
+    private Token end(byte kind){
+        depth--;
+        return token = kind == '{' ? Token.objectEnd : Token.arrayEnd;
+    }
+
+    private byte read() throws IOException{
+        if(peeked >= 0){
+            byte b = (byte)peeked;
+            peeked = -1;
+            return b;
+        }
+        return input.readByte();
+    }
+
+    private Token value(byte type) throws IOException{
+        switch(type){
+            case '[':
+            case '{':
+                container(type);
+                return type == '[' ? Token.arrayStart : Token.objectStart;
+            case 'a':
+            case 'A':{
+                //data blocks are arrays with one type and a size
+                byte dataType = read();
+                push((byte)'a', dataType, type == 'A' ? input.readInt() : input.readUnsignedByte());
+                return Token.arrayStart;
+            }
+            case 'Z':
+                return Token.nullValue;
+            case 'T':
+            case 'F':
+                longValue = type == 'T' ? 1 : 0;
+                return Token.bool;
+            case 'B':
+            case 'U':
+                return integer(input.readUnsignedByte());
+            case 'i':
+                return integer(input.readByte());
+            case 'I':
+                return integer(input.readShort());
+            case 'l':
+                return integer(input.readInt());
+            case 'L':
+                return integer(input.readLong());
+            case 'C':
+                return integer(input.readChar());
+            case 'd':
+                return decimal(input.readFloat());
+            case 'D':
+                return decimal(input.readDouble());
+            case 's':
+            case 'S':
+                string(type, false);
+                return Token.string;
+        }
+        throw new SerializationException("Unrecognized data type: " + (char)type);
+    }
+
+    private Token integer(long value){
+        longValue = value;
+        isDouble = false;
+        return Token.number;
+    }
+
+    private Token decimal(double value){
+        doubleValue = value;
+        isDouble = true;
+        return Token.number;
+    }
+
+    /** Reads the optional type and size of an object or array. */
+    private void container(byte kind) throws IOException{
+        byte type = read(), fixed = 0;
+        if(type == '$'){
+            fixed = read();
+            type = read();
+        }
+        long size = -1;
+        if(type == '#'){
+            size = size(read(), false);
+            if(size < 0) throw new SerializationException("Unrecognized data type");
+        }else{
+            if(fixed != 0) throw new SerializationException("Containers with a type must have a size.");
+            peeked = type & 0xFF;
+        }
+        push(kind, fixed, size);
+    }
+
+    private void push(byte kind, byte valueType, long size){
+        if(depth == kinds.length){
+            kinds = Arrays.copyOf(kinds, depth * 2);
+            valueTypes = Arrays.copyOf(valueTypes, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        kinds[depth] = kind;
+        valueTypes[depth] = valueType;
+        remaining[depth] = size;
+        depth++;
+    }
+
+    /** Reads a string into the char buffer. Names may leave out the 's' or 'S' type. */
+    private void string(byte type, boolean name) throws IOException{
+        long size;
+        if(type == 'S'){
+            size = size(read(), true);
+        }else if(type == 's'){
+            size = input.readUnsignedByte();
+        }else if(name){
+            size = size(type, false);
+        }else{
+            size = -1;
+        }
+        if(size < 0) throw new SerializationException("Unrecognized data type, string expected");
+
+        int length = (int)size;
+        if(bytes.length < length){
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
+        if(chars.capacity() < length){
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+        input.readFully(bytes, 0, length);
+
+        byteBuffer.clear();
+        byteBuffer.limit(length);
+        chars.clear();
+        decoder.reset();
+        decoder.decode(byteBuffer, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+    }
+
+    /** Same as {@link UBJsonReader#parseSize(DataInputStream, byte, boolean, long)}. */
+    private long size(byte type, boolean useIntOnError) throws IOException{
+        if(type == 'i') return input.readUnsignedByte();
+        if(type == 'I') return input.readUnsignedShort();
+        if(type == 'l') return input.readInt();
+        if(type == 'L') return input.readLong();
+        if(useIntOnError){
+            long result = (long)(type & 0xFF) << 24;
+            result |= (long)(input.readByte() & 0xFF) << 16;
+            result |= (long)(input.readByte() & 0xFF) << 8;
+            result |= (long)(input.readByte() & 0xFF);
+            return result;
+        }
+        return -1;
+    }
+}
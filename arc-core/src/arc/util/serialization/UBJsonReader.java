@@ -41,6 +41,19 @@ public class UBJsonReader implements BaseJsonReader{
         }
     }
 
+    /**
+     * Creates a pull parser for the UBJSON, which reads it without building a tree of {@link JsonValue}s. The stream is closed when the
+     * parser is closed. For best performance you should provide buffered streams to this method!
+     */
+    public JsonParser parser(InputStream input){
+        return new UBJsonParser(input instanceof DataInputStream ? (DataInputStream)input : new DataInputStream(input));
+    }
+
+    /** @see #parser(InputStream) */
+    public JsonParser parser(Fi file){
+        return parser(file.read(8192));
+    }
+
     public JsonValue parse(final DataInputStream din) throws IOException{
         try{
             return parse(din, din.readByte());
@@ -0,0 +1,208 @@
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.PixmapIO.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import javax.imageio.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.*;
+
+import static org.junit.Assert.*;
+
+public class PixmapIOTest{
+
+    /** An image with gradients, flat areas and noise, so that every filter type gets used. */
+    static Pixmap image(int width, int height){
+        Rand rand = new Rand(1);
+        Pixmap pixmap = new Pixmap(width, height);
+        pixmap.each((x, y) -> {
+            if(x < width / 3){
+                pixmap.setRaw(x, y, Color.rgba8888(x / (float)width, y / (float)height, 0.5f, 1f));
+            }else if(x < width * 2 / 3){
+                pixmap.setRaw(x, y, (y / 16) % 2 == 0 ? 0xff0000ff : 0x00000000);
+            }else{
+                pixmap.setRaw(x, y, rand.nextInt());
+            }
+        });
+        return pixmap;
+    }
+
+    static byte[] write(Pixmap pixmap, boolean adaptive, int threads, int chunkSize, boolean flipY) throws IOException{
+        PngWriter writer = new PngWriter();
+        try{
+            writer.setAdaptiveFilter(adaptive);
+            writer.setThreads(threads);
+            writer.setChunkSize(chunkSize);
+            writer.setFlipY(flipY);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(out, pixmap);
+            return out.toByteArray();
+        }finally{
+            writer.dispose();
+        }
+    }
+
+    static void check(Pixmap expected, byte[] png, boolean flipY) throws IOException{
+        Pixmap read = PixmapIO.readPNG(png);
+        //also decode with the JDK, which verifies checksums and uses a reference implementation of the filters
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+
+        assertEquals(expected.width, read.width);
+        assertEquals(expected.height, read.height);
+        for(int y = 0; y < expected.height; y++){
+            for(int x = 0; x < expected.width; x++){
+                int color = expected.getRaw(x, flipY ? expected.height - y - 1 : y);
+                assertEquals(color, read.getRaw(x, y));
+                assertEquals(color, (image.getRGB(x, y) << 8) | (image.getRGB(x, y) >>> 24));
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException{
+        Pixmap pixmap = image(301, 203);
+
+        for(boolean flipY : new boolean[]{false, true}){
+            check(pixmap, write(pixmap, false, 1, 128 * 1024, flipY), flipY);
+            check(pixmap, write(pixmap, true, 1, 128 * 1024, flipY), flipY);
+            //small chunks, so that there are many more chunks than threads
+            check(pixmap, write(pixmap, false, 3, 5000, flipY), flipY);
+            check(pixmap, write(pixmap, true, 3, 5000, flipY), flipY);
+            check(pixmap, write(pixmap, true, 2, 1, flipY), flipY);
+        }
+    }
+
+    @Test
+    public void reuse() throws IOException{
+        PngWriter writer = new PngWriter();
+        writer.setFlipY(false);
+        writer.setAdaptiveFilter(true);
+        writer.setThreads(2);
+        writer.setChunkSize(4096);
+
+        for(int size : new int[]{64, 200, 31}){
+            Pixmap pixmap = image(size, size + 7);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(out, pixmap);
+            check(pixmap, out.toByteArray(), false);
+        }
+        writer.dispose();
+    }
+
+    static void assertPixels(Pixmap expected, Pixmap actual){
+        assertEquals(expected.width, actual.width);
+        assertEquals(expected.height, actual.height);
+        for(int y = 0; y < expected.height; y++){
+            for(int x = 0; x < expected.width; x++){
+                assertEquals(expected.getRaw(x, y), actual.getRaw(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void decodeInto() throws IOException{
+        Pixmap pixmap = image(120, 90);
+        byte[] png = write(pixmap, true, 1, 128 * 1024, false);
+
+        Pixmap target = new Pixmap(120, 90);
+        new PngReader().read(new ByteArrayInputStream(png), target);
+        assertPixels(pixmap, target);
+
+        //decoding into a buffer starts at its position
+        ByteBuffer buffer = ByteBuffer.allocateDirect(120 * 90 * 4 + 8);
+        buffer.position(8);
+        new PngReader().read(new ByteArrayInputStream(png), buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        buffer.position(8);
+        assertPixels(pixmap, new Pixmap(buffer.slice(), 120, 90));
+
+        try{
+            new PngReader().read(new ByteArrayInputStream(png), new Pixmap(90, 120));
+            fail("Sizes must match");
+        }catch(IOException expected){
+        }
+    }
+
+    @Test
+    public void pipelined() throws IOException{
+        //tall images have many batches of rows, wide ones few rows per batch
+        for(int[] size : new int[][]{{37, 3000}, {5000, 9}, {256, 256}}){
+            Pixmap pixmap = image(size[0], size[1]);
+            byte[] png = write(pixmap, true, 1, 128 * 1024, false);
+
+            PngReader reader = new PngReader();
+            reader.pipelineSize = 0;
+            ByteBuffer result = reader.read(new ByteArrayInputStream(png));
+            assertPixels(pixmap, new Pixmap(result, reader.width, reader.height));
+        }
+
+        //corrupt data fails instead of hanging
+        byte[] png = write(image(64, 400), false, 1, 128 * 1024, false);
+        for(int i = 200; i < png.length - 100; i++) png[i] = (byte)i;
+        PngReader reader = new PngReader();
+        reader.pipelineSize = 0;
+        try{
+            reader.read(new ByteArrayInputStream(png));
+            fail("Data is corrupt");
+        }catch(IOException expected){
+        }
+    }
+
+    @Test
+    public void palette() throws IOException{
+        //odd width, so that the last byte of every row holds a single pixel
+        int[] colors = new int[16];
+        for(int i = 0; i < 16; i++) colors[i] = 0xff000000 | i * 0x101010;
+        IndexColorModel model = new IndexColorModel(4, 16, colors, 0, false, -1, DataBuffer.TYPE_BYTE);
+        BufferedImage image = new BufferedImage(33, 5, BufferedImage.TYPE_BYTE_BINARY, model);
+        for(int y = 0; y < 5; y++){
+            for(int x = 0; x < 33; x++){
+                image.setRGB(x, y, colors[(x + y) % 16]);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+
+        Pixmap pixmap = PixmapIO.readPNG(out.toByteArray());
+        for(int y = 0; y < 5; y++){
+            for(int x = 0; x < 33; x++){
+                int color = colors[(x + y) % 16];
+                assertEquals((color << 8) | 0xff, pixmap.getRaw(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void batch() throws IOException{
+        Fi directory = new Fi(java.nio.file.Files.createTempDirectory("png").toFile());
+        try{
+            Seq<Fi> files = new Seq<>();
+            Seq<Pixmap> images = new Seq<>();
+            for(int i = 0; i < 6; i++){
+                Pixmap pixmap = image(50 + i * 10, 40);
+                Fi file = directory.child(i + ".png");
+                PixmapIO.writePng(file, pixmap);
+                files.add(file);
+                images.add(pixmap);
+            }
+
+            Seq<Pixmap> result = PixmapIO.readPNGs(files);
+            for(int i = 0; i < images.size; i++){
+                assertPixels(images.get(i), result.get(i));
+            }
+
+            files.add(directory.child("missing.png"));
+            try{
+                PixmapIO.readPNGs(files);
+                fail("A file is missing");
+            }catch(ArcRuntimeException expected){
+            }
+        }finally{
+            directory.deleteDirectory();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+import arc.func.*;
+import arc.graphics.*;
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/** Checks that the bulk and parallel kernels give exactly the same results as the original per-pixel implementations. */
+public class PixmapsTest{
+    static ForkJoinPool pool;
+    static ForkJoinPool lastPool;
+    static int lastBandPixels;
+
+    @BeforeClass
+    public static void setup(){
+        lastPool = ParallelPixmaps.pool;
+        lastBandPixels = ParallelPixmaps.minBandPixels;
+        //a dedicated pool, so that work is split even on machines with a single core
+        pool = Threads.forkJoinPool("PixmapsTest", 4);
+        ParallelPixmaps.pool = pool;
+    }
+
+    @AfterClass
+    public static void cleanup(){
+        ParallelPixmaps.pool = lastPool;
+        ParallelPixmaps.minBandPixels = lastBandPixels;
+        pool.shutdown();
+    }
+
+    /** A sprite: transparent background, opaque shapes with some noise, and half-transparent edges. */
+    static Pixmap sprite(int width, int height, long seed){
+        Rand rand = new Rand(seed);
+        Pixmap pixmap = new Pixmap(width, height);
+        for(int i = 0; i < 6; i++){
+            int color = rand.nextInt() | 0xff;
+            pixmap.fillCircle(rand.random(width), rand.random(height), rand.random(2, Math.max(width, height) / 4 + 2), color);
+        }
+        for(int y = 0; y < height; y++){
+            for(int x = 0; x < width; x++){
+                int color = pixmap.getRaw(x, y);
+                if(color != 0 && rand.chance(0.1)) pixmap.setRaw(x, y, (color & 0xffffff00) | rand.random(1, 255));
+                if(color != 0 && rand.chance(0.05)) pixmap.setRaw(x, y, color ^ 0x10203000);
+            }
+        }
+        return pixmap;
+    }
+
+    static void assertPixels(Pixmap expected, Pixmap actual){
+        assertEquals(expected.width, actual.width);
+        assertEquals(expected.height, actual.height);
+        for(int y = 0; y < expected.height; y++){
+            for(int x = 0; x < expected.width; x++){
+                if(expected.getRaw(x, y) != actual.getRaw(x, y)){
+                    fail("Pixel " + x + ", " + y + " differs: " + Integer.toHexString(expected.getRaw(x, y)) + " != " + Integer.toHexString(actual.getRaw(x, y)));
+                }
+            }
+        }
+    }
+
+    /** Runs a kernel serially, in parallel with tiny bands, and with the reference implementation, and compares the results. */
+    static void check(Func<Pixmap, Pixmap> reference, Func<Pixmap, Pixmap> serial, Func<Pixmap, Pixmap> parallel){
+        int[][] sizes = {{1, 1}, {3, 17}, {32, 32}, {67, 41}, {200, 150}};
+        for(int[] size : sizes){
+            Pixmap base = sprite(size[0], size[1], size[0] * 31L + size[1]);
+            Pixmap expected = reference.get(base.copy());
+
+            assertPixels(expected, serial.get(base.copy()));
+            for(int bandPixels : new int[]{1, 100, 1 << 20}){
+                ParallelPixmaps.minBandPixels = bandPixels;
+                assertPixels(expected, parallel.get(base.copy()));
+            }
+        }
+    }
+
+    @Test
+    public void rows(){
+        Pixmap pixmap = sprite(37, 21, 5);
+        int[] row = new int[37 + 3];
+        pixmap.getRow(20, row, 3);
+        for(int x = 0; x < 37; x++){
+            assertEquals(pixmap.getRaw(x, 20), row[x + 3]);
+        }
+        row[5] = 0x11223344;
+        pixmap.setRow(0, row, 3);
+        assertEquals(0x11223344, pixmap.getRaw(2, 0));
+
+        //views do not depend on the position of the pixel buffer
+        Pixmaps.flip(pixmap);
+        int[] all = pixmap.toIntArray();
+        assertEquals(37 * 21, all.length);
+        assertEquals(0x11223344, all[2 + 20 * 37]);
+        all[0] = 5;
+        pixmap.setPixels(all);
+        assertEquals(5, pixmap.getRaw(0, 0));
+        assertEquals(37 * 21, pixmap.asIntBuffer().remaining());
+    }
+
+    @Test
+    public void kernels(){
+        IntIntf func = c -> (c >>> 8) | (c << 24);
+        check(p -> {
+            for(int y = 0; y < p.height; y++){
+                for(int x = 0; x < p.width; x++){
+                    p.setRaw(x, y, func.get(p.getRaw(x, y)));
+                }
+            }
+            return p;
+        }, p -> {
+            p.replace(func);
+            return p;
+        }, p -> {
+            ParallelPixmaps.replace(p, func);
+            return p;
+        });
+
+        for(int radius : new int[]{1, 3}){
+            check(p -> referenceOutline(p, 0xff00ffff, radius), p -> p.outline(0xff00ffff, radius), p -> ParallelPixmaps.outline(p, 0xff00ffff, radius));
+        }
+
+        check(PixmapsTest::referenceBleed, Pixmaps::bleed, ParallelPixmaps::bleed);
+        for(int iterations : new int[]{1, 2, Integer.MAX_VALUE}){
+            check(p -> referenceBleed(p, iterations), p -> Pixmaps.bleed(p, iterations), p -> ParallelPixmaps.bleed(p, iterations));
+        }
+
+        check(p -> referenceMedian(p, 2, 0.5), p -> Pixmaps.median(p, 2, 0.5), p -> ParallelPixmaps.median(p, 2, 0.5));
+
+        check(p -> {
+            referenceAntialias(p);
+            return p;
+        }, p -> {
+            Pixmaps.antialias(p);
+            return p;
+        }, p -> {
+            ParallelPixmaps.antialias(p);
+            return p;
+        });
+
+        for(float scale : new float[]{0.5f, 1.7f, 3f}){
+            check(p -> referenceScale(p, scale, scale * 0.8f), p -> Pixmaps.scale(p, scale, scale * 0.8f), p -> ParallelPixmaps.scale(p, scale, scale * 0.8f));
+        }
+
+        int[] count = {0};
+        ParallelPixmaps.minBandPixels = 1;
+        ParallelPixmaps.each(sprite(50, 40, 1), (x, y) -> {
+            synchronized(count){
+                count[0]++;
+            }
+        });
+        assertEquals(50 * 40, count[0]);
+    }
+
+    //the original per-pixel implementations
+
+    static Pixmap referenceOutline(Pixmap input, int color, int radius){
+        Pixmap pixmap = input.copy();
+        for(int y = 0; y < input.height; y++){
+            for(int x = 0; x < input.width; x++){
+                if(input.getA(x, y) == 0){
+                    boolean found = false;
+                    outer:
+                    for(int dx = -radius; dx <= radius; dx++){
+                        for(int dy = -radius; dy <= radius; dy++){
+                            if((dx*dx + dy*dy <= radius*radius) && !Pixmap.empty(input.get(x + dx, y + dy))){
+                                found = true;
+                                break outer;
+                            }
+                        }
+                    }
+                    if(found){
+                        pixmap.setRaw(x, y, color);
+                    }
+                }
+            }
+        }
+        return pixmap;
+    }
+
+    static final int[] offsets = {1, 0, 1, 1, 0, 1, -1, 1, -1, 0, -1, -1, 0, -1, 1, -1};
+
+    static Pixmap referenceBleed(Pixmap image){
+        int w = image.width, h = image.height;
+        ByteBuffer pixels = image.pixels;
+
+        for(int y = 0; y < h; y++){
+            for(int x = 0; x < w; x++){
+                if(image.empty(x, y)){
+                    int r = 0, g = 0, b = 0, count = 0;
+                    int pi = (x + y*w)*4;
+
+                    for(int i = 0; i < 16; i += 2){
+                        int nx = x + offsets[i];
+                        int ny = y + offsets[i + 1];
+                        int index = (ny*w + nx)*4;
+                        if(nx >= 0 && ny >= 0 && nx < w && ny < h && pixels.get(index + 3) != 0){
+                            r += pixels.get(index) & 0xff;
+                            g += pixels.get(index + 1) & 0xff;
+                            b += pixels.get(index + 2) & 0xff;
+                            count ++;
+                        }
+                    }
+
+                    if(count > 0){
+                        pixels.put(pi, (byte)(r / count));
+                        pixels.put(pi + 1, (byte)(g / count));
+                        pixels.put(pi + 2, (byte)(b / count));
+                    }
+                }
+            }
+        }
+        return image;
+    }
+
+    static Pixmap referenceBleed(Pixmap image, int maxIterations){
+        int total = image.width * image.height;
+        ByteBuffer pixels = image.pixels;
+
+        boolean[] data = new boolean[total];
+        int[] pending = new int[total];
+        int[] changing = new int[total];
+        int pendingSize = 0, changingSize = 0;
+
+        for(int i = 0; i < total; i++){
+            if(pixels.get(i * 4 + 3) == 0){
+                pending[pendingSize++] = i;
+            }else{
+                data[i] = true;
+            }
+        }
+
+        int iterations = 0;
+        int lastPending = -1;
+        while(pendingSize > 0 && pendingSize != lastPending && iterations < maxIterations){
+            lastPending = pendingSize;
+            int index = 0;
+
+            while(index < pendingSize){
+                int pixelIndex = pending[index++];
+                int x = pixelIndex % image.width;
+                int y = pixelIndex / image.width;
+                int r = 0, g = 0, b = 0;
+                int count = 0;
+
+                for(int i = 0; i < 16; i += 2){
+                    int nx = x + offsets[i];
+                    int ny = y + offsets[i + 1];
+
+                    if(nx < 0 || nx >= image.width || ny < 0 || ny >= image.height) continue;
+
+                    int currentPixelIndex = ny * image.width + nx;
+                    if(data[currentPixelIndex]){
+                        int si = currentPixelIndex * 4;
+                        r += pixels.get(si) & 0xff;
+                        g += pixels.get(si + 1) & 0xff;
+                        b += pixels.get(si + 2) & 0xff;
+                        count++;
+                    }
+                }
+
+                if(count != 0){
+                    int idx = pixelIndex * 4;
+                    pixels.put(idx, (byte)(r / count));
+                    pixels.put(idx + 1, (byte)(g / count));
+                    pixels.put(idx + 2, (byte)(b / count));
+
+                    index--;
+                    int value = pending[index];
+                    pendingSize--;
+                    pending[index] = pending[pendingSize];
+                    changing[changingSize] = value;
+                    changingSize++;
+                }
+            }
+
+            for(int i = 0; i < changingSize; i++){
+                data[changing[i]] = true;
+            }
+            changingSize = 0;
+            iterations++;
+        }
+
+        return image;
+    }
+
+    static Pixmap referenceMedian(Pixmap input, int radius, double percentile){
+        IntSeq tmp = new IntSeq();
+        Pixmap pixmap = new Pixmap(input.width, input.height);
+        input.each((x, y) -> {
+            tmp.clear();
+            Geometry.circle(x, y, pixmap.width, pixmap.height, radius, (cx, cy) -> tmp.add(input.get(cx, cy)));
+            tmp.sort();
+            pixmap.setRaw(x, y, tmp.get(Mathf.clamp((int)(tmp.size * percentile), 0, tmp.size - 1)));
+        });
+        return pixmap;
+    }
+
+    static Pixmap referenceScale(Pixmap input, float scalex, float scaley){
+        Pixmap pixmap = new Pixmap((int)(input.width * scalex), (int)(input.height * scaley));
+        for(int y = 0; y < pixmap.height; y++){
+            for(int x = 0; x < pixmap.width; x++){
+                pixmap.setRaw(x, y, input.getRaw((int)(x / scalex), (int)(y / scaley)));
+            }
+        }
+        return pixmap;
+    }
+
+    static void referenceAntialias(Pixmap pixmap){
+        Pixmap prev = pixmap.copy();
+
+        int[] p = new int[9];
+
+        for(int y = 0; y < prev.height; y++){
+            for(int x = 0; x < prev.width; x++){
+                int
+                A = prev.getClamp(x - 1, y + 1),
+                B = prev.getClamp(x, y + 1),
+                C = prev.getClamp(x + 1, y + 1),
+                D = prev.getClamp(x - 1, y),
+                E = prev.getClamp(x, y),
+                F = prev.getClamp(x + 1, y),
+                G = prev.getClamp(x - 1, y - 1),
+                H = prev.getClamp(x, y - 1),
+                I = prev.getClamp(x + 1, y - 1);
+
+                Arrays.fill(p, E);
+
+                if(D == B && D != H && B != F) p[0] = D;
+                if((D == B && D != H && B != F && E != C) || (B == F && B != D && F != H && E != A)) p[1] = B;
+                if(B == F && B != D && F != H) p[2] = F;
+                if((H == D && H != F && D != B && E != A) || (D == B && D != H && B != F && E != G)) p[3] = D;
+                if((B == F && B != D && F != H && E != I) || (F == H && F != B && H != D && E != C)) p[5] = F;
+                if(H == D && H != F && D != B) p[6] = D;
+                if((F == H && F != B && H != D && E != G) || (H == D && H != F && D != B && E != I)) p[7] = H;
+                if(F == H && F != B && H != D) p[8] = F;
+
+                float sumr = 0f, sumg = 0f, sumb = 0f, suma = 0f;
+
+                for(int val : p){
+                    float r = ((val & 0xff000000) >>> 24) / 255f;
+                    float g = ((val & 0x00ff0000) >>> 16) / 255f;
+                    float b = ((val & 0x0000ff00) >>> 8) / 255f;
+                    float a = ((val & 0x000000ff)) / 255f;
+
+                    sumr += r * a;
+                    sumg += g * a;
+                    sumb += b * a;
+                    suma += a;
+                }
+
+                float fm = suma <= 0.001f ? 0f : (1f / suma);
+                sumr *= fm;
+                sumg *= fm;
+                sumb *= fm;
+
+                float total = 0;
+                float tr = 0f, tg = 0f, tb = 0f, ta = 0f;
+
+                for(int val : p){
+                    float r = ((val & 0xff000000) >>> 24) / 255f;
+                    float g = ((val & 0x00ff0000) >>> 16) / 255f;
+                    float b = ((val & 0x0000ff00) >>> 8) / 255f;
+                    float a = ((val & 0x000000ff)) / 255f;
+
+                    float t = (1f - a);
+
+                    r += t * (sumr - r);
+                    g += t * (sumg - g);
+                    b += t * (sumb - b);
+
+                    tr += r;
+                    tg += g;
+                    tb += b;
+                    ta += a;
+                    total += 1f;
+                }
+
+                fm = (1f / total);
+                pixmap.setRaw(x, y, Color.rgba8888(tr * fm, tg * fm, tb * fm, ta * fm));
+            }
+        }
+
+        prev.dispose();
+    }
+}
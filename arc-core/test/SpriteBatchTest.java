@@ -0,0 +1,132 @@
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SpriteBatchTest{
+    static final Texture[] textures = new Texture[8];
+    static final float[] verts = new float[SpriteBatch.SPRITE_SIZE];
+
+    static{
+        for(int i = 0; i < textures.length; i++){
+            textures[i] = Texture.createEmpty(null);
+        }
+    }
+
+    @Test
+    public void radixMatchesStandard(){
+        //with one texture and blending, texture sorting must not change the order
+        RecordingBatch standard = new RecordingBatch(), radix = new RecordingBatch();
+        radix.setSortTextures(true);
+
+        fill(standard, 50000, 1, 500);
+        fill(radix, 50000, 1, 500);
+
+        assertEquals(standard.drawn, radix.drawn);
+    }
+
+    @Test
+    public void radixGroupsTextures(){
+        RecordingBatch standard = new RecordingBatch(), radix = new RecordingBatch();
+        radix.setSortTextures(true);
+
+        fill(standard, 20000, textures.length, 4);
+        fill(radix, 20000, textures.length, 4);
+
+        assertEquals(standard.drawn.size, radix.drawn.size);
+        assertTrue("Expected fewer texture switches: " + radix.switches + " >= " + standard.switches, radix.switches < standard.switches);
+
+        //layers must still be drawn in ascending order
+        for(int i = 1; i < radix.drawn.size; i++){
+            assertTrue(radix.drawnZ.get(i - 1) <= radix.drawnZ.get(i));
+        }
+    }
+
+    @Test
+    public void radixRunnableBarrier(){
+        RecordingBatch batch = new RecordingBatch();
+        batch.setSortTextures(true);
+        batch.begin();
+
+        batch.z(1f);
+        batch.draw(textures[1], 0);
+        batch.draw(textures[0], 1);
+        batch.draw(() -> batch.drawn.add(-1));
+        batch.draw(textures[1], 2);
+        batch.draw(textures[0], 3);
+        batch.draw(textures[1], 4);
+
+        batch.end();
+
+        assertEquals(IntSeq.with(0, 1, -1, 2, 4, 3), batch.drawn);
+    }
+
+    static void fill(RecordingBatch batch, int requests, int textureCount, int layers){
+        Random rand = new Random(1);
+        batch.begin();
+        for(int i = 0; i < requests; i++){
+            batch.z(rand.nextInt(layers));
+            batch.draw(textures[rand.nextInt(textureCount)], i);
+        }
+        batch.end();
+    }
+
+    static class RecordingBatch extends SpriteBatch{
+        IntSeq drawn = new IntSeq();
+        FloatSeq drawnZ = new FloatSeq();
+        int switches;
+        boolean record = true;
+        Texture last;
+
+        RecordingBatch(){
+            super(0);
+        }
+
+        void begin(){
+            drawn.clear();
+            drawnZ.clear();
+            switches = 0;
+            last = null;
+            setSort(true);
+        }
+
+        void end(){
+            flush();
+            setSort(false);
+        }
+
+        void draw(Texture texture, int id){
+            verts[0] = id;
+            verts[1] = z;
+            draw(texture, verts, 0, verts.length);
+        }
+
+        @Override
+        public void z(float z){
+            super.z(z);
+        }
+
+        @Override
+        public void draw(Runnable request){
+            super.draw(request);
+        }
+
+        @Override
+        protected void drawSuper(Texture texture, float[] spriteVertices, int offset, int count){
+            if(!record) return;
+            if(texture != last){
+                switches++;
+                last = texture;
+            }
+            //vertices from the same request may be merged, so record every sprite
+            for(int i = offset; i < offset + count; i += SPRITE_SIZE){
+                drawn.add((int)spriteVertices[i]);
+                drawnZ.add(spriteVertices[i + 1]);
+            }
+        }
+    }
+}
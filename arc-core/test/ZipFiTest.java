@@ -0,0 +1,99 @@
+import arc.files.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+public class ZipFiTest{
+    static Fi directory;
+
+    @BeforeClass
+    public static void setup() throws IOException{
+        directory = new Fi(java.nio.file.Files.createTempDirectory("zip").toFile());
+    }
+
+    @AfterClass
+    public static void cleanup(){
+        directory.deleteDirectory();
+    }
+
+    static Fi zip(String name, byte[] prefix, String... entries) throws IOException{
+        Fi file = directory.child(name);
+        try(OutputStream out = file.write()){
+            out.write(prefix);
+            ZipOutputStream zip = new ZipOutputStream(out);
+            for(String entry : entries){
+                zip.putNextEntry(new ZipEntry(entry));
+                if(!entry.endsWith("/")){
+                    zip.write(entry.getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+            zip.finish();
+        }
+        return file;
+    }
+
+    static String text(Fi file){
+        return file.readString("UTF-8");
+    }
+
+    @Test
+    public void index() throws IOException{
+        //directories are listed after their children, and some only exist in the paths of their children
+        Fi file = zip("index.zip", new byte[0], "a/b/c.txt", "x.txt", "a/b/d.png", "a/", "a\\e.txt", "ünicode/ö.txt");
+
+        for(boolean mapped : new boolean[]{false, true}){
+            ZipFi root = new ZipFi(file, mapped);
+
+            assertEquals("", root.path());
+            assertNull(root.parent());
+            assertTrue(root.isDirectory());
+            assertEquals(Seq.with("a/", "x.txt", "ünicode/"), Seq.with(root.list()).map(Fi::path));
+
+            Fi a = root.child("a");
+            assertTrue(a.exists());
+            assertTrue(a.isDirectory());
+            assertEquals("a", a.name());
+            assertEquals("a/", a.path());
+            assertSame(root, a.parent());
+            assertSame(a, root.child("a"));
+            assertEquals(Seq.with("a/b/", "a/e.txt"), Seq.with(a.list()).map(Fi::path));
+
+            Fi c = a.child("b").child("c.txt");
+            assertFalse(c.isDirectory());
+            assertEquals("c.txt", c.name());
+            assertEquals("txt", c.extension());
+            assertEquals("a/b/c.txt", text(c));
+            assertEquals(9, c.length());
+            assertSame(c, root.child("a/b/c.txt"));
+            assertSame(a, c.parent().parent());
+            assertEquals(0, c.list().length);
+
+            assertEquals("a\\e.txt", text(a.child("e.txt")));
+            assertEquals("ünicode/ö.txt", text(root.child("ünicode").child("ö.txt")));
+            assertEquals(Seq.with("a/b/c.txt", "a/b/d.png", "a/e.txt", "x.txt", "ünicode/ö.txt"), root.findAll().map(Fi::path).sort());
+
+            assertFalse(root.child("missing").exists());
+            assertFalse(a.child("b/missing.txt").exists());
+            assertFalse(c.child("c.txt").exists());
+
+            root.delete();
+        }
+    }
+
+    @Test
+    public void prefixed() throws IOException{
+        //self-extracting archives have other data in front of them
+        Fi file = zip("prefixed.zip", new byte[1000], "one.txt", "dir/two.txt");
+
+        ZipFi root = new ZipFi(file, true);
+        assertEquals("one.txt", text(root.child("one.txt")));
+        assertEquals("dir/two.txt", text(root.child("dir").child("two.txt")));
+        root.delete();
+    }
+}
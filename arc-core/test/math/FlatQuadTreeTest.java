@@ -0,0 +1,87 @@
+package math;
+
+import arc.math.geom.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FlatQuadTreeTest{
+    static final float worldSize = 4000f;
+
+    @Test
+    public void matchesBruteForce(){
+        Random rand = new Random(3);
+        int count = 5000;
+        float[] boxes = new float[count * 4];
+        IntSeq ids = new IntSeq();
+
+        for(int i = 0; i < count; i++){
+            randomBox(rand, boxes, i);
+            ids.add(i);
+        }
+
+        FlatQuadTree tree = new FlatQuadTree(new Rect(0, 0, worldSize, worldSize), 6);
+        tree.fill(ids, (id, out) -> out.set(boxes[id * 4], boxes[id * 4 + 1], boxes[id * 4 + 2], boxes[id * 4 + 3]));
+        check(tree, boxes, null, rand);
+
+        //move, resize and remove objects incrementally
+        boolean[] removed = new boolean[count];
+        for(int i = 0; i < count; i++){
+            if(rand.nextInt(10) == 0){
+                removed[i] = true;
+                assertTrue(tree.remove(i));
+                assertFalse(tree.remove(i));
+            }else if(rand.nextBoolean()){
+                randomBox(rand, boxes, i);
+                tree.update(i, boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+            }
+        }
+        check(tree, boxes, removed, rand);
+
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertFalse(tree.any(-worldSize, -worldSize, worldSize * 3, worldSize * 3));
+    }
+
+    static void check(FlatQuadTree tree, float[] boxes, boolean[] removed, Random rand){
+        Rect rect = new Rect();
+        IntSeq result = new IntSeq(), expected = new IntSeq();
+        int count = boxes.length / 4;
+
+        for(int q = 0; q < 500; q++){
+            float w = rand.nextFloat() * 600f, h = rand.nextFloat() * 600f;
+            float x = rand.nextFloat() * (worldSize + 400f) - 200f - w / 2f, y = rand.nextFloat() * (worldSize + 400f) - 200f - h / 2f;
+
+            expected.clear();
+            for(int i = 0; i < count; i++){
+                if((removed == null || !removed[i]) && rect.set(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]).overlaps(x, y, w, h)){
+                    expected.add(i);
+                }
+            }
+
+            result.clear();
+            tree.intersect(x, y, w, h, result);
+            result.sort();
+            assertEquals(expected, result);
+            assertEquals(expected.size > 0, tree.any(x, y, w, h));
+
+            int found = tree.find(x, y, w, h, id -> id % 2 == 1);
+            boolean anyOdd = false;
+            for(int i = 0; i < expected.size; i++) anyOdd |= expected.get(i) % 2 == 1;
+            assertEquals(anyOdd, found != -1);
+            if(found != -1) assertTrue(expected.contains(found));
+        }
+    }
+
+    static void randomBox(Random rand, float[] boxes, int i){
+        //mostly small objects, with a few large or partially outside ones
+        float size = rand.nextInt(50) == 0 ? rand.nextFloat() * 3000f : rand.nextFloat() * 40f;
+        boxes[i * 4] = rand.nextFloat() * (worldSize + 200f) - 100f;
+        boxes[i * 4 + 1] = rand.nextFloat() * (worldSize + 200f) - 100f;
+        boxes[i * 4 + 2] = size;
+        boxes[i * 4 + 3] = size * (0.5f + rand.nextFloat());
+    }
+}
@@ -46,6 +46,95 @@ public class PoolTest{
         Log.info("Total memory allocated: @ mb", Strings.fixed((post - start)/1024f/1024f, 1));
     }
 
+    @Test
+    public void concurrent() throws Exception{
+        ConcurrentPool<int[]> pool = new ConcurrentPool<int[]>(16, 1000, 8){
+            @Override
+            protected int[] newObject(){
+                return new int[1];
+            }
+
+            @Override
+            protected void reset(int[] object){
+                object[0] = 0;
+            }
+        };
+
+        int threads = 4, iterations = 100000;
+        Thread[] workers = new Thread[threads];
+        Throwable[] error = {null};
+
+        for(int t = 0; t < threads; t++){
+            workers[t] = new Thread(() -> {
+                int[][] held = new int[16][];
+                for(int i = 0; i < iterations; i++){
+                    for(int j = 0; j < held.length; j++){
+                        held[j] = pool.obtain();
+                        if(held[j][0] != 0) error[0] = new AssertionError("Object was not reset.");
+                        held[j][0] = 1;
+                    }
+                    for(int j = 0; j < held.length; j++){
+                        pool.free(held[j]);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for(Thread worker : workers){
+            worker.join();
+        }
+
+        if(error[0] != null) throw new AssertionError(error[0]);
+
+        long obtained = (long)threads * iterations * 16;
+        Assert.assertEquals(obtained, pool.getHits() + pool.getMisses());
+        Assert.assertTrue(pool.getMisses() < obtained / 100);
+
+        Log.info("Concurrent pool: @ hits, @ misses, @ discards, @ free", pool.getHits(), pool.getMisses(), pool.getDiscards(), pool.getFree());
+    }
+
+    @Test
+    public void concurrentThreadsEnd() throws Exception{
+        int max = 20;
+        ConcurrentPool<int[]> pool = new ConcurrentPool<int[]>(4, max, 8){
+            @Override
+            protected int[] newObject(){
+                return new int[1];
+            }
+        };
+
+        //objects freed by a thread stay in its cache until another thread releases it after it ends
+        int[][] freed = new int[4][];
+        Thread first = new Thread(() -> {
+            for(int i = 0; i < freed.length; i++) freed[i] = pool.obtain();
+            for(int[] object : freed) pool.free(object);
+        });
+        first.start();
+        first.join();
+
+        int[][] obtained = new int[4][];
+        Thread second = new Thread(() -> {
+            for(int i = 0; i < obtained.length; i++) obtained[i] = pool.obtain();
+        });
+        second.start();
+        second.join();
+        Assert.assertEquals(ObjectSet.with(freed), ObjectSet.with(obtained));
+
+        //short-lived threads do not grow the pool past max
+        for(int t = 0; t < 50; t++){
+            Thread thread = new Thread(() -> {
+                int[][] held = new int[max + 10][];
+                for(int i = 0; i < held.length; i++) held[i] = pool.obtain();
+                for(int[] object : held) pool.free(object);
+            });
+            thread.start();
+            thread.join();
+            Assert.assertTrue(pool.getFree() <= max);
+        }
+        Assert.assertEquals(max, pool.getFree());
+    }
+
     long memory(){
         return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
     }
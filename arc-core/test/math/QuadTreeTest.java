@@ -0,0 +1,98 @@
+package math;
+
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class QuadTreeTest{
+
+    @Test
+    public void parallelFillAndSnapshot() throws Exception{
+        Random rand = new Random(7);
+        float world = 10000f;
+        Seq<Box> boxes = new Seq<>();
+        for(int i = 0; i < 100000; i++){
+            float size = rand.nextFloat() * 30f + 1f;
+            boxes.add(new Box(i, rand.nextFloat() * world, rand.nextFloat() * world, size));
+        }
+
+        QuadTree<Box> serial = new QuadTree<>(new Rect(0, 0, world, world)), parallel = new QuadTree<>(new Rect(0, 0, world, world));
+        serial.fill(boxes);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.fill(boxes, pool);
+        assertEquals(serial.totalObjects, parallel.totalObjects);
+
+        QuadTreeSnapshot<Box> snapshot = parallel.freeze();
+        assertEquals(boxes.size, snapshot.size());
+
+        //QuadTree queries are not thread-safe, so compute the expected results up front
+        int queries = 200;
+        float[] rects = new float[queries * 4];
+        Seq<Seq<Box>> expected = new Seq<>();
+        for(int q = 0; q < queries; q++){
+            float x = rand.nextFloat() * world, y = rand.nextFloat() * world, w = rand.nextFloat() * 400f, h = rand.nextFloat() * 400f;
+            rects[q * 4] = x;
+            rects[q * 4 + 1] = y;
+            rects[q * 4 + 2] = w;
+            rects[q * 4 + 3] = h;
+
+            Seq<Box> result = new Seq<>();
+            serial.intersect(x, y, w, h, result);
+            expected.add(result.sort(b -> b.id));
+        }
+
+        //query the snapshot from several threads at once
+        AtomicInteger failures = new AtomicInteger();
+        Future<?>[] futures = new Future[4];
+        for(int t = 0; t < futures.length; t++){
+            futures[t] = pool.submit(() -> {
+                Seq<Box> result = new Seq<>();
+                for(int q = 0; q < queries; q++){
+                    float x = rects[q * 4], y = rects[q * 4 + 1], w = rects[q * 4 + 2], h = rects[q * 4 + 3];
+                    result.clear();
+                    snapshot.intersect(x, y, w, h, result);
+                    result.sort(b -> b.id);
+
+                    if(!expected.get(q).equals(result) || snapshot.any(x, y, w, h) != result.any()){
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        for(Future<?> future : futures) future.get();
+        assertEquals(0, failures.get());
+
+        //moving objects must not affect the snapshot
+        for(Box box : boxes) box.x += world * 2f;
+        assertTrue(snapshot.any(0, 0, world, world));
+        assertNotNull(snapshot.find(0, 0, world, world, b -> b.id == 5));
+
+        pool.shutdown();
+    }
+
+    static class Box implements QuadTreeObject{
+        final int id;
+        float x, y, size;
+
+        Box(int id, float x, float y, float size){
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.set(x, y, size, size);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package utils;
+
+import arc.assets.*;
+import arc.assets.loaders.*;
+import arc.files.*;
+import arc.graphics.*;
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class AssetManagerTest{
+    static final FileHandleResolver resolver = Fi::new;
+
+    /** "Decodes" a string asset on a worker thread, keeping per-asset state like the built-in concurrent loaders. */
+    static class Text{
+        final String value;
+
+        Text(String value){
+            this.value = value;
+        }
+    }
+
+    static class TextLoader extends AsynchronousAssetLoader<Text, AssetLoaderParameters<Text>>{
+        final ObjectMap<String, String> decoded = new ObjectMap<>();
+        final AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        final Seq<String> syncOrder = new Seq<>(), discarded = new Seq<>();
+        final ObjectIntMap<String> loads = new ObjectIntMap<>();
+
+        TextLoader(){
+            super(resolver);
+        }
+
+        @Override
+        public void loadAsync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Text> parameter){
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try{
+                Thread.sleep(5);
+            }catch(InterruptedException e){
+                throw new RuntimeException(e);
+            }
+            running.decrementAndGet();
+
+            synchronized(decoded){
+                decoded.put(fileName, fileName.toUpperCase());
+                loads.increment(fileName);
+            }
+        }
+
+        @Override
+        public void discard(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Text> parameter){
+            discarded.add(fileName);
+            synchronized(decoded){
+                decoded.remove(fileName);
+            }
+        }
+
+        @Override
+        public Text loadSync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Text> parameter){
+            syncOrder.add(fileName);
+            synchronized(decoded){
+                return new Text(decoded.remove(fileName));
+            }
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, AssetLoaderParameters<Text> parameter){
+            return null;
+        }
+
+        @Override
+        public boolean isConcurrent(){
+            return true;
+        }
+    }
+
+    /** An asset that needs two text assets, which must be loaded before its own asynchronous part. */
+    static class Pair{
+        final String value;
+
+        Pair(String value){
+            this.value = value;
+        }
+    }
+
+    static class PairLoader extends AsynchronousAssetLoader<Pair, AssetLoaderParameters<Pair>>{
+        String value;
+
+        PairLoader(){
+            super(resolver);
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, AssetLoaderParameters<Pair> parameter){
+            return Seq.with(new AssetDescriptor<>(fileName + ".a", Text.class), new AssetDescriptor<>(fileName + ".b", Text.class));
+        }
+
+        @Override
+        public void loadAsync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Pair> parameter){
+            value = manager.get(fileName + ".a", Text.class).value + manager.get(fileName + ".b", Text.class).value;
+        }
+
+        @Override
+        public Pair loadSync(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Pair> parameter){
+            return new Pair(value);
+        }
+    }
+
+    AssetManager create(int workers, TextLoader texts){
+        AssetManager manager = new AssetManager(resolver, false);
+        manager.setLoader(Text.class, texts);
+        manager.setLoader(Pair.class, new PairLoader());
+        manager.setWorkers(workers);
+        return manager;
+    }
+
+    @Test
+    public void parallel(){
+        TextLoader texts = new TextLoader();
+        AssetManager manager = create(4, texts);
+
+        for(int i = 0; i < 40; i++){
+            manager.load("text" + i, Text.class);
+        }
+        manager.load("pair", Pair.class);
+        manager.finishLoading();
+
+        for(int i = 0; i < 40; i++){
+            assertEquals("TEXT" + i, manager.get("text" + i, Text.class).value);
+        }
+        assertEquals("PAIR.APAIR.B", manager.get("pair", Pair.class).value);
+        assertEquals(3, manager.getReferenceCount("pair.a") + manager.getReferenceCount("pair.b") + manager.getReferenceCount("pair"));
+        assertTrue("async parts should overlap: " + texts.maxRunning.get(), texts.maxRunning.get() > 1);
+        assertTrue(manager.getDiagnostics().contains(TextLoader.class.getName() + ": loaded 42"));
+
+        manager.dispose();
+    }
+
+    @Test
+    public void priority(){
+        for(int workers : new int[]{1, 3}){
+            TextLoader texts = new TextLoader();
+            AssetManager manager = create(workers, texts);
+
+            manager.load("low", Text.class, null, -1);
+            manager.load("normal", Text.class);
+            manager.load("high", Text.class, null, 10);
+            manager.load("higher", Text.class, null, 20);
+            manager.finishLoading();
+
+            assertEquals(Seq.with("higher", "high", "normal", "low"), texts.syncOrder);
+            manager.dispose();
+        }
+    }
+
+    @Test
+    public void unloadQueued(){
+        TextLoader texts = new TextLoader();
+        AssetManager manager = create(2, texts);
+
+        for(int i = 0; i < 10; i++){
+            manager.load("text" + i, Text.class);
+        }
+        //starts loading some of the queued assets ahead of time
+        manager.update();
+        manager.unload("text9");
+        manager.unload("text1");
+        manager.finishLoading();
+
+        assertFalse(manager.isLoaded("text1"));
+        assertFalse(manager.isLoaded("text9"));
+        assertEquals(8, manager.getLoadedAssets());
+        assertTrue(texts.decoded.isEmpty());
+        //discarded assets are never created
+        assertFalse(texts.syncOrder.contains("text1") || texts.syncOrder.contains("text9"));
+        manager.dispose();
+    }
+
+    @Test
+    public void queuedDependency(){
+        TextLoader texts = new TextLoader();
+        AssetManager manager = create(4, texts);
+
+        int[] callbacks = {0};
+        AssetLoaderParameters<Text> params = new AssetLoaderParameters<>((m, name, type) -> callbacks[0]++);
+        manager.load("pair.a", Text.class, params);
+        //loaded first, so that its dependencies are injected while the queued text is loading ahead of time
+        manager.load("pair", Pair.class, null, 10);
+        manager.finishLoading();
+
+        //the dependency takes over the task that was started for the queued asset, instead of loading the file again
+        assertEquals(1, texts.loads.get("pair.a", 0));
+        assertEquals("PAIR.APAIR.B", manager.get("pair", Pair.class).value);
+        assertEquals(2, manager.getReferenceCount("pair.a"));
+        assertEquals(1, callbacks[0]);
+        assertTrue(texts.discarded.isEmpty());
+        assertTrue(texts.decoded.isEmpty());
+
+        manager.unload("pair");
+        assertEquals(1, manager.getReferenceCount("pair.a"));
+        manager.dispose();
+    }
+
+    @Test
+    public void recycledPixmapsFreed() throws IOException{
+        AssetManager manager = new AssetManager(resolver, false);
+        TextureLoader loader = new TextureLoader(resolver);
+        manager.setLoader(Texture.class, loader);
+
+        Fi png = new Fi(File.createTempFile("page", ".png"));
+        png.file().deleteOnExit();
+        PixmapIO.writePng(png, new Pixmap(16, 16));
+
+        //the last queued texture fails, so no later texture frees the pixmaps kept for reuse
+        manager.load("missing.png", Texture.class).errored = e -> {};
+        loader.loadAsync(manager, png.path(), png, null);
+        loader.discard(manager, png.path(), png, null);
+        assertEquals(1, loader.getRecycled());
+
+        manager.finishLoading();
+        assertFalse(manager.isLoaded("missing.png"));
+        assertEquals(0, loader.getRecycled());
+        manager.dispose();
+    }
+
+    @Test
+    public void recycledPixmapsKeptOnError() throws IOException{
+        AssetManager manager = new AssetManager(resolver, false);
+        TextureLoader loader = new TextureLoader(resolver);
+        manager.setLoader(Texture.class, loader);
+
+        Fi png = new Fi(File.createTempFile("page", ".png"));
+        png.file().deleteOnExit();
+        PixmapIO.writePng(png, new Pixmap(16, 16));
+        manager.load("missing.png", Texture.class);
+        loader.loadAsync(manager, png.path(), png, null);
+        loader.discard(manager, png.path(), png, null);
+        assertEquals(1, loader.getRecycled());
+
+        //same size, but the image data is cut off
+        byte[] bytes = png.readBytes();
+        png.writeBytes(Arrays.copyOf(bytes, 40));
+        try{
+            loader.loadAsync(manager, png.path(), png, null);
+            fail("Truncated PNG was loaded.");
+        }catch(RuntimeException e){
+            //expected
+        }
+        assertEquals(1, loader.getRecycled());
+
+        manager.clear();
+        manager.dispose();
+    }
+
+    static class Blob implements Disposable{
+        final int size;
+        boolean disposed;
+
+        Blob(int size){
+            this.size = size;
+        }
+
+        @Override
+        public void dispose(){
+            disposed = true;
+        }
+    }
+
+    /** Loads blobs whose size is the number at the end of the file name. */
+    static class BlobLoader extends SynchronousAssetLoader<Blob, AssetLoaderParameters<Blob>>{
+        BlobLoader(){
+            super(resolver);
+        }
+
+        @Override
+        public Blob load(AssetManager manager, String fileName, Fi file, AssetLoaderParameters<Blob> parameter){
+            return new Blob(Integer.parseInt(fileName.substring(fileName.lastIndexOf('-') + 1)));
+        }
+
+        @Override
+        public Seq<AssetDescriptor> getDependencies(String fileName, Fi file, AssetLoaderParameters<Blob> parameter){
+            return null;
+        }
+    }
+
+    @Test
+    public void budget(){
+        AssetManager manager = new AssetManager(resolver, false);
+        manager.setLoader(Blob.class, new BlobLoader());
+        manager.setBudget(Blob.class, 100, blob -> blob.size);
+        Seq<String> evicted = new Seq<>();
+        manager.setEvictionListener((name, asset) -> evicted.add(name));
+
+        manager.load("a-40", Blob.class);
+        manager.load("b-40", Blob.class);
+        manager.finishLoading();
+        Blob a = manager.get("a-40");
+        assertEquals(80, manager.getBudgetUsage(Blob.class));
+
+        //unreferenced assets are kept while they fit
+        manager.unload("a-40");
+        manager.unload("b-40");
+        assertTrue(manager.isRetained("a-40"));
+        assertFalse(a.disposed);
+
+        //loading a retained asset again is a hit and does not reload it
+        manager.load("a-40", Blob.class);
+        manager.finishLoading();
+        assertSame(a, manager.get("a-40"));
+        assertFalse(manager.isRetained("a-40"));
+        assertEquals(1, manager.getReferenceCount("a-40"));
+
+        //going over the budget evicts the least recently used retained asset, never a referenced one
+        manager.load("c-50", Blob.class);
+        manager.finishLoading();
+        assertEquals(Seq.with("b-40"), evicted);
+        assertFalse(manager.isLoaded("b-40"));
+        assertEquals(90, manager.getBudgetUsage(Blob.class));
+
+        manager.load("d-50", Blob.class);
+        manager.finishLoading();
+        assertEquals(140, manager.getBudgetUsage(Blob.class));
+
+        manager.setPinned("d-50", true);
+        manager.unload("d-50");
+        manager.unload("c-50");
+        assertEquals(Seq.with("b-40", "c-50"), evicted);
+        assertTrue(manager.isRetained("d-50"));
+
+        manager.load("b-40", Blob.class);
+        manager.finishLoading();
+
+        AssetManager.CacheStats stats = manager.getCacheStats();
+        assertEquals(1, stats.hits);
+        assertEquals(5, stats.misses);
+        assertEquals(2, stats.evictions);
+        assertEquals(1, stats.reloads);
+
+        manager.removeBudget(Blob.class);
+        assertFalse(manager.isLoaded("d-50"));
+        assertTrue(a == manager.get("a-40") && !a.disposed);
+
+        manager.clear();
+        assertTrue(a.disposed);
+    }
+}
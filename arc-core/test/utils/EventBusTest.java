@@ -0,0 +1,114 @@
+package utils;
+
+import arc.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class EventBusTest{
+    enum Trigger{
+        update
+    }
+
+    static class Hit{
+        int damage;
+
+        Hit(int damage){
+            this.damage = damage;
+        }
+    }
+
+    @Test
+    public void fireAndRemove(){
+        EventBus bus = new EventBus();
+        IntSeq received = new IntSeq();
+        int[] updates = {0};
+
+        bus.on(Hit.class, e -> received.add(e.damage));
+        bus.run(Trigger.update, () -> updates[0]++);
+
+        bus.fire(new Hit(3));
+        bus.handle(Hit.class).fire(new Hit(4));
+        bus.fire(Trigger.update, Trigger.update);
+
+        assertEquals(IntSeq.with(3, 4), received);
+        assertEquals(1, updates[0]);
+        assertSame(bus.handle(Hit.class), bus.handle(bus.handle(Hit.class).id));
+
+        //listeners removed while firing still receive the current event
+        EventBus.Handle<Hit> handle = bus.handle(Hit.class);
+        handle.on(new arc.func.Cons<Hit>(){
+            @Override
+            public void get(Hit hit){
+                handle.remove(this);
+            }
+        });
+        assertEquals(2, handle.size());
+        handle.fire(new Hit(5));
+        assertEquals(1, handle.size());
+
+        bus.clear();
+        bus.fire(new Hit(6));
+        assertEquals(IntSeq.with(3, 4, 5), received);
+    }
+
+    @Test
+    public void postAndDrain() throws Exception{
+        EventBus bus = new EventBus();
+        IntSeq received = new IntSeq();
+        bus.on(Hit.class, e -> received.add(e.damage));
+
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            int offset = t * 1000;
+            threads[t] = new Thread(() -> {
+                EventBus.Handle<Hit> handle = bus.handle(Hit.class);
+                for(int i = 0; i < 1000; i++){
+                    handle.post(new Hit(offset + i));
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+
+        //nothing is fired until the queue is drained
+        assertEquals(0, received.size);
+        assertEquals(4000, bus.queued());
+        assertEquals(4000, bus.drain());
+        assertEquals(0, bus.drain());
+
+        //events from one thread keep their order
+        int[] last = {-1, -1, -1, -1};
+        for(int i = 0; i < received.size; i++){
+            int value = received.get(i);
+            assertTrue(value > last[value / 1000]);
+            last[value / 1000] = value;
+        }
+    }
+
+    @Test
+    public void concurrentRegistration() throws Exception{
+        EventBus bus = new EventBus();
+        AtomicInteger fired = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 500; i++){
+                    bus.on(Hit.class, e -> fired.incrementAndGet());
+                    bus.fire(new Hit(i));
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(2000, bus.handle(Hit.class).size());
+        fired.set(0);
+        bus.fire(new Hit(0));
+        assertEquals(2000, fired.get());
+    }
+}
@@ -0,0 +1,268 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.serialization.*;
+import arc.util.serialization.JsonParser.*;
+import arc.util.serialization.JsonWriter.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class JsonParserTest{
+    static final String[] documents = {
+    "{a:1,b:[1,2,],c:{}}", "[1 2]", "{a:1\nb:2}", "{,a:1}", "[,1]", "{\"a\" : x y z , b: \"q\\n\\u0041\"}", "5", "  abc  ", "",
+    "{a:[1,2]//c\n/*d*/,b:true, c:null, d: -1.5e3, e: 1e, f:+5, g:1.0f, h:-0.0, i: .5, j: 1.}",
+    "{a b: 1}", "{a:1 /* x */}", "[]", "{}", "[a b, c]", "{a:{}\nb:1}", "[\"x\"\n\"y\"]", "{a:b:c}", "[x/y]", "[x//y\n]",
+    "{a:9223372036854775807, b:9223372036854775808, c:-9223372036854775808, d:-, e:0x10, f:12345678901234567, g:0.1234567890123456789}",
+    "{\"a\"\n:1}", "{a\n:1}", "[[],[[{}]],{a:[{b:{c:[]}}]}]", "[\"esc\\\\aped\", \"\\\"quoted\\\"\", \"\\/\"]", "{a: tr\\u0075e}"
+    };
+
+    static String tree(String json){
+        JsonValue value = new JsonReader().parse(json);
+        return value == null ? null : value.toJson(OutputType.json);
+    }
+
+    static String pulled(JsonParser parser){
+        if(parser.nextToken() == Token.end) return null;
+        String result = parser.readValue().toJson(OutputType.json);
+        assertEquals(Token.end, parser.nextToken());
+        parser.close();
+        return result;
+    }
+
+    /** Returns one character at a time, so that every token crosses the end of the buffer. */
+    static Reader slow(String text){
+        return new StringReader(text){
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException{
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+
+    @Test
+    public void tokens(){
+        JsonParser parser = new JsonReader().parser("{name: \"value\", list: [1, 2.5, true, null, text], //comment\n nested: {a: -3}}");
+        Token[] expected = {Token.objectStart, Token.name, Token.string, Token.name, Token.arrayStart, Token.number, Token.number, Token.bool,
+        Token.nullValue, Token.string, Token.arrayEnd, Token.name, Token.objectStart, Token.name, Token.number, Token.objectEnd, Token.objectEnd, Token.end};
+        Seq<String> texts = new Seq<>();
+        for(Token token : expected){
+            assertEquals(token, parser.nextToken());
+            if(token == Token.name || token == Token.string || token == Token.number) texts.add(parser.text().toString());
+        }
+        assertEquals(Seq.with("name", "value", "list", "1", "2.5", "text", "nested", "a", "-3"), texts);
+        assertEquals(Token.end, parser.nextToken());
+
+        parser = new JsonReader().parser("[{a: 1, b: [2, {c: 3}]}, 4, 5.5, 1e3, \"s\"]");
+        assertEquals(Token.arrayStart, parser.nextToken());
+        assertEquals(Token.objectStart, parser.nextToken());
+        assertEquals(2, parser.depth());
+        parser.skipValue();
+        assertEquals(Token.objectEnd, parser.token());
+        assertEquals(1, parser.depth());
+        assertEquals(Token.number, parser.nextToken());
+        assertFalse(parser.isDouble());
+        assertEquals(4, parser.intValue());
+        assertEquals(Token.number, parser.nextToken());
+        assertTrue(parser.isDouble());
+        assertEquals(5, parser.intValue());
+        assertEquals(5.5f, parser.floatValue(), 0f);
+        parser.nextToken();
+        assertEquals(1000.0, parser.doubleValue(), 0.0);
+        assertEquals(Token.string, parser.nextToken());
+        assertEquals("s", parser.string());
+        assertEquals(Token.arrayEnd, parser.nextToken());
+
+        //names that were read before are the same string
+        parser = new JsonReader().parser("[{health: 1}, {health: 2}]");
+        parser.nextToken();
+        parser.nextToken();
+        parser.nextToken();
+        String first = parser.name();
+        parser.nextToken();
+        parser.nextToken();
+        parser.nextToken();
+        parser.nextToken();
+        assertSame(first, parser.name());
+    }
+
+    @Test
+    public void sameAsTree(){
+        for(String json : documents){
+            String expected = tree(json);
+            assertEquals(json, expected, pulled(new JsonReader().parser(json)));
+            assertEquals(json, expected, pulled(new JsonReader().parser(slow(json))));
+            char[] padded = ("xx" + json + "yy").toCharArray();
+            assertEquals(json, expected, pulled(new JsonReader().parser(padded, 2, json.length())));
+        }
+    }
+
+    @Test
+    public void errors(){
+        for(String json : new String[]{"{a:1", "[1,,2]", "{a:1}{b:2}", "[1}", "{a 1}", "\"unterminated", "[/* unterminated"}){
+            try{
+                pulled(new JsonReader().parser(slow(json)));
+                fail(json);
+            }catch(SerializationException e){
+                assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+            }
+        }
+
+        try{
+            pulled(new JsonReader().parser("{\na: 1\nb: [1,\n2}"));
+            fail();
+        }catch(SerializationException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("line 4"));
+        }
+    }
+
+    @Test
+    public void ubjson() throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UBJsonWriter writer = new UBJsonWriter(bytes);
+        writer.object();
+        writer.set("int", 5).set("long", 1L << 40).set("float", 1.5f).set("double", Math.PI).set("bool", true).set("string", "ünicode");
+        writer.set("byte", (byte)-3).set("short", (short)300).set("char", 'c').name("null").value();
+        writer.name("ints").value(new int[]{1, 2, 3});
+        writer.name("floats").value(new float[]{0.5f});
+        writer.name("bytes").value(new byte[]{-1, 2});
+        writer.name("strings").value(new String[]{"a", "b"});
+        writer.name("empty").value(new int[0]);
+        writer.array("nested").object().set("a", 1).pop().array().pop().value("x").pop();
+        writer.pop();
+        writer.close();
+
+        String expected = new UBJsonReader().parse(new ByteArrayInputStream(bytes.toByteArray())).toJson(OutputType.json);
+        assertEquals(expected, pulled(new UBJsonReader().parser(new ByteArrayInputStream(bytes.toByteArray()))));
+
+        //skipping works the same way
+        JsonParser parser = new UBJsonReader().parser(new ByteArrayInputStream(bytes.toByteArray()));
+        parser.nextToken();
+        Seq<String> names = new Seq<>();
+        while(parser.nextToken() == Token.name){
+            names.add(parser.name());
+            parser.skipValue();
+        }
+        assertEquals(Token.objectEnd, parser.token());
+        assertEquals(16, names.size);
+        assertEquals("nested", names.peek());
+    }
+
+    public enum Kind{
+        small, large
+    }
+
+    public static class Part implements AllowSerialization{
+        public String name = "part";
+        public int count;
+        public Kind kind = Kind.small;
+    }
+
+    public static class BigPart extends Part{
+        public float size;
+    }
+
+    public static class Custom implements Json.JsonSerializable{
+        int value;
+
+        @Override
+        public void write(Json json){
+            json.writeValue("v", value);
+        }
+
+        @Override
+        public void read(Json json, JsonValue data){
+            value = data.getInt("v");
+        }
+    }
+
+    public static class Model{
+        public int id;
+        public float speed;
+        public long time;
+        public double precise;
+        public boolean flag;
+        public String label;
+        public Part part;
+        public Part polymorphic;
+        public Seq<Part> parts = new Seq<>();
+        public ObjectMap<String, Part> named = new ObjectMap<>();
+        public IntMap<String> ids = new IntMap<>();
+        public int[] ints;
+        public float[] floats;
+        public String[] strings;
+        public IntSeq intSeq = new IntSeq();
+        public Custom custom;
+        public Object unknown;
+    }
+
+    static Model model(){
+        Model model = new Model();
+        model.id = 7;
+        model.speed = 2.5f;
+        model.time = 1L << 50;
+        model.precise = 0.1;
+        model.flag = true;
+        model.label = "label \"quoted\"";
+        model.part = new Part();
+        model.part.count = 3;
+        model.part.kind = Kind.large;
+        BigPart big = new BigPart();
+        big.size = 9f;
+        model.polymorphic = big;
+        for(int i = 0; i < 3; i++){
+            Part part = new Part();
+            part.count = i;
+            model.parts.add(part);
+            model.named.put("p" + i, part);
+        }
+        model.ids.put(4, "four");
+        model.ints = new int[]{1, 2, 3};
+        model.floats = new float[]{0.5f, 1.5f};
+        model.strings = new String[]{"a", null};
+        model.intSeq.add(8, 9);
+        model.custom = new Custom();
+        model.custom.value = 11;
+        return model;
+    }
+
+    @Test
+    public void readValue() throws IOException{
+        Json json = new Json();
+        String text = json.prettyPrint(model());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        json.toUBJson(model(), Model.class, bytes);
+
+        for(int i = 0; i < 3; i++){
+            Model model =
+                i == 0 ? json.fromJson(Model.class, new JsonReader().parser(text)) :
+                i == 1 ? json.fromJson(Model.class, new JsonReader().parser(slow(text))) :
+                json.fromJson(Model.class, new UBJsonReader().parser(new ByteArrayInputStream(bytes.toByteArray())));
+
+            assertEquals(json.toJson(json.fromJson(Model.class, text)), json.toJson(model));
+            assertEquals(7, model.id);
+            assertEquals(1L << 50, model.time);
+            assertEquals("label \"quoted\"", model.label);
+            assertEquals(Kind.large, model.part.kind);
+            assertTrue(model.polymorphic instanceof BigPart);
+            assertEquals(9f, ((BigPart)model.polymorphic).size, 0f);
+            assertEquals(2, model.named.get("p2").count);
+            assertEquals("four", model.ids.get(4));
+            assertArrayEquals(new int[]{1, 2, 3}, model.ints);
+            assertEquals(Seq.with("a", null), Seq.with(model.strings));
+            assertEquals(11, model.custom.value);
+        }
+
+        //unknown fields are skipped
+        Model model = json.fromJson(Model.class, new JsonReader().parser("{id: 3, missing: {a: [1, {b: 2}]}, speed: 4}"));
+        assertEquals(3, model.id);
+        assertEquals(4f, model.speed, 0f);
+
+        //without a type, objects stay trees
+        assertTrue(json.fromJson(null, new JsonReader().parser("{a: 1}")) instanceof JsonValue);
+        assertEquals(Seq.with(1f, "x", true), json.fromJson(null, new JsonReader().parser("[1, x, true]")));
+    }
+}
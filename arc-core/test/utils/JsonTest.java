@@ -0,0 +1,111 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.serialization.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class JsonTest{
+    static final FieldAccessor.Factory[] factories = {FieldAccessor.reflect, FieldAccessor.methodHandles};
+
+    static class Base{
+        private int id = 5;
+        protected String name = "base";
+    }
+
+    static class Data extends Base{
+        public int count;
+        public float speed = 1.5f;
+        public boolean enabled = true;
+        public long time;
+        public double precise;
+        public short small;
+        public char letter = 'a';
+        public Integer boxed;
+        public Seq<String> tags = new Seq<>();
+        public final int constant = 1;
+        transient int skipped = 3;
+    }
+
+    @Test
+    public void roundTrip(){
+        for(FieldAccessor.Factory factory : factories){
+            Json json = new Json();
+            json.setFieldAccessors(factory);
+
+            Data data = new Data();
+            data.count = -7;
+            data.speed = 2.25f;
+            data.enabled = false;
+            data.time = Long.MAX_VALUE;
+            data.precise = Math.PI;
+            data.small = 300;
+            data.letter = 'z';
+            data.boxed = 9;
+            data.tags.add("one", "two");
+            data.name = "data";
+            data.skipped = 4;
+
+            String text = json.toJson(data, Data.class);
+            Data read = json.fromJson(Data.class, text);
+            assertEquals(-7, read.count);
+            assertEquals(2.25f, read.speed, 0f);
+            assertFalse(read.enabled);
+            assertEquals(Long.MAX_VALUE, read.time);
+            assertEquals(Math.PI, read.precise, 0.0);
+            assertEquals(300, read.small);
+            assertEquals('z', read.letter);
+            assertEquals((Integer)9, read.boxed);
+            assertEquals(Seq.with("one", "two"), read.tags);
+            assertEquals("data", read.name);
+            assertEquals(3, read.skipped);
+
+            //values that match a new instance are not written
+            assertEquals("{}", json.toJson(new Data(), Data.class));
+            data = new Data();
+            data.speed = 3f;
+            assertEquals("{speed:3}", json.toJson(data, Data.class));
+        }
+    }
+
+    @Test
+    public void conversions(){
+        for(FieldAccessor.Factory factory : factories){
+            Json json = new Json();
+            json.setFieldAccessors(factory);
+
+            //numbers are converted to the type of the field, and strings are parsed
+            Data read = json.fromJson(Data.class, "{count: 3.9, speed: 4, time: \"12\", precise: 1, enabled: \"false\", id: 10}");
+            assertEquals(3, read.count);
+            assertEquals(4f, read.speed, 0f);
+            assertEquals(12L, read.time);
+            assertEquals(1.0, read.precise, 0.0);
+            assertFalse(read.enabled);
+            assertEquals(10, ((Base)read).id);
+
+            try{
+                json.fromJson(Data.class, "{count: null}");
+                fail();
+            }catch(SerializationException expected){
+            }
+        }
+    }
+
+    @Test
+    public void copyFields(){
+        for(FieldAccessor.Factory factory : factories){
+            Json json = new Json();
+            json.setFieldAccessors(factory);
+
+            Data from = new Data(), to = new Data();
+            from.count = 42;
+            from.name = "copy";
+            from.tags.add("tag");
+            json.copyFields(from, to);
+            assertEquals(42, to.count);
+            assertEquals("copy", to.name);
+            assertSame(from.tags, to.tags);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package utils;
+
+import arc.*;
+import arc.files.*;
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class SettingsTest{
+    Fi directory;
+
+    @Before
+    public void setup() throws IOException{
+        directory = new Fi(java.nio.file.Files.createTempDirectory("settings").toFile());
+    }
+
+    @After
+    public void cleanup(){
+        directory.deleteDirectory();
+    }
+
+    Settings create(int compactSize){
+        Settings settings = new Settings(){{
+            minCompactSize = compactSize;
+        }};
+        settings.setDataDirectory(directory);
+        settings.setJournaled(true);
+        settings.load();
+        return settings;
+    }
+
+    @Test
+    public void journalReplay(){
+        Settings settings = create(1 << 20);
+        settings.put("int", 5);
+        settings.put("string", "text");
+        settings.put("removed", true);
+        settings.forceSave();
+
+        settings.put("int", 6);
+        settings.putFloat("float", 2.5f);
+        settings.remove("removed");
+        settings.forceSave();
+
+        assertTrue(settings.getJournalFile().exists());
+        assertFalse(settings.getSettingsFile().exists());
+
+        Settings loaded = create(1 << 20);
+        assertEquals(6, loaded.getInt("int"));
+        assertEquals("text", loaded.getString("string"));
+        assertEquals(2.5f, loaded.getFloat("float"), 0f);
+        assertFalse(loaded.has("removed"));
+        assertEquals(3, loaded.keySize());
+
+        loaded.clear();
+        loaded.put("after", 1);
+        loaded.forceSave();
+
+        Settings cleared = create(1 << 20);
+        assertEquals(1, cleared.keySize());
+        assertEquals(1, cleared.getInt("after"));
+    }
+
+    @Test
+    public void corruptTail() throws Exception{
+        Settings settings = create(1 << 20);
+        settings.put("a", 1);
+        settings.forceSave();
+        settings.put("b", 2);
+        settings.forceSave();
+
+        //simulate a write that was interrupted halfway through a batch
+        settings.getJournalFile().writeBytes(new byte[]{0, 0, 0, 40, 1, 2, 3}, true);
+
+        Settings loaded = create(1 << 20);
+        assertEquals(1, loaded.getInt("a"));
+        assertEquals(2, loaded.getInt("b"));
+
+        //the next save compacts, so the corrupt tail is gone
+        loaded.put("c", 3);
+        loaded.forceSave();
+        awaitCompaction(loaded);
+        assertTrue(loaded.getSettingsFile().exists());
+        assertFalse(loaded.getOldJournalFile().exists());
+
+        Settings reloaded = create(1 << 20);
+        assertEquals(3, reloaded.keySize());
+        assertEquals(3, reloaded.getInt("c"));
+    }
+
+    @Test
+    public void compaction() throws Exception{
+        Settings settings = create(256);
+        for(int i = 0; i < 200; i++){
+            settings.put("key" + (i % 20), i);
+            settings.put("blob", new byte[i]);
+            settings.forceSave();
+            //changes made during a compaction go to the new journal
+            if(i % 3 == 0) awaitCompaction(settings);
+        }
+        awaitCompaction(settings);
+
+        assertTrue(settings.getSettingsFile().exists());
+        assertFalse(settings.getOldJournalFile().exists());
+        assertFalse(settings.getDataDirectory().child("settings.bin.tmp").exists());
+        assertTrue(settings.getJournalFile().length() < 4096);
+
+        Settings loaded = create(256);
+        for(int i = 0; i < 20; i++){
+            assertEquals(180 + i, loaded.getInt("key" + i));
+        }
+        assertEquals(199, loaded.getBytes("blob").length);
+
+        //switching back to full saves removes the journals
+        loaded.setJournaled(false);
+        loaded.put("key0", -1);
+        loaded.forceSave();
+        assertFalse(loaded.getJournalFile().exists());
+        assertEquals(-1, create(256).getInt("key0"));
+    }
+
+    @Test
+    public void handles(){
+        Settings settings = create(1 << 20);
+        settings.defaults("scale", 2f);
+
+        Settings.IntKey fps = settings.intKey("fps", 60);
+        Settings.FloatKey scale = settings.floatKey("scale");
+        Settings.BoolKey vsync = settings.boolKey("vsync", true);
+        assertEquals(60, fps.get());
+        assertEquals(2f, scale.get(), 0f);
+        assertFalse(fps.has());
+        assertSame(fps, settings.intKey("fps"));
+
+        //the string API and handles see each other's changes
+        settings.put("fps", 144);
+        assertEquals(144, fps.get());
+        scale.set(1.5f);
+        assertEquals(1.5f, settings.getFloat("scale"), 0f);
+        vsync.toggle();
+        assertFalse(settings.getBool("vsync"));
+
+        //setting the stored value again does not mark it as modified
+        settings.forceSave();
+        fps.set(144);
+        assertFalse(settings.modified());
+        fps.set(30);
+        assertTrue(settings.modified());
+        settings.forceSave();
+
+        Settings loaded = create(1 << 20);
+        Settings.IntKey loadedFps = loaded.intKey("fps");
+        assertEquals(30, loadedFps.get());
+        assertFalse(loaded.boolKey("vsync").get());
+
+        loaded.remove("fps");
+        assertEquals(0, loadedFps.get());
+        loaded.put("fps", 10);
+        loaded.clear();
+        assertEquals(0, loadedFps.get());
+
+        try{
+            loaded.floatKey("fps");
+            fail("Handle types must not change");
+        }catch(IllegalArgumentException expected){
+        }
+    }
+
+    static void awaitCompaction(Settings settings) throws InterruptedException{
+        long start = System.currentTimeMillis();
+        while(settings.isCompacting() && System.currentTimeMillis() - start < 5000){
+            Thread.sleep(1);
+        }
+        assertFalse(settings.isCompacting());
+    }
+}
@@ -0,0 +1,159 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TaskQueueTest{
+
+    @Test
+    public void order(){
+        TaskQueue queue = new TaskQueue();
+        IntSeq ran = new IntSeq();
+        //several chunks worth
+        int count = TaskQueue.chunkSize * 3 + 17;
+        for(int i = 0; i < count; i++){
+            int index = i;
+            queue.post(() -> ran.add(index));
+        }
+        assertEquals(count, queue.size());
+
+        queue.run();
+        assertEquals(count, ran.size);
+        for(int i = 0; i < count; i++){
+            assertEquals(i, ran.get(i));
+        }
+        assertEquals(0, queue.size());
+        assertEquals(count, queue.lastRunCount());
+    }
+
+    @Test
+    public void postDuringRun(){
+        TaskQueue queue = new TaskQueue();
+        int[] runs = {0};
+        queue.post(() -> {
+            runs[0]++;
+            queue.post(() -> runs[0]++);
+        });
+
+        queue.run();
+        assertEquals(1, runs[0]);
+        assertEquals(1, queue.size());
+        queue.run();
+        assertEquals(2, runs[0]);
+    }
+
+    @Test
+    public void budget(){
+        TaskQueue queue = new TaskQueue();
+        int[] runs = {0};
+        for(int i = 0; i < 10; i++){
+            queue.post(() -> {
+                runs[0]++;
+                Threads.sleep(2);
+            });
+        }
+
+        //at least one runnable runs, even if the budget is tiny
+        queue.run(0);
+        assertEquals(1, runs[0]);
+        queue.run(TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(runs[0] >= 2 && runs[0] < 10);
+        assertEquals(10 - runs[0], queue.size());
+        queue.run();
+        assertEquals(10, runs[0]);
+        assertTrue(queue.lastLatencyNanos() > 0);
+    }
+
+    @Test
+    public void exception(){
+        TaskQueue queue = new TaskQueue();
+        int[] runs = {0};
+        queue.post(() -> {
+            throw new RuntimeException();
+        });
+        queue.post(() -> runs[0]++);
+
+        try{
+            queue.run();
+            fail();
+        }catch(RuntimeException expected){
+        }
+        assertEquals(1, queue.size());
+        queue.run();
+        assertEquals(1, runs[0]);
+    }
+
+    @Test
+    public void clear(){
+        TaskQueue queue = new TaskQueue();
+        int[] runs = {0};
+        for(int i = 0; i < TaskQueue.chunkSize + 5; i++){
+            queue.post(() -> runs[0]++);
+        }
+        queue.clear();
+        assertEquals(0, queue.size());
+        queue.post(() -> runs[0]++);
+        queue.run();
+        assertEquals(1, runs[0]);
+    }
+
+    @Test
+    public void concurrent() throws Exception{
+        TaskQueue queue = new TaskQueue();
+        int threads = 4, count = 50000;
+        int[][] last = new int[threads][1];
+        int[] total = {0};
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+
+        for(int t = 0; t < threads; t++){
+            int thread = t;
+            exec.submit(() -> {
+                for(int i = 1; i <= count; i++){
+                    int index = i;
+                    queue.post(() -> {
+                        //runnables of each thread run in the order they were posted
+                        assertEquals(last[thread][0] + 1, index);
+                        last[thread][0] = index;
+                        total[0]++;
+                    });
+                }
+                latch.countDown();
+            });
+        }
+
+        while(latch.getCount() > 0 || queue.size() > 0){
+            queue.run();
+        }
+        exec.shutdown();
+        assertEquals(threads * count, total[0]);
+    }
+
+    /** The original implementation. */
+    static class LockedQueue{
+        final Seq<Runnable> runnables = new Seq<>(), executedRunnables = new Seq<>();
+
+        void run(){
+            synchronized(runnables){
+                executedRunnables.clear();
+                executedRunnables.addAll(runnables);
+                runnables.clear();
+            }
+
+            for(Runnable runnable : executedRunnables){
+                runnable.run();
+            }
+        }
+
+        void post(Runnable runnable){
+            synchronized(runnables){
+                runnables.add(runnable);
+            }
+        }
+    }
+}
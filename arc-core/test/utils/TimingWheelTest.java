@@ -0,0 +1,239 @@
+package utils;
+
+import arc.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Timer.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest{
+
+    static class Item extends TimingWheel.Entry{
+        long expected;
+        boolean removed;
+    }
+
+    @Test
+    public void wheel(){
+        Rand rand = new Rand(3);
+        //start near the sign change, and at a large time
+        for(long start : new long[]{0, -5000, 1L << 40}){
+            TimingWheel<Item> wheel = new TimingWheel<>(start);
+            Seq<Item> items = new Seq<>();
+            long[] last = {start};
+
+            for(int i = 0; i < 20000; i++){
+                Item item = new Item();
+                //mostly short delays, with some that span several levels
+                long delay = rand.chance(0.1) ? rand.nextLong() & ((1L << rand.random(1, 40)) - 1) : rand.random(0, 200);
+                item.expected = start + delay;
+                wheel.add(item, item.expected);
+                items.add(item);
+            }
+            for(int i = 0; i < items.size; i += 7){
+                assertTrue(wheel.remove(items.get(i)));
+                assertFalse(wheel.remove(items.get(i)));
+                items.get(i).removed = true;
+            }
+
+            int[] count = {0};
+            long now = start;
+            while(wheel.size() > 0){
+                long next = wheel.nextTick();
+                assertTrue(next >= wheel.time());
+                now = rand.chance(0.5) ? next : now + rand.random(1, 5000);
+                long time = now;
+                wheel.advance(time, item -> {
+                    assertFalse(item.removed);
+                    assertTrue(item.expected <= time);
+                    //nothing expires later than it should
+                    assertTrue(item.expected > last[0] || item.expected == start);
+                    count[0]++;
+                });
+                last[0] = time;
+            }
+            assertEquals(items.count(i -> !i.removed), count[0]);
+        }
+    }
+
+    @Test
+    public void order(){
+        TimingWheel<Item> wheel = new TimingWheel<>();
+        Seq<Item> fired = new Seq<>();
+        Item[] items = new Item[10];
+        for(int i = 0; i < items.length; i++){
+            items[i] = new Item();
+            wheel.add(items[i], 100 + i / 2);
+        }
+
+        //entries that are added again while expiring wait for the next call
+        wheel.advance(200, item -> {
+            fired.add(item);
+            if(item == items[0]) wheel.add(item, 0);
+            //removing an entry that has not fired yet
+            if(item == items[1]) wheel.remove(items[9]);
+        });
+        assertEquals(Seq.with(items).select(item -> item != items[9]), fired);
+        assertEquals(1, wheel.size());
+        assertEquals(200, wheel.nextTick());
+        fired.clear();
+        wheel.advance(200, fired::add);
+        assertEquals(Seq.with(items[0]), fired);
+    }
+
+    @Test
+    public void submit() throws Exception{
+        TimingWheel<Item> wheel = new TimingWheel<>();
+        int threads = 4, count = 10000;
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            exec.submit(() -> {
+                for(int i = 0; i < count; i++){
+                    Item item = new Item();
+                    assertTrue(wheel.submit(item));
+                    //either already queued, or drained and queued again
+                    wheel.submit(item);
+                }
+                latch.countDown();
+            });
+        }
+
+        int[] drained = {0};
+        while(latch.getCount() > 0 || wheel.hasSubmitted()){
+            wheel.drain(item -> {
+                if(!wheel.contains(item)){
+                    drained[0]++;
+                    wheel.add(item, 10);
+                }
+            });
+        }
+        exec.shutdown();
+        assertEquals(threads * count, drained[0]);
+        assertEquals(threads * count, wheel.size());
+    }
+
+    @Test
+    public void timeRun(){
+        Time.clear();
+        Time.delta = 1f;
+        int[] runs = {0, 0, 0};
+        Time.run(0f, () -> runs[0]++);
+        Time.run(2.5f, () -> runs[1]++);
+        Time.run(100f, () -> runs[2]++);
+
+        Time.update();
+        assertEquals(1, runs[0]);
+        assertEquals(1, Time.firedRuns());
+        assertEquals(2, Time.pendingRuns());
+        Time.update();
+        assertEquals(0, runs[1]);
+        Time.update();
+        assertEquals(1, runs[1]);
+
+        //a run scheduled by a run with a delay below delta finishes during the same update
+        Time.run(0.5f, () -> Time.run(1f, () -> runs[0]++));
+        Time.update();
+        assertEquals(2, runs[0]);
+
+        Time.delta = 0.3f;
+        Time.run(1f, () -> runs[0]++);
+        for(int i = 0; i < 3; i++){
+            Time.update();
+        }
+        assertEquals(2, runs[0]);
+        Time.update();
+        assertEquals(3, runs[0]);
+
+        assertEquals(1, Time.getRuns().size);
+        Time.clear();
+        assertEquals(0, Time.pendingRuns());
+        for(int i = 0; i < 400; i++){
+            Time.update();
+        }
+        assertEquals(0, runs[2]);
+        Time.delta = 1f;
+    }
+
+    @Test
+    public void timer() throws Exception{
+        Application last = Core.app;
+        Core.app = new Application(){
+            Seq<ApplicationListener> listeners = new Seq<>();
+
+            @Override
+            public Seq<ApplicationListener> getListeners(){
+                return listeners;
+            }
+
+            @Override
+            public ApplicationType getType(){
+                return ApplicationType.headless;
+            }
+
+            @Override
+            public String getClipboardText(){
+                return null;
+            }
+
+            @Override
+            public void setClipboardText(String text){
+            }
+
+            @Override
+            public void post(Runnable runnable){
+                runnable.run();
+            }
+
+            @Override
+            public void exit(){
+            }
+        };
+
+        try{
+            Timer timer = new Timer();
+            AtomicInteger count = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(1);
+
+            Task cancelled = Timer.schedule(count::incrementAndGet, 0.05f);
+            Task repeated = timer.scheduleTask(new Task(){
+                @Override
+                public void run(){
+                    if(count.addAndGet(100) >= 300) done.countDown();
+                }
+            }, 0.01f, 0.01f, 2);
+            cancelled.cancel();
+            assertFalse(cancelled.isScheduled());
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(300, count.get());
+            assertFalse(repeated.isScheduled());
+            assertTrue(timer.isEmpty());
+
+            //scheduling from many threads at once
+            CountDownLatch all = new CountDownLatch(400);
+            ExecutorService exec = Executors.newFixedThreadPool(4);
+            for(int i = 0; i < 400; i++){
+                float delay = i % 10 / 100f;
+                exec.submit(() -> timer.scheduleTask(new Task(){
+                    @Override
+                    public void run(){
+                        all.countDown();
+                    }
+                }, delay));
+            }
+            assertTrue(all.await(5, TimeUnit.SECONDS));
+            exec.shutdown();
+            timer.stop();
+        }finally{
+            Core.app = last;
+        }
+    }
+}
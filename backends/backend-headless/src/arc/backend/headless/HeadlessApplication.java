@@ -6,8 +6,12 @@ import arc.mock.*;
 import arc.struct.*;
 import arc.util.*;
 
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
 /**
  * a headless implementation of an application primarily intended to be used in servers
+ * @see HeadlessConfig
  * @author Jon Renner
  */
 public class HeadlessApplication implements Application{
@@ -15,10 +19,14 @@ public class HeadlessApplication implements Application{
     protected final Seq<ApplicationListener> listeners = new Seq<>();
     protected final TaskQueue runnables = new TaskQueue();
     protected final Cons<Throwable> exceptionHandler;
+    protected final HeadlessConfig config;
+    protected final TickMetrics metrics = new TickMetrics();
     protected long renderInterval;
     protected Thread mainLoopThread;
     protected boolean running = true;
 
+    private final Seq<Future<?>> updates = new Seq<>();
+
     public HeadlessApplication(ApplicationListener listener){
         this(listener, 1f / 60f, t -> { throw new RuntimeException(t); });
     }
@@ -28,10 +36,16 @@ public class HeadlessApplication implements Application{
     }
 
     public HeadlessApplication(ApplicationListener listener, float renderIntervalSec, Cons<Throwable> exceptionHandler){
+        this(listener, config(renderIntervalSec, exceptionHandler));
+    }
+
+    public HeadlessApplication(ApplicationListener listener, HeadlessConfig config){
+        float renderIntervalSec = config.updateInterval;
 
         addListener(listener);
-        this.exceptionHandler = exceptionHandler;
-        
+        this.config = config;
+        this.exceptionHandler = config.exceptionHandler;
+
         Core.settings = new Settings();
         Core.app = this;
         Core.files = new MockFiles();
@@ -44,6 +58,18 @@ public class HeadlessApplication implements Application{
         initialize();
     }
 
+    private static HeadlessConfig config(float renderIntervalSec, Cons<Throwable> exceptionHandler){
+        HeadlessConfig config = new HeadlessConfig();
+        config.updateInterval = renderIntervalSec;
+        config.exceptionHandler = exceptionHandler;
+        return config;
+    }
+
+    /** @return timing of the updates of the main loop. */
+    public TickMetrics getMetrics(){
+        return metrics;
+    }
+
     protected void initialize(){
         mainLoopThread = new Thread("HeadlessApplication"){
             @Override
@@ -65,32 +91,37 @@ public class HeadlessApplication implements Application{
             }
         }
 
-        long t = Time.nanos() + renderInterval;
-        if(renderInterval >= 0f){
+        if(renderInterval > 0 && config.fixedTimestep){
+            long next = Time.nanos();
+            while(running){
+                long now = Time.nanos();
+                if(now < next){
+                    waitUntil(next);
+                }else if(now - next >= renderInterval){
+                    //run late updates back to back, but drop the ones beyond the catch-up limit instead of falling behind forever
+                    long behind = (now - next) / renderInterval, skip = Math.max(behind - Math.max(config.maxCatchUpTicks, 0), 0);
+                    metrics.overrun(skip);
+                    next += skip * renderInterval;
+                }
+                //scheduled relative to the first update, so that the rate does not drift
+                next += renderInterval;
+
+                update();
+            }
+        }else if(renderInterval >= 0f){
+            long t = Time.nanos() + renderInterval;
             while(running){
                 final long n = Time.nanos();
                 if(t > n){
-                    long sleep = t - n;
-                    Threads.sleep(sleep / 1000000, (int)(sleep % 1000000));
+                    waitUntil(t);
 
                     t += renderInterval;
                 }else{
+                    if(renderInterval > 0 && n - t >= renderInterval) metrics.overrun(0);
                     t = n + renderInterval;
                 }
 
-                runnables.run();
-                graphics.incrementFrameId();
-                defaultUpdate();
-
-                synchronized(listeners){
-                    for(ApplicationListener listener : listeners){
-                        listener.update();
-                    }
-                }
-                graphics.updateTime();
-
-                // If one of the runnables set running to false, for example after an exit().
-                if(!running) break;
+                update();
             }
         }
 
@@ -103,6 +134,86 @@ public class HeadlessApplication implements Application{
         }
     }
 
+    /** Runs posted runnables and updates all listeners once. */
+    protected void update(){
+        long start = Time.nanos();
+        runnables.run(config.runnableBudgetNanos);
+        long ran = Time.nanos();
+
+        graphics.incrementFrameId();
+        defaultUpdate();
+
+        synchronized(listeners){
+            if(config.listenerExecutor == null){
+                for(ApplicationListener listener : listeners){
+                    listener.update();
+                }
+            }else{
+                updateConcurrently(config.listenerExecutor);
+            }
+        }
+        graphics.updateTime();
+
+        metrics.record(ran - start, Time.timeSinceNanos(ran));
+    }
+
+    private void updateConcurrently(ExecutorService executor){
+        Throwable failure = null;
+        boolean interrupted = false;
+
+        updates.clear();
+        try{
+            for(ApplicationListener listener : listeners){
+                updates.add(executor.submit(listener::update));
+            }
+        }catch(RejectedExecutionException e){
+            failure = e;
+        }
+
+        //wait for every update even after one failed, so that none of them are still running during the next frame or dispose()
+        for(int i = 0; i < updates.size; ){
+            try{
+                updates.get(i).get();
+            }catch(ExecutionException e){
+                failure = addFailure(failure, e.getCause());
+            }catch(InterruptedException e){
+                interrupted = true;
+                continue;
+            }
+            i++;
+        }
+        updates.clear();
+
+        if(interrupted){
+            Thread.currentThread().interrupt();
+            failure = addFailure(failure, new InterruptedException());
+        }
+
+        if(failure instanceof RuntimeException) throw (RuntimeException)failure;
+        if(failure instanceof Error) throw (Error)failure;
+        if(failure != null) throw new ArcRuntimeException(failure);
+    }
+
+    /** @return the first failure, with any later ones attached as suppressed exceptions. */
+    private static Throwable addFailure(@Nullable Throwable first, Throwable next){
+        if(first == null) return next;
+        if(first != next) first.addSuppressed(next);
+        return first;
+    }
+
+    /** Sleeps until shortly before the specified time, then spins until it is reached. */
+    private void waitUntil(long time){
+        long remaining;
+        while((remaining = time - Time.nanos()) > config.spinNanos){
+            //unlike Thread.sleep, this is not rounded to milliseconds on older JVMs
+            LockSupport.parkNanos(remaining - config.spinNanos);
+            if(Thread.interrupted()) throw new RuntimeException(new InterruptedException());
+        }
+        while(Time.nanos() < time){
+            Thread.yield();
+        }
+    }
+
     @Override
     public Thread getMainThread(){
         return mainLoopThread;
@@ -0,0 +1,34 @@
+package arc.backend.headless;
+
+import arc.func.*;
+import arc.util.*;
+
+import java.util.concurrent.*;
+
+/** Configuration of a {@link HeadlessApplication}. The defaults match the behavior of the other constructors. */
+public class HeadlessConfig{
+    /** Time between updates, in seconds. 0 to update as fast as possible, and negative to never update. */
+    public float updateInterval = 1f / 60f;
+    /**
+     * If true, updates are scheduled at fixed intervals from the first one, so that slow updates do not shift later ones. Updates that fall
+     * behind are run back to back until the loop has caught up. If false, the next update is scheduled relative to the end of a slow one.
+     */
+    public boolean fixedTimestep = false;
+    /** With a fixed timestep, the maximum number of updates that are run back to back to catch up. Updates beyond that are skipped. */
+    public int maxCatchUpTicks = 5;
+    /**
+     * Time before an update at which the loop stops sleeping and spins instead, in nanoseconds. Sleeping is only precise to about a millisecond
+     * on most systems, so about a millisecond gives precise update times, at the cost of some CPU time. 0 to never spin.
+     */
+    public long spinNanos = 0;
+    /** Time budget for running posted runnables each update, in nanoseconds. Runnables beyond it run on the next update. Negative for no limit. */
+    public long runnableBudgetNanos = -1;
+    /**
+     * If set, the {@link arc.ApplicationListener#update()} of every listener is run on this executor, and the main loop waits until all of
+     * them are done. Listeners may then run at the same time as each other. This can be used with a dedicated thread pool, or with
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21 and above. Initialization and disposal always run on the main loop thread.
+     */
+    public @Nullable ExecutorService listenerExecutor;
+    /** Handles exceptions thrown by the main loop, which stops afterwards. */
+    public Cons<Throwable> exceptionHandler = t -> { throw new RuntimeException(t); };
+}
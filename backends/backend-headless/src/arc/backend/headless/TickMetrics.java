@@ -0,0 +1,132 @@
+package arc.backend.headless;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Timing of the updates of a {@link HeadlessApplication}. This is written by the main loop, and can be read from any thread; values that are read
+ * while an update is being recorded may be from different updates.
+ */
+public class TickMetrics{
+    /**
+     * Number of buckets in the histogram of update times. Bucket {@code i} counts updates that took between 2^i and 2^(i+1) microseconds.
+     * The first bucket also counts shorter updates, and the last bucket longer ones.
+     */
+    public static final int buckets = 24;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(buckets);
+    private volatile long ticks, overruns, skipped;
+    private volatile long lastTickNanos, lastRunnablesNanos, lastListenersNanos, maxTickNanos;
+    private volatile long totalTickNanos, totalRunnablesNanos, totalListenersNanos;
+
+    void record(long runnablesNanos, long listenersNanos){
+        long tick = runnablesNanos + listenersNanos;
+        long micros = tick / 1000;
+        int bucket = micros <= 1 ? 0 : Math.min(63 - Long.numberOfLeadingZeros(micros), buckets - 1);
+        histogram.incrementAndGet(bucket);
+
+        ticks ++;
+        lastTickNanos = tick;
+        lastRunnablesNanos = runnablesNanos;
+        lastListenersNanos = listenersNanos;
+        totalTickNanos += tick;
+        totalRunnablesNanos += runnablesNanos;
+        totalListenersNanos += listenersNanos;
+        if(tick > maxTickNanos) maxTickNanos = tick;
+    }
+
+    void overrun(long skippedTicks){
+        overruns ++;
+        skipped += skippedTicks;
+    }
+
+    /** @return the number of updates. */
+    public long ticks(){
+        return ticks;
+    }
+
+    /** @return the number of updates that started at least a full interval later than they were scheduled. */
+    public long overruns(){
+        return overruns;
+    }
+
+    /** @return the number of updates that were skipped because the loop fell too far behind. Only counted with a fixed timestep. */
+    public long skippedTicks(){
+        return skipped;
+    }
+
+    /** @return how long the last update took, in nanoseconds. */
+    public long lastTickNanos(){
+        return lastTickNanos;
+    }
+
+    /** @return how long the posted runnables took during the last update, in nanoseconds. */
+    public long lastRunnablesNanos(){
+        return lastRunnablesNanos;
+    }
+
+    /** @return how long the listeners and the application's own update took during the last update, in nanoseconds. */
+    public long lastListenersNanos(){
+        return lastListenersNanos;
+    }
+
+    /** @return the longest update, in nanoseconds. */
+    public long maxTickNanos(){
+        return maxTickNanos;
+    }
+
+    /** @return the average time of an update, in nanoseconds. */
+    public long averageTickNanos(){
+        long ticks = this.ticks;
+        return ticks == 0 ? 0 : totalTickNanos / ticks;
+    }
+
+    /** @return the total time spent running posted runnables, in nanoseconds. */
+    public long totalRunnablesNanos(){
+        return totalRunnablesNanos;
+    }
+
+    /** @return the total time spent in listeners, in nanoseconds. */
+    public long totalListenersNanos(){
+        return totalListenersNanos;
+    }
+
+    /** @return the number of updates in a bucket of the histogram. */
+    public long histogram(int bucket){
+        return histogram.get(bucket);
+    }
+
+    /**
+     * @param percentile a value between 0 and 1.
+     * @return the upper bound of the time that the given fraction of updates took, in nanoseconds. This is only precise to a power of two.
+     */
+    public long percentileNanos(float percentile){
+        long total = 0;
+        for(int i = 0; i < buckets; i++){
+            total += histogram.get(i);
+        }
+        if(total == 0) return 0;
+
+        long target = (long)Math.ceil(total * percentile), count = 0;
+        for(int i = 0; i < buckets; i++){
+            count += histogram.get(i);
+            if(count >= target) return (2L << i) * 1000;
+        }
+        return maxTickNanos;
+    }
+
+    /** Resets all values to zero. */
+    public void reset(){
+        for(int i = 0; i < buckets; i++){
+            histogram.set(i, 0);
+        }
+        ticks = overruns = skipped = 0;
+        lastTickNanos = lastRunnablesNanos = lastListenersNanos = maxTickNanos = 0;
+        totalTickNanos = totalRunnablesNanos = totalListenersNanos = 0;
+    }
+
+    @Override
+    public String toString(){
+        return "TickMetrics{ticks=" + ticks + ", overruns=" + overruns + ", skipped=" + skipped + ", average=" + averageTickNanos() / 1000 +
+            "us, max=" + maxTickNanos / 1000 + "us, p99=" + percentileNanos(0.99f) / 1000 + "us}";
+    }
+}
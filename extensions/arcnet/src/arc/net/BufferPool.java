@@ -0,0 +1,95 @@
+package arc.net;
+
+import arc.struct.*;
+
+import java.nio.*;
+
+/**
+ * Allocates the read and write buffers of {@link TcpConnection TCP connections}.
+ * <p>
+ * Direct buffers avoid the copy through a temporary direct buffer that the JDK makes for every socket read and write of a heap buffer,
+ * but they are expensive to allocate and are not freed promptly by the garbage collector. A pool with a {@link #slabSize} allocates
+ * direct buffers in slabs and keeps the buffers of closed connections for new ones.
+ * @see Server#setBufferPool(BufferPool)
+ */
+public class BufferPool{
+    /** Allocates a new heap buffer for every connection. This is the default. */
+    public static final BufferPool heap = new BufferPool(false, 0, 0);
+
+    /** Whether buffers are direct. */
+    public final boolean direct;
+    /** Number of buffers allocated at once when the pool is empty, or 0 to allocate each buffer separately. */
+    public final int slabSize;
+    /** Maximum number of free buffers of each capacity to keep. */
+    public final int maxFree;
+
+    private final IntMap<Seq<ByteBuffer>> free = new IntMap<>();
+    private long allocated, reused;
+
+    /** Creates a pool of direct buffers that are allocated in slabs of 16 and never discarded. */
+    public BufferPool(){
+        this(true, 16, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param direct whether to allocate direct buffers.
+     * @param slabSize number of buffers to allocate at once when the pool is empty, or 0 to allocate each buffer separately.
+     * @param maxFree maximum number of free buffers of each capacity to keep for reuse.
+     */
+    public BufferPool(boolean direct, int slabSize, int maxFree){
+        this.direct = direct;
+        this.slabSize = slabSize;
+        this.maxFree = maxFree;
+    }
+
+    /** @return a cleared buffer with the specified capacity. */
+    public synchronized ByteBuffer obtain(int capacity){
+        Seq<ByteBuffer> buffers = free.get(capacity);
+        if(buffers != null && buffers.any()){
+            reused++;
+            ByteBuffer buffer = buffers.pop();
+            buffer.clear();
+            return buffer;
+        }
+
+        allocated++;
+        if(slabSize <= 1 || maxFree == 0){
+            return allocate(capacity);
+        }
+
+        //slice a slab into buffers, keep all but one of them for later
+        ByteBuffer slab = allocate(capacity * slabSize);
+        if(buffers == null) free.put(capacity, buffers = new Seq<>(false, slabSize));
+        for(int i = 1; i < slabSize && buffers.size < maxFree; i++){
+            slab.limit((i + 1) * capacity).position(i * capacity);
+            buffers.add(slab.slice());
+        }
+        slab.limit(capacity).position(0);
+        return slab.slice();
+    }
+
+    /** Returns a buffer to the pool. The buffer must not be used afterwards. */
+    public synchronized void free(ByteBuffer buffer){
+        if(maxFree == 0) return;
+
+        Seq<ByteBuffer> buffers = free.get(buffer.capacity());
+        if(buffers == null) free.put(buffer.capacity(), buffers = new Seq<>(false, 16));
+        if(buffers.size < maxFree){
+            buffers.add(buffer);
+        }
+    }
+
+    /** @return the number of times a buffer had to be allocated or a slab was created. */
+    public synchronized long getAllocated(){
+        return allocated;
+    }
+
+    /** @return the number of times a free buffer was reused. */
+    public synchronized long getReused(){
+        return reused;
+    }
+
+    private ByteBuffer allocate(int capacity){
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
@@ -60,12 +60,17 @@ public class Client extends Connection implements EndPoint{
      * largest object that will be sent or received.
      */
     public Client(int writeBufferSize, int objectBufferSize, NetSerializer serialization){
+        this(writeBufferSize, objectBufferSize, serialization, BufferPool.heap);
+    }
+
+    /** @param bufferPool The pool to obtain the TCP read and write buffers from, e.g. to use direct buffers. */
+    public Client(int writeBufferSize, int objectBufferSize, NetSerializer serialization, BufferPool bufferPool){
         super();
         endPoint = this;
 
         this.serialization = serialization;
 
-        initialize(serialization, writeBufferSize, objectBufferSize);
+        initialize(serialization, writeBufferSize, objectBufferSize, bufferPool);
 
         try{
             selector = Selector.open();
@@ -319,6 +324,13 @@ public class Client extends Connection implements EndPoint{
         long time = System.currentTimeMillis();
         if(tcp.needsKeepAlive(time)) sendTCP(FrameworkMessage.keepAlive);
         if(udp != null && udpRegistered && udp.needsKeepAlive(time)) sendUDP(FrameworkMessage.keepAlive);
+        if(tcp.coalesceMillis > 0){
+            try{
+                tcp.flush(false);
+            }catch(IOException ex){
+                close();
+            }
+        }
     }
 
     public void handleNetException(ArcNetException ex){
@@ -0,0 +1,286 @@
+package arc.net;
+
+import java.nio.*;
+import java.util.zip.*;
+
+/**
+ * Wraps a {@link NetSerializer} and compresses large objects with deflate.
+ * <p>
+ * Every frame starts with a flag byte. If the lowest bit is set, the frame is compressed, and the other bits hold the ID of the preset
+ * dictionary that was used; a compressed frame is followed by the uncompressed size and the deflated data. Objects that serialize to
+ * fewer bytes than the {@link #threshold}, or that do not get smaller when compressed, are sent raw after a zero flag byte.
+ * Every frame is compressed independently, so a preset dictionary of typical data is what makes small frames compress well.
+ * Both ends must use the same dictionary and length mode; a frame that was compressed with a different dictionary causes an error.
+ * <p>
+ * To get compression statistics for each connection, give every connection its own instance with {@link Server#setConnectionSerializer(arc.func.Prov)}.
+ */
+public class CompressingSerializer implements NetSerializer{
+    /** How the length of each TCP frame is written. */
+    public enum LengthMode{
+        /** Unsigned 2-byte length. Frames up to 64KB. This is what other serializers use. */
+        normal(2),
+        /** Unsigned 3-byte length. Frames up to 16MB. */
+        medium(3),
+        /** 4-byte length. Frames up to 2GB. */
+        extended(4);
+
+        public final int bytes;
+
+        LengthMode(int bytes){
+            this.bytes = bytes;
+        }
+    }
+
+    public final NetSerializer serializer;
+    /** Objects that serialize to fewer bytes than this are never compressed. */
+    public int threshold = 512;
+    /** Deflate compression level. */
+    public int level = Deflater.BEST_SPEED;
+
+    private final LengthMode lengthMode;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+
+    private final Object writeLock = new Object(), readLock = new Object();
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private final ByteBuffer writeRaw, readRaw;
+    private final byte[] compressed;
+    private byte[] readInput = {};
+
+    private volatile long rawBytesWritten, wireBytesWritten, compressedFrames, rawFrames, compressNanos;
+    private volatile long rawBytesRead, wireBytesRead, decompressNanos;
+
+    /** Wraps a serializer with no dictionary and the normal 2-byte length. */
+    public CompressingSerializer(NetSerializer serializer, int bufferSize){
+        this(serializer, bufferSize, null, 0, LengthMode.normal);
+    }
+
+    /**
+     * @param bufferSize The largest size of a serialized object before compression.
+     * @param dictionary A preset dictionary with data that is common in frames, or null.
+     * @param dictionaryId An ID for the dictionary between 0 and 127, which is checked when reading compressed frames.
+     * @param lengthMode How to write frame lengths. Must be the same on both ends.
+     */
+    public CompressingSerializer(NetSerializer serializer, int bufferSize, byte[] dictionary, int dictionaryId, LengthMode lengthMode){
+        if(dictionaryId < 0 || dictionaryId > 127) throw new IllegalArgumentException("dictionaryId must be between 0 and 127: " + dictionaryId);
+
+        this.serializer = serializer;
+        this.dictionary = dictionary;
+        this.dictionaryId = dictionaryId;
+        this.lengthMode = lengthMode;
+
+        deflater = new Deflater(level, true);
+        inflater = new Inflater(true);
+        writeRaw = ByteBuffer.allocate(bufferSize);
+        readRaw = ByteBuffer.allocate(bufferSize);
+        //deflate can expand incompressible data slightly, but those frames are sent raw
+        compressed = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, Object object){
+        synchronized(writeLock){
+            ByteBuffer raw = writeRaw;
+            raw.clear();
+            serializer.write(raw, object);
+            int length = raw.position();
+
+            rawBytesWritten += length;
+
+            if(length >= threshold){
+                long start = System.nanoTime();
+
+                Deflater deflater = this.deflater;
+                deflater.reset();
+                deflater.setLevel(level);
+                if(dictionary != null) deflater.setDictionary(dictionary);
+                deflater.setInput(raw.array(), raw.arrayOffset(), length);
+                deflater.finish();
+                int size = deflater.deflate(compressed, 0, compressed.length);
+                boolean fits = deflater.finished();
+
+                compressNanos += System.nanoTime() - start;
+
+                //only send compressed data if it is smaller than the raw data, including the header
+                if(fits && size + 1 + varIntSize(length) < length + 1){
+                    buffer.put((byte)(1 | dictionaryId << 1));
+                    writeVarInt(buffer, length);
+                    buffer.put(compressed, 0, size);
+
+                    compressedFrames++;
+                    wireBytesWritten += size + 1 + varIntSize(length);
+                    return;
+                }
+            }
+
+            buffer.put((byte)0);
+            buffer.put(raw.array(), raw.arrayOffset(), length);
+            rawFrames++;
+            wireBytesWritten += length + 1;
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer){
+        synchronized(readLock){
+            int wire = buffer.remaining();
+            wireBytesRead += wire;
+
+            int flag = buffer.get() & 0xff;
+            if((flag & 1) == 0){
+                rawBytesRead += wire - 1;
+                return serializer.read(buffer);
+            }
+
+            if(flag >> 1 != dictionaryId){
+                throw new ArcNetException("Frame was compressed with dictionary " + (flag >> 1) + ", but this serializer uses dictionary " + dictionaryId + ".");
+            }
+
+            int length = readVarInt(buffer);
+            if(length > readRaw.capacity()){
+                throw new ArcNetException("Decompressed frame too large for buffer: " + length + " > " + readRaw.capacity());
+            }
+
+            long start = System.nanoTime();
+
+            int size = buffer.remaining();
+            if(size > readInput.length) readInput = new byte[size];
+            byte[] input = readInput;
+            buffer.get(input, 0, size);
+
+            ByteBuffer raw = readRaw;
+            raw.clear();
+            Inflater inflater = this.inflater;
+            inflater.reset();
+            if(dictionary != null) inflater.setDictionary(dictionary);
+            inflater.setInput(input, 0, size);
+            try{
+                int inflated = inflater.inflate(raw.array(), raw.arrayOffset(), length);
+                if(inflated != length) throw new ArcNetException("Expected " + length + " decompressed bytes, but got " + inflated + ".");
+            }catch(DataFormatException e){
+                throw new ArcNetException("Invalid compressed frame.", e);
+            }
+            raw.limit(length);
+
+            decompressNanos += System.nanoTime() - start;
+            rawBytesRead += length;
+
+            Object object = serializer.read(raw);
+            if(raw.hasRemaining()){
+                throw new ArcNetException("Incorrect number of bytes (" + raw.remaining() + " remaining) used to deserialize decompressed object: " + object);
+            }
+            return object;
+        }
+    }
+
+    @Override
+    public int getLengthLength(){
+        return lengthMode.bytes;
+    }
+
+    @Override
+    public void writeLength(ByteBuffer buffer, int length){
+        switch(lengthMode){
+            case normal:
+                buffer.putShort((short)length);
+                break;
+            case medium:
+                buffer.put((byte)(length >>> 16));
+                buffer.putShort((short)length);
+                break;
+            default:
+                buffer.putInt(length);
+        }
+    }
+
+    @Override
+    public int readLength(ByteBuffer buffer){
+        switch(lengthMode){
+            case normal:
+                return buffer.getShort() & 0xffff;
+            case medium:
+                return (buffer.get() & 0xff) << 16 | (buffer.getShort() & 0xffff);
+            default:
+                return buffer.getInt();
+        }
+    }
+
+    /** @return the size of written frames divided by the size of the serialized objects. Lower is better. */
+    public float getCompressionRatio(){
+        long raw = rawBytesWritten;
+        return raw == 0 ? 1f : (float)wireBytesWritten / raw;
+    }
+
+    /** @return the size of serialized objects before compression, in bytes. */
+    public long getRawBytesWritten(){
+        return rawBytesWritten;
+    }
+
+    /** @return the size of written frames after compression, in bytes. */
+    public long getWireBytesWritten(){
+        return wireBytesWritten;
+    }
+
+    public long getRawBytesRead(){
+        return rawBytesRead;
+    }
+
+    public long getWireBytesRead(){
+        return wireBytesRead;
+    }
+
+    /** @return the number of frames that were sent compressed. */
+    public long getCompressedFrames(){
+        return compressedFrames;
+    }
+
+    /** @return the number of frames that were sent raw. */
+    public long getRawFrames(){
+        return rawFrames;
+    }
+
+    /** @return time spent compressing, in nanoseconds. This includes attempts that did not make the frame smaller. */
+    public long getCompressNanos(){
+        return compressNanos;
+    }
+
+    /** @return time spent decompressing, in nanoseconds. */
+    public long getDecompressNanos(){
+        return decompressNanos;
+    }
+
+    /** Frees the native compression state. The serializer cannot be used afterwards. */
+    public void dispose(){
+        synchronized(writeLock){
+            deflater.end();
+        }
+        synchronized(readLock){
+            inflater.end();
+        }
+    }
+
+    static int varIntSize(int value){
+        int size = 1;
+        while((value >>>= 7) != 0) size++;
+        return size;
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value){
+        while((value & ~0x7f) != 0){
+            buffer.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static int readVarInt(ByteBuffer buffer){
+        int result = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            byte b = buffer.get();
+            result |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0) return result;
+        }
+        throw new ArcNetException("Malformed variable-length integer.");
+    }
+}
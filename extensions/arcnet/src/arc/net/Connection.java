@@ -21,7 +21,10 @@ public class Connection{
     EndPoint endPoint;
     TcpConnection tcp;
     UdpConnection udp;
-    InetSocketAddress udpRemoteAddress;
+    /** Written by the server's update thread when UDP is registered, and read by the selector thread of this connection. */
+    volatile InetSocketAddress udpRemoteAddress;
+    /** The register lock of the server selector thread that reads this connection, or null if the connection is read by the update thread. */
+    Object registerLock;
     private NetListener[] listeners = {};
     private final Object listenerLock = new Object();
     private int lastPingID;
@@ -35,8 +38,12 @@ public class Connection{
     }
 
     void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+        initialize(serialization, writeBufferSize, objectBufferSize, BufferPool.heap);
+    }
+
+    void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool pool){
         tcp = new TcpConnection(serialization, writeBufferSize,
-        objectBufferSize);
+        objectBufferSize, pool);
     }
 
     /**
@@ -97,6 +104,35 @@ public class Connection{
         }
     }
 
+    /**
+     * Sends a pre-serialized payload over TCP, without a length prefix. The length and the payload are written to the socket
+     * in one gathering write, without copying the payload unless the socket cannot accept all of it.
+     * @return The number of bytes sent, 0 on error.
+     */
+    public int sendTCPFrame(ByteBuffer payload){
+        if(payload == null) throw new IllegalArgumentException("payload cannot be null.");
+
+        try{
+            return tcp.sendFrame(payload);
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            ArcNet.handleError(ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Writes any TCP data that is being held back by {@link #setCoalesceWindowTCP(int)} immediately, for example at the end of a tick.
+     */
+    public void flushTCP(){
+        try{
+            tcp.flush(true);
+        }catch(IOException ex){
+            close(DcReason.error);
+            ArcNet.handleError(ex);
+        }
+    }
+
     /**
      * Sends the object over the network using UDP.
      * @return The number of bytes sent.
@@ -207,6 +243,51 @@ public class Connection{
         tcp.timeoutMillis = timeoutMillis;
     }
 
+    /**
+     * If positive, small TCP writes are held back for up to this many milliseconds, so that several objects are sent with one
+     * socket write. Data is written once the window has passed, when half of the write buffer is used, on {@link #flushTCP()},
+     * or when the update thread notices the window has passed. Defaults to 0, which writes every object immediately.
+     */
+    public void setCoalesceWindowTCP(int millis){
+        tcp.coalesceMillis = millis;
+        if(millis <= 0) flushTCP();
+    }
+
+    /** @return the serializer used for TCP, which may be specific to this connection. */
+    public NetSerializer getTcpSerializer(){
+        return tcp.serialization;
+    }
+
+    /** @return the total number of bytes written to the TCP socket. */
+    public long getTcpBytesWritten(){
+        return tcp.getBytesWritten();
+    }
+
+    /** @return the total number of bytes read from the TCP socket. */
+    public long getTcpBytesRead(){
+        return tcp.getBytesRead();
+    }
+
+    /** @return the number of write calls made on the TCP socket, each of which is a system call. */
+    public long getTcpWriteCalls(){
+        return tcp.getWriteCalls();
+    }
+
+    /** @return the number of read calls made on the TCP socket, each of which is a system call. */
+    public long getTcpReadCalls(){
+        return tcp.getReadCalls();
+    }
+
+    /** @return bytes written to the TCP socket per second, measured over the last full second. */
+    public float getTcpWriteRate(){
+        return tcp.getWriteRate();
+    }
+
+    /** @return bytes read from the TCP socket per second, measured over the last full second. */
+    public float getTcpReadRate(){
+        return tcp.getReadRate();
+    }
+
     /** Adds a listener to the connection, after existing listeners. If the listener already exists, it is not added again. */
     public void addListener(NetListener listener){
         if(listener == null)
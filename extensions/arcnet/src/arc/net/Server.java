@@ -1,5 +1,6 @@
 package arc.net;
 
+import arc.func.*;
 import arc.math.*;
 import arc.net.FrameworkMessage.*;
 import arc.struct.*;
@@ -24,14 +25,20 @@ public class Server implements EndPoint{
     private int emptySelects;
     private ServerSocketChannel serverChannel;
     private UdpConnection udp;
-    private Connection[] connections = {};
+    private volatile Connection[] connections = {};
     private ConcurrentHashMap<InetSocketAddress, Connection> udpAddressToConnection = new ConcurrentHashMap<>();
     private IntMap<Connection> pendingConnections = new IntMap<>();
+    /** Guards all changes to the connections, pending connections and UDP addresses, which happen on both the update and selector threads. */
+    private final Object connectionLock = new Object();
     NetListener[] listeners = {};
     private final Object listenerLock = new Object();
     private volatile boolean shutdown;
     private final Object updateLock = new Object();
     private Thread updateThread;
+    private SelectorThread[] selectorThreads = {};
+    private int nextSelectorThread;
+    private BufferPool bufferPool = BufferPool.heap;
+    private @Nullable Prov<NetSerializer> connectionSerializer;
     private int multicastPort = 21010;
     protected InetAddress multicastGroup;
     protected DiscoveryReceiver discoveryReceiver;
@@ -40,6 +47,7 @@ public class Server implements EndPoint{
 
     private final ByteBuffer bulkWriteBuffer;
     private final Object bulkWriteLock = new Object();
+    private final BroadcastStats broadcastStats = new BroadcastStats();
 
     private NetListener dispatchListener = new NetListener(){
         @Override
@@ -117,6 +125,67 @@ public class Server implements EndPoint{
         }
     }
 
+    /**
+     * Sets the number of threads that read and write TCP connections. By default, this is 0, and all connections are processed by {@link #update(int)}.
+     * <p>
+     * With one or more selector threads, every new TCP connection is assigned to one of them in turn. Each thread runs its own selector,
+     * and deserializes the objects of its connections and calls {@link NetListener#received(Connection, Object)} for them,
+     * so the objects of one connection are still received in order, on one thread. Listeners must then be safe to call from several threads.
+     * Accepting connections, UDP, timeouts and keep-alives are still handled by {@link #update(int)}.
+     * <p>
+     * Only affects connections accepted after this is called. Existing connections stay on their current thread, which keeps running.
+     */
+    public void setSelectorThreads(int threads){
+        if(threads < 0) throw new IllegalArgumentException("threads cannot be negative: " + threads);
+
+        SelectorThread[] old = selectorThreads;
+        SelectorThread[] created = new SelectorThread[threads];
+        for(int i = 0; i < threads; i++){
+            created[i] = i < old.length ? old[i] : new SelectorThread(i);
+        }
+        //threads that are no longer needed shut down once their connections are gone
+        for(int i = threads; i < old.length; i++){
+            old[i].retired = true;
+            old[i].selector.wakeup();
+        }
+        selectorThreads = created;
+    }
+
+    /** @return the number of threads that process TCP connections, or 0 if they are processed by {@link #update(int)}. */
+    public int getSelectorThreads(){
+        return selectorThreads.length;
+    }
+
+    private @Nullable SelectorThread nextSelectorThread(){
+        SelectorThread[] threads = selectorThreads;
+        if(threads.length == 0) return null;
+        return threads[Math.floorMod(nextSelectorThread++, threads.length)];
+    }
+
+    /**
+     * Sets the pool that the TCP read and write buffers of new connections are obtained from. Buffers are returned when a connection is removed.
+     * Defaults to {@link BufferPool#heap}.
+     */
+    public void setBufferPool(BufferPool bufferPool){
+        if(bufferPool == null) throw new IllegalArgumentException("bufferPool cannot be null.");
+        this.bufferPool = bufferPool;
+    }
+
+    public BufferPool getBufferPool(){
+        return bufferPool;
+    }
+
+    /**
+     * Sets a provider that creates a separate TCP serializer for each new connection, e.g. a {@link CompressingSerializer} with its own
+     * compression state and statistics, which can be accessed with {@link Connection#getTcpSerializer()}.
+     * The serializer of this server is still used for UDP. The sendToAll methods serialize a TCP broadcast once with it for the connections that use it,
+     * and separately for each connection that has a different serializer.
+     * If null, every connection uses the serializer of this server.
+     */
+    public void setConnectionSerializer(@Nullable Prov<NetSerializer> connectionSerializer){
+        this.connectionSerializer = connectionSerializer;
+    }
+
     public void setDiscoveryHandler(ServerDiscoveryHandler newDiscoveryHandler){
         discoveryHandler = newDiscoveryHandler;
     }
@@ -224,30 +293,7 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
-                                fromConnection.close(DcReason.error);
-                                continue;
-                            }
-                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
-                                try{
-                                    while(true){
-                                        Object object = fromConnection.tcp.readObject();
-                                        if(object == null)
-                                            break;
-                                        fromConnection.notifyReceived(object);
-                                    }
-                                }catch(IOException | ArcNetException ex){
-                                    ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
-                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
-                                try{
-                                    fromConnection.tcp.writeOperation();
-                                }catch(IOException ex){
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
+                            processTCP(fromConnection, ops, udp);
                             continue;
                         }
 
@@ -296,14 +342,19 @@ public class Server implements EndPoint{
                                 // reply over TCP with a RegisterUDP to indicate
                                 // success.
                                 int fromConnectionID = ((RegisterUDP)object).connectionID;
-                                Connection connection = pendingConnections
-                                .remove(fromConnectionID);
+                                Connection connection;
+                                synchronized(connectionLock){
+                                    connection = pendingConnections.remove(fromConnectionID);
+                                }
                                 if(connection != null){
-                                    if(connection.udpRemoteAddress != null) continue;
-                                    connection.udpRemoteAddress = fromAddress;
-                                    addConnection(connection);
-                                    connection.sendTCP(new RegisterUDP());
-                                    connection.notifyConnected();
+                                    //the selector thread of the connection may not process it until connected() was called
+                                    synchronized(connection.registerLock == null ? updateLock : connection.registerLock){
+                                        if(connection.udpRemoteAddress != null) continue;
+                                        connection.udpRemoteAddress = fromAddress;
+                                        if(!addConnection(connection)) continue;
+                                        connection.sendTCP(new RegisterUDP());
+                                        connection.notifyConnected();
+                                    }
                                     continue;
                                 }
                                 continue;
@@ -338,12 +389,47 @@ public class Server implements EndPoint{
             }else{
                 if(connection.tcp.needsKeepAlive(time))
                     connection.sendTCP(FrameworkMessage.keepAlive);
+                if(connection.tcp.coalesceMillis > 0){
+                    try{
+                        connection.tcp.flush(false);
+                    }catch(IOException ex){
+                        connection.close(DcReason.error);
+                    }
+                }
             }
             if(connection.isIdle())
                 connection.notifyIdle();
         }
     }
 
+    /** Reads and writes a TCP connection that is ready for the specified operations. */
+    private void processTCP(Connection fromConnection, int ops, @Nullable UdpConnection udp){
+        if(udp != null && fromConnection.udpRemoteAddress == null){
+            fromConnection.close(DcReason.error);
+            return;
+        }
+        if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+            try{
+                while(true){
+                    Object object = fromConnection.tcp.readObject();
+                    if(object == null)
+                        break;
+                    fromConnection.notifyReceived(object);
+                }
+            }catch(IOException | ArcNetException ex){
+                ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+        if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+            try{
+                fromConnection.tcp.writeOperation();
+            }catch(IOException ex){
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+    }
+
     @Override
     public void run(){
         shutdown = false;
@@ -380,37 +466,53 @@ public class Server implements EndPoint{
         }
 
         Connection connection = newConnection();
-        connection.initialize(serializer,
-        writeBufferSize, objectBufferSize);
+        Prov<NetSerializer> connectionSerializer = this.connectionSerializer;
+        connection.initialize(connectionSerializer == null ? serializer : connectionSerializer.get(),
+        writeBufferSize, objectBufferSize, bufferPool);
         connection.endPoint = this;
         UdpConnection udp = this.udp;
         if(udp != null)
             connection.udp = udp;
-        try{
-            SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
-            selectionKey.attach(connection);
-
-            int id = generateId();
-            connection.id = id;
-            connection.setConnected(true);
-            connection.addListener(dispatchListener);
+        SelectorThread thread = nextSelectorThread();
+        //while the connection is being set up, its selector thread may not read from it, so that connected() is always called before received()
+        synchronized(thread == null ? updateLock : thread.registerLock){
+            try{
+                Selector selector = this.selector;
+                if(thread != null){
+                    selector = thread.selector;
+                    selector.wakeup();
+                }
 
-            if(udp == null)
-                addConnection(connection);
-            else
-                pendingConnections.put(id, connection);
+                SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
+                selectionKey.attach(connection);
+                if(thread != null) connection.registerLock = thread.registerLock;
+
+                connection.setConnected(true);
+                connection.addListener(dispatchListener);
+
+                int id;
+                synchronized(connectionLock){
+                    id = generateId();
+                    connection.id = id;
+                    if(udp == null)
+                        addConnection(connection);
+                    else
+                        pendingConnections.put(id, connection);
+                }
 
-            RegisterTCP registerConnection = new RegisterTCP();
-            registerConnection.connectionID = id;
-            connection.sendTCP(registerConnection);
+                RegisterTCP registerConnection = new RegisterTCP();
+                registerConnection.connectionID = id;
+                connection.sendTCP(registerConnection);
 
-            if(udp == null)
-                connection.notifyConnected();
-        }catch(IOException ex){
-            connection.close(DcReason.error);
+                if(udp == null)
+                    connection.notifyConnected();
+            }catch(IOException ex){
+                connection.close(DcReason.error);
+            }
         }
     }
 
+    /** Must be called while holding the connection lock, together with adding the connection under the new ID. */
     private int generateId(){
         int[] id = {0}; //java lambda as just amazing aren't they????
         Rand rand = new Rand(); //not really concerned about allocating an object with two longs
@@ -428,139 +530,111 @@ public class Server implements EndPoint{
         return new Connection();
     }
 
-    private void addConnection(Connection connection){
-        connections = Structs.add(connections, connection);
+    /** @return false if the connection was closed in the meantime, in which case it is not added. */
+    private boolean addConnection(Connection connection){
+        synchronized(connectionLock){
+            //a connection that was closed on its selector thread has already been removed, so it must not be added back
+            if(!connection.isConnected) return false;
+
+            connections = Structs.add(connections, connection);
 
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.put(connection.udpRemoteAddress, connection);
+            }
+            return true;
         }
     }
 
     void removeConnection(Connection connection){
-        connections = Structs.remove(connections, connection);
+        synchronized(connectionLock){
+            connections = Structs.remove(connections, connection);
 
-        pendingConnections.remove(connection.id);
-        if(connection.udpRemoteAddress != null){
-            udpAddressToConnection.remove(connection.udpRemoteAddress);
+            pendingConnections.remove(connection.id);
+            if(connection.udpRemoteAddress != null){
+                udpAddressToConnection.remove(connection.udpRemoteAddress);
+            }
         }
+        connection.tcp.release();
     }
 
+    /** Sends the object over TCP to every connection, serializing it only once. */
     public void sendToAllTCP(Object object){
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeTCP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, true);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             Connection[] connections = this.connections;
             for(Connection con : connections){
-                try{
-                    con.sendTCPBuffer(buffer);
-                }catch(Exception e){
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, true);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
         }
     }
 
+    /** Sends the object over TCP to every connection except one, serializing it only once. */
     public void sendToAllExceptTCP(int connectionID, Object object){
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeTCP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, true);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             Connection[] connections = this.connections;
             for(Connection con : connections){
                 if(con.id == connectionID) continue;
-                try{
-                    con.sendTCPBuffer(buffer);
-                }catch(Exception e){
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, true);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
         }
     }
 
     /** Sends the object over TCP to every connection in the list, serializing it only once. */
     public void sendToAllTCP(Object object, Iterable<Connection> connections){
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeTCP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, true);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             for(Connection con : connections){
                 if(!con.isConnected()) continue;
-                try{
-                    con.sendTCPBuffer(buffer);
-                }catch(Exception e){
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, true);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
         }
     }
 
-
+    /** Sends the object over UDP to every connection, serializing it only once. */
     public void sendToAllUDP(Object object){
         if(udp == null) return;
 
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeUDP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, false);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             Connection[] connections = this.connections;
             for(Connection con : connections){
-                try{
-                    con.sendUDPBuffer(buffer);
-                }catch(Exception e){
-                    //note: 'vanilla' kryonet doesn't do this, but mindustry does this in ArcConnection#send upon error, so it's probably best to close upon error here as well and not let it propagate
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, false);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
         }
     }
 
+    /** Sends the object over UDP to every connection except one, serializing it only once. */
     public void sendToAllExceptUDP(int connectionID, Object object){
         if(udp == null) return;
 
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeUDP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, false);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             Connection[] connections = this.connections;
             for(Connection con : connections){
                 if(con.id == connectionID) continue;
-                try{
-                    con.sendUDPBuffer(buffer);
-                }catch(Exception e){
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, false);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
         }
     }
 
@@ -569,23 +643,76 @@ public class Server implements EndPoint{
         if(udp == null) return;
 
         synchronized(bulkWriteLock){
-            ByteBuffer buffer;
-            try{
-                buffer = serializeUDP(object);
-            }catch(Throwable ex){
-                ArcNet.handleError(ex);
-                return;
-            }
+            ByteBuffer buffer = serializeBroadcast(object, false);
+            if(buffer == null) return;
 
+            long start = Time.nanos();
             for(Connection con : connections){
                 if(!con.isConnected()) continue; //note: since this method accepts a list of connections, there may be stale connections, so filter for that (not possible otherwise)
-                try{
-                    con.sendUDPBuffer(buffer);
-                }catch(Exception e){
-                    ArcNet.handleError(e);
-                    con.close(DcReason.error);
-                }
+                copyBroadcast(con, object, buffer, false);
             }
+            broadcastStats.copyNanos += Time.timeSinceNanos(start);
+        }
+    }
+
+    /**
+     * Serializes an object once into a new read-only frame, which can be passed to {@link Connection#sendTCPBuffer(ByteBuffer)}
+     * or {@link Connection#sendUDPBuffer(ByteBuffer)} of any number of connections, at any later time.
+     * Use this to send the same data to several different subsets of connections.
+     * TCP frames are written by the serializer of this server, so they can only be sent to connections that use it, see {@link #setConnectionSerializer(Prov)}.
+     * Sending a frame moves its position, so threads that send the same frame concurrently should each use a {@link ByteBuffer#duplicate()}.
+     * @param tcp whether to include the TCP length prefix.
+     */
+    public ByteBuffer serializeFrame(Object object, boolean tcp){
+        synchronized(bulkWriteLock){
+            ByteBuffer buffer = tcp ? serializeTCP(object) : serializeUDP(object);
+            ByteBuffer frame = ByteBuffer.allocate(buffer.remaining());
+            frame.put(buffer);
+            frame.flip();
+            return frame.asReadOnlyBuffer();
+        }
+    }
+
+    /** @return timing statistics of the sendToAll methods. Only valid while no broadcast is in progress. */
+    public BroadcastStats getBroadcastStats(){
+        return broadcastStats;
+    }
+
+    /** Serializes a broadcast into the shared bulk-write buffer, recording the time taken. Errors are handled here. */
+    private @Nullable ByteBuffer serializeBroadcast(Object object, boolean tcp){
+        long start = Time.nanos();
+        ByteBuffer buffer;
+        try{
+            buffer = tcp ? serializeTCP(object) : serializeUDP(object);
+        }catch(Throwable ex){
+            ArcNet.handleError(ex);
+            return null;
+        }
+
+        broadcastStats.serializeNanos += Time.timeSinceNanos(start);
+        broadcastStats.broadcasts++;
+        broadcastStats.bytes += buffer.remaining();
+        return buffer;
+    }
+
+    /** Copies a serialized broadcast frame to one connection, closing it on error. */
+    private void copyBroadcast(Connection con, Object object, ByteBuffer buffer, boolean tcp){
+        try{
+            if(tcp && con.getTcpSerializer() != serializer){
+                //the frame is in the format of the server serializer, which this connection may not be able to read
+                con.sendTCP(object);
+                broadcastStats.separate++;
+            }else if(tcp){
+                con.sendTCPBuffer(buffer);
+                broadcastStats.copies++;
+            }else{
+                con.sendUDPBuffer(buffer);
+                broadcastStats.copies++;
+            }
+        }catch(Exception e){
+            //note: 'vanilla' kryonet doesn't do this, but mindustry does this in ArcConnection#send upon error, so it's probably best to close upon error here as well and not let it propagate
+            ArcNet.handleError(e);
+            con.close(DcReason.error);
         }
     }
 
@@ -672,7 +799,9 @@ public class Server implements EndPoint{
     public void close(){
         Connection[] connections = this.connections;
         for(Connection connection : connections) connection.close(DcReason.closed);
-        this.connections = new Connection[0];
+        synchronized(connectionLock){
+            this.connections = new Connection[0];
+        }
 
         ServerSocketChannel serverChannel = this.serverChannel;
         if(serverChannel != null){
@@ -711,6 +840,13 @@ public class Server implements EndPoint{
     public void dispose() throws IOException{
         close();
         selector.close();
+
+        SelectorThread[] threads = selectorThreads;
+        selectorThreads = new SelectorThread[0];
+        for(SelectorThread thread : threads){
+            thread.retired = true;
+            thread.selector.wakeup();
+        }
     }
 
     @Override
@@ -726,6 +862,80 @@ public class Server implements EndPoint{
         return connections;
     }
 
+    /** Runs a selector for a subset of the TCP connections. */
+    class SelectorThread implements Runnable{
+        final Selector selector;
+        /** Held while registering and connecting connections, to keep the thread from selecting or processing them. */
+        final Object registerLock = new Object();
+        final Thread thread;
+        volatile boolean retired;
+        int emptySelects;
+
+        SelectorThread(int index){
+            try{
+                selector = Selector.open();
+            }catch(IOException ex){
+                throw new RuntimeException("Error opening the selector.", ex);
+            }
+            thread = Threads.daemon("Server Selector " + index, this);
+        }
+
+        @Override
+        public void run(){
+            while(!(retired && selector.keys().isEmpty())){
+                try{
+                    update();
+                }catch(ClosedSelectorException ex){
+                    return;
+                }catch(Throwable ex){
+                    ArcNet.handleError(ex);
+                }
+            }
+
+            try{
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+
+        void update() throws IOException{
+            synchronized(registerLock){
+                // Blocks to avoid a select while a connection is being registered.
+            }
+
+            long startTime = System.currentTimeMillis();
+            if(selector.select(250) == 0){
+                emptySelects++;
+                if(emptySelects == 100){
+                    emptySelects = 0;
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    try{
+                        if(elapsedTime < 25) Thread.sleep(25 - elapsedTime);
+                    }catch(InterruptedException ignored){
+                    }
+                }
+                return;
+            }
+
+            emptySelects = 0;
+            UdpConnection udp = Server.this.udp;
+            //a connection that registers UDP becomes readable before connected() is called, which happens while holding this lock
+            synchronized(registerLock){
+                Set<SelectionKey> keys = selector.selectedKeys();
+                for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                    SelectionKey selectionKey = iter.next();
+                    iter.remove();
+                    Connection connection = (Connection)selectionKey.attachment();
+                    try{
+                        processTCP(connection, selectionKey.readyOps(), udp);
+                    }catch(CancelledKeyException ex){
+                        connection.close(DcReason.error);
+                    }
+                }
+            }
+        }
+    }
+
     class DiscoveryReceiver{
         MulticastSocket socket = null;
         Thread multicastThread;
@@ -771,6 +981,38 @@ public class Server implements EndPoint{
         }
     }
 
+    /** Statistics of broadcasts made with the sendToAll methods, which serialize every object once and copy the frame to each connection. */
+    public static class BroadcastStats{
+        /** Number of objects broadcast. */
+        public long broadcasts;
+        /** Number of frames copied to connections. */
+        public long copies;
+        /** Number of TCP sends that were serialized separately, as the connection uses its own serializer. */
+        public long separate;
+        /** Total size of the serialized frames, in bytes. Each frame is counted once, regardless of the number of connections. */
+        public long bytes;
+        /** Time spent serializing broadcast objects, in nanoseconds. */
+        public long serializeNanos;
+        /** Time spent copying serialized frames to connections, in nanoseconds. This includes socket writes that happen immediately. */
+        public long copyNanos;
+
+        public void reset(){
+            broadcasts = copies = separate = bytes = serializeNanos = copyNanos = 0;
+        }
+
+        @Override
+        public String toString(){
+            return "BroadcastStats{" +
+            "broadcasts=" + broadcasts +
+            ", copies=" + copies +
+            ", separate=" + separate +
+            ", bytes=" + bytes +
+            ", serializeMs=" + serializeNanos / 1000000f +
+            ", copyMs=" + copyNanos / 1000000f +
+            '}';
+        }
+    }
+
     public interface ServerConnectFilter{
         boolean accept(String address);
     }
@@ -2,11 +2,14 @@
 
 package arc.net;
 
+import arc.util.*;
+
 import java.io.IOException;
 import java.net.Socket;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.*;
 
 /**
  * @author Nathan Sweet <misc@n4te.com>
@@ -17,18 +20,36 @@ public class TcpConnection{
     final ByteBuffer readBuffer, writeBuffer;
     int timeoutMillis = 12000;
     float idleThreshold = 0.1f;
+    /** If positive, small writes are held back for up to this many milliseconds to be sent together. */
+    int coalesceMillis;
 
     final NetSerializer serialization;
+    private final BufferPool pool;
     private SelectionKey selectionKey;
     private volatile long lastWriteTime, lastReadTime;
     private int currentObjectLength;
-    private final Object writeLock = new Object();
+    private final Object writeLock = new Object(), readLock = new Object();
+    private final ByteBuffer lengthBuffer;
+    private final ByteBuffer[] gather = new ByteBuffer[3];
+    private boolean released;
+    /** Time at which the oldest coalesced write was queued, or 0. */
+    private long coalesceStart;
+
+    private volatile long bytesWritten, bytesRead, writeCalls, readCalls;
+    private final Rate writeRate = new Rate(), readRate = new Rate();
 
     public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+        this(serialization, writeBufferSize, objectBufferSize, BufferPool.heap);
+    }
+
+    /** @param pool the pool to obtain the read and write buffers from. They are returned by {@link #release()}. */
+    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool pool){
         this.serialization = serialization;
-        writeBuffer = ByteBuffer.allocate(writeBufferSize);
-        readBuffer = ByteBuffer.allocate(objectBufferSize);
+        this.pool = pool;
+        writeBuffer = pool.obtain(writeBufferSize);
+        readBuffer = pool.obtain(objectBufferSize);
         readBuffer.flip();
+        lengthBuffer = ByteBuffer.allocate(8);
     }
 
     public SelectionKey accept(Selector selector, SocketChannel socketChannel) throws IOException{
@@ -80,8 +101,14 @@ public class TcpConnection{
     }
 
     public Object readObject() throws IOException{
+        synchronized(readLock){
+            return readObjectLocked();
+        }
+    }
+
+    private Object readObjectLocked() throws IOException{
         SocketChannel socketChannel = this.socketChannel;
-        if(socketChannel == null)
+        if(socketChannel == null || released)
             throw new SocketException("Connection is closed.");
 
         if(currentObjectLength == 0){
@@ -94,6 +121,7 @@ public class TcpConnection{
                 if(bytesRead == -1)
                     throw new SocketException("Connection is closed.");
                 lastReadTime = System.currentTimeMillis();
+                countRead(bytesRead);
 
                 if(readBuffer.remaining() < lengthLength)
                     return null;
@@ -118,6 +146,7 @@ public class TcpConnection{
             if(bytesRead == -1)
                 throw new SocketException("Connection is closed.");
             lastReadTime = System.currentTimeMillis();
+            countRead(bytesRead);
 
             if(readBuffer.remaining() < length)
                 return null;
@@ -145,6 +174,7 @@ public class TcpConnection{
 
     public void writeOperation() throws IOException{
         synchronized(writeLock){
+            coalesceStart = 0;
             if(writeToSocket()){
                 // Write successful, clear OP_WRITE.
                 selectionKey.interestOps(SelectionKey.OP_READ);
@@ -153,6 +183,23 @@ public class TcpConnection{
         }
     }
 
+    /**
+     * Writes any coalesced data to the socket. This method is thread safe.
+     * @param force if false, only writes if the coalescing window has passed.
+     */
+    public void flush(boolean force) throws IOException{
+        synchronized(writeLock){
+            if(coalesceStart == 0 || socketChannel == null || released) return;
+            if(!force && System.currentTimeMillis() - coalesceStart < coalesceMillis) return;
+
+            coalesceStart = 0;
+            if(!writeToSocket()){
+                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+            lastWriteTime = System.currentTimeMillis();
+        }
+    }
+
     private boolean writeToSocket() throws IOException{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null)
@@ -161,7 +208,9 @@ public class TcpConnection{
         ByteBuffer buffer = writeBuffer;
         buffer.flip();
         while(buffer.hasRemaining()){
-            if(socketChannel.write(buffer) == 0)
+            int written = socketChannel.write(buffer);
+            countWrite(written);
+            if(written == 0)
                 break;
         }
         buffer.compact();
@@ -169,6 +218,41 @@ public class TcpConnection{
         return buffer.position() == 0;
     }
 
+    /**
+     * Writes any queued data, an optional header and a payload to the socket in as few gathering writes as possible.
+     * Whatever the socket does not accept is copied to the write buffer.
+     * @return whether everything was written.
+     */
+    private boolean gatherToSocket(@Nullable ByteBuffer header, ByteBuffer payload) throws IOException{
+        SocketChannel socketChannel = this.socketChannel;
+        if(socketChannel == null)
+            throw new SocketException("Connection is closed.");
+
+        ByteBuffer[] gather = this.gather;
+        int count = 0;
+        writeBuffer.flip();
+        gather[count++] = writeBuffer;
+        if(header != null) gather[count++] = header;
+        gather[count++] = payload;
+
+        long total = writeBuffer.remaining() + payload.remaining() + (header == null ? 0 : header.remaining());
+        while(total > 0){
+            long written = socketChannel.write(gather, 0, count);
+            countWrite(written);
+            if(written == 0) break;
+            total -= written;
+        }
+        writeBuffer.compact();
+        Arrays.fill(gather, null);
+
+        if(total == 0) return true;
+
+        //queue the rest, which is guaranteed to fit by the caller
+        if(header != null) writeBuffer.put(header);
+        writeBuffer.put(payload);
+        return false;
+    }
+
     /**
      * This method is thread safe.
      */
@@ -176,6 +260,7 @@ public class TcpConnection{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null) throw new SocketException("Connection is closed.");
         synchronized(writeLock){
+            if(released) throw new SocketException("Connection is closed.");
 
             int start = writeBuffer.position();
             int lengthLength = serialization.getLengthLength();
@@ -196,8 +281,16 @@ public class TcpConnection{
             serialization.writeLength(writeBuffer, end - lengthLength - start);
             writeBuffer.position(end);
 
+            if(coalesce(start)){
+                return end - start;
+            }
+
+            // Data is queued if the socket was not writable, or if it was coalesced.
+            boolean queued = coalesceMillis > 0 ? (selectionKey.interestOps() & SelectionKey.OP_WRITE) != 0 : start != 0;
+            coalesceStart = 0;
+
             // Write to socket if no data was queued.
-            if(start == 0 && !writeToSocket()){
+            if(!queued && !writeToSocket()){
                 // A partial write, set OP_WRITE to be notified when more
                 // writing can occur.
                 selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
@@ -212,31 +305,87 @@ public class TcpConnection{
     }
 
     /**
-     * Writes a pre-serialized, length-prefixed buffer directly into this connection's write buffer.
-     * Note that this cannot use a raw buffer like UDP, it must contain length!
+     * Decides whether data that was just added to the write buffer should be held back instead of written.
+     * @param start the position of the write buffer before the data was added.
      */
-    public int sendBuffer(ByteBuffer buffer) throws IOException{
+    private boolean coalesce(int start){
+        if(coalesceMillis <= 0) return false;
+
+        long time = System.currentTimeMillis();
+        if(start == 0 || coalesceStart == 0){
+            coalesceStart = time;
+        }
+
+        //hold data back until the window passes or the buffer is half full
+        return time - coalesceStart < coalesceMillis && writeBuffer.position() < writeBuffer.capacity() / 2;
+    }
+
+    /**
+     * Writes a payload with a length prefix, without serializing or copying it first. Any queued data, the length and the payload
+     * are passed to the socket in one gathering write, and only what the socket does not accept is copied to the write buffer.
+     * The payload must not include a length. This method is thread safe, but the payload's position is changed.
+     * @return the number of bytes sent, including the length.
+     */
+    public int sendFrame(ByteBuffer payload) throws IOException{
         SocketChannel socketChannel = this.socketChannel;
         if(socketChannel == null) throw new SocketException("Connection is closed.");
         synchronized(writeLock){
-            buffer.rewind();
-            int length = buffer.remaining();
+            if(released) throw new SocketException("Connection is closed.");
+
+            int length = payload.remaining();
+            ByteBuffer header = lengthBuffer;
+            header.clear();
+            serialization.writeLength(header, length);
+            header.flip();
+            return gather(header, payload);
+        }
+    }
 
-            int start = writeBuffer.position();
-            if(length > writeBuffer.remaining()){
-                throw new ArcNetException("Bulk buffer too large for write buffer: " + length + " > " + writeBuffer.remaining());
-            }
-            writeBuffer.put(buffer);
-            int end = writeBuffer.position();
+    /** Gathers an optional header and a payload into the socket. Must hold the write lock. */
+    private int gather(@Nullable ByteBuffer header, ByteBuffer payload) throws IOException{
+        int length = payload.remaining() + (header == null ? 0 : header.remaining());
+        if(length > writeBuffer.remaining()){
+            throw new ArcNetException("Frame too large for write buffer: " + length + " > " + writeBuffer.remaining());
+        }
+
+        int start = writeBuffer.position();
+        if(coalesceMillis > 0){
+            if(header != null) writeBuffer.put(header);
+            writeBuffer.put(payload);
+            if(coalesce(start)) return length;
+            coalesceStart = 0;
 
-            if(start == 0 && !writeToSocket()){
+            if((selectionKey.interestOps() & SelectionKey.OP_WRITE) == 0 && !writeToSocket()){
                 selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-            }else{
-                selectionKey.selector().wakeup();
             }
+        }else if((selectionKey.interestOps() & SelectionKey.OP_WRITE) != 0){
+            //the socket is not writable, so just queue the data
+            if(header != null) writeBuffer.put(header);
+            writeBuffer.put(payload);
+        }else if(!gatherToSocket(header, payload)){
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }else{
+            selectionKey.selector().wakeup();
+        }
 
-            lastWriteTime = System.currentTimeMillis();
-            return end - start;
+        lastWriteTime = System.currentTimeMillis();
+        return length;
+    }
+
+    /**
+     * Writes a pre-serialized, length-prefixed buffer directly into this connection's write buffer.
+     * Note that this cannot use a raw buffer like UDP, it must contain length!
+     */
+    public int sendBuffer(ByteBuffer buffer) throws IOException{
+        SocketChannel socketChannel = this.socketChannel;
+        if(socketChannel == null) throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            if(released) throw new SocketException("Connection is closed.");
+            buffer.rewind();
+            if(buffer.remaining() > writeBuffer.remaining()){
+                throw new ArcNetException("Bulk buffer too large for write buffer: " + buffer.remaining() + " > " + writeBuffer.remaining());
+            }
+            return gather(null, buffer);
         }
     }
 
@@ -252,6 +401,60 @@ public class TcpConnection{
         }
     }
 
+    /**
+     * Returns the read and write buffers to the {@link BufferPool} they came from. The connection must be closed,
+     * and cannot be used again afterwards.
+     */
+    public void release(){
+        synchronized(readLock){
+            synchronized(writeLock){
+                if(released) return;
+                close();
+                released = true;
+                pool.free(writeBuffer);
+                pool.free(readBuffer);
+            }
+        }
+    }
+
+    public long getBytesWritten(){
+        return bytesWritten;
+    }
+
+    public long getBytesRead(){
+        return bytesRead;
+    }
+
+    public long getWriteCalls(){
+        return writeCalls;
+    }
+
+    public long getReadCalls(){
+        return readCalls;
+    }
+
+    /** @return bytes written per second, measured over the last full second. */
+    public float getWriteRate(){
+        return writeRate.get();
+    }
+
+    /** @return bytes read per second, measured over the last full second. */
+    public float getReadRate(){
+        return readRate.get();
+    }
+
+    private void countWrite(long bytes){
+        writeCalls++;
+        bytesWritten += bytes;
+        writeRate.add(bytes);
+    }
+
+    private void countRead(long bytes){
+        readCalls++;
+        bytesRead += bytes;
+        readRate.add(bytes);
+    }
+
     public boolean needsKeepAlive(long time){
         return socketChannel != null && keepAliveMillis > 0 && time - lastWriteTime > keepAliveMillis;
     }
@@ -259,4 +462,27 @@ public class TcpConnection{
     public boolean isTimedOut(long time){
         return socketChannel != null && timeoutMillis > 0 && time - lastReadTime > timeoutMillis;
     }
+
+    /** Measures a number of bytes per second, in one second intervals. Only updated by one thread at a time. */
+    static class Rate{
+        private long intervalStart = System.currentTimeMillis(), intervalBytes;
+        private volatile float rate;
+        private volatile long lastUpdate;
+
+        void add(long bytes){
+            long time = System.currentTimeMillis();
+            intervalBytes += bytes;
+            if(time - intervalStart >= 1000){
+                rate = intervalBytes * 1000f / (time - intervalStart);
+                intervalStart = time;
+                intervalBytes = 0;
+            }
+            lastUpdate = time;
+        }
+
+        float get(){
+            //nothing happened for a while, so the last measurement is stale
+            return System.currentTimeMillis() - lastUpdate > 2000 ? 0f : rate;
+        }
+    }
 }
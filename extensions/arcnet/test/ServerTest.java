@@ -0,0 +1,170 @@
+import arc.func.*;
+import arc.net.*;
+import arc.net.FrameworkMessage.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class ServerTest{
+    static final int tcpPort = 54661, udpPort = 54662, clients = 200, rounds = 20;
+
+    @Test
+    public void concurrentConnections() throws Exception{
+        Server server = new Server(8192, 2048, new FrameworkSerializer());
+        server.setSelectorThreads(4);
+        AtomicInteger connected = new AtomicInteger(), disconnected = new AtomicInteger();
+        server.addListener(new NetListener(){
+            @Override
+            public void connected(Connection connection){
+                connected.incrementAndGet();
+            }
+
+            @Override
+            public void disconnected(Connection connection, DcReason reason){
+                disconnected.incrementAndGet();
+            }
+        });
+        server.bind(tcpPort, udpPort);
+        server.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try{
+            for(int round = 0; round < rounds; round++){
+                //every client disconnects right after connecting, so removals on the selector threads overlap with accepting on the update thread
+                Client[] batch = new Client[clients];
+                Seq<Callable<Object>> connects = connect(batch), tasks = new Seq<>();
+                for(int i = 0; i < clients; i++){
+                    Callable<Object> connect = connects.get(i);
+                    Client client = batch[i];
+                    tasks.add(() -> {
+                        connect.call();
+                        client.stop();
+                        return null;
+                    });
+                }
+                run(executor, tasks);
+            }
+
+            await(() -> disconnected.get() == rounds * clients && server.getConnections().length == 0);
+            assertEquals(rounds * clients, connected.get());
+        }finally{
+            executor.shutdownNow();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void uniqueIds() throws Exception{
+        Server server = new Server(8192, 2048, new FrameworkSerializer());
+        server.setSelectorThreads(4);
+        server.bind(tcpPort, udpPort);
+        server.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        Client[] batch = new Client[clients];
+        try{
+            run(executor, connect(batch));
+            await(() -> server.getConnections().length == clients);
+
+            IntSet ids = new IntSet();
+            for(Connection connection : server.getConnections()){
+                assertTrue("Duplicate connection ID: " + connection.getID(), ids.add(connection.getID()));
+            }
+            for(Client client : batch){
+                assertTrue("Missing connection: " + client.getID(), ids.contains(client.getID()));
+            }
+
+            run(executor, stop(batch));
+            await(() -> server.getConnections().length == 0);
+        }finally{
+            executor.shutdownNow();
+            server.stop();
+        }
+    }
+
+    static Seq<Callable<Object>> stop(Client[] clients){
+        Seq<Callable<Object>> tasks = new Seq<>();
+        for(Client client : clients){
+            tasks.add(() -> {
+                client.stop();
+                return null;
+            });
+        }
+        return tasks;
+    }
+
+    static Seq<Callable<Object>> connect(Client[] clients){
+        Seq<Callable<Object>> tasks = new Seq<>();
+        for(int i = 0; i < clients.length; i++){
+            Client client = clients[i] = new Client(8192, 2048, new FrameworkSerializer());
+            tasks.add(() -> {
+                client.start();
+                client.connect(5000, "127.0.0.1", tcpPort, udpPort);
+                return null;
+            });
+        }
+        return tasks;
+    }
+
+    static void run(ExecutorService executor, Seq<Callable<Object>> tasks) throws Exception{
+        for(Future<Object> future : executor.invokeAll(tasks.list())){
+            future.get();
+        }
+    }
+
+    static void await(Boolp check) throws InterruptedException{
+        long end = System.currentTimeMillis() + 10000;
+        while(!check.get()){
+            if(System.currentTimeMillis() > end) fail("Timed out.");
+            Thread.sleep(10);
+        }
+    }
+
+    /** Only writes the messages that the client and server exchange on their own. */
+    static class FrameworkSerializer implements NetSerializer{
+        @Override
+        public void write(ByteBuffer buffer, Object object){
+            if(object instanceof RegisterTCP){
+                buffer.put((byte)0).putInt(((RegisterTCP)object).connectionID);
+            }else if(object instanceof RegisterUDP){
+                buffer.put((byte)1).putInt(((RegisterUDP)object).connectionID);
+            }else if(object instanceof KeepAlive){
+                buffer.put((byte)2);
+            }else if(object instanceof Ping){
+                Ping ping = (Ping)object;
+                buffer.put((byte)3).putInt(ping.id).put((byte)(ping.isReply ? 1 : 0));
+            }else{
+                throw new IllegalArgumentException("Unknown object: " + object);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer){
+            byte type = buffer.get();
+            switch(type){
+                case 0:
+                    RegisterTCP tcp = new RegisterTCP();
+                    tcp.connectionID = buffer.getInt();
+                    return tcp;
+                case 1:
+                    RegisterUDP udp = new RegisterUDP();
+                    udp.connectionID = buffer.getInt();
+                    return udp;
+                case 2:
+                    return FrameworkMessage.keepAlive;
+                case 3:
+                    Ping ping = new Ping();
+                    ping.id = buffer.getInt();
+                    ping.isReply = buffer.get() == 1;
+                    return ping;
+                default:
+                    throw new IllegalArgumentException("Unknown type: " + type);
+            }
+        }
+    }
+}
@@ -394,6 +394,7 @@ public class GL20Interceptor extends GLInterceptor implements GL20{
     @Override
     public void glBufferData(int target, int size, Buffer data, int usage){
         calls++;
+        if(data != null) uploadedBytes += size;
         gl20.glBufferData(target, size, data, usage);
         check();
     }
@@ -401,6 +402,7 @@ public class GL20Interceptor extends GLInterceptor implements GL20{
     @Override
     public void glBufferSubData(int target, int offset, int size, Buffer data){
         calls++;
+        uploadedBytes += size;
         gl20.glBufferSubData(target, offset, size, data);
         check();
     }
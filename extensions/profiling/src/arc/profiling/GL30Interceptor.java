@@ -392,6 +392,7 @@ public class GL30Interceptor extends GLInterceptor implements GL30{
     @Override
     public void glBufferData(int target, int size, Buffer data, int usage){
         calls++;
+        if(data != null) uploadedBytes += size;
         gl30.glBufferData(target, size, data, usage);
         check();
     }
@@ -399,6 +400,7 @@ public class GL30Interceptor extends GLInterceptor implements GL30{
     @Override
     public void glBufferSubData(int target, int offset, int size, Buffer data){
         calls++;
+        uploadedBytes += size;
         gl30.glBufferSubData(target, offset, size, data);
         check();
     }
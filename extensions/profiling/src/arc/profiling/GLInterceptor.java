@@ -10,6 +10,7 @@ public abstract class GLInterceptor implements GL20{
     public int drawCalls;
     public int shaderSwitches;
     public int stateChanges;
+    public long uploadedBytes;
     protected GLProfiler glProfiler;
 
     protected GLInterceptor(GLProfiler profiler){
@@ -33,6 +34,7 @@ public abstract class GLInterceptor implements GL20{
         drawCalls = 0;
         shaderSwitches = 0;
         stateChanges = 0;
+        uploadedBytes = 0;
         vertexCount.reset();
     }
 }
@@ -106,6 +106,13 @@ public class GLProfiler{
         return glInterceptor.shaderSwitches;
     }
 
+    /**
+     * @return the total amount of bytes uploaded through glBufferData and glBufferSubData since the last reset
+     */
+    public long getUploadedBytes(){
+        return glInterceptor.uploadedBytes;
+    }
+
     /**
      * @return {@link FloatCounter} containing information about rendered vertices since the last reset
      */